@@ -13,6 +13,9 @@ class WebSocketService {
   StreamController<String>? _connectionStatusController;
   
   String? _currentSymbol;
+  // Ticker state per symbol, built from a snapshot and the deltas after it
+  final Map<String, Map<String, dynamic>> _tickers = {};
+  final Map<String, int> _tickerSeq = {};
   bool _isConnected = false;
   Timer? _pingTimer;
   Timer? _reconnectTimer;
@@ -69,6 +72,17 @@ class WebSocketService {
       await connect();
     }
     
+    // Subscriptions add up on the server, so leave the previous symbol first
+    final previous = _currentSymbol;
+    if (previous != null && previous != symbol.toLowerCase()) {
+      _sendMessage({
+        'action': 'unsubscribe',
+        'symbol': previous,
+        'timestamp': DateTime.now().millisecondsSinceEpoch,
+      });
+      _forgetTicker(previous);
+    }
+    
     _currentSymbol = symbol.toLowerCase();
     
     final message = {
@@ -86,10 +100,12 @@ class WebSocketService {
     if (_isConnected && _currentSymbol != null) {
       final message = {
         'action': 'unsubscribe',
+        'symbol': _currentSymbol,
         'timestamp': DateTime.now().millisecondsSinceEpoch,
       };
       
       _sendMessage(message);
+      _forgetTicker(_currentSymbol!);
       _currentSymbol = null;
       debugPrint('🔇 Unsubscribed from real-time updates');
     }
@@ -112,12 +128,15 @@ class WebSocketService {
           break;
           
         case 'subscribed':
-          debugPrint('📡 Subscription confirmed for ${data['symbol']}');
+          final List<dynamic> symbols = data['symbols'] ?? const [];
+          debugPrint('📡 Subscription confirmed for ${symbols.join(', ')}');
           break;
           
-        case 'initial_data':
-        case 'price_update':
-          _handlePriceUpdate(data);
+        case 'snapshot':
+        case 'delta':
+          if (data['channel'] == 'ticker') {
+            _handleTicker(data);
+          }
           break;
           
         case 'error':
@@ -137,10 +156,32 @@ class WebSocketService {
     }
   }
 
-  /// Handle price update messages
-  void _handlePriceUpdate(Map<String, dynamic> data) {
+  /// Handle ticker snapshots and deltas, asking for a snapshot when a delta is missing
+  void _handleTicker(Map<String, dynamic> data) {
     try {
-      final cryptoData = data['data'];
+      final String symbol = data['symbol'];
+      final int seq = data['seq'];
+      final Map<String, dynamic>? fields = data['data'];
+      if (fields == null) return;
+      
+      if (data['type'] == 'snapshot') {
+        _tickers[symbol] = Map<String, dynamic>.from(fields);
+      } else {
+        final state = _tickers[symbol];
+        if (state == null || _tickerSeq[symbol] != seq - 1) {
+          debugPrint('⚠️ Missed ticker update for $symbol, resyncing');
+          _sendMessage({
+            'action': 'resync',
+            'symbol': symbol,
+            'channel': 'ticker',
+          });
+          return;
+        }
+        state.addAll(fields);
+      }
+      _tickerSeq[symbol] = seq;
+      
+      final cryptoData = _tickers[symbol];
       if (cryptoData != null) {
         final crypto = Cryptocurrency.fromJson(cryptoData);
         _priceUpdateController?.add(crypto);
@@ -151,6 +192,11 @@ class WebSocketService {
     }
   }
 
+  void _forgetTicker(String symbol) {
+    _tickers.remove(symbol);
+    _tickerSeq.remove(symbol);
+  }
+
   /// Handle WebSocket errors
   void _handleError(dynamic error) {
     debugPrint('❌ WebSocket error: $error');
@@ -248,6 +294,8 @@ class WebSocketService {
     
     _isConnected = false;
     _currentSymbol = null;
+    _tickers.clear();
+    _tickerSeq.clear();
     _reconnectAttempts = 0;
   }
 
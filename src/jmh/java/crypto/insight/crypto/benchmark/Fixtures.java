@@ -0,0 +1,207 @@
+package crypto.insight.crypto.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import crypto.insight.crypto.model.ChartDataPoint;
+import crypto.insight.crypto.model.CryptoData;
+import crypto.insight.crypto.model.CryptoIdentity;
+import crypto.insight.crypto.model.Cryptocurrency;
+import crypto.insight.crypto.model.coingecko.CoinGeckoMarket;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Provider payloads shared by the benchmarks.
+ * <p>
+ * Recorded responses are read from {@code fixtures/} on the benchmark classpath
+ * ({@code src/jmh/resources/fixtures}, written by {@link RecordFixtures}). When a recording is
+ * missing, a seeded payload of the same shape and size is generated instead, so runs stay
+ * comparable with each other but not with runs against recorded data.
+ */
+public final class Fixtures {
+
+    public static final String MARKETS = "coingecko-markets.json";
+    public static final String MARKET_CHART = "coingecko-market-chart.json";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int MARKET_ROWS = 250;
+    private static final int CHART_POINTS = 8760;
+
+    private Fixtures() {
+    }
+
+    public static ObjectMapper objectMapper() {
+        return MAPPER;
+    }
+
+    /**
+     * Raw {@code /coins/markets} body.
+     */
+    public static byte[] marketsJson() {
+        byte[] recorded = read(MARKETS);
+        return recorded != null ? recorded : write(syntheticMarkets());
+    }
+
+    /**
+     * Raw {@code /coins/{id}/market_chart} body.
+     */
+    public static byte[] marketChartJson() {
+        byte[] recorded = read(MARKET_CHART);
+        return recorded != null ? recorded : write(syntheticMarketChart());
+    }
+
+    public static List<CoinGeckoMarket> markets() {
+        try {
+            return MAPPER.readValue(marketsJson(), new TypeReference<List<CoinGeckoMarket>>() { });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The {@code prices} series of the market chart as chart points.
+     */
+    public static List<ChartDataPoint> chartPoints() {
+        try {
+            JsonNode prices = MAPPER.readTree(marketChartJson()).path("prices");
+            List<ChartDataPoint> points = new ArrayList<>(prices.size());
+            for (JsonNode pair : prices) {
+                points.add(new ChartDataPoint(pair.get(0).asLong(), pair.get(1).asDouble()));
+            }
+            return points;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The market rows as the aggregated {@link Cryptocurrency} values the caches hold.
+     */
+    public static List<Cryptocurrency> cryptocurrencies() {
+        List<Cryptocurrency> rows = new ArrayList<>();
+        for (CoinGeckoMarket market : markets()) {
+            rows.add(Cryptocurrency.builder()
+                    .id(market.getId())
+                    .name(market.getName())
+                    .symbol(market.getSymbol().toUpperCase())
+                    .price(market.getCurrentPrice())
+                    .marketCap(market.getMarketCap())
+                    .volume24h(market.getTotalVolume())
+                    .percentChange24h(market.getPriceChangePercentage24h())
+                    .imageUrl(market.getImage())
+                    .rank(market.getMarketCapRank())
+                    .circulatingSupply(market.getCirculatingSupply())
+                    .totalSupply(market.getTotalSupply())
+                    .maxSupply(market.getMaxSupply())
+                    .high24h(market.getHigh24h())
+                    .low24h(market.getLow24h())
+                    .build());
+        }
+        return rows;
+    }
+
+    /**
+     * One market row as a provider would report it, with only the fields CoinGecko supplies.
+     */
+    public static CryptoData cryptoData(CoinGeckoMarket market, String source) {
+        CryptoIdentity identity = new CryptoIdentity(market.getSymbol());
+        identity.setSymbol(market.getSymbol().toUpperCase());
+        identity.setName(market.getName());
+        identity.setCoingeckoId(market.getId());
+        CryptoData data = new CryptoData(identity);
+        data.setSource(source);
+        data.setCurrentPrice(market.getCurrentPrice());
+        data.setMarketCap(market.getMarketCap());
+        data.setVolume24h(market.getTotalVolume());
+        data.setPriceChange24h(market.getPriceChangePercentage24h());
+        data.setMarketCapRank(market.getMarketCapRank());
+        data.setCirculatingSupply(market.getCirculatingSupply());
+        data.setTotalSupply(market.getTotalSupply());
+        data.setMaxSupply(market.getMaxSupply());
+        data.setImageUrl(market.getImage());
+        return data;
+    }
+
+    private static byte[] read(String name) {
+        try (InputStream in = Fixtures.class.getClassLoader().getResourceAsStream("fixtures/" + name)) {
+            return in != null ? in.readAllBytes() : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] write(JsonNode node) {
+        try {
+            return MAPPER.writeValueAsBytes(node);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ArrayNode syntheticMarkets() {
+        Random random = new Random(42);
+        ArrayNode rows = JsonNodeFactory.instance.arrayNode();
+        double marketCap = 1.3e12;
+        for (int rank = 1; rank <= MARKET_ROWS; rank++) {
+            double price = Math.exp(random.nextGaussian() * 3);
+            double circulating = marketCap / price;
+            ObjectNode row = rows.addObject();
+            row.put("id", "coin-" + rank);
+            row.put("symbol", "c" + rank);
+            row.put("name", "Coin " + rank);
+            row.put("image", "https://assets.coingecko.com/coins/images/" + rank + "/large/coin.png");
+            row.put("current_price", decimal(price));
+            row.put("market_cap", Math.round(marketCap));
+            row.put("market_cap_rank", rank);
+            row.put("fully_diluted_valuation", Math.round(marketCap * 1.2));
+            row.put("total_volume", Math.round(marketCap * (0.02 + random.nextDouble() * 0.1)));
+            row.put("high_24h", decimal(price * 1.03));
+            row.put("low_24h", decimal(price * 0.97));
+            row.put("price_change_24h", decimal(price * random.nextGaussian() * 0.03));
+            row.put("price_change_percentage_24h", decimal(random.nextGaussian() * 3));
+            row.put("circulating_supply", decimal(circulating));
+            row.put("total_supply", decimal(circulating * 1.2));
+            if (random.nextBoolean()) {
+                row.put("max_supply", decimal(circulating * 1.5));
+            } else {
+                row.putNull("max_supply");
+            }
+            row.put("last_updated", "2024-03-01T12:00:00.000Z");
+            marketCap *= 0.97;
+        }
+        return rows;
+    }
+
+    private static ObjectNode syntheticMarketChart() {
+        Random random = new Random(7);
+        ObjectNode chart = JsonNodeFactory.instance.objectNode();
+        ArrayNode prices = chart.putArray("prices");
+        ArrayNode marketCaps = chart.putArray("market_caps");
+        ArrayNode volumes = chart.putArray("total_volumes");
+        long timestamp = 1_677_628_800_000L;
+        double price = 30_000;
+        for (int i = 0; i < CHART_POINTS; i++) {
+            price *= Math.exp(random.nextGaussian() * 0.008);
+            prices.addArray().add(timestamp).add(decimal(price));
+            marketCaps.addArray().add(timestamp).add(Math.round(price * 19_500_000));
+            volumes.addArray().add(timestamp).add(Math.round(price * 500_000 * (0.5 + random.nextDouble())));
+            timestamp += 3_600_000L;
+        }
+        return chart;
+    }
+
+    private static BigDecimal decimal(double value) {
+        return BigDecimal.valueOf(value).round(new MathContext(10));
+    }
+}
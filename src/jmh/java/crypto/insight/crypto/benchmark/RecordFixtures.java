@@ -0,0 +1,50 @@
+package crypto.insight.crypto.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Records the CoinGecko payloads {@link Fixtures} reads into {@code src/jmh/resources/fixtures}.
+ * <p>
+ * Run from the project root with network access, e.g.
+ * {@code mvn -Pbenchmarks test-compile exec:java -Dexec.mainClass=crypto.insight.crypto.benchmark.RecordFixtures -Dexec.classpathScope=test}.
+ * An optional argument overrides the API base URL.
+ */
+public final class RecordFixtures {
+
+    private static final String DEFAULT_BASE_URL = "https://api.coingecko.com/api/v3";
+
+    private RecordFixtures() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String baseUrl = args.length > 0 ? args[0] : DEFAULT_BASE_URL;
+        Path dir = Path.of("src", "jmh", "resources", "fixtures");
+        Files.createDirectories(dir);
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        record(client, baseUrl + "/coins/markets?vs_currency=usd&order=market_cap_desc&per_page=250&page=1",
+                dir.resolve(Fixtures.MARKETS));
+        record(client, baseUrl + "/coins/bitcoin/market_chart?vs_currency=usd&days=365",
+                dir.resolve(Fixtures.MARKET_CHART));
+    }
+
+    private static void record(HttpClient client, String url, Path target) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("Accept", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .build();
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IOException("GET " + url + " returned " + response.statusCode());
+        }
+        Files.write(target, response.body());
+        System.out.printf("Recorded %s (%d bytes)%n", target, response.body().length);
+    }
+}
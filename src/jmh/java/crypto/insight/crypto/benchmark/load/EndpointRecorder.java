@@ -0,0 +1,54 @@
+package crypto.insight.crypto.benchmark.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and outcomes of one endpoint during one phase.
+ * <p>
+ * Latency is measured from when a request was scheduled to be sent, not from when it was
+ * actually sent, so requests delayed behind a slow server count that wait (no coordinated omission).
+ */
+class EndpointRecorder {
+
+    private static final long MAX_LATENCY_NANOS = Duration.ofMinutes(2).toNanos();
+
+    private final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_NANOS, 3);
+    private final LongAdder errors = new LongAdder();
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+    void record(long scheduledNanos, String outcome, boolean error) {
+        latencies.recordValue(Math.min(System.nanoTime() - scheduledNanos, MAX_LATENCY_NANOS));
+        outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    LoadReport.EndpointReport report(Duration elapsed) {
+        long requests = latencies.getTotalCount();
+        LoadReport.EndpointReport report = new LoadReport.EndpointReport();
+        report.setRequests(requests);
+        report.setErrors(errors.sum());
+        report.setErrorRate(requests > 0 ? (double) errors.sum() / requests : 0.0);
+        report.setThroughput(requests / (elapsed.toNanos() / 1e9));
+        report.setP50Ms(millis(latencies.getValueAtPercentile(50)));
+        report.setP95Ms(millis(latencies.getValueAtPercentile(95)));
+        report.setP99Ms(millis(latencies.getValueAtPercentile(99)));
+        report.setMaxMs(millis(latencies.getMaxValue()));
+        Map<String, Long> byOutcome = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> byOutcome.put(outcome, count.sum()));
+        report.setOutcomes(byOutcome);
+        return report;
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
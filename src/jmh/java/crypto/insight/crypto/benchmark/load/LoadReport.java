@@ -0,0 +1,38 @@
+package crypto.insight.crypto.benchmark.load;
+
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of one load test run, written as JSON so a later run can use it as its baseline.
+ */
+@Data
+public class LoadReport {
+
+    private String scenario;
+    private String target;
+    private String startedAt;
+    private Duration duration;
+    private Map<String, EndpointReport> endpoints = new LinkedHashMap<>();
+    private List<String> violations = new ArrayList<>();
+
+    @Data
+    public static class EndpointReport {
+        private long requests;
+        private long errors;
+        private double errorRate;
+        private double throughput;
+        private double p50Ms;
+        private double p95Ms;
+        private double p99Ms;
+        private double maxMs;
+
+        /** Requests per HTTP status or failure type */
+        private Map<String, Long> outcomes = new LinkedHashMap<>();
+    }
+}
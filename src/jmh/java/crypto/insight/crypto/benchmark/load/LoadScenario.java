@@ -0,0 +1,59 @@
+package crypto.insight.crypto.benchmark.load;
+
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An open-model load profile: every endpoint receives requests at its own constant arrival rate,
+ * independent of how fast earlier requests complete, for {@code warmup} and then {@code duration}.
+ */
+@Data
+public class LoadScenario {
+
+    private String name;
+    private Duration warmup = Duration.ofSeconds(10);
+    private Duration duration = Duration.ofSeconds(30);
+
+    /** Symbols substituted into {@code {symbol}}/{@code {id}} in rotation, taken from the market fixture */
+    private int coins = 20;
+
+    /**
+     * Allowed relative change against a baseline report: p95/p99 may grow and throughput may
+     * shrink by this fraction
+     */
+    private double regressionTolerance = 0.25;
+
+    private List<Endpoint> endpoints = new ArrayList<>();
+
+    @Data
+    public static class Endpoint {
+
+        private String name;
+        private String method = "GET";
+
+        /** Request path; {@code {symbol}} and {@code {id}} rotate through the fixture coins */
+        private String path;
+
+        /** Optional JSON body; also accepts {@code {symbol}}, {@code {symbols}} and {@code {ids}} */
+        private String body;
+
+        /** Requests per second */
+        private double rate = 10;
+
+        private Duration timeout = Duration.ofSeconds(10);
+        private Thresholds thresholds = new Thresholds();
+    }
+
+    /**
+     * Absolute limits; a null limit is not checked
+     */
+    @Data
+    public static class Thresholds {
+        private Duration p95;
+        private Duration p99;
+        private Double errorRate = 0.01;
+    }
+}
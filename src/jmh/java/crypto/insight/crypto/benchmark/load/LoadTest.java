@@ -0,0 +1,267 @@
+package crypto.insight.crypto.benchmark.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import crypto.insight.crypto.benchmark.Fixtures;
+import crypto.insight.crypto.benchmark.upstream.StandInApplication;
+import crypto.insight.crypto.benchmark.upstream.UpstreamFaults;
+import crypto.insight.crypto.benchmark.upstream.UpstreamStandIn;
+import crypto.insight.crypto.model.coingecko.CoinGeckoMarket;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Runs a {@link LoadScenario} against the REST API and fails when it breaks a threshold.
+ * <p>
+ * Without {@code -target} the application is started in-process against an
+ * {@link UpstreamStandIn} (faults from {@code upstream.*} system properties), so a run never
+ * touches real providers. Each endpoint is driven at a constant arrival rate; after the warmup
+ * the run reports throughput, p50/p95/p99/max latency and error rate per endpoint, writes the
+ * report as JSON and exits with status 1 when a threshold or the baseline is exceeded.
+ * <p>
+ * Arguments: {@code <scenario> [-target=http://host:port] [-baseline=report.json] [-report=out.json]};
+ * the scenario is a classpath resource or a file.
+ */
+public final class LoadTest {
+
+    private static final int MAX_IN_FLIGHT_PER_ENDPOINT = 2_000;
+    private static final int BATCH_SIZE = 10;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final LoadScenario scenario;
+    private final List<CoinGeckoMarket> coins;
+
+    private LoadTest(LoadScenario scenario) {
+        this.scenario = scenario;
+        List<CoinGeckoMarket> markets = Fixtures.markets();
+        this.coins = markets.subList(0, Math.min(scenario.getCoins(), markets.size()));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: LoadTest <scenario> [-target=url] [-baseline=report.json] [-report=out.json]");
+            System.exit(2);
+        }
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String[] option = args[i].replaceFirst("^-+", "").split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+
+        LoadTest loadTest = new LoadTest(readScenario(args[0]));
+        UpstreamStandIn upstream = null;
+        ConfigurableApplicationContext application = null;
+        String target = options.get("target");
+        LoadReport report;
+        try {
+            if (target == null) {
+                upstream = UpstreamStandIn.start(UpstreamFaults.fromSystemProperties("upstream", UpstreamFaults.none()));
+                application = StandInApplication.start(upstream);
+                target = StandInApplication.baseUrl(application);
+            }
+            report = loadTest.run(target, options.get("baseline"));
+            if (upstream != null) {
+                System.out.println("Upstream stand-in: " + upstream.getStatistics());
+            }
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+            if (upstream != null) {
+                upstream.close();
+            }
+        }
+
+        Path reportPath = Path.of(options.getOrDefault("report", "target/load-test/" + report.getScenario() + ".json"));
+        Files.createDirectories(reportPath.toAbsolutePath().getParent());
+        loadTest.objectMapper.writeValue(reportPath.toFile(), report);
+        System.out.println("Report written to " + reportPath);
+
+        if (!report.getViolations().isEmpty()) {
+            System.out.println("\nLoad test FAILED:");
+            report.getViolations().forEach(violation -> System.out.println("  " + violation));
+            System.exit(1);
+        }
+        System.out.println("\nLoad test passed");
+        System.exit(0);
+    }
+
+    private LoadReport run(String target, String baselinePath) throws IOException {
+        ConnectionProvider connections = ConnectionProvider.builder("load-test")
+                .maxConnections(MAX_IN_FLIGHT_PER_ENDPOINT)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        WebClient client = WebClient.builder()
+                .baseUrl(target)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                .build();
+        try {
+            System.out.printf("Load test '%s' against %s: %s warmup, %s measured%n",
+                    scenario.getName(), target, scenario.getWarmup(), scenario.getDuration());
+            runPhase(client, scenario.getWarmup());
+
+            Instant startedAt = Instant.now();
+            long start = System.nanoTime();
+            Map<String, EndpointRecorder> recorders = runPhase(client, scenario.getDuration());
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+            LoadReport report = new LoadReport();
+            report.setScenario(scenario.getName());
+            report.setTarget(target);
+            report.setStartedAt(startedAt.toString());
+            report.setDuration(elapsed);
+            recorders.forEach((name, recorder) -> report.getEndpoints().put(name, recorder.report(elapsed)));
+            report.getViolations().addAll(checkThresholds(report));
+            if (baselinePath != null) {
+                report.getViolations().addAll(checkBaseline(report, objectMapper.readValue(Path.of(baselinePath).toFile(), LoadReport.class)));
+            }
+            print(report);
+            return report;
+        } finally {
+            connections.dispose();
+        }
+    }
+
+    private Map<String, EndpointRecorder> runPhase(WebClient client, Duration length) {
+        Map<String, EndpointRecorder> recorders = new LinkedHashMap<>();
+        List<Mono<Void>> drivers = new ArrayList<>();
+        for (LoadScenario.Endpoint endpoint : scenario.getEndpoints()) {
+            EndpointRecorder recorder = new EndpointRecorder();
+            recorders.put(endpoint.getName(), recorder);
+            drivers.add(drive(client, endpoint, length, recorder));
+        }
+        Mono.when(drivers).block();
+        return recorders;
+    }
+
+    /**
+     * Sends requests on a fixed schedule whether or not earlier ones have completed.
+     */
+    private Mono<Void> drive(WebClient client, LoadScenario.Endpoint endpoint, Duration length, EndpointRecorder recorder) {
+        long periodNanos = (long) (1e9 / endpoint.getRate());
+        long requests = Math.max(1, length.toNanos() / periodNanos);
+        long start = System.nanoTime();
+        return Flux.interval(Duration.ofNanos(periodNanos))
+                .take(requests)
+                .onBackpressureBuffer()
+                .flatMap(tick -> {
+                    long scheduled = start + (tick + 1) * periodNanos;
+                    CoinGeckoMarket coin = coins.get((int) (tick % coins.size()));
+                    return send(client, endpoint, coin)
+                            .doOnNext(outcome -> recorder.record(scheduled, outcome.name(), outcome.error()));
+                }, MAX_IN_FLIGHT_PER_ENDPOINT)
+                .then();
+    }
+
+    private Mono<Outcome> send(WebClient client, LoadScenario.Endpoint endpoint, CoinGeckoMarket coin) {
+        WebClient.RequestBodySpec request = client.method(HttpMethod.valueOf(endpoint.getMethod()))
+                .uri(expand(endpoint.getPath(), coin));
+        WebClient.RequestHeadersSpec<?> withBody = endpoint.getBody() == null ? request
+                : request.contentType(MediaType.APPLICATION_JSON).bodyValue(expand(endpoint.getBody(), coin));
+        return withBody
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()))
+                .timeout(endpoint.getTimeout())
+                .map(status -> new Outcome(String.valueOf(status), status >= 400))
+                .onErrorResume(error -> Mono.just(new Outcome(
+                        error instanceof TimeoutException ? "timeout" : error.getClass().getSimpleName(), true)));
+    }
+
+    private String expand(String template, CoinGeckoMarket coin) {
+        List<CoinGeckoMarket> batch = coins.subList(0, Math.min(BATCH_SIZE, coins.size()));
+        return template
+                .replace("{symbol}", coin.getSymbol().toUpperCase(Locale.ROOT))
+                .replace("{id}", coin.getId())
+                .replace("{symbols}", jsonArray(batch.stream().map(market -> market.getSymbol().toUpperCase(Locale.ROOT)).toList()))
+                .replace("{ids}", jsonArray(batch.stream().map(CoinGeckoMarket::getId).toList()));
+    }
+
+    private static String jsonArray(List<String> values) {
+        return values.stream().map(value -> '"' + value + '"').collect(Collectors.joining(",", "[", "]"));
+    }
+
+    private List<String> checkThresholds(LoadReport report) {
+        List<String> violations = new ArrayList<>();
+        for (LoadScenario.Endpoint endpoint : scenario.getEndpoints()) {
+            LoadReport.EndpointReport result = report.getEndpoints().get(endpoint.getName());
+            LoadScenario.Thresholds limits = endpoint.getThresholds();
+            if (limits.getP95() != null && result.getP95Ms() > limits.getP95().toMillis()) {
+                violations.add(String.format("%s: p95 %.1f ms exceeds %d ms", endpoint.getName(), result.getP95Ms(), limits.getP95().toMillis()));
+            }
+            if (limits.getP99() != null && result.getP99Ms() > limits.getP99().toMillis()) {
+                violations.add(String.format("%s: p99 %.1f ms exceeds %d ms", endpoint.getName(), result.getP99Ms(), limits.getP99().toMillis()));
+            }
+            if (limits.getErrorRate() != null && result.getErrorRate() > limits.getErrorRate()) {
+                violations.add(String.format("%s: error rate %.2f%% exceeds %.2f%% %s", endpoint.getName(),
+                        result.getErrorRate() * 100, limits.getErrorRate() * 100, result.getOutcomes()));
+            }
+        }
+        return violations;
+    }
+
+    private List<String> checkBaseline(LoadReport report, LoadReport baseline) {
+        double tolerance = scenario.getRegressionTolerance();
+        List<String> violations = new ArrayList<>();
+        report.getEndpoints().forEach((name, result) -> {
+            LoadReport.EndpointReport before = baseline.getEndpoints().get(name);
+            if (before == null) {
+                return;
+            }
+            if (result.getP95Ms() > before.getP95Ms() * (1 + tolerance)) {
+                violations.add(String.format("%s: p95 regressed from %.1f ms to %.1f ms", name, before.getP95Ms(), result.getP95Ms()));
+            }
+            if (result.getP99Ms() > before.getP99Ms() * (1 + tolerance)) {
+                violations.add(String.format("%s: p99 regressed from %.1f ms to %.1f ms", name, before.getP99Ms(), result.getP99Ms()));
+            }
+            if (result.getThroughput() < before.getThroughput() * (1 - tolerance)) {
+                violations.add(String.format("%s: throughput dropped from %.1f/s to %.1f/s", name, before.getThroughput(), result.getThroughput()));
+            }
+        });
+        return violations;
+    }
+
+    private static void print(LoadReport report) {
+        System.out.printf("%n%-28s %9s %10s %8s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "req/s", "errors", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        report.getEndpoints().forEach((name, result) -> System.out.printf("%-28s %9d %10.1f %7.2f%% %10.1f %10.1f %10.1f %10.1f%n",
+                name, result.getRequests(), result.getThroughput(), result.getErrorRate() * 100,
+                result.getP50Ms(), result.getP95Ms(), result.getP99Ms(), result.getMaxMs()));
+    }
+
+    private static LoadScenario readScenario(String location) throws IOException {
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        try (InputStream resource = LoadTest.class.getClassLoader().getResourceAsStream(location)) {
+            if (resource != null) {
+                return mapper.readValue(resource, LoadScenario.class);
+            }
+        }
+        return mapper.readValue(Path.of(location).toFile(), LoadScenario.class);
+    }
+
+    private record Outcome(String name, boolean error) {
+    }
+}
@@ -0,0 +1,38 @@
+package crypto.insight.crypto.benchmark.upstream;
+
+import crypto.insight.crypto.CryptoInsightApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the full application on a free port with every upstream pointed at an
+ * {@link UpstreamStandIn}. Application logs go to {@code target/} at WARN so they neither touch
+ * the tracked log file nor dominate the measurement.
+ */
+public final class StandInApplication {
+
+    private StandInApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(UpstreamStandIn upstream) {
+        List<String> args = new ArrayList<>();
+        upstream.baseUrlProperties().forEach((key, value) -> args.add("--" + key + "=" + value));
+        args.add("--server.port=0");
+        args.add("--logging.file.name=target/benchmark-application.log");
+        args.add("--logging.level.crypto.insight.crypto=WARN");
+        args.add("--logging.level.org.springframework.web.reactive=WARN");
+        return new SpringApplicationBuilder(CryptoInsightApplication.class).run(args.toArray(String[]::new));
+    }
+
+    /**
+     * Base URL of the started application's HTTP server.
+     */
+    public static String baseUrl(ConfigurableApplicationContext context) {
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        return "http://127.0.0.1:" + port;
+    }
+}
@@ -0,0 +1,32 @@
+package crypto.insight.crypto.benchmark.upstream;
+
+/**
+ * The services the stand-in replaces, each served under its own path prefix.
+ */
+public enum Upstream {
+
+    COINGECKO("coingecko", "crypto.api.coingecko.baseUrl"),
+    CRYPTOCOMPARE("cryptocompare", "crypto.api.cryptocompare.baseUrl"),
+    COINMARKETCAP("coinmarketcap", "crypto.api.coinmarketcap.baseUrl"),
+    COINPAPRIKA("coinpaprika", "crypto.api.coinpaprika.baseUrl"),
+    OLLAMA("ollama", "crypto.api.ollama.baseUrl");
+
+    private final String prefix;
+    private final String baseUrlProperty;
+
+    Upstream(String prefix, String baseUrlProperty) {
+        this.prefix = prefix;
+        this.baseUrlProperty = baseUrlProperty;
+    }
+
+    public String prefix() {
+        return prefix;
+    }
+
+    /**
+     * The {@code ApiProperties} key that points the application at this upstream.
+     */
+    public String baseUrlProperty() {
+        return baseUrlProperty;
+    }
+}
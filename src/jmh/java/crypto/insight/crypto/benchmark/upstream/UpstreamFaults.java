@@ -0,0 +1,78 @@
+package crypto.insight.crypto.benchmark.upstream;
+
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latency and failure behaviour of one stand-in upstream.
+ * <p>
+ * Latency is log-normal, fixed by its median and 99th percentile, which matches the long right
+ * tail of real API latencies; a p99 equal to the median gives a constant delay. Each request
+ * independently fails with {@code errorRate} (HTTP 500) or is throttled with
+ * {@code rateLimitRate} (HTTP 429 with {@code Retry-After}).
+ */
+@Data
+public class UpstreamFaults {
+
+    /** z-score of the 99th percentile of a standard normal distribution */
+    private static final double Z_99 = 2.3263;
+
+    private Duration medianLatency = Duration.ZERO;
+    private Duration p99Latency = Duration.ZERO;
+    private double errorRate;
+    private double rateLimitRate;
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    public static UpstreamFaults none() {
+        return new UpstreamFaults();
+    }
+
+    public static UpstreamFaults latency(Duration median, Duration p99) {
+        UpstreamFaults faults = new UpstreamFaults();
+        faults.setMedianLatency(median);
+        faults.setP99Latency(p99);
+        return faults;
+    }
+
+    /**
+     * Reads {@code <prefix>.median}, {@code .p99} (ISO-8601 durations), {@code .errorRate} and
+     * {@code .rateLimitRate} from system properties, falling back to {@code defaults}.
+     */
+    public static UpstreamFaults fromSystemProperties(String prefix, UpstreamFaults defaults) {
+        UpstreamFaults faults = new UpstreamFaults();
+        faults.setMedianLatency(duration(prefix + ".median", defaults.getMedianLatency()));
+        faults.setP99Latency(duration(prefix + ".p99", defaults.getP99Latency()));
+        faults.setErrorRate(Double.parseDouble(System.getProperty(prefix + ".errorRate", String.valueOf(defaults.getErrorRate()))));
+        faults.setRateLimitRate(Double.parseDouble(System.getProperty(prefix + ".rateLimitRate", String.valueOf(defaults.getRateLimitRate()))));
+        faults.setRetryAfter(defaults.getRetryAfter());
+        return faults;
+    }
+
+    public Duration sampleLatency() {
+        long median = medianLatency.toNanos();
+        if (median <= 0) {
+            return Duration.ZERO;
+        }
+        double sigma = Math.log(Math.max(p99Latency.toNanos(), median) / (double) median) / Z_99;
+        return Duration.ofNanos((long) (median * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian())));
+    }
+
+    public Outcome sampleOutcome() {
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < rateLimitRate) {
+            return Outcome.RATE_LIMITED;
+        }
+        return roll < rateLimitRate + errorRate ? Outcome.ERROR : Outcome.OK;
+    }
+
+    private static Duration duration(String property, Duration fallback) {
+        String value = System.getProperty(property);
+        return value != null ? Duration.parse(value) : fallback;
+    }
+
+    public enum Outcome {
+        OK, ERROR, RATE_LIMITED
+    }
+}
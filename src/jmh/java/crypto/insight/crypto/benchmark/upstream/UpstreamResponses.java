@@ -0,0 +1,280 @@
+package crypto.insight.crypto.benchmark.upstream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import crypto.insight.crypto.model.coingecko.CoinGeckoMarket;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Response bodies for the endpoints the providers and the AI services call.
+ * <p>
+ * A recorded body under {@code fixtures/upstream/<upstream>/<path>.json} on the classpath is
+ * replayed verbatim (query strings are ignored). Otherwise a body is built from one list of
+ * CoinGecko market rows, so every upstream agrees on the same coins and the aggregation merges
+ * consistent data. Unknown paths and unknown coins return null, which the server answers with 404.
+ */
+public class UpstreamResponses {
+
+    private static final String RECORDED = "fixtures/upstream/";
+
+    private final ObjectMapper objectMapper;
+    private final List<CoinGeckoMarket> markets;
+    private final Map<String, CoinGeckoMarket> byId;
+    private final Map<String, CoinGeckoMarket> bySymbol;
+    private final Map<String, CoinGeckoMarket> byPaprikaId;
+
+    public UpstreamResponses(ObjectMapper objectMapper, List<CoinGeckoMarket> markets) {
+        this.objectMapper = objectMapper;
+        this.markets = markets;
+        this.byId = index(markets, CoinGeckoMarket::getId);
+        this.bySymbol = index(markets, UpstreamResponses::symbol);
+        this.byPaprikaId = index(markets, UpstreamResponses::paprikaId);
+    }
+
+    /**
+     * Body for {@code path} on {@code upstream}, or null when there is nothing to answer with.
+     */
+    public byte[] respond(Upstream upstream, String path, Map<String, String> query) {
+        byte[] recorded = recorded(upstream, path);
+        if (recorded != null) {
+            return recorded;
+        }
+        JsonNode body = switch (upstream) {
+            case COINGECKO -> coinGecko(path, query);
+            case CRYPTOCOMPARE -> cryptoCompare(path, query);
+            case COINMARKETCAP -> coinMarketCap(path, query);
+            case COINPAPRIKA -> coinPaprika(path, query);
+            case OLLAMA -> ollama(path);
+        };
+        return body != null ? write(body) : null;
+    }
+
+    private JsonNode coinGecko(String path, Map<String, String> query) {
+        if (path.equals("/search")) {
+            ObjectNode body = objectMapper.createObjectNode();
+            ArrayNode coins = body.putArray("coins");
+            matching(query.get("query")).forEach(market -> coins.addObject()
+                    .put("id", market.getId())
+                    .put("name", market.getName())
+                    .put("symbol", symbol(market))
+                    .put("market_cap_rank", market.getMarketCapRank())
+                    .put("large", market.getImage()));
+            body.putArray("exchanges");
+            body.putArray("categories");
+            return body;
+        }
+        if (path.equals("/coins/list")) {
+            ArrayNode coins = objectMapper.createArrayNode();
+            markets.forEach(market -> coins.addObject()
+                    .put("id", market.getId())
+                    .put("symbol", market.getSymbol())
+                    .put("name", market.getName()));
+            return coins;
+        }
+        if (path.equals("/coins/markets")) {
+            String ids = query.get("ids");
+            return objectMapper.valueToTree(ids != null ? lookup(ids, byId) : page(query));
+        }
+        if (path.startsWith("/coins/") && path.indexOf('/', 7) < 0) {
+            CoinGeckoMarket market = byId.get(path.substring(7));
+            return market != null ? coinGeckoDetails(market) : null;
+        }
+        return null;
+    }
+
+    private JsonNode coinGeckoDetails(CoinGeckoMarket market) {
+        ObjectNode body = objectMapper.createObjectNode()
+                .put("id", market.getId())
+                .put("symbol", market.getSymbol())
+                .put("name", market.getName())
+                .put("market_cap_rank", market.getMarketCapRank());
+        body.putObject("image").put("large", market.getImage());
+        ObjectNode data = body.putObject("market_data");
+        data.putObject("current_price").put("usd", market.getCurrentPrice());
+        data.putObject("market_cap").put("usd", market.getMarketCap());
+        data.putObject("total_volume").put("usd", market.getTotalVolume());
+        data.putObject("high_24h").put("usd", market.getHigh24h());
+        data.putObject("low_24h").put("usd", market.getLow24h());
+        data.put("price_change_percentage_24h", market.getPriceChangePercentage24h());
+        data.put("circulating_supply", market.getCirculatingSupply());
+        data.put("total_supply", market.getTotalSupply());
+        data.put("max_supply", market.getMaxSupply());
+        return body;
+    }
+
+    private JsonNode cryptoCompare(String path, Map<String, String> query) {
+        if (path.equals("/all/coinlist")) {
+            ObjectNode body = objectMapper.createObjectNode().put("Response", "Success");
+            ObjectNode data = body.putObject("Data");
+            bySymbol.forEach((symbol, market) -> data.putObject(symbol)
+                    .put("Id", String.valueOf(market.getMarketCapRank()))
+                    .put("Symbol", symbol)
+                    .put("CoinName", market.getName()));
+            return body;
+        }
+        if (path.equals("/pricemultifull")) {
+            ObjectNode body = objectMapper.createObjectNode();
+            ObjectNode raw = body.putObject("RAW");
+            lookup(query.get("fsyms"), bySymbol).forEach(market -> raw.putObject(symbol(market)).putObject("USD")
+                    .put("PRICE", market.getCurrentPrice())
+                    .put("MKTCAP", market.getMarketCap())
+                    .put("TOTALVOLUME24H", market.getTotalVolume())
+                    .put("CHANGEPCT24HOUR", market.getPriceChangePercentage24h()));
+            return body;
+        }
+        return null;
+    }
+
+    private JsonNode coinMarketCap(String path, Map<String, String> query) {
+        if (path.equals("/v1/cryptocurrency/map")) {
+            ObjectNode body = objectMapper.createObjectNode();
+            ArrayNode data = body.putArray("data");
+            lookup(query.get("symbol"), bySymbol).forEach(market -> data.addObject()
+                    .put("id", market.getMarketCapRank())
+                    .put("name", market.getName())
+                    .put("symbol", symbol(market)));
+            return body;
+        }
+        if (path.equals("/v2/cryptocurrency/quotes/latest")) {
+            ObjectNode body = objectMapper.createObjectNode();
+            ObjectNode data = body.putObject("data");
+            lookup(query.get("symbol"), bySymbol).forEach(market -> data.putArray(symbol(market)).addObject()
+                    .put("id", market.getMarketCapRank())
+                    .put("symbol", symbol(market))
+                    .putObject("quote").putObject("USD")
+                    .put("price", market.getCurrentPrice())
+                    .put("market_cap", market.getMarketCap())
+                    .put("volume_24h", market.getTotalVolume())
+                    .put("percent_change_24h", market.getPriceChangePercentage24h()));
+            return body;
+        }
+        return null;
+    }
+
+    private JsonNode coinPaprika(String path, Map<String, String> query) {
+        if (path.equals("/search")) {
+            ObjectNode body = objectMapper.createObjectNode();
+            ArrayNode currencies = body.putArray("currencies");
+            matching(query.get("q")).forEach(market -> currencies.add(paprikaCoin(market)));
+            return body;
+        }
+        if (path.equals("/coins")) {
+            ArrayNode coins = objectMapper.createArrayNode();
+            markets.forEach(market -> coins.add(paprikaCoin(market)));
+            return coins;
+        }
+        if (path.startsWith("/tickers/")) {
+            CoinGeckoMarket market = byPaprikaId.get(path.substring(9));
+            if (market == null) {
+                return null;
+            }
+            ObjectNode ticker = paprikaCoin(market)
+                    .put("rank", market.getMarketCapRank())
+                    .put("circulating_supply", market.getCirculatingSupply())
+                    .put("total_supply", market.getTotalSupply())
+                    .put("max_supply", market.getMaxSupply());
+            ticker.putObject("quotes").putObject("USD")
+                    .put("price", market.getCurrentPrice())
+                    .put("market_cap", market.getMarketCap())
+                    .put("volume_24h", market.getTotalVolume())
+                    .put("percent_change_24h", market.getPriceChangePercentage24h());
+            return ticker;
+        }
+        return null;
+    }
+
+    private ObjectNode paprikaCoin(CoinGeckoMarket market) {
+        return objectMapper.createObjectNode()
+                .put("id", paprikaId(market))
+                .put("name", market.getName())
+                .put("symbol", symbol(market))
+                .put("rank", market.getMarketCapRank())
+                .put("is_active", true)
+                .put("type", "coin");
+    }
+
+    private JsonNode ollama(String path) {
+        String answer = "Stand-in analysis: the market data above is synthetic and was not evaluated.";
+        if (path.equals("/api/chat")) {
+            ObjectNode body = objectMapper.createObjectNode().put("model", "stand-in").put("done", true);
+            body.putObject("message").put("role", "assistant").put("content", answer);
+            return body;
+        }
+        if (path.equals("/api/generate")) {
+            return objectMapper.createObjectNode().put("model", "stand-in").put("response", answer).put("done", true);
+        }
+        return null;
+    }
+
+    private List<CoinGeckoMarket> page(Map<String, String> query) {
+        int perPage = Integer.parseInt(query.getOrDefault("per_page", "100"));
+        int page = Integer.parseInt(query.getOrDefault("page", "1"));
+        int from = Math.min(markets.size(), Math.max(0, (page - 1) * perPage));
+        return markets.subList(from, Math.min(markets.size(), from + perPage));
+    }
+
+    private List<CoinGeckoMarket> matching(String query) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        String needle = query.toLowerCase(Locale.ROOT);
+        Predicate<CoinGeckoMarket> matches = market -> market.getId().equals(needle)
+                || market.getSymbol().equalsIgnoreCase(needle)
+                || market.getName().toLowerCase(Locale.ROOT).contains(needle);
+        return markets.stream().filter(matches).limit(10).toList();
+    }
+
+    private static List<CoinGeckoMarket> lookup(String commaSeparated, Map<String, CoinGeckoMarket> index) {
+        if (commaSeparated == null || commaSeparated.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(commaSeparated.split(","))
+                .map(key -> index.get(key.trim()))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private byte[] recorded(Upstream upstream, String path) {
+        String resource = RECORDED + upstream.prefix() + path + ".json";
+        try (InputStream in = UpstreamResponses.class.getClassLoader().getResourceAsStream(resource)) {
+            return in != null ? in.readAllBytes() : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] write(JsonNode body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String symbol(CoinGeckoMarket market) {
+        return market.getSymbol().toUpperCase(Locale.ROOT);
+    }
+
+    private static String paprikaId(CoinGeckoMarket market) {
+        return market.getSymbol().toLowerCase(Locale.ROOT) + "-" + market.getId();
+    }
+
+    private static Map<String, CoinGeckoMarket> index(List<CoinGeckoMarket> markets, Function<CoinGeckoMarket, String> key) {
+        // Symbols repeat across coins; like the real APIs, the highest ranked coin wins
+        return markets.stream().collect(Collectors.toMap(key, market -> market, (first, second) -> first, LinkedHashMap::new));
+    }
+}
@@ -0,0 +1,191 @@
+package crypto.insight.crypto.benchmark.upstream;
+
+import crypto.insight.crypto.benchmark.Fixtures;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * In-process HTTP server standing in for CoinGecko, CryptoCompare, CoinMarketCap, CoinPaprika
+ * and Ollama, so the aggregation pipeline can be load-tested without touching real quotas.
+ * <p>
+ * Each upstream is served under its own prefix ({@code http://127.0.0.1:<port>/coingecko/...});
+ * {@link #baseUrlProperties()} gives the {@code ApiProperties} overrides that point the
+ * application at it. Bodies come from {@link UpstreamResponses}, and every request is delayed and
+ * failed according to that upstream's {@link UpstreamFaults}, which can be changed while running.
+ * <p>
+ * Run standalone with {@code main} to load-test a separately started application:
+ * {@code mvn -Pbenchmarks test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=crypto.insight.crypto.benchmark.upstream.UpstreamStandIn -Dexec.args=8099
+ * -Dupstream.median=PT0.08S -Dupstream.p99=PT0.4S -Dupstream.coingecko.rateLimitRate=0.05}.
+ */
+@Slf4j
+public class UpstreamStandIn implements AutoCloseable {
+
+    private static final Map<String, Upstream> BY_PREFIX = Arrays.stream(Upstream.values())
+            .collect(Collectors.toMap(Upstream::prefix, Function.identity()));
+
+    private final UpstreamResponses responses;
+    private final Map<Upstream, UpstreamFaults> faults = new ConcurrentHashMap<>();
+    private final Map<Upstream, Counters> counters = new EnumMap<>(Upstream.class);
+    private final DisposableServer server;
+
+    private UpstreamStandIn(int port, UpstreamResponses responses, UpstreamFaults defaults) {
+        this.responses = responses;
+        for (Upstream upstream : Upstream.values()) {
+            faults.put(upstream, defaults);
+            counters.put(upstream, new Counters());
+        }
+        this.server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(port)
+                .handle(this::handle)
+                .bindNow();
+    }
+
+    /**
+     * Starts a stand-in on {@code port} (0 for any free port) answering from {@code responses}.
+     */
+    public static UpstreamStandIn start(int port, UpstreamResponses responses, UpstreamFaults defaults) {
+        UpstreamStandIn standIn = new UpstreamStandIn(port, responses, defaults);
+        log.info("Upstream stand-in listening on port {}", standIn.port());
+        return standIn;
+    }
+
+    /**
+     * Starts a stand-in on a free port serving the benchmark market fixture.
+     */
+    public static UpstreamStandIn start(UpstreamFaults defaults) {
+        return start(0, new UpstreamResponses(Fixtures.objectMapper(), Fixtures.markets()), defaults);
+    }
+
+    public void setFaults(Upstream upstream, UpstreamFaults upstreamFaults) {
+        faults.put(upstream, upstreamFaults);
+    }
+
+    public int port() {
+        return server.port();
+    }
+
+    public String baseUrl(Upstream upstream) {
+        return "http://127.0.0.1:" + port() + "/" + upstream.prefix();
+    }
+
+    /**
+     * Property overrides pointing every provider and the Ollama client at this stand-in.
+     */
+    public Map<String, String> baseUrlProperties() {
+        Map<String, String> properties = new LinkedHashMap<>();
+        for (Upstream upstream : Upstream.values()) {
+            properties.put(upstream.baseUrlProperty(), baseUrl(upstream));
+        }
+        return properties;
+    }
+
+    private Publisher<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+        QueryStringDecoder uri = new QueryStringDecoder(request.uri());
+        String path = uri.path();
+        int slash = path.indexOf('/', 1);
+        Upstream upstream = BY_PREFIX.get(slash > 0 ? path.substring(1, slash) : path.substring(1));
+        if (upstream == null) {
+            return response.status(HttpResponseStatus.NOT_FOUND).send();
+        }
+        String upstreamPath = slash > 0 ? path.substring(slash) : "/";
+        Map<String, String> query = new HashMap<>();
+        uri.parameters().forEach((name, values) -> query.put(name, values.get(0)));
+
+        Counters count = counters.get(upstream);
+        count.requests.increment();
+        UpstreamFaults upstreamFaults = faults.get(upstream);
+        Duration latency = upstreamFaults.sampleLatency();
+        Mono<Void> reply = Mono.defer(() -> switch (upstreamFaults.sampleOutcome()) {
+            case RATE_LIMITED -> {
+                count.rateLimited.increment();
+                yield Mono.from(response.status(HttpResponseStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaderNames.RETRY_AFTER, String.valueOf(upstreamFaults.getRetryAfter().toSeconds()))
+                        .send());
+            }
+            case ERROR -> {
+                count.errors.increment();
+                yield Mono.from(response.status(HttpResponseStatus.INTERNAL_SERVER_ERROR).send());
+            }
+            case OK -> {
+                byte[] body = responses.respond(upstream, upstreamPath, query);
+                if (body == null) {
+                    count.notFound.increment();
+                    yield Mono.from(response.status(HttpResponseStatus.NOT_FOUND).send());
+                }
+                yield Mono.from(response.header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                        .sendByteArray(Mono.just(body)));
+            }
+        });
+        return latency.isZero() ? reply : Mono.delay(latency).then(reply);
+    }
+
+    /**
+     * Request and injected-failure counts per upstream
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        counters.forEach((upstream, count) -> {
+            Map<String, Object> upstreamStats = new HashMap<>();
+            upstreamStats.put("requests", count.requests.sum());
+            upstreamStats.put("errors", count.errors.sum());
+            upstreamStats.put("rateLimited", count.rateLimited.sum());
+            upstreamStats.put("notFound", count.notFound.sum());
+            stats.put(upstream.prefix(), upstreamStats);
+        });
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+
+    /**
+     * Serves on the port given as the first argument (default 8099) until killed. Faults are read
+     * from {@code upstream.*} system properties, per upstream from {@code upstream.<prefix>.*}.
+     */
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8099;
+        UpstreamFaults defaults = UpstreamFaults.fromSystemProperties("upstream", UpstreamFaults.none());
+        UpstreamStandIn standIn = start(port, new UpstreamResponses(Fixtures.objectMapper(), Fixtures.markets()), defaults);
+        for (Upstream upstream : Upstream.values()) {
+            standIn.setFaults(upstream, UpstreamFaults.fromSystemProperties("upstream." + upstream.prefix(), defaults));
+        }
+        List<String> overrides = standIn.baseUrlProperties().entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toList();
+        System.out.println("Start the application with:\n  " + String.join(" \\\n  ", overrides));
+        Runtime.getRuntime().addShutdownHook(new Thread(() ->
+                System.out.println("Upstream stand-in statistics: " + standIn.getStatistics())));
+        standIn.server.onDispose().block();
+    }
+
+    private static final class Counters {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rateLimited = new LongAdder();
+        private final LongAdder notFound = new LongAdder();
+    }
+}
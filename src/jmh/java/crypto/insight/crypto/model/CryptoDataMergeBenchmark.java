@@ -0,0 +1,58 @@
+package crypto.insight.crypto.model;
+
+import crypto.insight.crypto.benchmark.Fixtures;
+import crypto.insight.crypto.model.coingecko.CoinGeckoMarket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregating one market snapshot across providers: a sparse primary result merged with two
+ * complete ones, as {@code ApiService} does for every coin it resolves.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptoDataMergeBenchmark {
+
+    private List<CryptoData> coinGecko;
+    private List<CryptoData> coinMarketCap;
+
+    @Setup
+    public void setUp() {
+        coinGecko = new ArrayList<>();
+        coinMarketCap = new ArrayList<>();
+        for (CoinGeckoMarket market : Fixtures.markets()) {
+            coinGecko.add(Fixtures.cryptoData(market, "CoinGecko"));
+            coinMarketCap.add(Fixtures.cryptoData(market, "CoinMarketCap"));
+        }
+    }
+
+    @Benchmark
+    public List<CryptoData> mergeMarketSnapshot() {
+        List<CryptoData> merged = new ArrayList<>(coinGecko.size());
+        for (int i = 0; i < coinGecko.size(); i++) {
+            CryptoData primary = new CryptoData(coinGecko.get(i).getIdentity());
+            primary.setSource("CryptoCompare");
+            primary.setCurrentPrice(coinGecko.get(i).getCurrentPrice());
+            primary.mergeWith(coinGecko.get(i));
+            primary.mergeWith(coinMarketCap.get(i));
+            merged.add(primary);
+        }
+        return merged;
+    }
+}
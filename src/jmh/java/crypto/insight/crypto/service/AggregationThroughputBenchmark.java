@@ -0,0 +1,116 @@
+package crypto.insight.crypto.service;
+
+import crypto.insight.crypto.benchmark.Fixtures;
+import crypto.insight.crypto.benchmark.upstream.StandInApplication;
+import crypto.insight.crypto.benchmark.upstream.UpstreamFaults;
+import crypto.insight.crypto.benchmark.upstream.UpstreamStandIn;
+import crypto.insight.crypto.model.CryptoData;
+import crypto.insight.crypto.model.coingecko.CoinGeckoMarket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end throughput of {@link ApiService#getAggregatedCryptoData} with the whole application
+ * running against an {@link UpstreamStandIn}: identity resolution and the provider fan-out with
+ * batching, single-flight and caching as configured, over real HTTP.
+ * <p>
+ * {@code refresh} forces the full pipeline on every call; {@code read} is the normal cached path.
+ * Vary the upstream with e.g. {@code -p medianLatency=PT0.2S -p errorRate=0.05 -p rateLimitRate=0.02}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(16)
+@Fork(1)
+public class AggregationThroughputBenchmark {
+
+    @Param({"PT0.05S"})
+    public String medianLatency;
+
+    @Param({"PT0.25S"})
+    public String p99Latency;
+
+    @Param({"0.0"})
+    public double errorRate;
+
+    @Param({"0.0"})
+    public double rateLimitRate;
+
+    /** Distinct coins requested in rotation */
+    @Param({"20"})
+    public int coins;
+
+    private UpstreamStandIn upstream;
+    private ConfigurableApplicationContext context;
+    private ApiService apiService;
+    private List<String> symbols;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicLong failures = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        UpstreamFaults faults = UpstreamFaults.latency(Duration.parse(medianLatency), Duration.parse(p99Latency));
+        faults.setErrorRate(errorRate);
+        faults.setRateLimitRate(rateLimitRate);
+        upstream = UpstreamStandIn.start(faults);
+
+        context = StandInApplication.start(upstream);
+        apiService = context.getBean(ApiService.class);
+
+        symbols = Fixtures.markets().stream()
+                .limit(coins)
+                .map(CoinGeckoMarket::getSymbol)
+                .toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println("\nFailed aggregations: " + failures.get() + ", upstream stand-in: " + upstream.getStatistics());
+        context.close();
+        upstream.close();
+    }
+
+    @Benchmark
+    public CryptoData refresh() {
+        return complete(apiService.getAggregatedCryptoData(nextSymbol(), true));
+    }
+
+    @Benchmark
+    public CryptoData read() {
+        return complete(apiService.getAggregatedCryptoData(nextSymbol()));
+    }
+
+    /** Injected upstream failures can fail a whole aggregation; count them instead of aborting the run */
+    private CryptoData complete(Mono<CryptoData> aggregation) {
+        return aggregation.onErrorResume(error -> {
+            failures.incrementAndGet();
+            return Mono.empty();
+        }).block();
+    }
+
+    private String nextSymbol() {
+        return symbols.get(Math.floorMod(next.getAndIncrement(), symbols.size()));
+    }
+}
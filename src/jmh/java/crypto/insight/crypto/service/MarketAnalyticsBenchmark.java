@@ -0,0 +1,86 @@
+package crypto.insight.crypto.service;
+
+import crypto.insight.crypto.benchmark.Fixtures;
+import crypto.insight.crypto.model.ChartDataPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chart statistics computed for AI analysis and the correlation matrix, over a recorded price
+ * series cut to the usual chart windows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarketAnalyticsBenchmark {
+
+    /** Chart length in points: a week, a month and a year of hourly prices */
+    @Param({"168", "720", "8760"})
+    public int points;
+
+    /** Coins in the correlation matrix */
+    @Param({"10"})
+    public int coins;
+
+    private AIService aiService;
+    private ParallelProcessingService parallelProcessingService;
+    private List<ChartDataPoint> chart;
+    private Map<String, List<Double>> priceSeries;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Metrics and volatility are pure; the Ollama client is never used
+        aiService = new AIService(null, "benchmark", Fixtures.objectMapper());
+        parallelProcessingService = new ParallelProcessingService();
+
+        List<ChartDataPoint> recorded = Fixtures.chartPoints();
+        chart = new ArrayList<>(recorded.subList(Math.max(0, recorded.size() - points), recorded.size()));
+
+        // Offset windows of the same series stand in for distinct coins
+        priceSeries = new LinkedHashMap<>();
+        int length = chart.size();
+        for (int coin = 0; coin < coins; coin++) {
+            List<Double> prices = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                prices.add(recorded.get((i + coin * 97) % recorded.size()).getPrice());
+            }
+            priceSeries.put("coin-" + coin, prices);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Double> calculateMetrics() {
+        return aiService.calculateMetrics(chart);
+    }
+
+    @Benchmark
+    public BigDecimal calculateVolatility() {
+        return aiService.calculateVolatility(chart);
+    }
+
+    @Benchmark
+    public Map<String, Map<String, Double>> calculateCorrelationMatrix() throws ExecutionException, InterruptedException {
+        return parallelProcessingService.calculateCorrelationMatrix(priceSeries).get();
+    }
+}
@@ -0,0 +1,65 @@
+package crypto.insight.crypto.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import crypto.insight.crypto.benchmark.Fixtures;
+import crypto.insight.crypto.model.Cryptocurrency;
+import crypto.insight.crypto.model.coingecko.CoinGeckoMarket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning a CoinGecko {@code /coins/markets} page into {@link Cryptocurrency} rows: decoding the
+ * body, mapping the decoded rows, and both together.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProviderMappingBenchmark {
+
+    private static final TypeReference<List<CoinGeckoMarket>> MARKETS = new TypeReference<>() { };
+
+    private ObjectMapper objectMapper;
+    private ApiService apiService;
+    private byte[] body;
+    private List<CoinGeckoMarket> markets;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = Fixtures.objectMapper();
+        // The mapping touches none of the collaborators
+        apiService = new ApiService(List.of(), null, null, null, null, null, null, null, null, null, null, null);
+        body = Fixtures.marketsJson();
+        markets = objectMapper.readValue(body, MARKETS);
+    }
+
+    @Benchmark
+    public List<CoinGeckoMarket> decodeMarkets() throws IOException {
+        return objectMapper.readValue(body, MARKETS);
+    }
+
+    @Benchmark
+    public List<Cryptocurrency> mapMarkets() {
+        return apiService.mapFromCoinGeckoMarkets(markets);
+    }
+
+    @Benchmark
+    public List<Cryptocurrency> decodeAndMapMarkets() throws IOException {
+        return apiService.mapFromCoinGeckoMarkets(objectMapper.readValue(body, MARKETS));
+    }
+}
@@ -0,0 +1,110 @@
+package crypto.insight.crypto.service.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import crypto.insight.crypto.benchmark.Fixtures;
+import crypto.insight.crypto.config.properties.StaleWhileRevalidateProperties;
+import crypto.insight.crypto.model.CachedValue;
+import crypto.insight.crypto.model.Cryptocurrency;
+import crypto.insight.crypto.service.SingleFlightService;
+import crypto.insight.crypto.service.StaleWhileRevalidateService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache hit paths for a list of market rows: a plain Caffeine hit, a first-tier hit in
+ * {@link TieredCache}, a second-tier promotion, and a fresh stale-while-revalidate read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheHitBenchmark {
+
+    private static final String KEY = "all";
+    private static final Duration TTL = Duration.ofMinutes(5);
+
+    /** Market rows per cached value: one coin's detail or the full market page */
+    @Param({"1", "250"})
+    public int rows;
+
+    private Cache caffeine;
+    private TieredCache tiered;
+    private TieredCache spilling;
+    private StaleWhileRevalidateService staleWhileRevalidate;
+    private Mono<List<Cryptocurrency>> unusedLoader;
+
+    private boolean flip;
+
+    @Setup
+    public void setUp() {
+        List<Cryptocurrency> all = Fixtures.cryptocurrencies();
+        List<Cryptocurrency> value = new ArrayList<>(all.subList(0, Math.min(rows, all.size())));
+
+        caffeine = new CaffeineCache("caffeine", Caffeine.newBuilder()
+                .maximumSize(1000)
+                .expireAfterWrite(TTL)
+                .build(), false);
+        caffeine.put(KEY, value);
+
+        CompressedOffHeapStore l2 = new CompressedOffHeapStore(256L * 1024 * 1024, 1);
+        tiered = new TieredCache("tiered", Caffeine.newBuilder().maximumSize(1000), TTL, l2, false);
+        tiered.put(KEY, value);
+
+        // Room for one entry and synchronous eviction: alternating keys promote from L2 every read
+        spilling = new TieredCache("spilling", Caffeine.newBuilder().maximumSize(1).executor(Runnable::run), TTL, l2, false);
+        spilling.put("a", value);
+        spilling.put("b", value);
+
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(new CaffeineCache("swr", Caffeine.newBuilder()
+                .maximumSize(1000)
+                .expireAfterWrite(TTL)
+                .build(), false)));
+        cacheManager.initializeCaches();
+        staleWhileRevalidate = new StaleWhileRevalidateService(cacheManager, new SingleFlightService(),
+                new StaleWhileRevalidateProperties());
+        staleWhileRevalidate.get("swr", KEY, () -> Mono.just(value)).block();
+        unusedLoader = Mono.error(new IllegalStateException("Benchmark read missed the cache"));
+    }
+
+    @Benchmark
+    public Object caffeineHit() {
+        return caffeine.get(KEY).get();
+    }
+
+    @Benchmark
+    public Object tieredL1Hit() {
+        return tiered.get(KEY).get();
+    }
+
+    @Benchmark
+    public Object tieredL2Promotion() {
+        flip = !flip;
+        return spilling.get(flip ? "a" : "b").get();
+    }
+
+    @Benchmark
+    public CachedValue<List<Cryptocurrency>> staleWhileRevalidateFreshHit() {
+        return staleWhileRevalidate.<List<Cryptocurrency>>get("swr", KEY, () -> unusedLoader).block();
+    }
+}
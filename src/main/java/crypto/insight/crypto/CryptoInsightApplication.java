@@ -26,7 +26,19 @@ import crypto.insight.crypto.config.ApiProperties;
     CoinGeckoProperties.class,
     CoinPaprikaProperties.class,
     MobulaProperties.class,
-    RateLimitingProperties.class
+    RateLimitingProperties.class,
+    ChartStoreProperties.class,
+    ProviderBatchingProperties.class,
+    ProviderHedgingProperties.class,
+    ProviderRankingProperties.class,
+    CoinDirectoryProperties.class,
+    IdentitySnapshotProperties.class,
+    StaleWhileRevalidateProperties.class,
+    TieredCacheProperties.class,
+    UpstreamSchedulerProperties.class,
+    PriceFeedProperties.class,
+    WebSocketProperties.class,
+    EventStreamProperties.class
 })
 public class CryptoInsightApplication {
     
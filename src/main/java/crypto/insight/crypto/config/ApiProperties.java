@@ -16,6 +16,8 @@ public class ApiProperties {
     private final CryptoCompare cryptocompare = new CryptoCompare();
     private final CoinGecko coingecko = new CoinGecko();
     private final CoinMarketCap coinmarketcap = new CoinMarketCap();
+    private final CoinPaprika coinpaprika = new CoinPaprika();
+    private final Ollama ollama = new Ollama();
     private final RetryConfig retry = new RetryConfig();
 
     /**
@@ -52,10 +54,26 @@ public class ApiProperties {
     @Data
     public static class CoinMarketCap {
         private String key;
-        private String baseUrl = "https://pro-api.coinmarketcap.com/v1";
+        private String baseUrl = "https://pro-api.coinmarketcap.com";
         private int rateLimitPerMinute = 30; // Default rate limit
     }
 
+    /**
+     * Configuration for CoinPaprika API
+     */
+    @Data
+    public static class CoinPaprika {
+        private String baseUrl = "https://api.coinpaprika.com/v1";
+    }
+
+    /**
+     * Configuration for the local Ollama server
+     */
+    @Data
+    public static class Ollama {
+        private String baseUrl = "http://localhost:11434";
+    }
+
     /**
      * Retry configuration for API calls
      */
@@ -1,57 +1,113 @@
 package crypto.insight.crypto.config;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import crypto.insight.crypto.config.properties.StaleWhileRevalidateProperties;
+import crypto.insight.crypto.config.properties.TieredCacheProperties;
+import crypto.insight.crypto.service.cache.CompressedOffHeapStore;
+import crypto.insight.crypto.service.cache.TieredCache;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 
 import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
+    private static final List<String> CACHE_NAMES = List.of(
+            "cryptoSearch",
+            "cryptoDetails", 
+            "ohlcvData",
+            "teamData",
+            "marketChart",
+            "combinedCryptoData",
+            "cryptoNews",
+            "cryptoIdentities",
+            "cryptoData", // Add cache for crypto data
+            // Ultra-fast caches
+            "ultraFastMarketData",
+            "ultraFastSearch", 
+            "ultraFastDetails",
+            // Focused crypto caches
+            "detailCache",
+            "priceCache",
+            "rateLimitCache",
+            // Optimization caches
+            "cryptocurrencies",
+            "market-data",
+            "chart-data",
+            "analysis-data"
+    );
+
+    // 5 minutes for all cache entries unless a stale-while-revalidate hard TTL applies
+    private static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+
     @Bean
     @Primary
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager(
-                "cryptoSearch",
-                "cryptoDetails", 
-                "ohlcvData",
-                "teamData",
-                "marketChart",
-                "combinedCryptoData",
-                "cryptoNews",
-                "cryptoIdentities",
-                "cryptoData", // Add cache for crypto data
-                // Ultra-fast caches
-                "ultraFastMarketData",
-                "ultraFastSearch", 
-                "ultraFastDetails",
-                // Focused crypto caches
-                "detailCache",
-                "priceCache",
-                "rateLimitCache",
-                // Optimization caches
-                "cryptocurrencies",
-                "market-data",
-                "chart-data",
-                "analysis-data"
-        );
+    public CacheManager cacheManager(StaleWhileRevalidateProperties staleWhileRevalidateProperties,
+                                     TieredCacheProperties tieredCacheProperties,
+                                     CompressedOffHeapStore l2CacheStore) {
+        if (tieredCacheProperties.isEnabled()) {
+            // In-heap Caffeine L1 per cache; size evictions spill into the shared compressed off-heap L2
+            Set<String> names = new LinkedHashSet<>(CACHE_NAMES);
+            names.addAll(staleWhileRevalidateProperties.getCaches().keySet());
+            List<Cache> caches = names.stream()
+                    .<Cache>map(name -> new TieredCache(name,
+                            Caffeine.newBuilder()
+                                    .maximumSize(tieredCacheProperties.getL1MaxEntries())
+                                    .recordStats(),
+                            ttlFor(name, staleWhileRevalidateProperties),
+                            l2CacheStore,
+                            true))
+                    .toList();
+            SimpleCacheManager cacheManager = new SimpleCacheManager();
+            cacheManager.setCaches(caches);
+            return cacheManager;
+        }
+
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(CACHE_NAMES.toArray(String[]::new));
         
         // Set all caches to expire after 5 minutes
         cacheManager.setCaffeine(Caffeine.newBuilder()
                 .maximumSize(1000)
-                .expireAfterWrite(Duration.ofMinutes(5)) // 5 minutes for all cache entries
+                .expireAfterWrite(DEFAULT_TTL)
                 .recordStats());
+
+        // Stale-while-revalidate caches keep entries until their hard TTL; the soft TTL is
+        // applied on read by StaleWhileRevalidateService
+        staleWhileRevalidateProperties.getCaches().forEach((name, ttl) ->
+                cacheManager.registerCustomCache(name, Caffeine.newBuilder()
+                        .maximumSize(1000)
+                        .expireAfterWrite(ttl.getHardTtl())
+                        .recordStats()
+                        .build()));
         
         return cacheManager;
     }
+
+    /**
+     * Shared off-heap second tier for the tiered caches
+     */
+    @Bean
+    public CompressedOffHeapStore l2CacheStore(TieredCacheProperties tieredCacheProperties) {
+        return new CompressedOffHeapStore(tieredCacheProperties.getL2MaxSize().toBytes(),
+                tieredCacheProperties.getCompressionLevel());
+    }
+
+    private Duration ttlFor(String name, StaleWhileRevalidateProperties staleWhileRevalidateProperties) {
+        StaleWhileRevalidateProperties.Ttl ttl = staleWhileRevalidateProperties.getCaches().get(name);
+        return ttl != null ? ttl.getHardTtl() : DEFAULT_TTL;
+    }
     
     /**
      * Real-time price cache with very short TTL
@@ -1,6 +1,5 @@
 package crypto.insight.crypto.config;
 
-import crypto.insight.crypto.service.provider.RateLimitingService;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -16,11 +15,6 @@ import java.util.concurrent.Executor;
 @EnableScheduling
 public class FocusedCryptoConfig {
 
-    @Bean
-    public RateLimitingService rateLimitingService() {
-        return new RateLimitingService();
-    }
-
     @Bean
     public Executor taskExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
@@ -1,5 +1,6 @@
 package crypto.insight.crypto.config;
 
+import crypto.insight.crypto.service.provider.UpstreamRequestScheduler;
 import io.netty.channel.ChannelOption;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
@@ -17,7 +18,7 @@ import java.util.concurrent.TimeUnit;
 public class OptimizedWebClientConfig {
 
     @Bean
-    public WebClient.Builder webClientBuilder() {
+    public WebClient.Builder webClientBuilder(UpstreamRequestScheduler upstreamRequestScheduler) {
         // Configure connection pooling for maximum performance
         ConnectionProvider connectionProvider = ConnectionProvider.builder("crypto-api-pool")
                 .maxConnections(200)
@@ -40,6 +41,7 @@ public class OptimizedWebClientConfig {
 
         return WebClient.builder()
                 .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(upstreamRequestScheduler) // Provider calls queue by lane
                 .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(1024 * 1024)); // 1MB buffer
     }
 
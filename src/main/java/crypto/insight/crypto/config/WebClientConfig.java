@@ -4,6 +4,7 @@ import crypto.insight.crypto.config.properties.CoinGeckoProperties;
 import crypto.insight.crypto.config.properties.CoinPaprikaProperties;
 import crypto.insight.crypto.config.properties.CryptoCompareProperties;
 import crypto.insight.crypto.config.properties.MobulaProperties;
+import crypto.insight.crypto.service.provider.UpstreamRequestScheduler;
 import io.netty.handler.ssl.SslContextBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -21,7 +22,7 @@ import java.time.Duration;
 public class WebClientConfig {
 
     @Bean(name = "webClient")
-    public WebClient webClient() throws SSLException {
+    public WebClient webClient(UpstreamRequestScheduler upstreamRequestScheduler) throws SSLException {
         SslProvider sslProvider = SslProvider.builder()
                 .sslContext(SslContextBuilder.forClient().build())
                 .handshakeTimeout(Duration.ofSeconds(30))
@@ -33,6 +34,7 @@ public class WebClientConfig {
 
         return WebClient.builder()
                 .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(upstreamRequestScheduler)
                 .build();
     }
 
@@ -71,13 +73,13 @@ public class WebClientConfig {
     }
 
     @Bean("ollamaWebClient")
-    public WebClient ollamaWebClient() {
+    public WebClient ollamaWebClient(ApiProperties apiProperties) {
         HttpClient httpClient = HttpClient.create()
                 .responseTimeout(Duration.ofSeconds(120)); // Increased timeout for AI operations
 
         return WebClient.builder()
                 .clientConnector(new ReactorClientHttpConnector(httpClient))
-                .baseUrl("http://localhost:11434")
+                .baseUrl(apiProperties.getOllama().getBaseUrl())
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
                 .defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
                 .build();
@@ -0,0 +1,56 @@
+package crypto.insight.crypto.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "crypto.chart-store")
+public class ChartStoreProperties {
+
+    /**
+     * Serve market charts from the local time-series store when it covers the requested range
+     */
+    private boolean enabled = true;
+
+    /**
+     * Maximum number of per-coin series kept in memory
+     */
+    private int maxSeries = 2000;
+
+    /**
+     * How long an ingested series is considered fresh enough to answer without a provider call
+     */
+    private Duration maxStaleness = Duration.ofMinutes(2);
+
+    /**
+     * Days of history fetched when a coin has nothing stored, so shorter ranges reuse the same series
+     */
+    private int historyDays = 365;
+
+    /**
+     * How long 5 minute points are kept before they are thinned to one per hour
+     */
+    private Duration fiveMinuteRetention = Duration.ofDays(2);
+
+    /**
+     * How long hourly points are kept before they are thinned to one per day
+     */
+    private Duration hourlyRetention = Duration.ofDays(92);
+
+    /**
+     * How long daily points are kept before they are dropped
+     */
+    private Duration dailyRetention = Duration.ofDays(5 * 365);
+
+    /**
+     * Persist each series to a memory-mapped segment file so history survives restarts
+     */
+    private boolean persistenceEnabled = true;
+
+    /**
+     * Directory holding the per-coin segment files
+     */
+    private String directory = "data/chart-store";
+}
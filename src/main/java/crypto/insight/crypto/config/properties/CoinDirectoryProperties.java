@@ -0,0 +1,32 @@
+package crypto.insight.crypto.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "crypto.coin-directory")
+public class CoinDirectoryProperties {
+
+    /**
+     * Keep a local directory of all coins for search and identity resolution; when disabled
+     * both go to the providers
+     */
+    private boolean enabled = true;
+
+    /**
+     * Delay before the first download after startup
+     */
+    private Duration initialDelay = Duration.ofSeconds(5);
+
+    /**
+     * How often the coin lists are downloaded again
+     */
+    private Duration refreshInterval = Duration.ofHours(6);
+
+    /**
+     * Minimum trigram similarity (0-1) for a fuzzy search match
+     */
+    private double minSimilarity = 0.4;
+}
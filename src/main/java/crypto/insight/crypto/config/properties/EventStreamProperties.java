@@ -0,0 +1,38 @@
+package crypto.insight.crypto.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "crypto.event-stream")
+public class EventStreamProperties {
+
+    /**
+     * How long one Server-Sent Events response stays open; the client then reconnects and
+     * resumes from its last event id
+     */
+    private Duration timeout = Duration.ofMinutes(30);
+
+    /**
+     * How often an idle stream sends a comment, so proxies do not close it
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+    /**
+     * Reconnect delay suggested to clients through the stream's retry field
+     */
+    private Duration reconnectTime = Duration.ofSeconds(3);
+
+    /**
+     * Longest one event may take to write; a client still stuck on a write after this has its
+     * stream ended
+     */
+    private Duration sendTimeLimit = Duration.ofSeconds(10);
+
+    /**
+     * Channel and symbol pairs one stream may carry
+     */
+    private int maxFeedsPerStream = 50;
+}
@@ -0,0 +1,24 @@
+package crypto.insight.crypto.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "crypto.identity-snapshot")
+public class IdentitySnapshotProperties {
+
+    /**
+     * Persist resolved identities so a restart does not resolve known coins again
+     */
+    private boolean enabled = true;
+
+    /**
+     * Append-only file holding one identity per line; later lines replace earlier ones
+     */
+    private String file = "data/identity-snapshot.jsonl";
+
+    /**
+     * Rewrite the file once it holds this many lines per live identity
+     */
+    private double compactionRatio = 2.0;
+}
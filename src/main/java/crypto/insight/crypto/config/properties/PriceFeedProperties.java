@@ -0,0 +1,28 @@
+package crypto.insight.crypto.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "crypto.price-feed")
+public class PriceFeedProperties {
+
+    /**
+     * How often a symbol with at least one subscriber is fetched fresh; one fetch serves all of
+     * its subscribers
+     */
+    private Duration pollInterval = Duration.ofSeconds(10);
+
+    /**
+     * How often a watched chart has its stored series topped up; new points are pushed to the
+     * chart's subscribers
+     */
+    private Duration chartPollInterval = Duration.ofSeconds(60);
+
+    /**
+     * Newest ticks kept per feed, so a client resuming a stream is sent only what it missed
+     */
+    private int replayBufferSize = 64;
+}
@@ -0,0 +1,21 @@
+package crypto.insight.crypto.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "crypto.provider-batching")
+public class ProviderBatchingProperties {
+
+    /**
+     * Coalesce concurrent single-coin provider fetches into multi-symbol calls
+     */
+    private boolean enabled = true;
+
+    /**
+     * How long the first request of a batch waits for others to join
+     */
+    private Duration window = Duration.ofMillis(25);
+}
@@ -0,0 +1,43 @@
+package crypto.insight.crypto.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "crypto.provider-hedging")
+public class ProviderHedgingProperties {
+
+    /**
+     * Call providers one at a time in rank order, hedging to the next one only when the current
+     * one is slow, instead of waiting for every provider
+     */
+    private boolean enabled = true;
+
+    /**
+     * Latency percentile of the outstanding provider after which the next provider is called
+     */
+    private double hedgePercentile = 0.9;
+
+    /**
+     * Hedge delay used until a provider has enough latency samples
+     */
+    private Duration defaultHedgeDelay = Duration.ofMillis(300);
+
+    /**
+     * Lower and upper bounds for the observed hedge delay
+     */
+    private Duration minHedgeDelay = Duration.ofMillis(50);
+    private Duration maxHedgeDelay = Duration.ofSeconds(2);
+
+    /**
+     * Number of recent calls per provider the latency percentiles are computed over
+     */
+    private int sampleWindow = 256;
+
+    /**
+     * Samples a provider needs before its observed percentile replaces the default delay
+     */
+    private int minSamples = 20;
+}
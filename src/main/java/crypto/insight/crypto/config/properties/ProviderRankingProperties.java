@@ -0,0 +1,47 @@
+package crypto.insight.crypto.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "crypto.provider-ranking")
+public class ProviderRankingProperties {
+
+    /**
+     * Order providers by their live score; when disabled they are tried in bean order
+     */
+    private boolean enabled = true;
+
+    /**
+     * Weight of the newest call in the moving averages
+     */
+    private double smoothing = 0.2;
+
+    /**
+     * Latency assumed for a provider before it has been called
+     */
+    private Duration defaultLatency = Duration.ofMillis(300);
+
+    /**
+     * How strongly the error rate inflates a provider's expected latency
+     */
+    private double errorPenalty = 4.0;
+
+    /**
+     * Remaining quota fraction below which a provider is ranked down proportionally
+     */
+    private double quotaReserve = 0.2;
+
+    /**
+     * How long a provider is treated as out of quota after it answers 429
+     */
+    private Duration rateLimitCooldown = Duration.ofMinutes(1);
+
+    /**
+     * Idle time after which a provider's latency and error statistics have decayed halfway
+     * back to the defaults, so a provider that was ranked down gets retried
+     */
+    private Duration recoveryHalfLife = Duration.ofMinutes(2);
+}
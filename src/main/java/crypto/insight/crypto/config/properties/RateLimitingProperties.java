@@ -18,6 +18,11 @@ public class RateLimitingProperties {
      * Provider-specific rate limiting settings
      */
     private Providers providers = new Providers();
+
+    /**
+     * How callers wait for a permit when a provider's bucket is empty
+     */
+    private Queue queue = new Queue();
     
     @Data
     public static class Global {
@@ -29,8 +34,8 @@ public class RateLimitingProperties {
     
     @Data
     public static class Providers {
-        private Provider coinGecko = new Provider(50, Duration.ofMinutes(1));
-        private Provider coinMarketCap = new Provider(30, Duration.ofMinutes(1));
+        private Provider coinGecko = new Provider(30, Duration.ofMinutes(1));
+        private Provider coinMarketCap = new Provider(10, Duration.ofMinutes(1));
         private Provider cryptoCompare = new Provider(100, Duration.ofMinutes(1));
         private Provider coinPaprika = new Provider(25, Duration.ofMinutes(1));
     }
@@ -41,6 +46,11 @@ public class RateLimitingProperties {
         private Duration rateLimitWindow;
         private boolean enabled = true;
         private Duration backoffDelay = Duration.ofSeconds(30);
+        /**
+         * Requests that may go out back to back; 0 uses a sixth of the window's allowance, so a
+         * full window is never spent in one burst
+         */
+        private int burstCapacity = 0;
         
         public Provider() {}
         
@@ -49,4 +59,27 @@ public class RateLimitingProperties {
             this.rateLimitWindow = rateLimitWindow;
         }
     }
+
+    @Data
+    public static class Queue {
+        /**
+         * Longest an interactive request waits for a permit before it is rejected
+         */
+        private Duration interactiveMaxWait = Duration.ofSeconds(5);
+
+        /**
+         * Longest a background request waits for a permit before it is rejected
+         */
+        private Duration backgroundMaxWait = Duration.ofSeconds(30);
+
+        /**
+         * Requests allowed to wait per provider; further ones are rejected right away
+         */
+        private int maxQueued = 50;
+
+        /**
+         * Fraction of each bucket that only interactive requests may spend
+         */
+        private double interactiveReserve = 0.5;
+    }
 }
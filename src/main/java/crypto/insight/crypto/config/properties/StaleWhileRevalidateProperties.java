@@ -0,0 +1,46 @@
+package crypto.insight.crypto.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "crypto.cache.stale-while-revalidate")
+public class StaleWhileRevalidateProperties {
+
+    /**
+     * Serve entries past their soft TTL while one background refresh repopulates them
+     */
+    private boolean enabled = true;
+
+    /**
+     * TTLs for stale-while-revalidate caches without their own entry in {@code caches}
+     */
+    private Ttl defaults = new Ttl();
+
+    /**
+     * Per-cache TTLs, keyed by cache name
+     */
+    private Map<String, Ttl> caches = new HashMap<>();
+
+    public Ttl ttlFor(String cacheName) {
+        return caches.getOrDefault(cacheName, defaults);
+    }
+
+    @Data
+    public static class Ttl {
+
+        /**
+         * Age after which an entry is still served but triggers a refresh
+         */
+        private Duration softTtl = Duration.ofSeconds(30);
+
+        /**
+         * Age after which an entry is dropped and the next request waits for the provider
+         */
+        private Duration hardTtl = Duration.ofMinutes(10);
+    }
+}
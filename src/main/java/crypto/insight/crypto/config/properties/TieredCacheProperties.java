@@ -0,0 +1,30 @@
+package crypto.insight.crypto.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Data
+@ConfigurationProperties(prefix = "crypto.cache.tiered")
+public class TieredCacheProperties {
+
+    /**
+     * Spill entries evicted from the in-heap caches into a compressed off-heap second tier
+     */
+    private boolean enabled = true;
+
+    /**
+     * Entries per cache kept in the in-heap first tier
+     */
+    private long l1MaxEntries = 1000;
+
+    /**
+     * Off-heap budget for compressed entries, shared by all caches
+     */
+    private DataSize l2MaxSize = DataSize.ofMegabytes(256);
+
+    /**
+     * Deflate level for second-tier entries, 1 (fastest) to 9 (smallest)
+     */
+    private int compressionLevel = 1;
+}
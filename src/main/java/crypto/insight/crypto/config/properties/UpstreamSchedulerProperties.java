@@ -0,0 +1,57 @@
+package crypto.insight.crypto.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "crypto.upstream-scheduler")
+public class UpstreamSchedulerProperties {
+
+    /**
+     * Schedule provider HTTP calls through per-lane queues; when disabled every call goes out
+     * as soon as it is made
+     */
+    private boolean enabled = true;
+
+    /**
+     * Requests in flight per provider before further ones queue in their lane
+     */
+    private int maxConcurrentPerUpstream = 16;
+
+    /**
+     * Requests allowed to queue per non-interactive lane and provider; further ones are
+     * rejected right away
+     */
+    private int maxQueuedPerLane = 100;
+
+    /**
+     * Longest a non-interactive request waits for a free slot before it is rejected
+     */
+    private Duration maxQueueWait = Duration.ofSeconds(30);
+
+    /**
+     * Prefetch requests are dropped while less than this fraction (0-1) of a provider's token
+     * bucket is left
+     */
+    private double shedPrefetchBelowQuota = 0.3;
+
+    /**
+     * How long prefetch requests are dropped after a provider answered 429
+     */
+    private Duration throttledCooldown = Duration.ofSeconds(30);
+
+    /**
+     * Share of the queue each lane gets while several are waiting
+     */
+    private Weights weights = new Weights();
+
+    @Data
+    public static class Weights {
+        private int interactive = 8;
+        private int realtime = 4;
+        private int prefetch = 2;
+        private int bulk = 1;
+    }
+}
@@ -0,0 +1,28 @@
+package crypto.insight.crypto.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "crypto.websocket")
+public class WebSocketProperties {
+
+    /**
+     * Longest one message may take to reach a client; a client still stuck on a send after
+     * this is disconnected
+     */
+    private Duration sendTimeLimit = Duration.ofSeconds(10);
+
+    /**
+     * Messages other than feed ticks (replies, errors) allowed to queue per session while a send
+     * is in flight; a client that falls further behind is disconnected
+     */
+    private int maxQueuedMessages = 64;
+
+    /**
+     * Channel and symbol pairs one session may subscribe to at a time
+     */
+    private int maxSubscriptionsPerSession = 100;
+}
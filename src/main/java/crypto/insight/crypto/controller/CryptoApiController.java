@@ -2,13 +2,17 @@ package crypto.insight.crypto.controller;
 
 import crypto.insight.crypto.model.*;
 import crypto.insight.crypto.service.ApiService;
+import crypto.insight.crypto.service.chart.ChartResolution;
+import crypto.insight.crypto.service.chart.Downsampling;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @RestController
@@ -41,6 +45,19 @@ public class CryptoApiController {
                 });
     }
 
+    /**
+     * Autocomplete from the local coin directory: prefix matches on symbol, name and id, then
+     * fuzzy name matches, best market cap rank first. No provider is called.
+     */
+    @GetMapping("/crypto/suggest")
+    public Mono<ResponseEntity<ApiResponse<List<Cryptocurrency>>>> suggestCryptocurrencies(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "10") int limit) {
+        return apiService.suggestCryptocurrencies(query, limit)
+                .collectList()
+                .map(suggestions -> ResponseEntity.ok(ApiResponse.success(suggestions, "Suggestions found")));
+    }
+
     @GetMapping("/crypto/market-data")
     public Mono<ResponseEntity<ApiResponse<List<Cryptocurrency>>>> getMarketData(
             @RequestParam(defaultValue = "1") int page,
@@ -67,8 +84,14 @@ public class CryptoApiController {
     public Mono<ResponseEntity<ApiResponse<Cryptocurrency>>> getCryptocurrency(
             @PathVariable String symbol,
             @RequestParam(defaultValue = "30") int days) {
-        return apiService.getCryptocurrencyData(symbol, days)
-                .map(crypto -> ResponseEntity.ok(ApiResponse.success(crypto, "Cryptocurrency data fetched successfully")))
+        return apiService.getCryptocurrencyDataWithFreshness(symbol)
+                .filter(cached -> cached.getValue() != null)
+                .map(cached -> {
+                    Map<String, Object> freshness = Map.of("stale", cached.isStale(), "dataAgeMs", cached.getAgeMillis());
+                    return ResponseEntity.ok()
+                            .header(HttpHeaders.AGE, String.valueOf(cached.getAgeMillis() / 1000))
+                            .body(ApiResponse.success(cached.getValue(), "Cryptocurrency data fetched successfully", freshness));
+                })
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
                 .onErrorResume(e -> {
                     log.error("Error fetching cryptocurrency data for {}: {}", symbol, e.getMessage(), e);
@@ -80,8 +103,11 @@ public class CryptoApiController {
     @GetMapping("/crypto/{symbol}/market-chart")
     public Mono<ResponseEntity<ApiResponse<List<List<Number>>>>> getMarketChart(
             @PathVariable String symbol,
-            @RequestParam(defaultValue = "30") int days) {
-        return apiService.getMarketChart(symbol, days)
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(defaultValue = "DAILY") ChartResolution resolution,
+            @RequestParam(defaultValue = "0") int maxPoints,
+            @RequestParam(defaultValue = "LTTB") Downsampling downsampling) {
+        return apiService.getMarketChart(symbol, days, resolution, maxPoints, downsampling)
                 .map(chartData -> {
                     Object pricesObj = chartData.get("prices");
                     @SuppressWarnings("unchecked")
@@ -95,6 +121,23 @@ public class CryptoApiController {
                 });
     }
 
+    @GetMapping("/crypto/{symbol}/candles")
+    public Mono<ResponseEntity<ApiResponse<List<ChartCandle>>>> getCandles(
+            @PathVariable String symbol,
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(required = false) ChartResolution resolution,
+            @RequestParam(defaultValue = "0") int maxPoints,
+            @RequestParam(defaultValue = "MIN_MAX") Downsampling downsampling) {
+        ChartResolution effectiveResolution = resolution != null ? resolution : ChartResolution.forDays(days);
+        return apiService.getMarketChartCandles(symbol, days, effectiveResolution, maxPoints, downsampling)
+                .map(candles -> ResponseEntity.ok(ApiResponse.success(candles, "Candles fetched successfully")))
+                .onErrorResume(e -> {
+                    log.error("Error fetching candles for {}: {}", symbol, e.getMessage(), e);
+                    return Mono.just(ResponseEntity.badRequest()
+                            .body(ApiResponse.error("Error fetching candles: " + e.getMessage())));
+                });
+    }
+
     @GetMapping("/crypto/{symbol}/details")
     public Mono<ResponseEntity<ApiResponse<CryptoDetails>>> getCryptoDetails(
             @PathVariable String symbol,
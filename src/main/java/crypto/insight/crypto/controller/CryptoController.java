@@ -9,6 +9,7 @@ import crypto.insight.crypto.service.AIService;
 import crypto.insight.crypto.service.ParallelAIService;
 import crypto.insight.crypto.service.RealTimeDataService;
 import crypto.insight.crypto.service.FallbackDataService;
+import crypto.insight.crypto.service.realtime.PriceFeed;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -28,14 +29,17 @@ public class CryptoController {
     private final ParallelAIService parallelAIService;
     private final RealTimeDataService realTimeDataService;
     private final FallbackDataService fallbackDataService;
+    private final PriceFeed priceFeed;
     
     public CryptoController(ApiService apiService, AIService aiService, ParallelAIService parallelAIService, 
-                          RealTimeDataService realTimeDataService, FallbackDataService fallbackDataService) {
+                          RealTimeDataService realTimeDataService, FallbackDataService fallbackDataService,
+                          PriceFeed priceFeed) {
         this.apiService = apiService;
         this.aiService = aiService;
         this.parallelAIService = parallelAIService;
         this.realTimeDataService = realTimeDataService;
         this.fallbackDataService = fallbackDataService;
+        this.priceFeed = priceFeed;
     }
     
 
@@ -76,27 +80,12 @@ public class CryptoController {
         return apiService.getCryptocurrencyData(symbol, daysToUse, refresh)
                 .flatMap(crypto -> {
                     // Get market chart data if available, but don't fail if it's not
-                    Mono<List<ChartDataPoint>> marketChartMono = apiService.getMarketChart(symbol, daysToUse, refresh)
+                    Mono<List<ChartDataPoint>> marketChartMono = apiService.getChartDataPoints(symbol, daysToUse, refresh)
                             .onErrorResume(e -> {
                                 log.warn("Market chart data not available for {}: {}", symbol, e.getMessage());
-                                return Mono.just(Collections.emptyMap());
+                                return Mono.just(Collections.emptyList());
                             })
-                            .defaultIfEmpty(Collections.emptyMap())
-                            .map(chartData -> {
-                                Object pricesObj = chartData.get("prices");
-                                if (pricesObj instanceof List) {
-                                    return ((List<?>) pricesObj).stream()
-                                            .filter(List.class::isInstance)
-                                            .map(point -> (List<?>) point)
-                                            .filter(point -> point.size() >= 2)
-                                            .map(point -> new ChartDataPoint(
-                                                    ((Number) point.get(0)).longValue(),
-                                                    ((Number) point.get(1)).doubleValue()
-                                            ))
-                                            .collect(Collectors.toList());
-                                }
-                                return Collections.<ChartDataPoint>emptyList();
-                            });
+                            .defaultIfEmpty(Collections.emptyList());
                     
                     return marketChartMono.flatMap(chartData -> {
                         // If we have crypto data but no chart data, still proceed with analysis
@@ -123,6 +112,8 @@ public class CryptoController {
                         }
                     });
                 })
+                // Lets clients watching the symbol's analysis channel know a new one is ready
+                .doOnNext(analysis -> priceFeed.publishAnalysis(symbol, analysis))
                 .<ResponseEntity<ApiResponse<AnalysisResponse>>>map(analysis -> {
                     AnalysisResponse response = (AnalysisResponse) analysis;
                     
@@ -446,22 +437,7 @@ public class CryptoController {
         return apiService.getCryptocurrencyData(symbol, 30, false)
                 .flatMap(crypto -> {
                     // Get chart data
-                    Mono<List<ChartDataPoint>> chartDataMono = apiService.getMarketChart(symbol, 30, false)
-                            .map(chartData -> {
-                                Object pricesObj = chartData.get("prices");
-                                if (pricesObj instanceof List) {
-                                    return ((List<?>) pricesObj).stream()
-                                            .filter(List.class::isInstance)
-                                            .map(point -> (List<?>) point)
-                                            .filter(point -> point.size() >= 2)
-                                            .map(point -> new ChartDataPoint(
-                                                    ((Number) point.get(0)).longValue(),
-                                                    ((Number) point.get(1)).doubleValue()
-                                            ))
-                                            .collect(Collectors.toList());
-                                }
-                                return Collections.<ChartDataPoint>emptyList();
-                            })
+                    Mono<List<ChartDataPoint>> chartDataMono = apiService.getChartDataPoints(symbol, 30, false)
                             .onErrorResume(e -> {
                                 log.warn("Chart data not available for {}: {}", symbol, e.getMessage());
                                 return Mono.just(Collections.emptyList());
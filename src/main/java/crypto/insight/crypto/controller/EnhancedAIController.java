@@ -55,22 +55,7 @@ public class EnhancedAIController {
         return apiService.getCryptocurrencyData(symbol, 30, false)
                 .flatMap(crypto -> {
                     // Get chart data
-                    Mono<List<ChartDataPoint>> chartDataMono = apiService.getMarketChart(symbol, 30, false)
-                            .map(chartData -> {
-                                Object pricesObj = chartData.get("prices");
-                                if (pricesObj instanceof List) {
-                                    return ((List<?>) pricesObj).stream()
-                                            .filter(List.class::isInstance)
-                                            .map(point -> (List<?>) point)
-                                            .filter(point -> point.size() >= 2)
-                                            .map(point -> new ChartDataPoint(
-                                                    ((Number) point.get(0)).longValue(),
-                                                    ((Number) point.get(1)).doubleValue()
-                                            ))
-                                            .collect(Collectors.toList());
-                                }
-                                return Collections.<ChartDataPoint>emptyList();
-                            })
+                    Mono<List<ChartDataPoint>> chartDataMono = apiService.getChartDataPoints(symbol, 30, false)
                             .onErrorResume(e -> {
                                 log.warn("Chart data not available for {}: {}", symbol, e.getMessage());
                                 return Mono.just(Collections.emptyList());
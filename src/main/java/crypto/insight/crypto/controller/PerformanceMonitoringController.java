@@ -4,8 +4,22 @@ import crypto.insight.crypto.model.ApiResponse;
 import crypto.insight.crypto.service.CircuitBreakerService;
 import crypto.insight.crypto.service.PredictiveCacheService;
 import crypto.insight.crypto.service.ParallelProcessingService;
+import crypto.insight.crypto.service.SingleFlightService;
+import crypto.insight.crypto.service.StaleWhileRevalidateService;
 import crypto.insight.crypto.service.UltraHighPerformanceService;
 import crypto.insight.crypto.service.HardwareAccelerationService;
+import crypto.insight.crypto.service.cache.CompressedOffHeapStore;
+import crypto.insight.crypto.service.chart.ChartSeriesStore;
+import crypto.insight.crypto.service.directory.CoinDirectory;
+import crypto.insight.crypto.service.provider.HedgedProviderFetcher;
+import crypto.insight.crypto.service.provider.IdentityResolver;
+import crypto.insight.crypto.service.provider.ProviderRanking;
+import crypto.insight.crypto.service.provider.ProviderRequestBatcher;
+import crypto.insight.crypto.service.provider.RateLimitingService;
+import crypto.insight.crypto.service.provider.UpstreamRequestScheduler;
+import crypto.insight.crypto.service.realtime.FeedEventStream;
+import crypto.insight.crypto.service.realtime.PriceFeed;
+import crypto.insight.crypto.websocket.CryptoWebSocketHandler;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -24,18 +38,60 @@ public class PerformanceMonitoringController {
     private final ParallelProcessingService parallelProcessingService;
     private final UltraHighPerformanceService ultraHighPerformanceService;
     private final HardwareAccelerationService hardwareAccelerationService;
+    private final ChartSeriesStore chartSeriesStore;
+    private final ProviderRequestBatcher providerRequestBatcher;
+    private final HedgedProviderFetcher hedgedProviderFetcher;
+    private final ProviderRanking providerRanking;
+    private final RateLimitingService rateLimitingService;
+    private final UpstreamRequestScheduler upstreamRequestScheduler;
+    private final PriceFeed priceFeed;
+    private final CryptoWebSocketHandler cryptoWebSocketHandler;
+    private final FeedEventStream feedEventStream;
+    private final IdentityResolver identityResolver;
+    private final CoinDirectory coinDirectory;
+    private final SingleFlightService singleFlightService;
+    private final StaleWhileRevalidateService staleWhileRevalidateService;
+    private final CompressedOffHeapStore l2CacheStore;
 
     public PerformanceMonitoringController(
             CircuitBreakerService circuitBreakerService,
             PredictiveCacheService predictiveCacheService,
             ParallelProcessingService parallelProcessingService,
             UltraHighPerformanceService ultraHighPerformanceService,
-            HardwareAccelerationService hardwareAccelerationService) {
+            HardwareAccelerationService hardwareAccelerationService,
+            ChartSeriesStore chartSeriesStore,
+            ProviderRequestBatcher providerRequestBatcher,
+            HedgedProviderFetcher hedgedProviderFetcher,
+            ProviderRanking providerRanking,
+            RateLimitingService rateLimitingService,
+            UpstreamRequestScheduler upstreamRequestScheduler,
+            PriceFeed priceFeed,
+            CryptoWebSocketHandler cryptoWebSocketHandler,
+            FeedEventStream feedEventStream,
+            IdentityResolver identityResolver,
+            CoinDirectory coinDirectory,
+            SingleFlightService singleFlightService,
+            StaleWhileRevalidateService staleWhileRevalidateService,
+            CompressedOffHeapStore l2CacheStore) {
         this.circuitBreakerService = circuitBreakerService;
         this.predictiveCacheService = predictiveCacheService;
         this.parallelProcessingService = parallelProcessingService;
         this.ultraHighPerformanceService = ultraHighPerformanceService;
         this.hardwareAccelerationService = hardwareAccelerationService;
+        this.chartSeriesStore = chartSeriesStore;
+        this.providerRequestBatcher = providerRequestBatcher;
+        this.hedgedProviderFetcher = hedgedProviderFetcher;
+        this.providerRanking = providerRanking;
+        this.rateLimitingService = rateLimitingService;
+        this.upstreamRequestScheduler = upstreamRequestScheduler;
+        this.priceFeed = priceFeed;
+        this.cryptoWebSocketHandler = cryptoWebSocketHandler;
+        this.feedEventStream = feedEventStream;
+        this.identityResolver = identityResolver;
+        this.coinDirectory = coinDirectory;
+        this.singleFlightService = singleFlightService;
+        this.staleWhileRevalidateService = staleWhileRevalidateService;
+        this.l2CacheStore = l2CacheStore;
     }
 
     /**
@@ -124,6 +180,160 @@ public class PerformanceMonitoringController {
         });
     }
 
+    /**
+     * Get local chart store statistics
+     */
+    @GetMapping("/chart-store/stats")
+    public Mono<ResponseEntity<ApiResponse<Map<String, Object>>>> getChartStoreStats() {
+        return Mono.fromSupplier(() -> {
+            Map<String, Object> stats = chartSeriesStore.getStatistics();
+            return ResponseEntity.ok(ApiResponse.success(stats, "Chart store statistics"));
+        });
+    }
+
+    /**
+     * Get provider request batching statistics
+     */
+    @GetMapping("/provider-batching/stats")
+    public Mono<ResponseEntity<ApiResponse<Map<String, Object>>>> getProviderBatchingStats() {
+        return Mono.fromSupplier(() -> {
+            Map<String, Object> stats = providerRequestBatcher.getStatistics();
+            return ResponseEntity.ok(ApiResponse.success(stats, "Provider batching statistics"));
+        });
+    }
+
+    /**
+     * Get hedged provider fetch statistics
+     */
+    @GetMapping("/provider-hedging/stats")
+    public Mono<ResponseEntity<ApiResponse<Map<String, Object>>>> getProviderHedgingStats() {
+        return Mono.fromSupplier(() -> {
+            Map<String, Object> stats = hedgedProviderFetcher.getStatistics();
+            return ResponseEntity.ok(ApiResponse.success(stats, "Provider hedging statistics"));
+        });
+    }
+
+    /**
+     * Get live provider ranking statistics
+     */
+    @GetMapping("/provider-ranking/stats")
+    public Mono<ResponseEntity<ApiResponse<Map<String, Object>>>> getProviderRankingStats() {
+        return Mono.fromSupplier(() -> {
+            Map<String, Object> stats = providerRanking.getStatistics();
+            return ResponseEntity.ok(ApiResponse.success(stats, "Provider ranking statistics"));
+        });
+    }
+
+    /**
+     * Get provider rate limit statistics
+     */
+    @GetMapping("/rate-limits/stats")
+    public Mono<ResponseEntity<ApiResponse<Map<String, Object>>>> getRateLimitStats() {
+        return Mono.fromSupplier(() -> {
+            Map<String, Object> stats = rateLimitingService.getStatistics();
+            return ResponseEntity.ok(ApiResponse.success(stats, "Rate limit statistics"));
+        });
+    }
+
+    /**
+     * Get upstream lane scheduling statistics
+     */
+    @GetMapping("/upstream-scheduler/stats")
+    public Mono<ResponseEntity<ApiResponse<Map<String, Object>>>> getUpstreamSchedulerStats() {
+        return Mono.fromSupplier(() -> {
+            Map<String, Object> stats = upstreamRequestScheduler.getStatistics();
+            return ResponseEntity.ok(ApiResponse.success(stats, "Upstream scheduler statistics"));
+        });
+    }
+
+    /**
+     * Get shared price feed statistics
+     */
+    @GetMapping("/price-feed/stats")
+    public Mono<ResponseEntity<ApiResponse<Map<String, Object>>>> getPriceFeedStats() {
+        return Mono.fromSupplier(() -> {
+            Map<String, Object> stats = priceFeed.getStatistics();
+            return ResponseEntity.ok(ApiResponse.success(stats, "Price feed statistics"));
+        });
+    }
+
+    /**
+     * Get WebSocket session and outbound queue statistics
+     */
+    @GetMapping("/websocket/stats")
+    public Mono<ResponseEntity<ApiResponse<Map<String, Object>>>> getWebSocketStats() {
+        return Mono.fromSupplier(() -> {
+            Map<String, Object> stats = cryptoWebSocketHandler.getStatistics();
+            return ResponseEntity.ok(ApiResponse.success(stats, "WebSocket statistics"));
+        });
+    }
+
+    /**
+     * Get Server-Sent Events stream statistics
+     */
+    @GetMapping("/event-stream/stats")
+    public Mono<ResponseEntity<ApiResponse<Map<String, Object>>>> getEventStreamStats() {
+        return Mono.fromSupplier(() -> {
+            Map<String, Object> stats = feedEventStream.getStatistics();
+            return ResponseEntity.ok(ApiResponse.success(stats, "Event stream statistics"));
+        });
+    }
+
+    /**
+     * Get identity resolution statistics
+     */
+    @GetMapping("/identity-resolution/stats")
+    public Mono<ResponseEntity<ApiResponse<Map<String, Object>>>> getIdentityResolutionStats() {
+        return Mono.fromSupplier(() -> {
+            Map<String, Object> stats = identityResolver.getStatistics();
+            return ResponseEntity.ok(ApiResponse.success(stats, "Identity resolution statistics"));
+        });
+    }
+
+    /**
+     * Get coin directory statistics
+     */
+    @GetMapping("/coin-directory/stats")
+    public Mono<ResponseEntity<ApiResponse<Map<String, Object>>>> getCoinDirectoryStats() {
+        return Mono.fromSupplier(() -> {
+            Map<String, Object> stats = coinDirectory.getStatistics();
+            return ResponseEntity.ok(ApiResponse.success(stats, "Coin directory statistics"));
+        });
+    }
+
+    /**
+     * Get in-flight request deduplication statistics
+     */
+    @GetMapping("/single-flight/stats")
+    public Mono<ResponseEntity<ApiResponse<Map<String, Object>>>> getSingleFlightStats() {
+        return Mono.fromSupplier(() -> {
+            Map<String, Object> stats = singleFlightService.getStatistics();
+            return ResponseEntity.ok(ApiResponse.success(stats, "Single-flight statistics"));
+        });
+    }
+
+    /**
+     * Get stale-while-revalidate cache statistics
+     */
+    @GetMapping("/stale-while-revalidate/stats")
+    public Mono<ResponseEntity<ApiResponse<Map<String, Object>>>> getStaleWhileRevalidateStats() {
+        return Mono.fromSupplier(() -> {
+            Map<String, Object> stats = staleWhileRevalidateService.getStatistics();
+            return ResponseEntity.ok(ApiResponse.success(stats, "Stale-while-revalidate statistics"));
+        });
+    }
+
+    /**
+     * Get off-heap second cache tier statistics
+     */
+    @GetMapping("/tiered-cache/stats")
+    public Mono<ResponseEntity<ApiResponse<Map<String, Object>>>> getTieredCacheStats() {
+        return Mono.fromSupplier(() -> {
+            Map<String, Object> stats = l2CacheStore.getStatistics();
+            return ResponseEntity.ok(ApiResponse.success(stats, "Tiered cache statistics"));
+        });
+    }
+
     /**
      * Get comprehensive performance overview
      */
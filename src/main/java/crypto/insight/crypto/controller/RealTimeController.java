@@ -3,12 +3,20 @@ package crypto.insight.crypto.controller;
 import crypto.insight.crypto.model.ApiResponse;
 import crypto.insight.crypto.service.RealTimeStreamingService;
 import crypto.insight.crypto.service.RealTimeDataService;
+import crypto.insight.crypto.service.realtime.FeedChannel;
+import crypto.insight.crypto.service.realtime.FeedEventStream;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import reactor.core.publisher.Mono;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -24,6 +32,61 @@ public class RealTimeController {
     @Autowired
     private RealTimeDataService realTimeDataService;
 
+    @Autowired
+    private FeedEventStream feedEventStream;
+
+    /**
+     * Stream price ticks and chart points as Server-Sent Events, e.g.
+     * {@code /stream?symbols=btc,eth&channels=ticker,chart}. Each feed sends a snapshot, then
+     * deltas; reconnecting with {@code Last-Event-ID} (or {@code lastEventId}) resumes where
+     * the client left off.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam String symbols,
+                             @RequestParam(defaultValue = "ticker") String channels,
+                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                             @RequestParam(value = "lastEventId", required = false) String lastEventIdParam) {
+        return feedEventStream.open(split(symbols), parseChannels(channels),
+                lastEventId != null ? lastEventId : lastEventIdParam);
+    }
+
+    /**
+     * Stream price ticks for a symbol as Server-Sent Events
+     */
+    @GetMapping(value = "/stream/prices/{symbol}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPrices(@PathVariable String symbol,
+                                   @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                   @RequestParam(value = "lastEventId", required = false) String lastEventIdParam) {
+        return feedEventStream.open(List.of(symbol), List.of(FeedChannel.TICKER),
+                lastEventId != null ? lastEventId : lastEventIdParam);
+    }
+
+    /**
+     * Stream appended chart points for a symbol as Server-Sent Events
+     */
+    @GetMapping(value = "/stream/chart/{symbol}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChart(@PathVariable String symbol,
+                                  @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                  @RequestParam(value = "lastEventId", required = false) String lastEventIdParam) {
+        return feedEventStream.open(List.of(symbol), List.of(FeedChannel.CHART),
+                lastEventId != null ? lastEventId : lastEventIdParam);
+    }
+
+    private static List<String> split(String values) {
+        return Arrays.stream(values.split(","))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .toList();
+    }
+
+    private static List<FeedChannel> parseChannels(String channels) {
+        return split(channels).stream()
+                .map(id -> FeedChannel.of(id).orElseThrow(() ->
+                        new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown channel: " + id)))
+                .distinct()
+                .toList();
+    }
+
     /**
      * Force update real-time data for a specific symbol
      */
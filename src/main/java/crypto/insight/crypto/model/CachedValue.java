@@ -0,0 +1,35 @@
+package crypto.insight.crypto.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.function.Function;
+
+/**
+ * A value served from a stale-while-revalidate cache together with its freshness.
+ *
+ * @param <T> The type of the cached value
+ */
+@Data
+@AllArgsConstructor
+public class CachedValue<T> {
+    private T value;
+
+    /**
+     * True when the value is past its soft TTL and a refresh is in progress
+     */
+    private boolean stale;
+
+    /**
+     * Milliseconds since the value was loaded from the providers
+     */
+    private long ageMillis;
+
+    public static <T> CachedValue<T> fresh(T value) {
+        return new CachedValue<>(value, false, 0);
+    }
+
+    public <R> CachedValue<R> map(Function<? super T, ? extends R> mapper) {
+        return new CachedValue<>(mapper.apply(value), stale, ageMillis);
+    }
+}
@@ -0,0 +1,28 @@
+package crypto.insight.crypto.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One OHLCV bucket of a rolled-up price chart.
+ * Volume and market cap are the last values observed in the bucket, since providers report
+ * them as rolling 24h volume and point-in-time market cap rather than per-trade totals.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChartCandle {
+    /**
+     * Bucket start, Unix timestamp in milliseconds
+     */
+    private long timestamp;
+    private double open;
+    private double high;
+    private double low;
+    private double close;
+    private Double volume;
+    private Double marketCap;
+}
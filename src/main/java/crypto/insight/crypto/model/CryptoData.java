@@ -3,6 +3,7 @@ package crypto.insight.crypto.model;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -14,7 +15,9 @@ import java.util.Map;
  */
 @Data
 @NoArgsConstructor
-public class CryptoData {
+public class CryptoData implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private CryptoIdentity identity;
     private String source;
     
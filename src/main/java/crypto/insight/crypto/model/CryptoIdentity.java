@@ -55,6 +55,25 @@ public class CryptoIdentity implements Serializable {
         }
     }
 
+    /**
+     * Fills only the fields that are still null from another identity, so a less certain match
+     * can add provider ids without replacing the name or symbol.
+     */
+    public void mergeMissing(CryptoIdentity other) {
+        if (other == null) return;
+
+        if (this.name == null) this.name = other.getName();
+        if (this.symbol == null) this.symbol = other.getSymbol();
+        if (this.coingeckoId == null) this.coingeckoId = other.getCoingeckoId();
+        if (this.coinmarketcapId == null) this.coinmarketcapId = other.getCoinmarketcapId();
+        if (this.cryptocompareId == null) this.cryptocompareId = other.getCryptocompareId();
+        if (this.coinpaprikaId == null) this.coinpaprikaId = other.getCoinpaprikaId();
+
+        if (other.getPotentialSymbols() != null) {
+            this.potentialSymbols.addAll(other.getPotentialSymbols());
+        }
+    }
+
     /**
      * Checks if this identity has been resolved to at least one provider.
      */
@@ -6,6 +6,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Map;
@@ -18,7 +19,9 @@ import java.util.Map;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class Cryptocurrency {
+public class Cryptocurrency implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     /**
      * Unique identifier for the cryptocurrency (e.g., "bitcoin")
      */
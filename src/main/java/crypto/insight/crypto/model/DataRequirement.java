@@ -0,0 +1,41 @@
+package crypto.insight.crypto.model;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Fields a caller needs from an aggregated {@link CryptoData}. Aggregation stops calling
+ * providers once the merged data has all of them.
+ */
+public enum DataRequirement {
+    /** Price, 24h change, volume and market cap: enough for tickers and lists */
+    QUOTE(List.of(CryptoData::getCurrentPrice, CryptoData::getPercentChange24h,
+            CryptoData::getVolume24h, CryptoData::getMarketCap)),
+    /** Quote plus circulating and total supply */
+    QUOTE_AND_SUPPLY(List.of(CryptoData::getCurrentPrice, CryptoData::getPercentChange24h,
+            CryptoData::getVolume24h, CryptoData::getMarketCap,
+            CryptoData::getCirculatingSupply, CryptoData::getTotalSupply)),
+    /**
+     * Quote, supply, rank and image. Max supply is left out because many coins have none, and
+     * requiring it would always wait for every provider.
+     */
+    FULL_PROFILE(List.of(CryptoData::getCurrentPrice, CryptoData::getPercentChange24h,
+            CryptoData::getVolume24h, CryptoData::getMarketCap,
+            CryptoData::getCirculatingSupply, CryptoData::getTotalSupply,
+            CryptoData::getMarketCapRank, CryptoData::getImageUrl));
+
+    private final List<Function<CryptoData, Object>> fields;
+
+    DataRequirement(List<Function<CryptoData, Object>> fields) {
+        this.fields = fields;
+    }
+
+    public boolean isSatisfiedBy(CryptoData data) {
+        for (Function<CryptoData, Object> field : fields) {
+            if (field.apply(data) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -6,6 +6,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 
 /**
@@ -16,7 +17,9 @@ import java.math.BigDecimal;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class TechnicalAnalysis {
+public class TechnicalAnalysis implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     
     /**
      * RSI (Relative Strength Index) - Momentum oscillator
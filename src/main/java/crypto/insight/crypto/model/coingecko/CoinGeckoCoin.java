@@ -0,0 +1,15 @@
+package crypto.insight.crypto.model.coingecko;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+/**
+ * One element of CoinGecko's {@code /coins/list} array.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CoinGeckoCoin {
+    private String id;
+    private String symbol;
+    private String name;
+}
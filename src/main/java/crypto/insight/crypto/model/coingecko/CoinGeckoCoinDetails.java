@@ -0,0 +1,86 @@
+package crypto.insight.crypto.model.coingecko;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * The fields we read from CoinGecko's {@code /coins/{id}} body.
+ * Everything else (tickers, localizations, links, the per-currency maps beyond USD) is
+ * skipped by the parser instead of being materialised into nested maps.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CoinGeckoCoinDetails {
+    private String id;
+    private String symbol;
+    private String name;
+    @JsonProperty("market_cap_rank")
+    private Integer marketCapRank;
+    private Image image;
+    private Description description;
+    @JsonProperty("market_data")
+    private MarketData marketData;
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Image {
+        private String large;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Description {
+        private String en;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class MarketData {
+        @JsonProperty("current_price")
+        private UsdAmount currentPrice;
+        @JsonProperty("market_cap")
+        private UsdAmount marketCap;
+        @JsonProperty("total_volume")
+        private UsdAmount totalVolume;
+        @JsonProperty("high_24h")
+        private UsdAmount high24h;
+        @JsonProperty("low_24h")
+        private UsdAmount low24h;
+        @JsonProperty("price_change_percentage_24h")
+        private BigDecimal priceChangePercentage24h;
+        @JsonProperty("price_change_percentage_24h_in_currency")
+        private UsdAmount priceChangePercentage24hInCurrency;
+        @JsonProperty("market_cap_rank")
+        private Integer marketCapRank;
+        @JsonProperty("circulating_supply")
+        private BigDecimal circulatingSupply;
+        @JsonProperty("total_supply")
+        private BigDecimal totalSupply;
+        @JsonProperty("max_supply")
+        private BigDecimal maxSupply;
+    }
+
+    /**
+     * A per-currency map of which only the USD entry is kept
+     */
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class UsdAmount {
+        private BigDecimal usd;
+    }
+
+    public BigDecimal usdPrice() {
+        return marketData != null && marketData.getCurrentPrice() != null ? marketData.getCurrentPrice().getUsd() : null;
+    }
+
+    public BigDecimal usdMarketCap() {
+        return marketData != null && marketData.getMarketCap() != null ? marketData.getMarketCap().getUsd() : null;
+    }
+
+    public BigDecimal usdVolume() {
+        return marketData != null && marketData.getTotalVolume() != null ? marketData.getTotalVolume().getUsd() : null;
+    }
+}
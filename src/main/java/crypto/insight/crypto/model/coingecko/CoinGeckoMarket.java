@@ -0,0 +1,39 @@
+package crypto.insight.crypto.model.coingecko;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * One element of CoinGecko's {@code /coins/markets} array.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CoinGeckoMarket {
+    private String id;
+    private String symbol;
+    private String name;
+    private String image;
+    @JsonProperty("current_price")
+    private BigDecimal currentPrice;
+    @JsonProperty("market_cap")
+    private BigDecimal marketCap;
+    @JsonProperty("market_cap_rank")
+    private Integer marketCapRank;
+    @JsonProperty("total_volume")
+    private BigDecimal totalVolume;
+    @JsonProperty("high_24h")
+    private BigDecimal high24h;
+    @JsonProperty("low_24h")
+    private BigDecimal low24h;
+    @JsonProperty("price_change_percentage_24h")
+    private BigDecimal priceChangePercentage24h;
+    @JsonProperty("circulating_supply")
+    private BigDecimal circulatingSupply;
+    @JsonProperty("total_supply")
+    private BigDecimal totalSupply;
+    @JsonProperty("max_supply")
+    private BigDecimal maxSupply;
+}
@@ -0,0 +1,27 @@
+package crypto.insight.crypto.model.coingecko;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * CoinGecko's {@code /search} body; only the coin hits are read, exchanges/NFTs/categories are skipped.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CoinGeckoSearchResponse {
+    private List<Coin> coins;
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Coin {
+        private String id;
+        private String name;
+        private String symbol;
+        @JsonProperty("market_cap_rank")
+        private Integer marketCapRank;
+        private String large;
+    }
+}
@@ -35,7 +35,7 @@ public class AIService {
     private static final int MAX_PRICE_HISTORY_ITEMS = 10;
     private static final int PRECISION_SCALE = 6;
     private static final int ANNUALIZATION_DAYS = 365;
-    private static final String OLLAMA_API_URL = "http://localhost:11434/api/chat";
+    private static final String OLLAMA_CHAT_PATH = "/api/chat";
     private static final int MAX_RETRIES = 3;
     private static final String DEFAULT_VALUE = "N/A";
     private static final int MAX_TOKENS = 800; // Reduced for faster responses
@@ -72,7 +72,7 @@ public class AIService {
             ));
 
             String response = webClient.post()
-                    .uri(OLLAMA_API_URL)
+                    .uri(OLLAMA_CHAT_PATH)
                     .contentType(MediaType.APPLICATION_JSON)
                     .bodyValue(testRequest)
                     .retrieve()
@@ -189,7 +189,7 @@ public class AIService {
         log.debug("Sending request to Ollama with prompt of length: {}", prompt.length());
 
         return webClient.post()
-                .uri(OLLAMA_API_URL)
+                .uri(OLLAMA_CHAT_PATH)
                 .contentType(MediaType.APPLICATION_JSON)
                 .bodyValue(request)
                 .retrieve()
@@ -353,7 +353,7 @@ public class AIService {
         return formatContextData(crypto, chartDataPoints, metrics, days);
     }
 
-    private Map<String, Double> calculateMetrics(List<ChartDataPoint> priceData) {
+    Map<String, Double> calculateMetrics(List<ChartDataPoint> priceData) {
         Map<String, Double> metrics = new HashMap<>();
         
         if (priceData == null || priceData.isEmpty()) {
@@ -410,7 +410,7 @@ public class AIService {
         return low != 0 ? high / low : 1.0;
     }
 
-    private BigDecimal calculateVolatility(List<ChartDataPoint> priceData) {
+    BigDecimal calculateVolatility(List<ChartDataPoint> priceData) {
         if (priceData == null || priceData.size() < 2) {
             return BigDecimal.ZERO;
         }
@@ -1,10 +1,26 @@
 package crypto.insight.crypto.service;
 
 import crypto.insight.crypto.config.ApiProperties;
+import crypto.insight.crypto.model.CachedValue;
+import crypto.insight.crypto.model.ChartCandle;
+import crypto.insight.crypto.model.ChartDataPoint;
 import crypto.insight.crypto.model.CryptoData;
 import crypto.insight.crypto.model.CryptoIdentity;
+import crypto.insight.crypto.model.DataRequirement;
 import crypto.insight.crypto.model.Cryptocurrency;
+import crypto.insight.crypto.model.coingecko.CoinGeckoCoinDetails;
+import crypto.insight.crypto.model.coingecko.CoinGeckoMarket;
+import crypto.insight.crypto.model.coingecko.CoinGeckoSearchResponse;
+import crypto.insight.crypto.service.chart.ChartResolution;
+import crypto.insight.crypto.service.chart.ChartSeriesStore;
+import crypto.insight.crypto.service.chart.Downsampling;
+import crypto.insight.crypto.service.directory.CoinDirectory;
+import crypto.insight.crypto.service.directory.CoinDirectoryEntry;
 import crypto.insight.crypto.service.provider.DataProvider;
+import crypto.insight.crypto.service.provider.HedgedProviderFetcher;
+import crypto.insight.crypto.service.provider.IdentityResolver;
+import crypto.insight.crypto.service.provider.ProviderRanking;
+import crypto.insight.crypto.service.provider.ProviderRequestBatcher;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.Cache;
 import org.springframework.core.ParameterizedTypeReference;
@@ -19,6 +35,9 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -30,35 +49,115 @@ import java.util.stream.Collectors;
 @Service
 public class ApiService {
 
+    /** Drops the localization, ticker, community and developer sections we never read from /coins/{id} */
+    private static final String COIN_DETAILS_QUERY =
+            "?localization=false&tickers=false&community_data=false&developer_data=false&sparkline=false";
+    /** Stale-while-revalidate cache holding aggregated provider data per query */
+    private static final String AGGREGATED_DATA_CACHE = "cryptoData";
+    /** Directory matches returned when aggregated search fails */
+    private static final int SEARCH_LIMIT = 10;
+
     private final List<DataProvider> dataProviders;
     private final Cache identityCache;
     private final WebClient webClient;
     private final ApiProperties apiProperties;
+    private final ChartSeriesStore chartSeriesStore;
+    private final ProviderRequestBatcher providerRequestBatcher;
+    private final SingleFlightService singleFlightService;
+    private final StaleWhileRevalidateService staleWhileRevalidateService;
+    private final HedgedProviderFetcher hedgedProviderFetcher;
+    private final ProviderRanking providerRanking;
+    private final IdentityResolver identityResolver;
+    private final CoinDirectory coinDirectory;
 
     public ApiService(List<DataProvider> dataProviders, 
                      @org.springframework.beans.factory.annotation.Qualifier("identityCache") Cache identityCache,
                      @org.springframework.beans.factory.annotation.Qualifier("webClient") WebClient webClient,
-                     ApiProperties apiProperties) {
+                     ApiProperties apiProperties,
+                     ChartSeriesStore chartSeriesStore,
+                     ProviderRequestBatcher providerRequestBatcher,
+                     SingleFlightService singleFlightService,
+                     StaleWhileRevalidateService staleWhileRevalidateService,
+                     HedgedProviderFetcher hedgedProviderFetcher,
+                     ProviderRanking providerRanking,
+                     IdentityResolver identityResolver,
+                     CoinDirectory coinDirectory) {
         this.dataProviders = dataProviders;
         this.identityCache = identityCache;
         this.webClient = webClient;
         this.apiProperties = apiProperties;
+        this.chartSeriesStore = chartSeriesStore;
+        this.providerRequestBatcher = providerRequestBatcher;
+        this.singleFlightService = singleFlightService;
+        this.staleWhileRevalidateService = staleWhileRevalidateService;
+        this.hedgedProviderFetcher = hedgedProviderFetcher;
+        this.providerRanking = providerRanking;
+        this.identityResolver = identityResolver;
+        this.coinDirectory = coinDirectory;
     }
 
     /**
      * Main entry point to get aggregated data for a cryptocurrency.
      * It resolves the identity and then fetches data from all available sources.
+     * Concurrent calls for the same query share one resolution and fetch.
      *
      * @param query The user's search query (e.g., "BTC", "Bitcoin", "bitcoin").
      * @return A Mono containing the aggregated crypto data.
      */
     public Mono<CryptoData> getAggregatedCryptoData(String query) {
+        return getAggregatedCryptoDataWithFreshness(query).map(CachedValue::getValue);
+    }
+
+    /**
+     * Gets aggregated crypto data through the stale-while-revalidate cache. Data past its soft
+     * TTL is returned immediately, marked stale, while one background fetch refreshes it.
+     */
+    public Mono<CachedValue<CryptoData>> getAggregatedCryptoDataWithFreshness(String query) {
         String normalizedQuery = query.trim().toLowerCase();
+        return staleWhileRevalidateService.get(AGGREGATED_DATA_CACHE, normalizedQuery,
+                () -> loadAggregatedCryptoData(normalizedQuery, null));
+    }
 
+    /**
+     * Gets aggregated crypto data that only has to contain the fields in {@code requirement}.
+     * Provider calls stop as soon as those fields are in, so quote lookups usually cost one
+     * provider call. Results are cached apart from the full aggregate.
+     */
+    public Mono<CryptoData> getAggregatedCryptoData(String query, DataRequirement requirement, boolean forceRefresh) {
+        String normalizedQuery = query.trim().toLowerCase();
+        String cacheKey = normalizedQuery + "|" + requirement.name().toLowerCase();
+        if (forceRefresh) {
+            // Prices move, identities don't: a forced refresh keeps the cached identity
+            return staleWhileRevalidateService.reload(AGGREGATED_DATA_CACHE, cacheKey,
+                    () -> cachedOrResolvedIdentity(normalizedQuery)
+                            .flatMap(identity -> fetchAllDataFromProviders(identity, requirement, null)));
+        }
+        return staleWhileRevalidateService.get(AGGREGATED_DATA_CACHE, cacheKey,
+                        () -> loadAggregatedCryptoData(normalizedQuery, requirement))
+                .map(CachedValue::getValue);
+    }
+
+    /**
+     * Loads aggregated data. Without a requirement this is the full aggregate: it returns once the
+     * quote is in and keeps merging slower providers into the cache entry.
+     */
+    private Mono<CryptoData> loadAggregatedCryptoData(String normalizedQuery, DataRequirement requirement) {
+        String flightKey = requirement == null ? normalizedQuery : normalizedQuery + "|" + requirement;
+        return singleFlightService.execute("aggregatedCryptoData", flightKey, () ->
+                cachedOrResolvedIdentity(normalizedQuery)
+                        .flatMap(identity -> requirement == null
+                                ? fetchAllDataFromProviders(identity, DataRequirement.QUOTE, lateResultsInto(normalizedQuery))
+                                : fetchAllDataFromProviders(identity, requirement, null)));
+    }
+
+    private Mono<CryptoIdentity> cachedOrResolvedIdentity(String normalizedQuery) {
         return Mono.justOrEmpty(identityCache.get(normalizedQuery, CryptoIdentity.class))
                 .doOnNext(cachedIdentity -> log.info("Cache hit for identity: '{}' -> {}", normalizedQuery, cachedIdentity.getSymbol()))
-                .switchIfEmpty(resolveAndCacheIdentity(normalizedQuery))
-                .flatMap(this::fetchAllDataFromProviders);
+                .switchIfEmpty(Mono.defer(() -> resolveAndCacheIdentity(normalizedQuery)));
+    }
+
+    private Consumer<CryptoData> lateResultsInto(String cacheKey) {
+        return complete -> staleWhileRevalidateService.put(AGGREGATED_DATA_CACHE, cacheKey, complete);
     }
 
     /**
@@ -69,10 +168,14 @@ public class ApiService {
 
         if (forceRefresh) {
             log.info("Force refresh requested for '{}' - bypassing cache", normalizedQuery);
-            // Clear cache for this query
-            identityCache.evict(normalizedQuery);
-            return resolveAndCacheIdentity(normalizedQuery)
-                    .flatMap(this::fetchAllDataFromProviders);
+            // Re-resolve the identity and store the result so later reads start fresh
+            return staleWhileRevalidateService.reload(AGGREGATED_DATA_CACHE, normalizedQuery, () -> {
+                identityCache.evict(normalizedQuery);
+                identityResolver.forget(normalizedQuery);
+                return resolveAndCacheIdentity(normalizedQuery)
+                        .flatMap(identity -> fetchAllDataFromProviders(identity, DataRequirement.QUOTE,
+                                lateResultsInto(normalizedQuery)));
+            });
         } else {
             return getAggregatedCryptoData(normalizedQuery);
         }
@@ -80,48 +183,47 @@ public class ApiService {
     
     private Mono<CryptoIdentity> resolveAndCacheIdentity(String query) {
         log.info("Cache miss for identity: '{}'. Resolving from providers.", query);
-        return Flux.fromIterable(dataProviders)
-                .concatMap(provider -> provider.resolveIdentity(query)
-                        .doOnSuccess(id -> log.info("Provider '{}' resolved '{}' -> {}", provider.getProviderName(), query, id.getSymbol()))
-                        .onErrorResume(e -> {
-                            log.debug("Provider '{}' failed to resolve identity for '{}': {}", provider.getProviderName(), query, e.getMessage());
-                            return Mono.empty();
-                        }))
-                .collectList()
-                .flatMap(identities -> {
-                    if (identities.isEmpty()) {
-                        return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Could not resolve cryptocurrency: " + query));
-                    }
-                    
-                    // Start with the first identity and merge all others into it
-                    CryptoIdentity mergedIdentity = identities.get(0);
-                    for (int i = 1; i < identities.size(); i++) {
-                        mergedIdentity.merge(identities.get(i));
-                    }
-                    
-                    log.info("Merged identity for '{}': {}", query, mergedIdentity);
-                    identityCache.put(query, mergedIdentity);
-                    return Mono.just(mergedIdentity);
-                });
+        return identityResolver.resolve(dataProviders, query, identity -> identityCache.put(query, identity))
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Could not resolve cryptocurrency: " + query)));
     }
 
-    private Mono<CryptoData> fetchAllDataFromProviders(CryptoIdentity identity) {
-        log.info("Fetching all data for resolved identity: {} ({})", identity.getSymbol(), identity.getName());
+    /**
+     * Fetches and merges provider data for an identity until {@code requirement} is met.
+     * <p>
+     * With {@code lateResults} the providers still running at that point keep going and the
+     * complete merge is handed to it; without, they are cancelled. When hedging is disabled every
+     * provider is called at once, and with {@code lateResults} the call waits for all of them.
+     */
+    private Mono<CryptoData> fetchAllDataFromProviders(CryptoIdentity identity, DataRequirement requirement,
+                                                       Consumer<CryptoData> lateResults) {
+        log.info("Fetching {} data for resolved identity: {} ({})", requirement, identity.getSymbol(), identity.getName());
 
-        return Flux.fromIterable(dataProviders)
+        if (hedgedProviderFetcher.isEnabled()) {
+            return hedgedProviderFetcher.fetch(dataProviders, identity, requirement, lateResults);
+        }
+
+        Flux<CryptoData> providerData = Flux.fromIterable(providerRanking.rank(dataProviders))
                 .flatMap(provider -> 
-                    provider.fetchData(identity)
+                    providerRanking.observeFetch(provider, providerRequestBatcher.fetch(provider, identity))
                         .doOnError(error -> log.warn("Provider {} failed to fetch data for {}: {}", 
                             provider.getProviderName(), identity.getSymbol(), error.getMessage()))
                         .onErrorResume(error -> {
                             log.debug("Skipping provider {} due to error: {}", provider.getProviderName(), error.getMessage());
                             return Mono.empty(); // Skip this provider and continue with others
-                        }))
-                .reduce(new CryptoData(identity), (aggregatedData, newData) -> {
-                    log.debug("Merging data from provider: {}", newData.getSource());
-                    aggregatedData.mergeWith(newData);
-                    return aggregatedData;
-                });
+                        }));
+
+        BiFunction<CryptoData, CryptoData, CryptoData> merge = (aggregatedData, newData) -> {
+            log.debug("Merging data from provider: {}", newData.getSource());
+            aggregatedData.mergeWith(newData);
+            return aggregatedData;
+        };
+        if (lateResults != null) {
+            return providerData.reduce(new CryptoData(identity), merge);
+        }
+        // Cancels the providers still running once the merged data has the required fields
+        return providerData.scan(new CryptoData(identity), merge)
+                .takeUntil(requirement::isSatisfiedBy)
+                .last();
     }
 
     /**
@@ -133,6 +235,14 @@ public class ApiService {
                 .map(this::mapToLegacyCryptocurrency);
     }
 
+    /**
+     * Legacy model lookup that also reports whether the data was served stale.
+     */
+    public Mono<CachedValue<Cryptocurrency>> getCryptocurrencyDataWithFreshness(String symbol) {
+        return getAggregatedCryptoDataWithFreshness(symbol)
+                .map(cached -> cached.map(this::mapToLegacyCryptocurrency));
+    }
+
     /**
      * Legacy method for backward compatibility with refresh option
      */
@@ -142,6 +252,14 @@ public class ApiService {
                 .map(this::mapToLegacyCryptocurrency);
     }
 
+    /**
+     * Legacy model lookup that only needs the fields in {@code requirement}
+     */
+    public Mono<Cryptocurrency> getCryptocurrencyData(String symbol, DataRequirement requirement, boolean forceRefresh) {
+        return getAggregatedCryptoData(symbol, requirement, forceRefresh)
+                .map(this::mapToLegacyCryptocurrency);
+    }
+
     /**
      * Maps the new CryptoData model to the old Cryptocurrency model for backward compatibility.
      */
@@ -170,8 +288,9 @@ public class ApiService {
     }
 
     /**
-     * Searches for cryptocurrencies by query using all available providers, or returns popular ones if query is empty.
-     * This method now uses the multi-provider aggregation system for more comprehensive and current data.
+     * Searches for cryptocurrencies by query, or returns popular ones if query is empty.
+     * Matches come from the local coin directory, best match first; providers are only asked
+     * about queries the directory has no match for.
      * 
      * @param query The search query (can be empty or null for popular cryptocurrencies)
      * @return A Flux of Cryptocurrency objects matching the search or popular cryptocurrencies
@@ -187,8 +306,7 @@ public class ApiService {
             String[] popularCryptos = {"BTC", "ETH", "BNB", "XRP", "ADA", "SOL", "DOT", "MATIC", "AVAX", "LINK", "UNI", "LTC", "ATOM", "FTM", "ALGO"};
             
             return Flux.fromArray(popularCryptos)
-                    .flatMap(symbol -> getAggregatedCryptoData(symbol)
-                            .map(this::mapToLegacyCryptocurrency)
+                    .flatMap(symbol -> getCryptocurrencyData(symbol, DataRequirement.QUOTE, false)
                             .onErrorResume(e -> {
                                 log.debug("Failed to fetch data for {}: {}", symbol, e.getMessage());
                                 return Mono.empty();
@@ -203,42 +321,48 @@ public class ApiService {
                     });
         }
         
-        // If there's a query, use aggregated search
+        List<CoinDirectoryEntry> matches = coinDirectory.search(query, SEARCH_LIMIT);
+        if (!matches.isEmpty()) {
+            return Flux.fromIterable(matches).map(CoinDirectoryEntry::toCryptocurrency);
+        }
+        return searchProviders(query);
+    }
+    
+    /**
+     * Autocomplete and fuzzy matches from the local coin directory, best match first. Empty
+     * until the directory has been loaded.
+     */
+    public Flux<Cryptocurrency> suggestCryptocurrencies(String query, int limit) {
+        return Flux.fromIterable(coinDirectory.search(query, limit))
+                .map(CoinDirectoryEntry::toCryptocurrency);
+    }
+
+    /**
+     * Search for a query the coin directory has no match for: the aggregated provider data
+     * for it, else CoinGecko search while the directory is not loaded yet
+     */
+    private Flux<Cryptocurrency> searchProviders(String query) {
         return getAggregatedCryptoData(query)
                 .map(this::mapToLegacyCryptocurrency)
                 .flux()
                 .onErrorResume(e -> {
-                    log.warn("Aggregated search failed for '{}', falling back to CoinGecko search: {}", query, e.getMessage());
-                    return fallbackCoinGeckoSearch(query);
+                    log.debug("Aggregated search failed for '{}': {}", query, e.getMessage());
+                    return coinDirectory.isLoaded() ? Flux.empty() : coinGeckoSearch(query);
                 });
     }
-    
-    /**
-     * Fallback method using CoinGecko search when aggregated search fails
-     */
-    private Flux<Cryptocurrency> fallbackCoinGeckoSearch(String query) {
+
+    private Flux<Cryptocurrency> coinGeckoSearch(String query) {
         String url = apiProperties.getCoinGeckoBaseUrl() + "/search?query=" + query;
 
         return webClient.get()
                 .uri(url)
                 .retrieve()
-                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
-                .flatMapMany(response -> {
-                    Object coinsObj = response.get("coins");
-                    if (coinsObj instanceof List) {
-                        try {
-                            @SuppressWarnings("unchecked")
-                            List<Map<String, Object>> coins = (List<Map<String, Object>>) coinsObj;
-                            return Flux.fromIterable(mapFromCoinGeckoSearch(coins));
-                        } catch (ClassCastException e) {
-                            log.error("Unexpected response format from CoinGecko search: {}", e.getMessage());
-                            return Flux.empty();
-                        }
-                    }
-                    return Flux.empty();
-                })
+                .bodyToMono(CoinGeckoSearchResponse.class)
+                .flatMapMany(response -> response.getCoins() != null
+                        ? Flux.fromIterable(mapFromCoinGeckoSearch(response.getCoins()))
+                        : Flux.<Cryptocurrency>empty())
                 .onErrorResume(e -> {
-                    log.error("Error in fallback CoinGecko search: {}", e.getMessage());
+                    log.error("Error in CoinGecko search: {}", e.getMessage());
                     return Flux.empty();
                 });
     }
@@ -263,29 +387,205 @@ public class ApiService {
      * Fallback method for getting details from CoinGecko only
      */
     private Mono<Cryptocurrency> fallbackCoinGeckoDetails(String id) {
-        String url = apiProperties.getCoinGeckoBaseUrl() + "/coins/" + id;
+        String url = apiProperties.getCoinGeckoBaseUrl() + "/coins/" + id + COIN_DETAILS_QUERY;
 
         return webClient.get()
                 .uri(url)
                 .retrieve()
-                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+                .bodyToMono(CoinGeckoCoinDetails.class)
                 .map(this::mapFromCoinGeckoDetails);
     }
 
     /**
-     * Fetches the market chart data for a specific cryptocurrency with fallback mechanisms.
-     * Tries multiple endpoints and formats to ensure data is returned when available.
+     * Fetches the market chart data for a specific cryptocurrency.
+     * Served from the local chart store when it covers the window; a stale series only has its
+     * missing tail fetched from CoinGecko, and nothing stored means a full fetch.
      */
     public Mono<Map<String, Object>> getMarketChart(String id, int days) {
-        log.info("Fetching market chart for coin ID: {} for {} days", id, days);
-        
-        // Ensure we're using the correct CoinGecko ID format (ix-swap instead of ixs)
-        String coingeckoId = id;
+        return readThroughChartStore(id, days, false, true, chartSeriesStore::readMarketChart, chartData -> chartData);
+    }
+
+    /**
+     * Fetches the market chart at a given rollup resolution, decimated to at most
+     * {@code maxPoints} rows when it is positive.
+     */
+    public Mono<Map<String, Object>> getMarketChart(String id, int days, ChartResolution resolution,
+                                                    int maxPoints, Downsampling downsampling) {
+        return readThroughChartStore(id, days, false, true,
+                (coingeckoId, window) -> chartSeriesStore.readMarketChart(coingeckoId, window, resolution, maxPoints, downsampling),
+                chartData -> chartData);
+    }
+
+    /**
+     * Returns OHLCV candles for the last {@code days}, rolled up from the stored series.
+     */
+    public Mono<List<ChartCandle>> getMarketChartCandles(String id, int days, ChartResolution resolution,
+                                                         int maxPoints, Downsampling downsampling) {
+        return readThroughChartStore(id, days, false, true,
+                (coingeckoId, window) -> chartSeriesStore.readCandles(coingeckoId, window, resolution, maxPoints, downsampling),
+                chartData -> chartSeriesStore.toCandles(chartData, days, resolution, maxPoints, downsampling));
+    }
+
+    /**
+     * Returns the market chart prices as chart data points, reading the local chart store
+     * directly instead of materialising and re-parsing the provider map when possible.
+     */
+    public Mono<List<ChartDataPoint>> getChartDataPoints(String id, int days, boolean forceRefresh) {
+        return readThroughChartStore(id, days, forceRefresh, true,
+                chartSeriesStore::readChartDataPoints, this::toChartDataPoints);
+    }
+
+    /**
+     * Returns chart data points for a coin known by symbol or name, as the live feeds need them.
+     * The CoinGecko id comes from the resolved identity, and a chart that cannot be fetched fails
+     * the Mono instead of falling back to demo data.
+     */
+    public Mono<List<ChartDataPoint>> getLiveChartDataPoints(String query, int days, boolean forceRefresh) {
+        String normalizedQuery = query.trim().toLowerCase();
+        return cachedOrResolvedIdentity(normalizedQuery)
+                .flatMap(identity -> Mono.justOrEmpty(identity.getCoingeckoId()))
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "No CoinGecko id for " + normalizedQuery)))
+                .flatMap(coingeckoId -> readThroughChartStore(coingeckoId, days, forceRefresh, false,
+                        chartSeriesStore::readChartDataPoints, this::toChartDataPoints));
+    }
+
+    /**
+     * Reads a chart window through the local store. A forced refresh of a covered series tops
+     * up the tail instead of refetching the whole window. Without {@code demoFallback} a failed
+     * fetch of a missing series fails the read.
+     */
+    private <T> Mono<T> readThroughChartStore(String id, int days, boolean forceRefresh, boolean demoFallback,
+                                              BiFunction<String, Integer, T> storeReader,
+                                              Function<Map<String, Object>, T> fromProvider) {
+        String coingeckoId = toCoinGeckoId(id);
+        return Mono.defer(() -> {
+            ChartSeriesStore.Coverage coverage = chartSeriesStore.coverage(coingeckoId, days);
+            if (coverage == ChartSeriesStore.Coverage.FRESH && !forceRefresh) {
+                log.debug("Serving market chart for {} ({} days) from local store", id, days);
+                return Mono.just(storeReader.apply(coingeckoId, days));
+            }
+            if (coverage != ChartSeriesStore.Coverage.MISSING) {
+                return topUpMarketChart(id, coingeckoId, days)
+                        .then(Mono.fromSupplier(() -> storeReader.apply(coingeckoId, days)));
+            }
+            int fetchDays = chartSeriesStore.fetchWindowDays(days);
+            return (demoFallback ? fetchMarketChart(id, days, fetchDays) : requestMarketChart(coingeckoId, fetchDays))
+                    .map(chartData -> chartSeriesStore.coverage(coingeckoId, days) != ChartSeriesStore.Coverage.MISSING
+                            ? storeReader.apply(coingeckoId, days)
+                            : fromProvider.apply(chartData));
+        });
+    }
+
+    /**
+     * Brings the stored series for a coin up to date, fetching only the points after the newest
+     * stored one. Falls back to a full {@code days} fetch when nothing is stored yet.
+     */
+    public Mono<Void> refreshMarketChartTail(String id, int days) {
+        String coingeckoId = toCoinGeckoId(id);
+        return Mono.defer(() -> chartSeriesStore.coverage(coingeckoId, days) == ChartSeriesStore.Coverage.MISSING
+                ? requestMarketChart(coingeckoId, chartSeriesStore.fetchWindowDays(days)).then()
+                : topUpMarketChart(id, coingeckoId, days));
+    }
+
+    /**
+     * Fetches only the points after the newest stored one. Failures keep the stored series.
+     */
+    private Mono<Void> topUpMarketChart(String id, String coingeckoId, int days) {
+        OptionalLong newest = chartSeriesStore.newestTimestamp(coingeckoId);
+        if (newest.isEmpty()) {
+            return requestMarketChart(coingeckoId, chartSeriesStore.fetchWindowDays(days)).then();
+        }
+        long from = newest.getAsLong() + 1;
+        // Concurrent top-ups start from the same newest point, so they can share one range call
+        return singleFlightService.execute("marketChartTopUp", coingeckoId, () -> {
+            log.debug("Topping up market chart for {} from {}", id, from);
+            return requestMarketChartRange(coingeckoId, from, System.currentTimeMillis())
+                    .onErrorResume(e -> {
+                        log.warn("Market chart top-up failed for {}, serving stored history: {}", id, e.getMessage());
+                        return Mono.empty();
+                    })
+                    .then();
+        });
+    }
+
+    /**
+     * Requests the market chart between two instants and ingests it into the local chart store.
+     * CoinGecko picks the granularity from the range (5 minutes within a day, hourly up to 90
+     * days), and the store keeps it down to 5 minute buckets.
+     */
+    private Mono<Map<String, Object>> requestMarketChartRange(String coingeckoId, long fromMillis, long toMillis) {
+        String url = String.format("%s/coins/%s/market_chart/range?vs_currency=usd&from=%d&to=%d",
+                apiProperties.getCoinGeckoBaseUrl(), coingeckoId, fromMillis / 1000, toMillis / 1000);
+
+        return webClient.get()
+                .uri(url)
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+                .doOnNext(data -> chartSeriesStore.ingest(coingeckoId, data));
+    }
+
+    /**
+     * Ensure we're using the correct CoinGecko ID format (ix-swap instead of ixs)
+     */
+    private String toCoinGeckoId(String id) {
         if (id.equals("ixs")) {
-            coingeckoId = "ix-swap";
-            log.info("Mapped ID '{}' to CoinGecko ID '{}'", id, coingeckoId);
+            log.info("Mapped ID '{}' to CoinGecko ID '{}'", id, "ix-swap");
+            return "ix-swap";
         }
-        
+        return id;
+    }
+
+    /**
+     * Fetches the market chart from CoinGecko with fallback mechanisms.
+     * Tries multiple endpoints and formats to ensure data is returned when available.
+     * {@code fetchDays} may be wider than {@code days} so the store can serve other ranges.
+     */
+    private Mono<Map<String, Object>> fetchMarketChart(String id, int days, int fetchDays) {
+        log.info("Fetching market chart for coin ID: {} for {} days", id, fetchDays);
+
+        return requestMarketChart(toCoinGeckoId(id), fetchDays)
+                .doOnSuccess(data -> {
+                    if (data != null && !data.isEmpty()) {
+                        log.info("Successfully fetched market chart data for {}", id);
+                    } else {
+                        log.warn("Received empty market chart data for {}", id);
+                    }
+                })
+                .onErrorResume(e -> {
+                    log.error("Failed to fetch market chart data for {}: {}", id, e.getMessage());
+                    return Mono.just(generateDemoChartData(id, days));
+                });
+    }
+
+    /**
+     * Requests the daily market chart from CoinGecko, falling back to OHLC data, together with
+     * the intraday windows, and ingests them into the local chart store. Errors of the daily
+     * request are propagated to the caller. Concurrent requests for the same coin and window
+     * share one call.
+     */
+    private Mono<Map<String, Object>> requestMarketChart(String coingeckoId, int days) {
+        return singleFlightService.execute("marketChart", coingeckoId + ":" + days,
+                () -> doRequestMarketChart(coingeckoId, days)
+                        .zipWith(requestIntradayCharts(coingeckoId).thenReturn(Boolean.TRUE), (chart, ignored) -> chart));
+    }
+
+    /**
+     * Fills the 5 minute and hourly levels of the store, each from a range request over its
+     * own window, since the daily request leaves them empty. Failures only cost those levels.
+     */
+    private Mono<Void> requestIntradayCharts(String coingeckoId) {
+        long now = System.currentTimeMillis();
+        return Flux.fromIterable(chartSeriesStore.intradayWindowDays())
+                .flatMap(days -> requestMarketChartRange(coingeckoId, now - days * 24 * 60 * 60 * 1000L, now)
+                        .onErrorResume(e -> {
+                            log.warn("Intraday market chart ({} days) failed for {}: {}", days, coingeckoId, e.getMessage());
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    private Mono<Map<String, Object>> doRequestMarketChart(String coingeckoId, int days) {
         // Primary endpoint - market chart with prices
         String primaryUrl = String.format("%s/coins/%s/market_chart?vs_currency=usd&days=%d&interval=daily",
                 apiProperties.getCoinGeckoBaseUrl(), coingeckoId, days);
@@ -301,24 +601,14 @@ public class ApiService {
                 .retrieve()
                 .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
                 .onErrorResume(e -> {
-                    log.warn("Primary market chart endpoint failed for {}: {}. Trying fallback...", id, e.getMessage());
+                    log.warn("Primary market chart endpoint failed for {}: {}. Trying fallback...", coingeckoId, e.getMessage());
                     return webClient.get()
                             .uri(fallbackUrl)
                             .retrieve()
                             .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
                             .map(this::convertOhlcToMarketChart);
                 })
-                .doOnSuccess(data -> {
-                    if (data != null && !data.isEmpty()) {
-                        log.info("Successfully fetched market chart data for {}", id);
-                    } else {
-                        log.warn("Received empty market chart data for {}", id);
-                    }
-                })
-                .onErrorResume(e -> {
-                    log.error("Failed to fetch market chart data for {}: {}", id, e.getMessage());
-                    return Mono.just(generateDemoChartData(id, days));
-                });
+                .doOnNext(data -> chartSeriesStore.ingest(coingeckoId, data));
     }
     
     /**
@@ -444,22 +734,39 @@ public class ApiService {
     public Mono<Map<String, Object>> getMarketChart(String id, int days, boolean forceRefresh) {
         if (forceRefresh) {
             log.info("Force refresh requested for market chart data: {} for {} days", id, days);
-            // For market chart, we don't have explicit caching but the providers might cache
-            // We'll just call the regular method as it should get fresh data from APIs
         }
-        return getMarketChart(id, days);
+        return readThroughChartStore(id, days, forceRefresh, true, chartSeriesStore::readMarketChart, chartData -> chartData);
+    }
+
+    /**
+     * Converts the prices of a market chart map into chart data points
+     */
+    private List<ChartDataPoint> toChartDataPoints(Map<String, Object> chartData) {
+        Object pricesObj = chartData.get("prices");
+        if (pricesObj instanceof List) {
+            return ((List<?>) pricesObj).stream()
+                    .filter(List.class::isInstance)
+                    .map(point -> (List<?>) point)
+                    .filter(point -> point.size() >= 2)
+                    .map(point -> new ChartDataPoint(
+                            ((Number) point.get(0)).longValue(),
+                            ((Number) point.get(1)).doubleValue()
+                    ))
+                    .collect(Collectors.toList());
+        }
+        return Collections.emptyList();
     }
 
     // Helper methods for mapping CoinGecko API responses
 
-    private List<Cryptocurrency> mapFromCoinGeckoSearch(List<Map<String, Object>> coins) {
+    private List<Cryptocurrency> mapFromCoinGeckoSearch(List<CoinGeckoSearchResponse.Coin> coins) {
         return coins.stream()
                 .map(coin -> Cryptocurrency.builder()
-                        .id(safeString(coin.get("id")))
-                        .name(safeString(coin.get("name")))
-                        .symbol(safeString(coin.get("symbol")).toUpperCase())
-                        .imageUrl(safeString(coin.get("large")))
-                        .rank(safeInteger(coin.get("market_cap_rank")))
+                        .id(safeString(coin.getId()))
+                        .name(safeString(coin.getName()))
+                        .symbol(safeString(coin.getSymbol()).toUpperCase())
+                        .imageUrl(safeString(coin.getLarge()))
+                        .rank(safeInteger(coin.getMarketCapRank()))
                         .build())
                 .collect(Collectors.toList());
     }
@@ -467,12 +774,11 @@ public class ApiService {
     /**
      * Maps a list of market data from CoinGecko to a list of Cryptocurrency objects.
      * 
-     * @param markets List of market data maps from CoinGecko API
+     * @param markets List of market rows from the CoinGecko API
      * @return List of mapped Cryptocurrency objects
      * @throws NullPointerException if the input list is null
-     * @throws ClassCastException if the market data has unexpected types
      */
-    private List<Cryptocurrency> mapFromCoinGeckoMarkets(List<Map<String, Object>> markets) {
+    List<Cryptocurrency> mapFromCoinGeckoMarkets(List<CoinGeckoMarket> markets) {
         if (markets == null) {
             throw new NullPointerException("Markets list cannot be null");
         }
@@ -481,88 +787,61 @@ public class ApiService {
         
         return markets.stream()
                 .map(market -> {
-                    try {
-                        if (market == null) {
-                            log.warn("Encountered null market item, skipping");
-                            return null;
-                        }
-                        
-                        String id = safeString(market.get("id"));
-                        String name = safeString(market.get("name"));
-                        String symbol = safeString(market.get("symbol"));
-                        
-                        if (id == null || name == null || symbol == null) {
-                            log.warn("Missing required fields in market data: id={}, name={}, symbol={}", 
-                                    id, name, symbol);
-                            return null;
-                        }
-                        
-                        log.trace("Mapping market data for {}/{} (ID: {})", symbol, name, id);
-                        
-                        return Cryptocurrency.builder()
-                                .id(id)
-                                .name(name)
-                                .symbol(symbol.toUpperCase())
-                                .price(safeBigDecimal(market.get("current_price")))
-                                .marketCap(safeBigDecimal(market.get("market_cap")))
-                                .volume24h(safeBigDecimal(market.get("total_volume")))
-                                .percentChange24h(safeBigDecimal(market.get("price_change_percentage_24h")))
-                                .imageUrl(safeString(market.get("image")))
-                                .rank(safeInteger(market.get("market_cap_rank")))
-                                .circulatingSupply(safeBigDecimal(market.get("circulating_supply")))
-                                .totalSupply(safeBigDecimal(market.get("total_supply")))
-                                .maxSupply(safeBigDecimal(market.get("max_supply")))
-                                .high24h(safeBigDecimal(market.get("high_24h")))
-                                .low24h(safeBigDecimal(market.get("low_24h")))
-                                .build();
-                    } catch (Exception e) {
-                        log.error("Error mapping market data item: {}", e.getMessage(), e);
+                    if (market == null) {
+                        log.warn("Encountered null market item, skipping");
                         return null;
                     }
+
+                    if (market.getId() == null || market.getName() == null || market.getSymbol() == null) {
+                        log.warn("Missing required fields in market data: id={}, name={}, symbol={}", 
+                                market.getId(), market.getName(), market.getSymbol());
+                        return null;
+                    }
+
+                    log.trace("Mapping market data for {}/{} (ID: {})", market.getSymbol(), market.getName(), market.getId());
+
+                    return Cryptocurrency.builder()
+                            .id(market.getId())
+                            .name(market.getName())
+                            .symbol(market.getSymbol().toUpperCase())
+                            .price(safeBigDecimal(market.getCurrentPrice()))
+                            .marketCap(safeBigDecimal(market.getMarketCap()))
+                            .volume24h(safeBigDecimal(market.getTotalVolume()))
+                            .percentChange24h(safeBigDecimal(market.getPriceChangePercentage24h()))
+                            .imageUrl(safeString(market.getImage()))
+                            .rank(safeInteger(market.getMarketCapRank()))
+                            .circulatingSupply(safeBigDecimal(market.getCirculatingSupply()))
+                            .totalSupply(safeBigDecimal(market.getTotalSupply()))
+                            .maxSupply(safeBigDecimal(market.getMaxSupply()))
+                            .high24h(safeBigDecimal(market.getHigh24h()))
+                            .low24h(safeBigDecimal(market.getLow24h()))
+                            .build();
                 })
                 .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
-    @SuppressWarnings("unchecked")
-    private Cryptocurrency mapFromCoinGeckoDetails(Map<String, Object> data) {
-        // ... (rest of the code remains the same)
+    private Cryptocurrency mapFromCoinGeckoDetails(CoinGeckoCoinDetails data) {
         if (data == null) {
-            throw new IllegalArgumentException("Data map cannot be null");
+            throw new IllegalArgumentException("Coin details cannot be null");
         }
-        
-        Map<String, Object> marketData = data.get("market_data") instanceof Map 
-            ? (Map<String, Object>) data.get("market_data") 
-            : Map.of();
-            
-        Map<String, Object> currentPrice = marketData.get("current_price") instanceof Map 
-            ? (Map<String, Object>) marketData.get("current_price") 
-            : Map.of();
-            
-        Map<String, Object> marketCap = marketData.get("market_cap") instanceof Map 
-            ? (Map<String, Object>) marketData.get("market_cap") 
-            : Map.of();
-            
-        Map<String, Object> totalVolume = marketData.get("total_volume") instanceof Map 
-            ? (Map<String, Object>) marketData.get("total_volume") 
-            : Map.of();
-            
-        Map<String, Object> imageData = data.get("image") instanceof Map 
-            ? (Map<String, Object>) data.get("image") 
-            : Map.of();
+
+        CoinGeckoCoinDetails.MarketData marketData = data.getMarketData() != null
+            ? data.getMarketData()
+            : new CoinGeckoCoinDetails.MarketData();
 
         return Cryptocurrency.builder()
-                .id(safeString(data.get("id")))
-                .symbol(safeString(data.get("symbol")).toUpperCase())
-                .name(safeString(data.get("name")))
-                .imageUrl(safeString(imageData.get("large")))
-                .price(safeBigDecimal(currentPrice.get("usd")))
-                .marketCap(safeBigDecimal(marketCap.get("usd")))
-                .volume24h(safeBigDecimal(totalVolume.get("usd")))
-                .circulatingSupply(safeBigDecimal(marketData.get("circulating_supply")))
-                .totalSupply(safeBigDecimal(marketData.get("total_supply")))
-                .maxSupply(safeBigDecimal(marketData.get("max_supply")))
-                .rank(safeInteger(data.get("market_cap_rank")))
+                .id(safeString(data.getId()))
+                .symbol(safeString(data.getSymbol()).toUpperCase())
+                .name(safeString(data.getName()))
+                .imageUrl(safeString(data.getImage() != null ? data.getImage().getLarge() : null))
+                .price(safeBigDecimal(data.usdPrice()))
+                .marketCap(safeBigDecimal(data.usdMarketCap()))
+                .volume24h(safeBigDecimal(data.usdVolume()))
+                .circulatingSupply(safeBigDecimal(marketData.getCirculatingSupply()))
+                .totalSupply(safeBigDecimal(marketData.getTotalSupply()))
+                .maxSupply(safeBigDecimal(marketData.getMaxSupply()))
+                .rank(safeInteger(data.getMarketCapRank()))
                 .lastUpdated(LocalDateTime.now())
                 .build();
     }
@@ -588,6 +867,7 @@ public class ApiService {
 
     private BigDecimal safeBigDecimal(Object obj) {
         if (obj == null) return BigDecimal.ZERO;
+        if (obj instanceof BigDecimal) return (BigDecimal) obj;
         try {
             if (obj instanceof Number) {
                 return new BigDecimal(obj.toString());
@@ -606,12 +886,12 @@ public class ApiService {
      */
     public Mono<Cryptocurrency> getMarketData(String coinId) {
         log.debug("Fetching market data for coin ID: {}", coinId);
-        String url = apiProperties.getCoinGeckoBaseUrl() + "/coins/" + coinId;
+        String url = apiProperties.getCoinGeckoBaseUrl() + "/coins/" + coinId + COIN_DETAILS_QUERY;
 
         return webClient.get()
                 .uri(url)
                 .retrieve()
-                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+                .bodyToMono(CoinGeckoCoinDetails.class)
                 .map(this::mapFromCoinGeckoDetails);
     }
 
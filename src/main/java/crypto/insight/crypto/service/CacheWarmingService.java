@@ -1,6 +1,7 @@
 package crypto.insight.crypto.service;
 
 import crypto.insight.crypto.model.Cryptocurrency;
+import crypto.insight.crypto.service.provider.RequestPriority;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
@@ -52,7 +53,9 @@ public class CacheWarmingService {
                 try {
                     // Warm first 3 pages of market data
                     for (int page = 1; page <= 3; page++) {
-                        ultraFastApiService.getMarketDataUltraFast(page, 50).block();
+                        ultraFastApiService.getMarketDataUltraFast(page, 50)
+                                .contextWrite(RequestPriority.BULK.asContext())
+                                .block();
                         log.debug("Warmed market data page {}", page);
                     }
                 } catch (Exception e) {
@@ -70,7 +73,9 @@ public class CacheWarmingService {
                         "ethereum-classic", "filecoin", "hedera-hashgraph", "vechain", "internet-computer"
                     );
                     
-                    ultraFastApiService.batchLoadUltraFast(topCryptos).block();
+                    ultraFastApiService.batchLoadUltraFast(topCryptos)
+                            .contextWrite(RequestPriority.BULK.asContext())
+                            .block();
                     log.debug("Warmed top 20 cryptocurrencies");
                 } catch (Exception e) {
                     log.warn("Top cryptos warmup failed: {}", e.getMessage());
@@ -85,7 +90,9 @@ public class CacheWarmingService {
                     );
                     
                     for (String search : commonSearches) {
-                        ultraFastApiService.searchCryptocurrenciesUltraFast(search, 10).block();
+                        ultraFastApiService.searchCryptocurrenciesUltraFast(search, 10)
+                                .contextWrite(RequestPriority.BULK.asContext())
+                                .block();
                     }
                     log.debug("Warmed common search terms");
                 } catch (Exception e) {
@@ -267,12 +274,16 @@ public class CacheWarmingService {
     @Async
     public void continuousWarmup() {
         try {
-            // Refresh only the most critical data
-            ultraFastApiService.getMarketDataUltraFast(1, 20).subscribe();
+            // Refresh only the most critical data; dropped while provider quota is low
+            ultraFastApiService.getMarketDataUltraFast(1, 20)
+                    .contextWrite(RequestPriority.PREFETCH.asContext())
+                    .subscribe();
             
             // Refresh top 5 cryptos
             List<String> top5 = List.of("bitcoin", "ethereum", "binancecoin", "cardano", "solana");
-            ultraFastApiService.batchLoadUltraFast(top5).subscribe();
+            ultraFastApiService.batchLoadUltraFast(top5)
+                    .contextWrite(RequestPriority.PREFETCH.asContext())
+                    .subscribe();
             
         } catch (Exception e) {
             log.debug("Continuous warmup cycle failed: {}", e.getMessage());
@@ -289,7 +300,9 @@ public class CacheWarmingService {
         
         try {
             // Refresh larger dataset
-            ultraFastApiService.getMarketDataUltraFast(1, 100).block();
+            ultraFastApiService.getMarketDataUltraFast(1, 100)
+                    .contextWrite(RequestPriority.BULK.asContext())
+                    .block();
             
             // Refresh extended crypto list
             List<String> extendedList = List.of(
@@ -297,7 +310,9 @@ public class CacheWarmingService {
                 "ripple", "polkadot", "dogecoin", "avalanche-2", "polygon",
                 "chainlink", "uniswap", "cosmos", "filecoin", "vechain"
             );
-            ultraFastApiService.batchLoadUltraFast(extendedList).block();
+            ultraFastApiService.batchLoadUltraFast(extendedList)
+                    .contextWrite(RequestPriority.BULK.asContext())
+                    .block();
             
             // Refresh ALL AI caches periodically
             refreshAllAICaches();
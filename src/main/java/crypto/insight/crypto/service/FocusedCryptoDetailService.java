@@ -1,9 +1,14 @@
 package crypto.insight.crypto.service;
 
+import crypto.insight.crypto.model.CachedValue;
 import crypto.insight.crypto.model.CryptoData;
 import crypto.insight.crypto.model.CryptoIdentity;
 import crypto.insight.crypto.service.provider.DataProvider;
+import crypto.insight.crypto.service.provider.IdentityResolver;
+import crypto.insight.crypto.service.provider.ProviderRanking;
+import crypto.insight.crypto.service.provider.ProviderRequestBatcher;
 import crypto.insight.crypto.service.provider.RateLimitingService;
+import crypto.insight.crypto.service.provider.RequestPriority;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
@@ -12,12 +17,12 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
-import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Enhanced service for fetching detailed crypto data with aggressive caching,
@@ -29,10 +34,17 @@ public class FocusedCryptoDetailService {
     
     private final List<DataProvider> dataProviders;
     private final RateLimitingService rateLimitingService;
+    private final ProviderRanking providerRanking;
+    private final IdentityResolver identityResolver;
+    private final ProviderRequestBatcher providerRequestBatcher;
+    private final StaleWhileRevalidateService staleWhileRevalidateService;
     private final Cache detailCache;
     private final Cache identityCache;
     private final ScheduledExecutorService scheduler;
     
+    // Stale-while-revalidate cache holding focused data; TTLs come from crypto.cache.stale-while-revalidate
+    private static final String DETAIL_CACHE = "detailCache";
+
     // Cache durations
     private static final Duration IDENTITY_CACHE_DURATION = Duration.ofHours(24);
     private static final Duration DETAIL_CACHE_DURATION = Duration.ofMinutes(5);
@@ -41,10 +53,18 @@ public class FocusedCryptoDetailService {
     public FocusedCryptoDetailService(
             List<DataProvider> dataProviders,
             RateLimitingService rateLimitingService,
+            ProviderRanking providerRanking,
+            IdentityResolver identityResolver,
+            ProviderRequestBatcher providerRequestBatcher,
+            StaleWhileRevalidateService staleWhileRevalidateService,
             @org.springframework.beans.factory.annotation.Qualifier("cacheManager") CacheManager cacheManager) {
         this.dataProviders = dataProviders;
         this.rateLimitingService = rateLimitingService;
-        this.detailCache = cacheManager.getCache("detailCache");
+        this.providerRanking = providerRanking;
+        this.identityResolver = identityResolver;
+        this.providerRequestBatcher = providerRequestBatcher;
+        this.staleWhileRevalidateService = staleWhileRevalidateService;
+        this.detailCache = cacheManager.getCache(DETAIL_CACHE);
         this.identityCache = cacheManager.getCache("identityCache");
         this.scheduler = Executors.newScheduledThreadPool(2);
     }
@@ -59,27 +79,27 @@ public class FocusedCryptoDetailService {
         
         log.info("Fetching focused crypto data for: {} (forceRefresh: {})", query, forceRefresh);
         
-        if (!forceRefresh) {
-            // Check cache first
-            CryptoData cachedData = detailCache.get(cacheKey, CryptoData.class);
-            if (cachedData != null) {
-                log.info("Cache hit for focused data: {}", normalizedQuery);
-                return Mono.just(cachedData);
-            }
-        }
-        
-        // Get or resolve identity
-        return getOrResolveIdentity(normalizedQuery, forceRefresh)
+        // Get or resolve identity, then fetch from the providers
+        Supplier<Mono<CryptoData>> loader = () -> getOrResolveIdentity(normalizedQuery, forceRefresh)
             .flatMap(identity -> {
                 log.info("Resolved identity for {}: {} ({})", query, identity.getSymbol(), identity.getName());
                 return fetchDataWithSmartProviderSelection(identity, cacheKey);
             })
-            .doOnSuccess(data -> {
-                // Cache the result
-                detailCache.put(cacheKey, data);
-                log.info("Cached focused data for: {}", normalizedQuery);
-            })
+            .doOnSuccess(data -> log.info("Cached focused data for: {}", normalizedQuery))
             .doOnError(error -> log.error("Failed to fetch focused data for {}: {}", query, error.getMessage()));
+
+        if (forceRefresh) {
+            return staleWhileRevalidateService.reload(DETAIL_CACHE, cacheKey, loader);
+        }
+
+        // Stale entries are served right away while one background fetch refreshes them
+        return staleWhileRevalidateService.get(DETAIL_CACHE, cacheKey, loader)
+            .doOnNext(cached -> {
+                if (cached.isStale()) {
+                    log.info("Serving stale focused data for {} ({} ms old) while refreshing", normalizedQuery, cached.getAgeMillis());
+                }
+            })
+            .map(CachedValue::getValue);
     }
     
     /**
@@ -94,52 +114,25 @@ public class FocusedCryptoDetailService {
                 log.debug("Identity cache hit for: {}", query);
                 return Mono.just(cachedIdentity);
             }
+        } else {
+            identityResolver.forget(query);
         }
         
-        // Resolve from providers with smart ordering
-        return getProvidersOrderedByReliability()
-            .flatMap(provider -> {
-                String providerName = provider.getProviderName();
-                
-                return rateLimitingService.executeWithRateLimit(providerName, 
-                    provider.resolveIdentity(query)
-                        .doOnSuccess(identity -> log.info("Provider '{}' resolved '{}' -> {}", 
-                            providerName, query, identity.getSymbol()))
-                        .onErrorResume(error -> {
-                            log.debug("Provider '{}' failed to resolve '{}': {}", 
-                                providerName, query, error.getMessage());
-                            return Mono.empty();
-                        })
-                );
-            })
-            .collectList()
-            .flatMap(identities -> {
-                if (identities.isEmpty()) {
-                    return Mono.error(new RuntimeException("Could not resolve cryptocurrency: " + query));
-                }
-                
-                // Merge all identities
-                CryptoIdentity mergedIdentity = identities.get(0);
-                for (int i = 1; i < identities.size(); i++) {
-                    mergedIdentity.merge(identities.get(i));
-                }
-                
-                // Cache the merged identity
-                identityCache.put(identityCacheKey, mergedIdentity);
-                log.info("Cached merged identity for '{}': {}", query, mergedIdentity);
-                
-                return Mono.just(mergedIdentity);
-            });
+        // Resolve from all providers at once; an exact match answers right away
+        return identityResolver.resolve(dataProviders, query,
+                identity -> {
+                    identityCache.put(identityCacheKey, identity);
+                    log.info("Cached identity for '{}': {}", query, identity);
+                },
+                (provider, call) -> rateLimitingService.executeWithRateLimit(provider.getProviderName(), call))
+            .switchIfEmpty(Mono.error(() -> new RuntimeException("Could not resolve cryptocurrency: " + query)));
     }
     
     /**
-     * Get providers ordered by current reliability (failures, circuit breaker state)
+     * Get providers ordered by their live latency, error rate, completeness and quota score
      */
     private Flux<DataProvider> getProvidersOrderedByReliability() {
-        return Flux.fromIterable(dataProviders)
-            .sort(Comparator.comparingInt(provider -> 
-                rateLimitingService.getProviderPriority(provider.getProviderName())
-            ));
+        return Flux.fromIterable(providerRanking.rank(dataProviders));
     }
     
     /**
@@ -157,14 +150,13 @@ public class FocusedCryptoDetailService {
                 String providerName = provider.getProviderName();
                 
                 return rateLimitingService.executeWithRateLimit(providerName,
-                    provider.fetchData(identity)
-                        .doOnSuccess(data -> log.info("Successfully fetched data from {}", providerName))
-                        .doOnError(error -> log.warn("Provider {} failed: {}", providerName, error.getMessage()))
-                        .onErrorResume(error -> {
-                            log.debug("Skipping provider {} due to error: {}", providerName, error.getMessage());
-                            return Mono.empty();
-                        })
-                );
+                        providerRanking.observeFetch(provider, providerRequestBatcher.fetch(provider, identity))
+                            .doOnSuccess(data -> log.info("Successfully fetched data from {}", providerName)))
+                    .doOnError(error -> log.warn("Provider {} failed: {}", providerName, error.getMessage()))
+                    .onErrorResume(error -> {
+                        log.debug("Skipping provider {} due to error: {}", providerName, error.getMessage());
+                        return Mono.empty();
+                    });
             })
             .collectList()
             .map(dataList -> {
@@ -192,6 +184,7 @@ public class FocusedCryptoDetailService {
         for (String crypto : popularCryptos) {
             scheduler.schedule(() -> {
                 getFocusedCryptoData(crypto, false)
+                    .contextWrite(RequestPriority.PREFETCH.asContext())
                     .subscribe(
                         data -> log.debug("Preloaded data for {}", crypto),
                         error -> log.debug("Failed to preload {}: {}", crypto, error.getMessage())
@@ -214,6 +207,7 @@ public class FocusedCryptoDetailService {
         String normalizedQuery = query.trim().toLowerCase();
         detailCache.evict("focused_" + normalizedQuery);
         identityCache.evict("identity_" + normalizedQuery);
+        identityResolver.forget(normalizedQuery);
         log.info("Cleared cache for: {}", normalizedQuery);
     }
     
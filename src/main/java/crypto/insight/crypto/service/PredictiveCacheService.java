@@ -1,6 +1,7 @@
 package crypto.insight.crypto.service;
 
 import crypto.insight.crypto.model.Cryptocurrency;
+import crypto.insight.crypto.service.provider.RequestPriority;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -87,7 +88,9 @@ public class PredictiveCacheService {
             try {
                 List<String> relatedSymbols = getRelatedSymbols(symbol);
                 for (String related : relatedSymbols) {
-                    ultraFastApiService.getCryptocurrencyDetailsUltraFast(related).subscribe();
+                    ultraFastApiService.getCryptocurrencyDetailsUltraFast(related)
+                            .contextWrite(RequestPriority.PREFETCH.asContext())
+                            .subscribe();
                 }
                 log.debug("Predictively loaded {} related symbols for {}", relatedSymbols.size(), symbol);
             } catch (Exception e) {
@@ -105,7 +108,9 @@ public class PredictiveCacheService {
             try {
                 // Load next 2 pages
                 for (int nextPage = currentPage + 1; nextPage <= currentPage + 2; nextPage++) {
-                    ultraFastApiService.getMarketDataUltraFast(nextPage, 50).subscribe();
+                    ultraFastApiService.getMarketDataUltraFast(nextPage, 50)
+                            .contextWrite(RequestPriority.PREFETCH.asContext())
+                            .subscribe();
                 }
                 log.debug("Predictively loaded pages {} to {}", currentPage + 1, currentPage + 2);
             } catch (Exception e) {
@@ -123,7 +128,9 @@ public class PredictiveCacheService {
             try {
                 List<String> predictions = generateSearchPredictions(query);
                 for (String prediction : predictions) {
-                    ultraFastApiService.searchCryptocurrenciesUltraFast(prediction, 5).subscribe();
+                    ultraFastApiService.searchCryptocurrenciesUltraFast(prediction, 5)
+                            .contextWrite(RequestPriority.PREFETCH.asContext())
+                            .subscribe();
                 }
                 log.debug("Predictively loaded {} search predictions for '{}'", predictions.size(), query);
             } catch (Exception e) {
@@ -143,7 +150,9 @@ public class PredictiveCacheService {
             List<String> topSymbols = getTopAccessedSymbols();
             if (!topSymbols.isEmpty()) {
                 ultraFastApiService.batchLoadUltraFast(topSymbols.subList(0, 
-                    Math.min(TOP_SYMBOLS_TO_PRELOAD, topSymbols.size()))).subscribe();
+                    Math.min(TOP_SYMBOLS_TO_PRELOAD, topSymbols.size())))
+                        .contextWrite(RequestPriority.PREFETCH.asContext())
+                        .subscribe();
             }
             
             // Preload based on time patterns
@@ -164,14 +173,18 @@ public class PredictiveCacheService {
         if (isPeakHour(currentHour)) {
             // Load top 3 pages
             for (int page = 1; page <= 3; page++) {
-                ultraFastApiService.getMarketDataUltraFast(page, 50).subscribe();
+                ultraFastApiService.getMarketDataUltraFast(page, 50)
+                        .contextWrite(RequestPriority.PREFETCH.asContext())
+                        .subscribe();
             }
         }
         
         // Market opening hours: preload trending cryptos
         if (isMarketOpeningHour(currentHour)) {
             List<String> trendingCryptos = getTrendingCryptos();
-            ultraFastApiService.batchLoadUltraFast(trendingCryptos).subscribe();
+            ultraFastApiService.batchLoadUltraFast(trendingCryptos)
+                    .contextWrite(RequestPriority.PREFETCH.asContext())
+                    .subscribe();
         }
     }
     
@@ -2,6 +2,7 @@ package crypto.insight.crypto.service;
 
 import crypto.insight.crypto.model.ChartDataPoint;
 import crypto.insight.crypto.model.Cryptocurrency;
+import crypto.insight.crypto.model.DataRequirement;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
@@ -40,14 +41,14 @@ public class RealTimeDataService {
         // Clear all relevant caches
         clearCachesForSymbol(symbol);
         
-        // Fetch fresh data with force refresh flag
-        return apiService.getCryptocurrencyData(symbol, days, true)
+        // Fetch a fresh quote; the other fields don't change between ticks
+        return apiService.getCryptocurrencyData(symbol, DataRequirement.QUOTE, true)
                 .doOnSuccess(data -> log.info("Successfully fetched fresh data for {}", symbol))
                 .doOnError(error -> log.error("Failed to fetch fresh data for {}: {}", symbol, error.getMessage()));
     }
     
     /**
-     * Gets fresh market chart data with cache invalidation
+     * Gets fresh market chart data, reading the local chart store first and only fetching the missing tail
      */
     public Mono<Map<String, Object>> getFreshMarketChart(String symbol, int days) {
         log.info("Forcing fresh market chart data for {} ({} days)", symbol, days);
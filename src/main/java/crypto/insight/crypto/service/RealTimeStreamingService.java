@@ -2,6 +2,7 @@ package crypto.insight.crypto.service;
 
 import crypto.insight.crypto.model.Cryptocurrency;
 import crypto.insight.crypto.websocket.CryptoWebSocketHandler;
+import crypto.insight.crypto.service.provider.RequestPriority;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -78,6 +79,7 @@ public class RealTimeStreamingService {
             
             // Fetch fresh data
             realTimeDataService.getFreshCryptocurrencyData(symbol, 1)
+                .contextWrite(RequestPriority.REALTIME.asContext())
                 .subscribe(
                     crypto -> {
                         lastUpdateTimes.put(symbol, currentTime);
@@ -106,6 +108,7 @@ public class RealTimeStreamingService {
         
         try {
             realTimeDataService.getFreshCryptocurrencyData(symbol, 1)
+                .contextWrite(RequestPriority.REALTIME.asContext())
                 .subscribe(
                     crypto -> {
                         lastUpdateTimes.put(symbol, System.currentTimeMillis());
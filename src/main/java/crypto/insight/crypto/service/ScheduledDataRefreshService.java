@@ -1,5 +1,6 @@
 package crypto.insight.crypto.service;
 
+import crypto.insight.crypto.service.provider.RequestPriority;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.CacheManager;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -54,6 +55,7 @@ public class ScheduledDataRefreshService {
                         
                         // Refresh basic crypto data
                         realTimeDataService.getFreshCryptocurrencyData(symbol, 7)
+                                .contextWrite(RequestPriority.BULK.asContext())
                                 .subscribeOn(Schedulers.boundedElastic())
                                 .subscribe(
                                     data -> log.trace("Refreshed data for {}", symbol),
@@ -95,7 +97,9 @@ public class ScheduledDataRefreshService {
     }
     
     /**
-     * Refresh chart data for top 5 cryptocurrencies every 5 minutes
+     * Refresh chart data for top 5 cryptocurrencies every 5 minutes.
+     * Only the points after the newest stored one are requested; the rest of the window is
+     * already in the local chart store.
      */
     @Scheduled(fixedRate = 300000) // 5 minutes
     public void refreshTopChartData() {
@@ -108,11 +112,13 @@ public class ScheduledDataRefreshService {
                 try {
                     log.debug("Refreshing chart data for top symbol: {}", symbol);
                     
-                    realTimeDataService.getFreshMarketChart(symbol, 7)
+                    apiService.refreshMarketChartTail(symbol, 7)
+                            .contextWrite(RequestPriority.BULK.asContext())
                             .subscribeOn(Schedulers.boundedElastic())
                             .subscribe(
-                                data -> log.trace("Refreshed chart data for {}", symbol),
-                                error -> log.debug("Failed to refresh chart data for {}: {}", symbol, error.getMessage())
+                                null,
+                                error -> log.debug("Failed to refresh chart data for {}: {}", symbol, error.getMessage()),
+                                () -> log.trace("Refreshed chart data for {}", symbol)
                             );
                     
                     // Delay between chart refreshes
@@ -171,6 +177,7 @@ public class ScheduledDataRefreshService {
         List<String> topThree = popularSymbols.subList(0, 3);
         topThree.forEach(symbol -> {
             realTimeDataService.getFreshCryptocurrencyData(symbol, 7)
+                    .contextWrite(RequestPriority.BULK.asContext())
                     .subscribeOn(Schedulers.boundedElastic())
                     .subscribe(
                         data -> log.info("Manually refreshed data for {}", symbol),
@@ -0,0 +1,83 @@
+package crypto.insight.crypto.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent identical requests into one upstream call.
+ * <p>
+ * The first caller for an (operation, key) pair starts the call; everyone arriving while it is
+ * in flight subscribes to the same shared {@link Mono} and receives the same value, empty signal
+ * or error. The entry is dropped as soon as the call terminates, so results are never reused
+ * beyond the flight itself - caching stays the job of the caches in front of it.
+ */
+@Slf4j
+@Service
+public class SingleFlightService {
+
+    private final Map<String, Mono<?>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong joined = new AtomicLong();
+
+    /**
+     * Runs {@code call} unless an identical request is already in flight, in which case its
+     * result is shared. {@code key} should capture every parameter that changes the result.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> execute(String operation, String key, Supplier<Mono<T>> call) {
+        String flightKey = operation + ':' + key;
+        return Mono.defer(() -> {
+            boolean[] started = new boolean[1];
+            Mono<T> flight = (Mono<T>) inFlight.computeIfAbsent(flightKey, k -> {
+                started[0] = true;
+                return newFlight(k, call);
+            });
+            if (started[0]) {
+                executions.incrementAndGet();
+            } else {
+                joined.incrementAndGet();
+                log.debug("Joined in-flight request {}", flightKey);
+            }
+            return flight;
+        });
+    }
+
+    private <T> Mono<T> newFlight(String flightKey, Supplier<Mono<T>> call) {
+        AtomicReference<Mono<T>> self = new AtomicReference<>();
+        Mono<T> flight = Mono.defer(call)
+                .doFinally(signal -> inFlight.remove(flightKey, self.get()))
+                .share();
+        self.set(flight);
+        return flight;
+    }
+
+    /**
+     * Number of distinct requests currently in flight
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Get single-flight statistics
+     */
+    public Map<String, Object> getStatistics() {
+        long started = executions.get();
+        long shared = joined.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("inFlight", inFlight.size());
+        stats.put("executions", started);
+        stats.put("joined", shared);
+        stats.put("dedupRatio", started + shared > 0 ? (double) shared / (started + shared) : 0.0);
+        return stats;
+    }
+}
@@ -31,10 +31,12 @@ public class SmartCachingService {
     @Autowired
     private CacheManager cacheManager;
 
+    @Autowired
+    private SingleFlightService singleFlightService;
+
     // Request tracking to prevent API spam
     private final Map<String, LocalDateTime> lastRequestTimes = new ConcurrentHashMap<>();
     private final Map<String, AtomicLong> requestCounts = new ConcurrentHashMap<>();
-    private final Set<String> currentlyFetching = ConcurrentHashMap.newKeySet();
 
     // Cache configuration
     private static final Duration MIN_REQUEST_INTERVAL = Duration.ofSeconds(10); // 10 seconds between requests for same symbol
@@ -47,36 +49,25 @@ public class SmartCachingService {
     @Cacheable(value = "cryptocurrencies", key = "#symbol.toLowerCase()")
     public Mono<Cryptocurrency> getCryptocurrencyWithSmartCaching(String symbol) {
         String normalizedSymbol = symbol.toLowerCase();
-        
-        // Check if we're already fetching this symbol
-        if (currentlyFetching.contains(normalizedSymbol)) {
-            log.debug("Already fetching {}, waiting for completion", symbol);
-            return waitForCurrentFetch(normalizedSymbol);
-        }
 
-        // Check request throttling
-        if (isRequestThrottled(normalizedSymbol)) {
-            log.debug("Request throttled for {}. Using cached data or fallback", symbol);
-            return getCachedOrFallback(normalizedSymbol);
-        }
+        // Callers arriving while a fetch for this symbol is in flight share its result
+        return singleFlightService.execute("smartCachedCryptocurrency", normalizedSymbol, () -> {
+            // Check request throttling
+            if (isRequestThrottled(normalizedSymbol)) {
+                log.debug("Request throttled for {}. Using cached data or fallback", symbol);
+                return getCachedOrFallback(normalizedSymbol);
+            }
 
-        // Mark as currently fetching
-        currentlyFetching.add(normalizedSymbol);
-        updateRequestTracking(normalizedSymbol);
+            updateRequestTracking(normalizedSymbol);
 
-        return apiService.getCryptocurrencyData(symbol, 1)
-                .doOnSuccess(crypto -> {
-                    currentlyFetching.remove(normalizedSymbol);
-                    log.debug("Successfully fetched fresh data for {}", symbol);
-                })
-                .doOnError(error -> {
-                    currentlyFetching.remove(normalizedSymbol);
-                    log.warn("Error fetching data for {}: {}", symbol, error.getMessage());
-                })
-                .onErrorResume(error -> {
-                    log.warn("Falling back to cached data for {} due to error: {}", symbol, error.getMessage());
-                    return getCachedOrFallback(normalizedSymbol);
-                });
+            return apiService.getCryptocurrencyData(symbol, 1)
+                    .doOnSuccess(crypto -> log.debug("Successfully fetched fresh data for {}", symbol))
+                    .doOnError(error -> log.warn("Error fetching data for {}: {}", symbol, error.getMessage()))
+                    .onErrorResume(error -> {
+                        log.warn("Falling back to cached data for {} due to error: {}", symbol, error.getMessage());
+                        return getCachedOrFallback(normalizedSymbol);
+                    });
+        });
     }
 
     /**
@@ -102,18 +93,14 @@ public class SmartCachingService {
         // Return cached data immediately
         Flux<Cryptocurrency> cachedFlux = Flux.fromIterable(cachedCryptos);
 
-        // Fetch uncached data with staggered delays to avoid rate limits
+        // Fetch uncached data concurrently; the provider batcher folds the per-symbol
+        // lookups into multi-symbol upstream calls, so no stagger is needed
         Flux<Cryptocurrency> freshFlux = Flux.fromIterable(uncachedSymbols)
-                .index()
-                .delayElements(Duration.ofMillis(200)) // 200ms delay between requests
-                .flatMap(indexedSymbol -> {
-                    String symbol = indexedSymbol.getT2();
-                    return getCryptocurrencyWithSmartCaching(symbol)
-                            .onErrorResume(error -> {
-                                log.warn("Failed to fetch {}: {}", symbol, error.getMessage());
-                                return Mono.empty();
-                            });
-                });
+                .flatMap(symbol -> getCryptocurrencyWithSmartCaching(symbol)
+                        .onErrorResume(error -> {
+                            log.warn("Failed to fetch {}: {}", symbol, error.getMessage());
+                            return Mono.empty();
+                        }));
 
         return Flux.concat(cachedFlux, freshFlux);
     }
@@ -192,32 +179,12 @@ public class SmartCachingService {
                 .build());
     }
 
-    /**
-     * Wait for currently fetching request to complete
-     */
-    private Mono<Cryptocurrency> waitForCurrentFetch(String symbol) {
-        return Mono.defer(() -> {
-            if (currentlyFetching.contains(symbol)) {
-                return Mono.delay(Duration.ofMillis(100))
-                        .then(waitForCurrentFetch(symbol));
-            } else {
-                Cryptocurrency cached = getCachedCryptocurrency(symbol);
-                if (cached != null) {
-                    return Mono.just(cached);
-                } else {
-                    return getCachedOrFallback(symbol);
-                }
-            }
-        });
-    }
-
     /**
      * Clear cache for a specific symbol
      */
     @CacheEvict(value = "cryptocurrencies", key = "#symbol.toLowerCase()")
     public void clearCacheForSymbol(String symbol) {
         log.debug("Cleared cache for {}", symbol);
-        currentlyFetching.remove(symbol.toLowerCase());
     }
 
     /**
@@ -226,7 +193,6 @@ public class SmartCachingService {
     @CacheEvict(value = "cryptocurrencies", allEntries = true)
     public void clearAllCache() {
         log.info("Cleared all cryptocurrency cache");
-        currentlyFetching.clear();
         lastRequestTimes.clear();
     }
 
@@ -253,7 +219,7 @@ public class SmartCachingService {
             stats.put("cacheSize", 0);
         }
         
-        stats.put("currentlyFetching", currentlyFetching.size());
+        stats.put("currentlyFetching", singleFlightService.inFlightCount());
         stats.put("trackedSymbols", lastRequestTimes.size());
         stats.put("totalRequests", requestCounts.values().stream().mapToLong(AtomicLong::get).sum());
         stats.put("lastResetTime", LocalDateTime.now().toString());
@@ -0,0 +1,151 @@
+package crypto.insight.crypto.service;
+
+import crypto.insight.crypto.config.properties.StaleWhileRevalidateProperties;
+import crypto.insight.crypto.model.CachedValue;
+import crypto.insight.crypto.service.provider.RequestPriority;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Stale-while-revalidate reads over the Caffeine caches.
+ * <p>
+ * Entries younger than the cache's soft TTL are served as fresh. Entries between the soft and
+ * hard TTL are served immediately, marked stale, while a single background load repopulates
+ * them. Only missing entries (or ones past the hard TTL, which Caffeine expires) make the
+ * caller wait for the providers. Loads go through {@link SingleFlightService}, so a burst of
+ * stale reads triggers one refresh.
+ */
+@Slf4j
+@Service
+public class StaleWhileRevalidateService {
+
+    private final CacheManager cacheManager;
+    private final SingleFlightService singleFlightService;
+    private final StaleWhileRevalidateProperties properties;
+
+    private final AtomicLong freshHits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+
+    public StaleWhileRevalidateService(@org.springframework.beans.factory.annotation.Qualifier("cacheManager") CacheManager cacheManager,
+                                       SingleFlightService singleFlightService,
+                                       StaleWhileRevalidateProperties properties) {
+        this.cacheManager = cacheManager;
+        this.singleFlightService = singleFlightService;
+        this.properties = properties;
+    }
+
+    /**
+     * Reads {@code key} from the named cache, loading it with {@code loader} when missing and
+     * refreshing it in the background when stale.
+     */
+    public <V> Mono<CachedValue<V>> get(String cacheName, String key, Supplier<Mono<V>> loader) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (!properties.isEnabled() || cache == null) {
+            return Mono.defer(loader).map(CachedValue::fresh);
+        }
+        return Mono.defer(() -> {
+            @SuppressWarnings("unchecked")
+            Entry<V> entry = cache.get(key, Entry.class);
+            if (entry != null) {
+                StaleWhileRevalidateProperties.Ttl ttl = properties.ttlFor(cacheName);
+                long age = System.currentTimeMillis() - entry.loadedAt();
+                if (age < ttl.getSoftTtl().toMillis()) {
+                    freshHits.incrementAndGet();
+                    return Mono.just(new CachedValue<>(entry.value(), false, age));
+                }
+                if (age < ttl.getHardTtl().toMillis()) {
+                    staleHits.incrementAndGet();
+                    revalidate(cache, cacheName, key, loader);
+                    return Mono.just(new CachedValue<>(entry.value(), true, age));
+                }
+            }
+            misses.incrementAndGet();
+            return load(cache, cacheName, key, loader).map(CachedValue::fresh);
+        });
+    }
+
+    /**
+     * Loads {@code key} regardless of what is cached and stores the result.
+     */
+    public <V> Mono<V> reload(String cacheName, String key, Supplier<Mono<V>> loader) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (!properties.isEnabled() || cache == null) {
+            return Mono.defer(loader);
+        }
+        // A separate flight, so a forced reload never joins an ordinary load that skips it
+        return singleFlightService.execute("swr-reload:" + cacheName, key, () -> Mono.defer(loader)
+                .doOnNext(value -> store(cache, key, value)));
+    }
+
+    /**
+     * Replaces the cached value for {@code key}, e.g. with a more complete result that arrived
+     * after the original load returned.
+     */
+    public <V> void put(String cacheName, String key, V value) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (properties.isEnabled() && cache != null) {
+            store(cache, key, value);
+        }
+    }
+
+    public void evict(String cacheName, String key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
+        }
+    }
+
+    private <V> Mono<V> load(Cache cache, String cacheName, String key, Supplier<Mono<V>> loader) {
+        return singleFlightService.execute("swr:" + cacheName, key, () -> Mono.defer(loader)
+                .doOnNext(value -> store(cache, key, value)));
+    }
+
+    private <V> void store(Cache cache, String key, V value) {
+        cache.put(key, new Entry<>(value, System.currentTimeMillis()));
+    }
+
+    private <V> void revalidate(Cache cache, String cacheName, String key, Supplier<Mono<V>> loader) {
+        log.debug("Serving stale {} entry for {} while refreshing", cacheName, key);
+        // Counted inside the loader, which only runs for the caller that starts the flight
+        Supplier<Mono<V>> counted = () -> Mono.defer(loader)
+                .doOnNext(value -> refreshes.incrementAndGet())
+                .doOnError(error -> refreshFailures.incrementAndGet());
+        // Nobody waits on a revalidation, so it must not take provider quota from users
+        load(cache, cacheName, key, counted)
+                .contextWrite(RequestPriority.REALTIME.asContext())
+                .subscribe(
+                value -> { },
+                error -> log.debug("Background refresh of {} entry {} failed, keeping stale value: {}",
+                        cacheName, key, error.getMessage()));
+    }
+
+    /**
+     * Get stale-while-revalidate statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("freshHits", freshHits.get());
+        stats.put("staleHits", staleHits.get());
+        stats.put("misses", misses.get());
+        stats.put("backgroundRefreshes", refreshes.get());
+        stats.put("backgroundRefreshFailures", refreshFailures.get());
+        return stats;
+    }
+
+    /** Serializable so entries can spill into the off-heap cache tier */
+    private record Entry<V>(V value, long loadedAt) implements Serializable {
+    }
+}
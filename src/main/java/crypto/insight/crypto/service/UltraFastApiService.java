@@ -1,6 +1,13 @@
 package crypto.insight.crypto.service;
 
+import crypto.insight.crypto.config.ApiProperties;
 import crypto.insight.crypto.model.Cryptocurrency;
+import crypto.insight.crypto.model.coingecko.CoinGeckoCoinDetails;
+import crypto.insight.crypto.model.coingecko.CoinGeckoMarket;
+import crypto.insight.crypto.model.coingecko.CoinGeckoSearchResponse;
+import crypto.insight.crypto.service.directory.CoinDirectory;
+import crypto.insight.crypto.service.directory.CoinDirectoryEntry;
+import crypto.insight.crypto.service.provider.RequestPriority;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.cache.annotation.Cacheable;
@@ -10,10 +17,8 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
-import java.math.BigDecimal;
 import java.time.Duration;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
@@ -23,13 +28,20 @@ import java.util.concurrent.Executors;
 public class UltraFastApiService {
     
     private final WebClient webClient;
+    private final String coinGeckoBaseUrl;
     private final Executor parallelExecutor;
+    private final CoinDirectory coinDirectory;
     
     // Ultra-aggressive caching
     private static final Duration CACHE_DURATION = Duration.ofSeconds(30);
+    // Coins per /coins/markets?ids= call when batch loading
+    private static final int MARKETS_BATCH_SIZE = 100;
     
-    public UltraFastApiService(@Qualifier("optimizedWebClient") WebClient webClient) {
+    public UltraFastApiService(@Qualifier("optimizedWebClient") WebClient webClient, ApiProperties apiProperties,
+                               CoinDirectory coinDirectory) {
         this.webClient = webClient;
+        this.coinDirectory = coinDirectory;
+        this.coinGeckoBaseUrl = apiProperties.getCoinGeckoBaseUrl();
         this.parallelExecutor = Executors.newCachedThreadPool(); // High concurrency thread pool
     }
 
@@ -41,11 +53,11 @@ public class UltraFastApiService {
         log.debug("Fetching ultra-fast market data: page={}, perPage={}", page, perPage);
         
         return webClient.get()
-                .uri("https://api.coingecko.com/api/v3/coins/markets" +
+                .uri(coinGeckoBaseUrl + "/coins/markets" +
                      "?vs_currency=usd&order=market_cap_desc&per_page={perPage}&page={page}" +
                      "&sparkline=false&locale=en&precision=2", perPage, page)
                 .retrieve()
-                .bodyToFlux(Map.class)
+                .bodyToFlux(CoinGeckoMarket.class)
                 .parallel(8) // Process in parallel streams
                 .runOn(Schedulers.parallel())
                 .map(this::mapToCryptocurrency)
@@ -64,7 +76,17 @@ public class UltraFastApiService {
     @Cacheable(value = "ultraFastSearch", key = "#query + '_' + #limit")
     public Mono<List<Cryptocurrency>> searchCryptocurrenciesUltraFast(String query, int limit) {
         log.debug("Ultra-fast search for: {}", query);
-        
+
+        // The local coin directory answers without a round trip once it is loaded
+        if (coinDirectory.isLoaded()) {
+            List<Cryptocurrency> local = coinDirectory.search(query, limit).stream()
+                    .map(CoinDirectoryEntry::toCryptocurrency)
+                    .toList();
+            if (!local.isEmpty()) {
+                return Mono.just(local);
+            }
+        }
+
         // Parallel search across multiple endpoints for maximum speed
         Mono<List<Cryptocurrency>> coinGeckoSearch = searchFromCoinGecko(query, limit);
         
@@ -84,9 +106,11 @@ public class UltraFastApiService {
         log.debug("Fetching ultra-fast details for: {}", symbol);
         
         return webClient.get()
-                .uri("https://api.coingecko.com/api/v3/coins/{symbol}", symbol.toLowerCase())
+                .uri(coinGeckoBaseUrl + "/coins/{symbol}" +
+                     "?localization=false&tickers=false&community_data=false&developer_data=false&sparkline=false",
+                     symbol.toLowerCase())
                 .retrieve()
-                .bodyToMono(Map.class)
+                .bodyToMono(CoinGeckoCoinDetails.class)
                 .map(this::mapDetailsToCryptocurrency)
                 .timeout(Duration.ofSeconds(8))
                 .onErrorResume(e -> {
@@ -96,17 +120,26 @@ public class UltraFastApiService {
     }
 
     /**
-     * Batch load multiple cryptocurrencies in parallel
+     * Batch load multiple cryptocurrencies with one {@code /coins/markets?ids=} call per chunk
      */
     public Mono<List<Cryptocurrency>> batchLoadUltraFast(List<String> symbols) {
         log.debug("Batch loading {} cryptocurrencies", symbols.size());
         
         return Flux.fromIterable(symbols)
-                .parallel(Math.min(symbols.size(), 10)) // Max 10 parallel requests
-                .runOn(Schedulers.parallel())
-                .flatMap(symbol -> getCryptocurrencyDetailsUltraFast(symbol)
-                        .onErrorResume(e -> Mono.empty()))
-                .sequential()
+                .map(String::toLowerCase)
+                .distinct()
+                .buffer(MARKETS_BATCH_SIZE)
+                .flatMap(ids -> webClient.get()
+                        .uri(coinGeckoBaseUrl + "/coins/markets" +
+                             "?vs_currency=usd&ids={ids}&per_page={perPage}&sparkline=false",
+                             String.join(",", ids), MARKETS_BATCH_SIZE)
+                        .retrieve()
+                        .bodyToFlux(CoinGeckoMarket.class)
+                        .map(this::mapToCryptocurrency)
+                        .onErrorResume(e -> {
+                            log.warn("Failed to batch load {} cryptocurrencies: {}", ids.size(), e.getMessage());
+                            return Flux.empty();
+                        }))
                 .collectList()
                 .timeout(Duration.ofSeconds(15));
     }
@@ -120,12 +153,16 @@ public class UltraFastApiService {
                 log.info("Preloading critical data for ultra-fast access...");
                 
                 // Preload top market data
-                getMarketDataUltraFast(1, 50).block();
+                getMarketDataUltraFast(1, 50)
+                        .contextWrite(RequestPriority.BULK.asContext())
+                        .block();
                 
                 // Preload top cryptocurrencies
                 List<String> topCryptos = List.of("bitcoin", "ethereum", "binancecoin", "cardano", "solana", 
                                                 "ripple", "polkadot", "dogecoin", "avalanche-2", "polygon");
-                batchLoadUltraFast(topCryptos).block();
+                batchLoadUltraFast(topCryptos)
+                        .contextWrite(RequestPriority.BULK.asContext())
+                        .block();
                 
                 log.info("Critical data preloaded successfully");
             } catch (Exception e) {
@@ -136,96 +173,53 @@ public class UltraFastApiService {
 
     private Mono<List<Cryptocurrency>> searchFromCoinGecko(String query, int limit) {
         return webClient.get()
-                .uri("https://api.coingecko.com/api/v3/search?query={query}", query)
+                .uri(coinGeckoBaseUrl + "/search?query={query}", query)
                 .retrieve()
-                .bodyToMono(Map.class)
-                .map(response -> {
-                    @SuppressWarnings("unchecked")
-                    List<Map<String, Object>> coins = (List<Map<String, Object>>) response.get("coins");
-                    return coins.stream()
-                            .limit(limit)
-                            .map(this::mapSearchToCryptocurrency)
-                            .toList();
-                });
+                .bodyToMono(CoinGeckoSearchResponse.class)
+                .map(response -> response.getCoins() == null ? List.<Cryptocurrency>of() : response.getCoins().stream()
+                        .limit(limit)
+                        .map(this::mapSearchToCryptocurrency)
+                        .toList());
     }
 
-    private Cryptocurrency mapToCryptocurrency(Map<String, Object> data) {
+    private Cryptocurrency mapToCryptocurrency(CoinGeckoMarket data) {
         return Cryptocurrency.builder()
-                .id((String) data.get("id"))
-                .name((String) data.get("name"))
-                .symbol(((String) data.get("symbol")).toUpperCase())
-                .price(parseBigDecimal(data.get("current_price")))
-                .marketCap(parseBigDecimal(data.get("market_cap")))
-                .volume24h(parseBigDecimal(data.get("total_volume")))
-                .percentChange24h(parseBigDecimal(data.get("price_change_percentage_24h")))
-                .rank(parseInt(data.get("market_cap_rank")))
-                .imageUrl((String) data.get("image"))
+                .id(data.getId())
+                .name(data.getName())
+                .symbol(data.getSymbol().toUpperCase())
+                .price(data.getCurrentPrice())
+                .marketCap(data.getMarketCap())
+                .volume24h(data.getTotalVolume())
+                .percentChange24h(data.getPriceChangePercentage24h())
+                .rank(data.getMarketCapRank())
+                .imageUrl(data.getImage())
                 .build();
     }
 
-    private Cryptocurrency mapDetailsToCryptocurrency(Map<String, Object> data) {
-        @SuppressWarnings("unchecked")
-        Map<String, Object> marketData = (Map<String, Object>) data.get("market_data");
-        @SuppressWarnings("unchecked")
-        Map<String, Object> currentPrice = (Map<String, Object>) marketData.get("current_price");
-        @SuppressWarnings("unchecked")
-        Map<String, Object> marketCap = (Map<String, Object>) marketData.get("market_cap");
-        @SuppressWarnings("unchecked")
-        Map<String, Object> totalVolume = (Map<String, Object>) marketData.get("total_volume");
-        @SuppressWarnings("unchecked")
-        Map<String, Object> priceChange24h = (Map<String, Object>) marketData.get("price_change_percentage_24h_in_currency");
-        
+    private Cryptocurrency mapDetailsToCryptocurrency(CoinGeckoCoinDetails data) {
+        CoinGeckoCoinDetails.MarketData marketData = data.getMarketData();
+        CoinGeckoCoinDetails.UsdAmount priceChange24h = marketData != null ? marketData.getPriceChangePercentage24hInCurrency() : null;
+
         return Cryptocurrency.builder()
-                .id((String) data.get("id"))
-                .name((String) data.get("name"))
-                .symbol(((String) data.get("symbol")).toUpperCase())
-                .price(parseBigDecimal(currentPrice.get("usd")))
-                .marketCap(parseBigDecimal(marketCap.get("usd")))
-                .volume24h(parseBigDecimal(totalVolume.get("usd")))
-                .percentChange24h(parseBigDecimal(priceChange24h.get("usd")))
-                .rank(parseInt(marketData.get("market_cap_rank")))
-                .description((String) ((Map<String, Object>) data.get("description")).get("en"))
+                .id(data.getId())
+                .name(data.getName())
+                .symbol(data.getSymbol().toUpperCase())
+                .price(data.usdPrice())
+                .marketCap(data.usdMarketCap())
+                .volume24h(data.usdVolume())
+                .percentChange24h(priceChange24h != null ? priceChange24h.getUsd() : null)
+                .rank(marketData != null ? marketData.getMarketCapRank() : null)
+                .description(data.getDescription() != null ? data.getDescription().getEn() : null)
                 .build();
     }
 
-    private Cryptocurrency mapSearchToCryptocurrency(Map<String, Object> data) {
+    private Cryptocurrency mapSearchToCryptocurrency(CoinGeckoSearchResponse.Coin data) {
         return Cryptocurrency.builder()
-                .id((String) data.get("id"))
-                .name((String) data.get("name"))
-                .symbol(((String) data.get("symbol")).toUpperCase())
-                .rank(parseInt(data.get("market_cap_rank")))
-                .imageUrl((String) data.get("large"))
+                .id(data.getId())
+                .name(data.getName())
+                .symbol(data.getSymbol().toUpperCase())
+                .rank(data.getMarketCapRank())
+                .imageUrl(data.getLarge())
                 .build();
     }
-
-    private Double parseDouble(Object value) {
-        if (value == null) return null;
-        if (value instanceof Number) return ((Number) value).doubleValue();
-        try {
-            return Double.parseDouble(value.toString());
-        } catch (NumberFormatException e) {
-            return null;
-        }
-    }
-    
-    private BigDecimal parseBigDecimal(Object value) {
-        if (value == null) return null;
-        if (value instanceof BigDecimal) return (BigDecimal) value;
-        if (value instanceof Number) return new BigDecimal(((Number) value).toString());
-        try {
-            return new BigDecimal(value.toString());
-        } catch (NumberFormatException e) {
-            return null;
-        }
-    }
-
-    private Integer parseInt(Object value) {
-        if (value == null) return null;
-        if (value instanceof Number) return ((Number) value).intValue();
-        try {
-            return Integer.parseInt(value.toString());
-        } catch (NumberFormatException e) {
-            return null;
-        }
-    }
 }
@@ -0,0 +1,242 @@
+package crypto.insight.crypto.service.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Second cache tier holding serialized, deflate-compressed entries in a {@link SlabArena} of
+ * direct memory.
+ * <p>
+ * Entries live outside the Java heap, so a large second tier adds no GC scanning cost; only the
+ * key and a small slot object stay on-heap. The store is shared by all caches under one byte
+ * budget and evicts least recently used entries when a new one does not fit.
+ * <p>
+ * Values are written with Java serialization: the caches hold arbitrary model types and this
+ * restores them without per-type codecs or type hints. It is the slow, bulky part of a spill;
+ * deflate takes care of the bulk, and the cost is only paid on first-tier evictions and misses.
+ * Values that are not {@link Serializable} are rejected and simply not spilled.
+ */
+@Slf4j
+public class CompressedOffHeapStore {
+
+    private final long maxBytes;
+    private final int compressionLevel;
+    private final SlabArena arena;
+    // Guarded by slots
+    private final LinkedHashMap<Key, Slot> slots = new LinkedHashMap<>(1024, 0.75f, true);
+    private long usedBytes;
+    private long rawBytes;
+
+    private final AtomicLong spills = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public CompressedOffHeapStore(long maxBytes, int compressionLevel) {
+        this.maxBytes = maxBytes;
+        this.compressionLevel = compressionLevel;
+        this.arena = new SlabArena(maxBytes);
+    }
+
+    /**
+     * Stores a value for {@code cacheName/key} until {@code expiresAt} (epoch millis, 0 for never).
+     */
+    public void put(String cacheName, Object key, Object value, long writtenAt, long expiresAt) {
+        byte[] raw = serialize(value);
+        if (raw == null) {
+            rejected.incrementAndGet();
+            return;
+        }
+        byte[] compressed = deflate(raw);
+        int blocks = SlabArena.blocksFor(compressed.length);
+        if ((long) blocks * SlabArena.BLOCK_BYTES > maxBytes) {
+            rejected.incrementAndGet();
+            return;
+        }
+
+        synchronized (slots) {
+            Key slotKey = new Key(cacheName, key);
+            release(slots.remove(slotKey));
+            Iterator<Slot> eldest = slots.values().iterator();
+            while (arena.availableBlocks() < blocks && eldest.hasNext()) {
+                Slot evicted = eldest.next();
+                eldest.remove();
+                release(evicted);
+                evictions.incrementAndGet();
+            }
+            slots.put(slotKey, new Slot(arena.store(compressed), compressed.length, raw.length, writtenAt, expiresAt));
+            usedBytes += (long) blocks * SlabArena.BLOCK_BYTES;
+            rawBytes += raw.length;
+        }
+        spills.incrementAndGet();
+    }
+
+    /**
+     * Removes and returns the entry for {@code cacheName/key}, or null when absent or expired.
+     */
+    public Entry take(String cacheName, Object key) {
+        Slot slot;
+        byte[] compressed = null;
+        synchronized (slots) {
+            slot = slots.remove(new Key(cacheName, key));
+            if (slot != null) {
+                compressed = arena.load(slot.blocks, slot.length);
+                release(slot);
+            }
+        }
+        if (slot == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (slot.expiresAt > 0 && slot.expiresAt <= System.currentTimeMillis()) {
+            expirations.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+        Object value = deserialize(inflate(compressed, slot.rawLength));
+        if (value == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return new Entry(value, slot.writtenAt);
+    }
+
+    public void remove(String cacheName, Object key) {
+        synchronized (slots) {
+            release(slots.remove(new Key(cacheName, key)));
+        }
+    }
+
+    public void clear(String cacheName) {
+        synchronized (slots) {
+            Iterator<Map.Entry<Key, Slot>> it = slots.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Key, Slot> entry = it.next();
+                if (entry.getKey().cacheName().equals(cacheName)) {
+                    release(entry.getValue());
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    // Called holding slots
+    private void release(Slot slot) {
+        if (slot != null) {
+            arena.free(slot.blocks);
+            usedBytes -= (long) slot.blocks.length * SlabArena.BLOCK_BYTES;
+            rawBytes -= slot.rawLength;
+        }
+    }
+
+    private byte[] serialize(Object value) {
+        if (!(value instanceof Serializable)) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        } catch (NotSerializableException e) {
+            log.debug("Not spilling {} to the off-heap cache: {} is not serializable",
+                    value.getClass().getSimpleName(), e.getMessage());
+            return null;
+        } catch (IOException e) {
+            log.debug("Failed to serialize {} for the off-heap cache: {}", value.getClass().getSimpleName(), e.getMessage());
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    private byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(compressionLevel);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(raw.length / 2 + 16);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater)) {
+            out.write(raw);
+        } catch (IOException e) {
+            throw new IllegalStateException("In-memory deflate failed", e);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    private byte[] inflate(byte[] compressed, int rawLength) {
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int read = inflater.inflate(raw);
+            if (read != raw.length) {
+                throw new IllegalStateException("Off-heap cache entry inflated to " + read + " of " + raw.length + " bytes");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt off-heap cache entry", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private Object deserialize(byte[] raw) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(raw))) {
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            log.debug("Dropping unreadable off-heap cache entry: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Get second-tier statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (slots) {
+            stats.put("entries", slots.size());
+            stats.put("usedBytes", usedBytes);
+            stats.put("reservedBytes", arena.reservedBytes());
+            stats.put("uncompressedBytes", rawBytes);
+            stats.put("compressionRatio", usedBytes > 0 ? (double) rawBytes / usedBytes : 0.0);
+        }
+        stats.put("maxBytes", maxBytes);
+        stats.put("spills", spills.get());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("expirations", expirations.get());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+
+    /**
+     * A value restored from the second tier with its original write time.
+     */
+    public record Entry(Object value, long writtenAt) {
+    }
+
+    private record Key(String cacheName, Object key) {
+    }
+
+    /** {@code length} compressed bytes in {@code blocks} of the arena */
+    private record Slot(int[] blocks, int length, int rawLength, long writtenAt, long expiresAt) {
+    }
+}
@@ -0,0 +1,100 @@
+package crypto.insight.crypto.service.cache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Direct memory for {@link CompressedOffHeapStore}, carved into fixed-size blocks.
+ * <p>
+ * Slabs are allocated on demand up to the budget, rounded up to a whole slab, and never freed.
+ * Once the arena has warmed up, spilling an entry costs no direct allocation and dropping one
+ * no native free or Cleaner work. An entry takes as many blocks as it needs, not necessarily
+ * adjacent ones, which keeps the arena free of external fragmentation at the price of up to
+ * one partly used block per entry.
+ * <p>
+ * Not thread-safe; the store only touches it under its own lock.
+ */
+final class SlabArena {
+
+    static final int BLOCK_BYTES = 512;
+    private static final int SLAB_BYTES = 1 << 20;
+
+    private final int maxBlocks;
+    private final int blocksPerSlab;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    /** Blocks handed out at least once; those below it that are free sit on the free stack */
+    private int carvedBlocks;
+    private int[] freeStack = new int[64];
+    private int freeCount;
+
+    SlabArena(long maxBytes) {
+        this.maxBlocks = (int) Math.min(Integer.MAX_VALUE, maxBytes / BLOCK_BYTES);
+        this.blocksPerSlab = (int) Math.max(1, Math.min(SLAB_BYTES, maxBytes) / BLOCK_BYTES);
+    }
+
+    static int blocksFor(int bytes) {
+        return (bytes + BLOCK_BYTES - 1) / BLOCK_BYTES;
+    }
+
+    /** Blocks the arena can still hand out */
+    int availableBlocks() {
+        return freeCount + maxBlocks - carvedBlocks;
+    }
+
+    /** Direct memory allocated so far, in use or not */
+    long reservedBytes() {
+        return (long) slabs.size() * blocksPerSlab * BLOCK_BYTES;
+    }
+
+    /**
+     * Copies {@code data} into free blocks, which the caller must have checked are available.
+     *
+     * @return the blocks holding the data, in order
+     */
+    int[] store(byte[] data) {
+        int[] blocks = new int[blocksFor(data.length)];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = freeCount > 0 ? freeStack[--freeCount] : carve();
+            int offset = i * BLOCK_BYTES;
+            slab(blocks[i]).put(position(blocks[i]), data, offset, Math.min(BLOCK_BYTES, data.length - offset));
+        }
+        return blocks;
+    }
+
+    /** Copies the first {@code length} bytes held by {@code blocks} back onto the heap */
+    byte[] load(int[] blocks, int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < blocks.length; i++) {
+            int offset = i * BLOCK_BYTES;
+            slab(blocks[i]).get(position(blocks[i]), data, offset, Math.min(BLOCK_BYTES, length - offset));
+        }
+        return data;
+    }
+
+    void free(int[] blocks) {
+        if (freeCount + blocks.length > freeStack.length) {
+            int[] grown = new int[Math.max(freeStack.length * 2, freeCount + blocks.length)];
+            System.arraycopy(freeStack, 0, grown, 0, freeCount);
+            freeStack = grown;
+        }
+        for (int block : blocks) {
+            freeStack[freeCount++] = block;
+        }
+    }
+
+    private int carve() {
+        if (carvedBlocks == slabs.size() * blocksPerSlab) {
+            slabs.add(ByteBuffer.allocateDirect(blocksPerSlab * BLOCK_BYTES));
+        }
+        return carvedBlocks++;
+    }
+
+    private ByteBuffer slab(int block) {
+        return slabs.get(block / blocksPerSlab);
+    }
+
+    private int position(int block) {
+        return (block % blocksPerSlab) * BLOCK_BYTES;
+    }
+}
@@ -0,0 +1,175 @@
+package crypto.insight.crypto.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Spring cache backed by an in-heap Caffeine first tier and a shared {@link CompressedOffHeapStore}.
+ * <p>
+ * Entries the first tier evicts for size are spilled to the second tier with their original write
+ * time; expired entries are not. A first-tier miss takes the entry back out of the second tier and
+ * promotes it, so each entry lives in exactly one tier and keeps its original expiry.
+ * <p>
+ * Spills, promotions, puts and evictions of a key all touch the second tier inside an atomic
+ * operation on that key in the first tier, so they happen in the order the first tier saw them.
+ * A spill can therefore never land after a later put or evict of its key and bring back the
+ * value those replaced.
+ */
+public class TieredCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final Cache<Object, Stamped> l1;
+    private final CompressedOffHeapStore l2;
+    private final long ttlMillis;
+
+    /**
+     * @param l1Builder first-tier settings without an expiry; {@code ttl} is applied from each
+     *                  entry's original write time so promoted entries do not get a fresh TTL
+     */
+    public TieredCache(String name, Caffeine<Object, Object> l1Builder, Duration ttl,
+                       CompressedOffHeapStore l2, boolean allowNullValues) {
+        super(allowNullValues);
+        this.name = name;
+        this.l2 = l2;
+        this.ttlMillis = ttl != null ? ttl.toMillis() : 0;
+        Caffeine<Object, Stamped> builder = l1Builder.<Object, Stamped>evictionListener((key, stamped, cause) -> {
+            // Runs within the eviction, under the key's lock; Caffeine evicts on its maintenance
+            // executor, so serialization rarely delays a caller
+            if (cause == RemovalCause.SIZE && key != null && stamped != null) {
+                spill(key, stamped);
+            }
+        });
+        if (ttlMillis > 0) {
+            builder = builder.expireAfter(new WriteTimeExpiry(ttlMillis));
+        }
+        this.l1 = builder.build();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return l1;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Stamped stamped = l1.asMap().computeIfAbsent(key, this::promote);
+        return stamped != null ? stamped.value() : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (T) fromStoreValue(cached);
+        }
+        Stamped loaded = l1.get(key, k -> {
+            try {
+                return stamp(toStoreValue(valueLoader.call()));
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+        });
+        return (T) fromStoreValue(loaded.value());
+    }
+
+    @Override
+    public CompletableFuture<?> retrieve(Object key) {
+        Object cached = lookup(key);
+        return cached != null ? CompletableFuture.completedFuture(fromStoreValue(cached)) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+        Object cached = lookup(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture((T) fromStoreValue(cached));
+        }
+        return valueLoader.get().thenApply(value -> {
+            put(key, value);
+            return value;
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        Stamped stamped = stamp(toStoreValue(value));
+        l1.asMap().compute(key, (k, previous) -> {
+            l2.remove(name, k);
+            return stamped;
+        });
+    }
+
+    @Override
+    public void evict(Object key) {
+        l1.asMap().compute(key, (k, previous) -> {
+            l2.remove(name, k);
+            return null;
+        });
+    }
+
+    @Override
+    public void clear() {
+        l1.invalidateAll();
+        l2.clear(name);
+    }
+
+    private Stamped stamp(Object storeValue) {
+        return new Stamped(storeValue, System.currentTimeMillis());
+    }
+
+    private void spill(Object key, Stamped stamped) {
+        long expiresAt = ttlMillis > 0 ? stamped.writtenAt() + ttlMillis : 0;
+        if (expiresAt == 0 || expiresAt > System.currentTimeMillis()) {
+            l2.put(name, key, stamped.value(), stamped.writtenAt(), expiresAt);
+        }
+    }
+
+    /**
+     * Takes a first-tier miss out of the second tier, called under the key's lock in the first.
+     */
+    private Stamped promote(Object key) {
+        CompressedOffHeapStore.Entry spilled = l2.take(name, key);
+        return spilled != null ? new Stamped(spilled.value(), spilled.writtenAt()) : null;
+    }
+
+    private record Stamped(Object value, long writtenAt) {
+    }
+
+    /**
+     * Expires entries {@code ttlMillis} after their recorded write time rather than their insertion.
+     */
+    private record WriteTimeExpiry(long ttlMillis) implements Expiry<Object, Stamped> {
+
+        @Override
+        public long expireAfterCreate(Object key, Stamped stamped, long currentTime) {
+            long remainingMillis = stamped.writtenAt() + ttlMillis - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(Object key, Stamped stamped, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, stamped, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Object key, Stamped stamped, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package crypto.insight.crypto.service.chart;
+
+import java.time.Duration;
+
+/**
+ * Levels of the chart rollup pyramid, finest first. Each level is built from the one before it.
+ */
+public enum ChartResolution {
+    FIVE_MINUTES(Duration.ofMinutes(5), 1),
+    HOURLY(Duration.ofHours(1), 90),
+    DAILY(Duration.ofDays(1), Integer.MAX_VALUE);
+
+    private final long bucketMillis;
+    private final int providerWindowDays;
+
+    ChartResolution(Duration bucket, int providerWindowDays) {
+        this.bucketMillis = bucket.toMillis();
+        this.providerWindowDays = providerWindowDays;
+    }
+
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    /**
+     * Longest window, in days back from now, for which CoinGecko returns points this fine
+     */
+    public int getProviderWindowDays() {
+        return providerWindowDays;
+    }
+
+    /**
+     * Picks the resolution CoinGecko would return for a window of this many days.
+     */
+    public static ChartResolution forDays(int days) {
+        for (ChartResolution resolution : values()) {
+            if (days <= resolution.providerWindowDays) {
+                return resolution;
+            }
+        }
+        return DAILY;
+    }
+}
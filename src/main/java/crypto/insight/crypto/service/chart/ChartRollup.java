@@ -0,0 +1,171 @@
+package crypto.insight.crypto.service.chart;
+
+import java.util.Arrays;
+
+/**
+ * OHLCV buckets for one level of the chart rollup pyramid.
+ * Open/high/low/close come from the price column; volume and market cap keep the last known
+ * value in the bucket. The timestamp of the close observation is kept alongside the bucket
+ * start so line charts can still end at "now".
+ * <p>
+ * A level belongs to one {@link ChartSeries} and is only touched under its lock. After a merge
+ * only the buckets from the first changed one on are rolled up again.
+ */
+final class ChartRollup {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    final long bucketMillis;
+    long[] timestamps;
+    long[] closeTimestamps;
+    double[] open;
+    double[] high;
+    double[] low;
+    double[] close;
+    double[] volume;
+    double[] marketCap;
+    int size;
+
+    private ChartRollup(long bucketMillis) {
+        this.bucketMillis = bucketMillis;
+        this.timestamps = new long[INITIAL_CAPACITY];
+        this.closeTimestamps = new long[INITIAL_CAPACITY];
+        this.open = new double[INITIAL_CAPACITY];
+        this.high = new double[INITIAL_CAPACITY];
+        this.low = new double[INITIAL_CAPACITY];
+        this.close = new double[INITIAL_CAPACITY];
+        this.volume = new double[INITIAL_CAPACITY];
+        this.marketCap = new double[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Builds the finest level directly from raw sorted price points.
+     */
+    static ChartRollup fromPoints(long[] pointTimestamps, double[] prices, double[] volumes, double[] marketCaps,
+                                  int count, long bucketMillis) {
+        ChartRollup rollup = new ChartRollup(bucketMillis);
+        rollup.refreshFromPoints(pointTimestamps, prices, volumes, marketCaps, count, Long.MIN_VALUE);
+        return rollup;
+    }
+
+    /**
+     * Builds the next, coarser level of the pyramid from this one.
+     */
+    ChartRollup rollUp(long coarserBucketMillis) {
+        ChartRollup rollup = new ChartRollup(coarserBucketMillis);
+        rollup.refreshFrom(this, Long.MIN_VALUE);
+        return rollup;
+    }
+
+    /**
+     * Rolls the buckets from the one holding {@code changedFrom} on up again from raw sorted
+     * price points; {@code Long.MIN_VALUE} rebuilds the whole level.
+     */
+    void refreshFromPoints(long[] pointTimestamps, double[] prices, double[] volumes, double[] marketCaps,
+                           int count, long changedFrom) {
+        int first = indexOf(pointTimestamps, count, truncate(changedFrom));
+        ensureCapacity(size + count - first);
+        for (int i = first; i < count; i++) {
+            add(pointTimestamps[i], pointTimestamps[i], prices[i], prices[i], prices[i], prices[i],
+                    volumes[i], marketCaps[i]);
+        }
+    }
+
+    /**
+     * Rolls the buckets from the one holding {@code changedFrom} on up again from the next
+     * finer level, which must already be up to date.
+     */
+    void refreshFrom(ChartRollup finer, long changedFrom) {
+        int first = indexOf(finer.timestamps, finer.size, truncate(changedFrom));
+        ensureCapacity(size + finer.size - first);
+        for (int i = first; i < finer.size; i++) {
+            add(finer.timestamps[i], finer.closeTimestamps[i], finer.open[i], finer.high[i], finer.low[i],
+                    finer.close[i], finer.volume[i], finer.marketCap[i]);
+        }
+    }
+
+    /**
+     * Index of the first bucket that still overlaps {@code fromMillis}.
+     */
+    int lowerBound(long fromMillis) {
+        long key = Math.floorDiv(fromMillis, bucketMillis) * bucketMillis;
+        int index = Arrays.binarySearch(timestamps, 0, size, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Index after the last bucket that starts at or before {@code toMillis}.
+     */
+    int upperBound(long toMillis) {
+        int index = Arrays.binarySearch(timestamps, 0, size, toMillis);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Drops the bucket holding {@code changedFrom} and every later one.
+     *
+     * @return the start of the first dropped bucket, from which the level is rolled up again
+     */
+    private long truncate(long changedFrom) {
+        if (changedFrom == Long.MIN_VALUE) {
+            size = 0;
+            return Long.MIN_VALUE;
+        }
+        size = lowerBound(changedFrom);
+        return Math.floorDiv(changedFrom, bucketMillis) * bucketMillis;
+    }
+
+    private static int indexOf(long[] sortedTimestamps, int count, long fromMillis) {
+        int index = Arrays.binarySearch(sortedTimestamps, 0, count, fromMillis);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private void add(long timestamp, long closeTimestamp, double o, double h, double l, double c, double v, double m) {
+        long bucketStart = Math.floorDiv(timestamp, bucketMillis) * bucketMillis;
+        if (size > 0 && timestamps[size - 1] == bucketStart) {
+            extend(size - 1, closeTimestamp, h, l, c, v, m);
+        } else {
+            start(size++, bucketStart, closeTimestamp, o, h, l, c, v, m);
+        }
+    }
+
+    private void start(int index, long bucketStart, long closeTimestamp, double o, double h, double l, double c,
+                       double v, double m) {
+        timestamps[index] = bucketStart;
+        closeTimestamps[index] = closeTimestamp;
+        open[index] = o;
+        high[index] = h;
+        low[index] = l;
+        close[index] = c;
+        volume[index] = v;
+        marketCap[index] = m;
+    }
+
+    private void extend(int index, long closeTimestamp, double h, double l, double c, double v, double m) {
+        closeTimestamps[index] = closeTimestamp;
+        high[index] = Math.max(high[index], h);
+        low[index] = Math.min(low[index], l);
+        close[index] = c;
+        if (!Double.isNaN(v)) {
+            volume[index] = v;
+        }
+        if (!Double.isNaN(m)) {
+            marketCap[index] = m;
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= timestamps.length) {
+            return;
+        }
+        int capacity = Math.max(required, timestamps.length * 2);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        closeTimestamps = Arrays.copyOf(closeTimestamps, capacity);
+        open = Arrays.copyOf(open, capacity);
+        high = Arrays.copyOf(high, capacity);
+        low = Arrays.copyOf(low, capacity);
+        close = Arrays.copyOf(close, capacity);
+        volume = Arrays.copyOf(volume, capacity);
+        marketCap = Arrays.copyOf(marketCap, capacity);
+    }
+}
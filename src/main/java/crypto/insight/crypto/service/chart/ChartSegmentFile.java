@@ -0,0 +1,201 @@
+package crypto.insight.crypto.service.chart;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only, memory-mapped segment file holding the raw chart history of one coin.
+ * <p>
+ * Layout: a 32 byte header (magic, version, record count, last ingest time) followed by fixed
+ * 32 byte records of timestamp, price, volume and market cap in the order they were written.
+ * A record supersedes every earlier record of the same bucket, so a merge only appends the
+ * buckets it changed and the log is compacted with {@link #rewrite} once superseded records
+ * pile up. The record count is written after the records it covers, so a torn append is
+ * simply ignored on reopen.
+ * <p>
+ * The file is only ever grown and written through its mapping, never replaced or truncated,
+ * since neither works while a mapping is live on every platform and a dropped mapping is only
+ * unmapped once it is collected. Growth doubles the mapping to keep such leftovers few, and
+ * compaction bounds the file to a small multiple of the live records.
+ */
+class ChartSegmentFile implements Closeable {
+
+    private static final int MAGIC = 0x43485331; // "CHS1"
+    /** Version 1 segments were kept sorted without superseded records, which version 2 reads as is */
+    private static final int VERSION = 2;
+    private static final int OLDEST_READABLE_VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int RECORD_BYTES = 32;
+    private static final int GROWTH_RECORDS = 1024;
+
+    private static final int VERSION_OFFSET = 4;
+    private static final int COUNT_OFFSET = 8;
+    private static final int INGESTED_AT_OFFSET = 16;
+
+    private final Path path;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int count;
+
+    private ChartSegmentFile(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    /**
+     * Maps an existing segment or creates an empty one. A segment with an unknown header or a
+     * record count beyond the end of the file is reset rather than trusted.
+     */
+    static ChartSegmentFile open(Path path) throws IOException {
+        // Left behind by older builds, which compacted into a sibling file
+        Files.deleteIfExists(path.resolveSibling(path.getFileName() + ".tmp"));
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ChartSegmentFile segment = new ChartSegmentFile(path, channel);
+        try {
+            long fileRecords = Math.max(0, (channel.size() - HEADER_BYTES) / RECORD_BYTES);
+            segment.map((int) Math.max(fileRecords, GROWTH_RECORDS));
+            if (segment.isValid(fileRecords)) {
+                segment.buffer.putInt(VERSION_OFFSET, VERSION);
+            } else {
+                segment.reset();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return segment;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Number of records in the log, superseded ones included
+     */
+    int count() {
+        return count;
+    }
+
+    long lastIngestedAt() {
+        return buffer.getLong(INGESTED_AT_OFFSET);
+    }
+
+    void markIngested(long timestamp) {
+        buffer.putLong(INGESTED_AT_OFFSET, timestamp);
+    }
+
+    /**
+     * Copies all records into primitive columns in the order they were written, superseded
+     * ones included.
+     */
+    ChartSeries.Points read() {
+        long[] timestamps = new long[count];
+        double[] prices = new double[count];
+        double[] volumes = new double[count];
+        double[] marketCaps = new double[count];
+        for (int i = 0; i < count; i++) {
+            int offset = HEADER_BYTES + i * RECORD_BYTES;
+            timestamps[i] = buffer.getLong(offset);
+            prices[i] = buffer.getDouble(offset + 8);
+            volumes[i] = buffer.getDouble(offset + 16);
+            marketCaps[i] = buffer.getDouble(offset + 24);
+        }
+        return new ChartSeries.Points(timestamps, prices, volumes, marketCaps, count);
+    }
+
+    /**
+     * Appends {@code records} after the existing ones, superseding the records of the same
+     * buckets.
+     */
+    void append(ChartSeries.Points records) throws IOException {
+        ensureCapacity(count + records.size);
+        for (int i = 0; i < records.size; i++) {
+            writeRecord(buffer, count + i, records.timestamps[i], records.prices[i],
+                    records.volumes[i], records.marketCaps[i]);
+        }
+        count += records.size;
+        buffer.putLong(COUNT_OFFSET, count);
+    }
+
+    /**
+     * Replaces the whole log with {@code records}, which must hold the latest value of every
+     * bucket worth keeping, in place.
+     * <p>
+     * The records are first appended and made durable, so until the log is cut down to them
+     * they supersede everything before them. Only then are they copied to the front and the
+     * count lowered, so a crash at any point leaves a log that folds to the same points. A
+     * rewrite larger than the log it replaces stays an append.
+     */
+    void rewrite(ChartSeries.Points records) throws IOException {
+        int previous = count;
+        append(records);
+        buffer.force();
+        if (records.size > previous) {
+            return;
+        }
+        for (int i = 0; i < records.size; i++) {
+            writeRecord(buffer, i, records.timestamps[i], records.prices[i], records.volumes[i], records.marketCaps[i]);
+        }
+        buffer.force();
+        count = records.size;
+        buffer.putLong(COUNT_OFFSET, count);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel.isOpen()) {
+            buffer.force();
+            channel.close();
+        }
+    }
+
+    private static void writeRecord(ByteBuffer target, int index, long timestamp, double price,
+                                    double volume, double marketCap) {
+        int offset = HEADER_BYTES + index * RECORD_BYTES;
+        target.putLong(offset, timestamp);
+        target.putDouble(offset + 8, price);
+        target.putDouble(offset + 16, volume);
+        target.putDouble(offset + 24, marketCap);
+    }
+
+    private boolean isValid(long fileRecords) {
+        int version = buffer.getInt(VERSION_OFFSET);
+        if (buffer.getInt(0) != MAGIC || version < OLDEST_READABLE_VERSION || version > VERSION) {
+            return false;
+        }
+        long stored = buffer.getLong(COUNT_OFFSET);
+        if (stored < 0 || stored > fileRecords) {
+            return false;
+        }
+        count = (int) stored;
+        return true;
+    }
+
+    private void reset() {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putLong(COUNT_OFFSET, 0);
+        buffer.putLong(INGESTED_AT_OFFSET, 0);
+        count = 0;
+    }
+
+    private void ensureCapacity(int records) throws IOException {
+        if (records > capacity) {
+            map(Math.max(records, capacity * 2));
+        }
+    }
+
+    private void map(int records) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) records * RECORD_BYTES);
+        capacity = records;
+    }
+}
@@ -0,0 +1,690 @@
+package crypto.insight.crypto.service.chart;
+
+import crypto.insight.crypto.model.ChartCandle;
+import crypto.insight.crypto.model.ChartDataPoint;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar price history for a single coin.
+ * Timestamps, prices, volumes and market caps are kept in parallel primitive arrays sorted by
+ * timestamp, so a "last N days" query is a binary search plus an array walk instead of
+ * re-parsing boxed provider lists. Missing volume or market cap values are stored as NaN.
+ * The series holds at most one point per bucket; a newer point in the same bucket replaces the
+ * older one, so repeated tail refreshes do not pile up. Points older than the retention of a
+ * level are thinned to one per bucket of the next, coarser level, so the series stays bounded.
+ * Reads go through a lazily built {@link ChartRollup} pyramid (see {@link ChartResolution}),
+ * so one ingested series answers every window and resolution; merges only roll up the buckets
+ * they changed.
+ * When a {@link ChartSegmentFile} is attached every merge appends the buckets it changed.
+ */
+@Slf4j
+public class ChartSeries {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int COMPACT_FACTOR = 2;
+    private static final int COMPACT_SLACK_RECORDS = 256;
+
+    private final String id;
+    private final long bucketMillis;
+    // By ChartResolution ordinal; Long.MAX_VALUE keeps a level's points
+    private final long[] retentionMillis;
+    private long retentionAppliedAt = Long.MIN_VALUE;
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private double[] prices = new double[INITIAL_CAPACITY];
+    private double[] volumes = new double[INITIAL_CAPACITY];
+    private double[] marketCaps = new double[INITIAL_CAPACITY];
+    private int size;
+    private volatile long lastIngestedAt;
+    private ChartSegmentFile segment;
+    // Callers using the series pin it, so eviction never closes the segment under a merge
+    private int pins;
+    private boolean evicted;
+    private boolean closed;
+    private final Map<ChartResolution, ChartRollup> rollups = new EnumMap<>(ChartResolution.class);
+
+    public ChartSeries(String id, long bucketMillis) {
+        this(id, bucketMillis, Map.of());
+    }
+
+    /**
+     * @param retention how long points are kept at each level before they are thinned to the
+     *                  next, coarser one, or dropped after the coarsest; levels left out keep
+     *                  their points
+     */
+    public ChartSeries(String id, long bucketMillis, Map<ChartResolution, Duration> retention) {
+        this.id = id;
+        this.bucketMillis = bucketMillis;
+        this.retentionMillis = new long[ChartResolution.values().length];
+        for (ChartResolution resolution : ChartResolution.values()) {
+            Duration kept = retention.get(resolution);
+            retentionMillis[resolution.ordinal()] = kept != null ? kept.toMillis() : Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Rebuilds a series from its persisted segment; later merges are appended to it.
+     * <p>
+     * The segment is a log in which later records supersede earlier ones of the same bucket,
+     * so it is folded into columns on the heap rather than read through the mapping: merges,
+     * range queries and the rollup pyramid all work on sorted primitive arrays. Segments are
+     * still only mapped once their coin is requested, and the mapping stays the durable copy.
+     */
+    static ChartSeries restore(String id, long bucketMillis, Map<ChartResolution, Duration> retention,
+                               ChartSegmentFile segment) throws IOException {
+        ChartSeries series = new ChartSeries(id, bucketMillis, retention);
+        Points stored = segment.read().latestPerBucket(bucketMillis);
+        if (stored.size > 0) {
+            series.ensureCapacity(stored.size);
+            System.arraycopy(stored.timestamps, 0, series.timestamps, 0, stored.size);
+            System.arraycopy(stored.prices, 0, series.prices, 0, stored.size);
+            System.arraycopy(stored.volumes, 0, series.volumes, 0, stored.size);
+            System.arraycopy(stored.marketCaps, 0, series.marketCaps, 0, stored.size);
+            series.size = stored.size;
+        }
+        series.lastIngestedAt = segment.lastIngestedAt();
+        series.segment = segment;
+        // Records thinned before the last compaction come back from the log
+        series.applyRetention(System.currentTimeMillis(), true);
+        series.compactIfSparse();
+        return series;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long firstTimestamp() {
+        return size == 0 ? Long.MAX_VALUE : timestamps[0];
+    }
+
+    public synchronized long lastTimestamp() {
+        return size == 0 ? Long.MIN_VALUE : timestamps[size - 1];
+    }
+
+    /**
+     * Wall-clock time of the last successful provider ingest
+     */
+    public long getLastIngestedAt() {
+        return lastIngestedAt;
+    }
+
+    /**
+     * Merges a batch of points into the series.
+     * Points at or after the current tail bucket are written in place (replacing the tail
+     * point if it shares a bucket); anything overlapping the existing range is merged by
+     * bucket, with incoming values replacing stored ones. Retention is applied afterwards.
+     *
+     * @return the number of buckets that were not present before
+     */
+    public synchronized int merge(Points incoming) {
+        long now = System.currentTimeMillis();
+        lastIngestedAt = now;
+        if (segment != null) {
+            segment.markIngested(lastIngestedAt);
+        }
+        if (incoming == null || incoming.size == 0) {
+            return 0;
+        }
+        incoming = incoming.collapse(bucketMillis);
+
+        if (size == 0 || bucketOf(incoming.timestamps[0]) >= bucketOf(timestamps[size - 1])) {
+            int from = size > 0 && bucketOf(incoming.timestamps[0]) == bucketOf(timestamps[size - 1]) ? size - 1 : size;
+            if (from < size) {
+                keepKnownValues(incoming, 0, from);
+            }
+            ensureCapacity(from + incoming.size);
+            System.arraycopy(incoming.timestamps, 0, timestamps, from, incoming.size);
+            System.arraycopy(incoming.prices, 0, prices, from, incoming.size);
+            System.arraycopy(incoming.volumes, 0, volumes, from, incoming.size);
+            System.arraycopy(incoming.marketCaps, 0, marketCaps, from, incoming.size);
+            int added = from + incoming.size - size;
+            size = from + incoming.size;
+            persist(Points.slice(timestamps, prices, volumes, marketCaps, from, size));
+            refreshRollups(timestamps[from]);
+            applyRetention(now, false);
+            return added;
+        }
+
+        int capacity = Math.max(INITIAL_CAPACITY, size + incoming.size);
+        long[] mergedTimestamps = new long[capacity];
+        double[] mergedPrices = new double[capacity];
+        double[] mergedVolumes = new double[capacity];
+        double[] mergedMarketCaps = new double[capacity];
+        // Positions taking an incoming point, which are all the segment needs to be told about
+        int[] changed = new int[incoming.size];
+
+        int i = 0, j = 0, k = 0;
+        while (i < size || j < incoming.size) {
+            if (j >= incoming.size || (i < size && bucketOf(timestamps[i]) < bucketOf(incoming.timestamps[j]))) {
+                mergedTimestamps[k] = timestamps[i];
+                mergedPrices[k] = prices[i];
+                mergedVolumes[k] = volumes[i];
+                mergedMarketCaps[k] = marketCaps[i];
+                i++;
+            } else {
+                boolean replacesExisting = i < size && bucketOf(timestamps[i]) == bucketOf(incoming.timestamps[j]);
+                mergedTimestamps[k] = incoming.timestamps[j];
+                mergedPrices[k] = incoming.prices[j];
+                mergedVolumes[k] = replacesExisting && Double.isNaN(incoming.volumes[j]) ? volumes[i] : incoming.volumes[j];
+                mergedMarketCaps[k] = replacesExisting && Double.isNaN(incoming.marketCaps[j]) ? marketCaps[i] : incoming.marketCaps[j];
+                if (replacesExisting) {
+                    i++;
+                }
+                changed[j++] = k;
+            }
+            k++;
+        }
+
+        int added = k - size;
+        timestamps = mergedTimestamps;
+        prices = mergedPrices;
+        volumes = mergedVolumes;
+        marketCaps = mergedMarketCaps;
+        size = k;
+        persist(Points.select(timestamps, prices, volumes, marketCaps, changed));
+        refreshRollups(timestamps[changed[0]]);
+        applyRetention(now, true);
+        return added;
+    }
+
+    /**
+     * Pins the series for a caller about to use it, so it is not closed under the caller once
+     * the store evicts it. Fails once the series has been evicted; every successful pin must
+     * be followed by {@link #unpin()}.
+     */
+    synchronized boolean pin() {
+        if (evicted) {
+            return false;
+        }
+        pins++;
+        return true;
+    }
+
+    /**
+     * Releases a pin, closing the series if it was evicted meanwhile and this was the last pin.
+     *
+     * @return whether the series was closed
+     */
+    synchronized boolean unpin() {
+        pins--;
+        if (evicted && pins == 0) {
+            close();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Marks the series evicted from the store. It is closed now if nobody has it pinned, else
+     * by the last {@link #unpin()}.
+     *
+     * @return whether the series was closed
+     */
+    synchronized boolean evict() {
+        evicted = true;
+        if (pins == 0) {
+            close();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Takes an evicted series back into use while it is still open, so its segment is never
+     * mapped by two series at once.
+     *
+     * @return false when the series was already closed
+     */
+    synchronized boolean revive() {
+        if (!evicted || closed) {
+            return false;
+        }
+        evicted = false;
+        return true;
+    }
+
+    /**
+     * Flushes and detaches the backing segment, if any.
+     */
+    public synchronized void close() {
+        closed = true;
+        detachSegment();
+    }
+
+    private void detachSegment() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.close();
+        } catch (IOException e) {
+            log.warn("Failed to close chart segment for {}: {}", id, e.getMessage());
+        }
+        segment = null;
+    }
+
+    private void persist(Points changed) {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.append(changed);
+        } catch (IOException e) {
+            log.warn("Failed to write chart segment for {}, continuing in memory only: {}", id, e.getMessage());
+            detachSegment();
+            return;
+        }
+        compactIfSparse();
+    }
+
+    /**
+     * Rewrites the segment without its superseded records once they outnumber the live ones.
+     */
+    private void compactIfSparse() {
+        if (segment != null && segment.count() > COMPACT_FACTOR * size + COMPACT_SLACK_RECORDS) {
+            rewriteSegment();
+        }
+    }
+
+    private void rewriteSegment() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.rewrite(Points.slice(timestamps, prices, volumes, marketCaps, 0, size));
+        } catch (IOException e) {
+            log.warn("Failed to compact chart segment for {}, continuing in memory only: {}", id, e.getMessage());
+            detachSegment();
+        }
+    }
+
+    private void keepKnownValues(Points incoming, int incomingIndex, int storedIndex) {
+        if (Double.isNaN(incoming.volumes[incomingIndex])) {
+            incoming.volumes[incomingIndex] = volumes[storedIndex];
+        }
+        if (Double.isNaN(incoming.marketCaps[incomingIndex])) {
+            incoming.marketCaps[incomingIndex] = marketCaps[storedIndex];
+        }
+    }
+
+    private long bucketOf(long timestamp) {
+        return Math.floorDiv(timestamp, bucketMillis);
+    }
+
+    /**
+     * Returns the buckets of the given resolution overlapping [fromMillis, toMillis] in the
+     * CoinGecko market_chart shape ({@code prices}, {@code market_caps}, {@code total_volumes})
+     * expected by existing callers. Each row is the bucket close at the time it was observed.
+     */
+    public synchronized Map<String, Object> toMarketChart(long fromMillis, long toMillis, ChartResolution resolution,
+                                                          int maxPoints, Downsampling downsampling) {
+        ChartRollup rollup = rollup(resolution);
+        int[] selected = select(rollup, fromMillis, toMillis, maxPoints, downsampling);
+
+        List<List<Number>> priceList = new ArrayList<>(selected.length);
+        List<List<Number>> marketCapList = new ArrayList<>(selected.length);
+        List<List<Number>> volumeList = new ArrayList<>(selected.length);
+        for (int i : selected) {
+            long timestamp = rollup.closeTimestamps[i];
+            priceList.add(List.of(timestamp, rollup.close[i]));
+            if (!Double.isNaN(rollup.marketCap[i])) {
+                marketCapList.add(List.of(timestamp, rollup.marketCap[i]));
+            }
+            if (!Double.isNaN(rollup.volume[i])) {
+                volumeList.add(List.of(timestamp, rollup.volume[i]));
+            }
+        }
+
+        Map<String, Object> chart = new LinkedHashMap<>();
+        chart.put("prices", priceList);
+        chart.put("market_caps", marketCapList);
+        chart.put("total_volumes", volumeList);
+        return chart;
+    }
+
+    /**
+     * Returns the bucket closes overlapping [fromMillis, toMillis] as chart data points for the
+     * analysis services.
+     */
+    public synchronized List<ChartDataPoint> toChartDataPoints(long fromMillis, long toMillis, ChartResolution resolution) {
+        ChartRollup rollup = rollup(resolution);
+        int[] selected = select(rollup, fromMillis, toMillis, 0, Downsampling.NONE);
+
+        List<ChartDataPoint> points = new ArrayList<>(selected.length);
+        for (int i : selected) {
+            points.add(new ChartDataPoint(rollup.closeTimestamps[i], rollup.close[i]));
+        }
+        return points;
+    }
+
+    /**
+     * Returns the OHLCV buckets overlapping [fromMillis, toMillis], decimated to at most
+     * {@code maxPoints} buckets when it is positive.
+     */
+    public synchronized List<ChartCandle> toCandles(long fromMillis, long toMillis, ChartResolution resolution,
+                                                    int maxPoints, Downsampling downsampling) {
+        ChartRollup rollup = rollup(resolution);
+        int[] selected = select(rollup, fromMillis, toMillis, maxPoints, downsampling);
+
+        List<ChartCandle> candles = new ArrayList<>(selected.length);
+        for (int i : selected) {
+            candles.add(ChartCandle.builder()
+                    .timestamp(rollup.timestamps[i])
+                    .open(rollup.open[i])
+                    .high(rollup.high[i])
+                    .low(rollup.low[i])
+                    .close(rollup.close[i])
+                    .volume(Double.isNaN(rollup.volume[i]) ? null : rollup.volume[i])
+                    .marketCap(Double.isNaN(rollup.marketCap[i]) ? null : rollup.marketCap[i])
+                    .build());
+        }
+        return candles;
+    }
+
+    /**
+     * Thins points that outlived the retention of their level to one per bucket of the next,
+     * coarser level, the newest point of each winning, and drops points past the coarsest
+     * retention, much as the provider itself thins older history. Runs at most once per base
+     * bucket unless a merge backfilled older points.
+     * <p>
+     * Thinning only happens in memory and only rolls up the buckets from the first changed point
+     * on. The segment keeps the thinned records until {@link #compactIfSparse()} rewrites it, and
+     * {@link #restore} thins them again.
+     */
+    private void applyRetention(long now, boolean backfilled) {
+        if (size == 0 || (!backfilled && now < retentionAppliedAt + bucketMillis)) {
+            return;
+        }
+        retentionAppliedAt = now;
+        ChartResolution[] levels = ChartResolution.values();
+        int kept = 0;
+        int lastLevel = -1;
+        long lastBucket = 0;
+        // Oldest timestamp whose position changes; everything before it is left as it was
+        long changedFrom = Long.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            int level = 0;
+            while (level < levels.length && timestamps[i] < now - retentionMillis[level]) {
+                level++;
+            }
+            if (level == levels.length) {
+                continue;
+            }
+            long bucket = Math.floorDiv(timestamps[i], levels[level].getBucketMillis());
+            boolean sameBucket = kept > 0 && level == lastLevel && bucket == lastBucket;
+            int target = sameBucket ? kept - 1 : kept++;
+            if (target != i && changedFrom == Long.MAX_VALUE) {
+                changedFrom = timestamps[target];
+            }
+            volumes[target] = sameBucket && Double.isNaN(volumes[i]) ? volumes[target] : volumes[i];
+            marketCaps[target] = sameBucket && Double.isNaN(marketCaps[i]) ? marketCaps[target] : marketCaps[i];
+            timestamps[target] = timestamps[i];
+            prices[target] = prices[i];
+            lastLevel = level;
+            lastBucket = bucket;
+        }
+        if (kept == size) {
+            return;
+        }
+        if (changedFrom == Long.MAX_VALUE) {
+            // Every point was past the coarsest retention
+            changedFrom = timestamps[kept];
+        }
+        log.debug("Thinned chart series {} from {} to {} points", id, size, kept);
+        size = kept;
+        refreshRollups(changedFrom);
+        compactIfSparse();
+    }
+
+    /**
+     * Rolls the cached levels up again from the bucket holding {@code changedFrom} on, finest
+     * first so each coarser level reads an up to date finer one.
+     */
+    private void refreshRollups(long changedFrom) {
+        ChartRollup finer = null;
+        for (ChartResolution resolution : ChartResolution.values()) {
+            ChartRollup level = rollups.get(resolution);
+            if (level == null) {
+                // Coarser levels are built from this one, so none of them is cached either
+                return;
+            }
+            if (finer == null) {
+                level.refreshFromPoints(timestamps, prices, volumes, marketCaps, size, changedFrom);
+            } else {
+                level.refreshFrom(finer, changedFrom);
+            }
+            finer = level;
+        }
+    }
+
+    /**
+     * Returns a level of the rollup pyramid, building it from the next finer level on first use.
+     * Merges keep the built levels up to date.
+     */
+    private ChartRollup rollup(ChartResolution resolution) {
+        ChartRollup cached = rollups.get(resolution);
+        if (cached != null) {
+            return cached;
+        }
+        ChartRollup built = resolution.ordinal() == 0
+                ? ChartRollup.fromPoints(timestamps, prices, volumes, marketCaps, size, resolution.getBucketMillis())
+                : rollup(ChartResolution.values()[resolution.ordinal() - 1]).rollUp(resolution.getBucketMillis());
+        rollups.put(resolution, built);
+        return built;
+    }
+
+    private int[] select(ChartRollup rollup, long fromMillis, long toMillis, int maxPoints, Downsampling downsampling) {
+        int start = rollup.lowerBound(fromMillis);
+        int end = rollup.upperBound(toMillis);
+        if (end <= start) {
+            return new int[0];
+        }
+        return downsampling.select(rollup.closeTimestamps, rollup.close, rollup.low, rollup.high, start, end, maxPoints);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= timestamps.length) {
+            return;
+        }
+        int capacity = Math.max(required, timestamps.length * 2);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        volumes = Arrays.copyOf(volumes, capacity);
+        marketCaps = Arrays.copyOf(marketCaps, capacity);
+    }
+
+    /**
+     * A sorted, de-duplicated batch of points parsed from a provider response, or the records
+     * of a segment in the order they were written.
+     */
+    public static final class Points {
+        final long[] timestamps;
+        final double[] prices;
+        final double[] volumes;
+        final double[] marketCaps;
+        final int size;
+
+        Points(long[] timestamps, double[] prices, double[] volumes, double[] marketCaps, int size) {
+            this.timestamps = timestamps;
+            this.prices = prices;
+            this.volumes = volumes;
+            this.marketCaps = marketCaps;
+            this.size = size;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        static Points slice(long[] timestamps, double[] prices, double[] volumes, double[] marketCaps, int from, int to) {
+            return new Points(Arrays.copyOfRange(timestamps, from, to), Arrays.copyOfRange(prices, from, to),
+                    Arrays.copyOfRange(volumes, from, to), Arrays.copyOfRange(marketCaps, from, to), to - from);
+        }
+
+        static Points select(long[] timestamps, double[] prices, double[] volumes, double[] marketCaps, int[] indices) {
+            Points selected = new Points(new long[indices.length], new double[indices.length],
+                    new double[indices.length], new double[indices.length], indices.length);
+            for (int i = 0; i < indices.length; i++) {
+                selected.timestamps[i] = timestamps[indices[i]];
+                selected.prices[i] = prices[indices[i]];
+                selected.volumes[i] = volumes[indices[i]];
+                selected.marketCaps[i] = marketCaps[indices[i]];
+            }
+            return selected;
+        }
+
+        /**
+         * Folds records in the order they were written into sorted points, the last record of
+         * each bucket winning.
+         */
+        Points latestPerBucket(long bucketMillis) {
+            Integer[] order = new Integer[size];
+            boolean folded = true;
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+                folded &= i == 0 || Math.floorDiv(timestamps[i - 1], bucketMillis) < Math.floorDiv(timestamps[i], bucketMillis);
+            }
+            if (folded) {
+                return this;
+            }
+            // Stable, so records of one bucket stay in the order they were written
+            Arrays.sort(order, (a, b) -> Long.compare(Math.floorDiv(timestamps[a], bucketMillis),
+                    Math.floorDiv(timestamps[b], bucketMillis)));
+            int[] latest = new int[size];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                boolean sameBucket = count > 0 && Math.floorDiv(timestamps[latest[count - 1]], bucketMillis)
+                        == Math.floorDiv(timestamps[order[i]], bucketMillis);
+                latest[sameBucket ? count - 1 : count++] = order[i];
+            }
+            return select(timestamps, prices, volumes, marketCaps, Arrays.copyOf(latest, count));
+        }
+
+        /**
+         * Keeps the newest point of each bucket. Missing volume or market cap values fall back
+         * to an older point of the same bucket.
+         */
+        Points collapse(long bucketMillis) {
+            if (size < 2) {
+                return this;
+            }
+            long[] collapsedTimestamps = new long[size];
+            double[] collapsedPrices = new double[size];
+            double[] collapsedVolumes = new double[size];
+            double[] collapsedMarketCaps = new double[size];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                boolean sameBucket = count > 0
+                        && Math.floorDiv(collapsedTimestamps[count - 1], bucketMillis) == Math.floorDiv(timestamps[i], bucketMillis);
+                int target = sameBucket ? count - 1 : count++;
+                collapsedTimestamps[target] = timestamps[i];
+                collapsedPrices[target] = prices[i];
+                collapsedVolumes[target] = sameBucket && Double.isNaN(volumes[i]) ? collapsedVolumes[target] : volumes[i];
+                collapsedMarketCaps[target] = sameBucket && Double.isNaN(marketCaps[i]) ? collapsedMarketCaps[target] : marketCaps[i];
+            }
+            return count == size ? this : new Points(collapsedTimestamps, collapsedPrices, collapsedVolumes, collapsedMarketCaps, count);
+        }
+
+        /**
+         * Parses a CoinGecko market_chart body. The {@code prices} array is the timestamp spine;
+         * market caps and volumes are joined onto it by timestamp.
+         */
+        public static Points fromMarketChart(Map<String, Object> chart) {
+            if (chart == null) {
+                return new Points(new long[0], new double[0], new double[0], new double[0], 0);
+            }
+
+            List<?> priceRows = chart.get("prices") instanceof List ? (List<?>) chart.get("prices") : List.of();
+            long[] timestamps = new long[priceRows.size()];
+            double[] prices = new double[priceRows.size()];
+            int count = 0;
+            boolean sorted = true;
+            for (Object row : priceRows) {
+                if (!(row instanceof List) || ((List<?>) row).size() < 2) {
+                    continue;
+                }
+                Object ts = ((List<?>) row).get(0);
+                Object price = ((List<?>) row).get(1);
+                if (!(ts instanceof Number) || !(price instanceof Number)) {
+                    continue;
+                }
+                timestamps[count] = ((Number) ts).longValue();
+                prices[count] = ((Number) price).doubleValue();
+                if (count > 0 && timestamps[count] <= timestamps[count - 1]) {
+                    sorted = false;
+                }
+                count++;
+            }
+
+            if (!sorted) {
+                return sortAndJoin(timestamps, prices, count, chart);
+            }
+
+            double[] volumes = joinByTimestamp(timestamps, count, chart.get("total_volumes"));
+            double[] marketCaps = joinByTimestamp(timestamps, count, chart.get("market_caps"));
+            return new Points(timestamps, prices, volumes, marketCaps, count);
+        }
+
+        private static Points sortAndJoin(long[] timestamps, double[] prices, int count, Map<String, Object> chart) {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(timestamps[a], timestamps[b]));
+
+            long[] sortedTimestamps = new long[count];
+            double[] sortedPrices = new double[count];
+            int unique = 0;
+            for (int i = 0; i < count; i++) {
+                int source = order[i];
+                if (unique > 0 && sortedTimestamps[unique - 1] == timestamps[source]) {
+                    sortedPrices[unique - 1] = prices[source];
+                    continue;
+                }
+                sortedTimestamps[unique] = timestamps[source];
+                sortedPrices[unique] = prices[source];
+                unique++;
+            }
+
+            double[] volumes = joinByTimestamp(sortedTimestamps, unique, chart.get("total_volumes"));
+            double[] marketCaps = joinByTimestamp(sortedTimestamps, unique, chart.get("market_caps"));
+            return new Points(sortedTimestamps, sortedPrices, volumes, marketCaps, unique);
+        }
+
+        private static double[] joinByTimestamp(long[] spine, int count, Object rows) {
+            double[] values = new double[count];
+            Arrays.fill(values, Double.NaN);
+            if (!(rows instanceof List)) {
+                return values;
+            }
+            for (Object row : (List<?>) rows) {
+                if (!(row instanceof List) || ((List<?>) row).size() < 2) {
+                    continue;
+                }
+                Object ts = ((List<?>) row).get(0);
+                Object value = ((List<?>) row).get(1);
+                if (!(ts instanceof Number) || !(value instanceof Number)) {
+                    continue;
+                }
+                int index = Arrays.binarySearch(spine, 0, count, ((Number) ts).longValue());
+                if (index >= 0) {
+                    values[index] = ((Number) value).doubleValue();
+                }
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package crypto.insight.crypto.service.chart;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import crypto.insight.crypto.config.properties.ChartStoreProperties;
+import crypto.insight.crypto.model.ChartCandle;
+import crypto.insight.crypto.model.ChartDataPoint;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Local time-series store for market chart history.
+ * Provider responses are ingested once into per-coin {@link ChartSeries} columns and
+ * "last N days" queries are answered from memory while the series is fresh and covers the range.
+ * <p>
+ * With persistence enabled every series is backed by a memory-mapped {@link ChartSegmentFile}
+ * named after the percent-encoded coin id. Startup only lists the segment directory; a segment
+ * is mapped the first time its coin is requested, and series evicted from memory are flushed
+ * and re-mapped on demand. Callers pin a series while they use it, so an evicted series keeps
+ * its segment open until the last of them is done, and is taken back if requested meanwhile.
+ */
+@Slf4j
+@Service
+public class ChartSeriesStore {
+
+    static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+    /** Raw points are kept at the finest pyramid level, which is also the finest provider granularity */
+    private static final long SERIES_BUCKET_MILLIS = ChartResolution.FIVE_MINUTES.getBucketMillis();
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    /**
+     * How much of a requested window the store can answer
+     */
+    public enum Coverage {
+        /** Covers the window and was ingested within the staleness bound */
+        FRESH,
+        /** Covers the head of the window but the tail needs a top-up */
+        STALE,
+        /** Nothing usable stored for the window */
+        MISSING
+    }
+
+    private final ChartStoreProperties properties;
+    private final Cache<String, ChartSeries> series;
+    // Evicted series still pinned by a caller, by key, until they close
+    private final Map<String, ChartSeries> retiring = new ConcurrentHashMap<>();
+    private final Set<String> persistedIds = ConcurrentHashMap.newKeySet();
+    private final Path directory;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong ingestedPoints = new AtomicLong();
+    private final AtomicLong segmentsMapped = new AtomicLong();
+
+    public ChartSeriesStore(ChartStoreProperties properties) {
+        this.properties = properties;
+        this.series = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSeries())
+                .<String, ChartSeries>evictionListener((key, evicted, cause) -> {
+                    if (key != null && evicted != null) {
+                        retire(key, evicted);
+                    }
+                })
+                .build();
+        this.directory = properties.isPersistenceEnabled() ? openDirectory(properties.getDirectory()) : null;
+    }
+
+    /**
+     * Merges a CoinGecko market_chart body into the series for the given coin.
+     */
+    public void ingest(String id, Map<String, Object> marketChart) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        ChartSeries.Points points = ChartSeries.Points.fromMarketChart(marketChart);
+        if (points.size() == 0) {
+            return;
+        }
+        String key = normalize(id);
+        ChartSeries stored = acquire(key, true);
+        int added;
+        try {
+            added = stored.merge(points);
+        } finally {
+            release(key, stored);
+        }
+        ingestedPoints.addAndGet(added);
+        log.debug("Ingested {} new chart points for {}", added, id);
+    }
+
+    /**
+     * Classifies how well the stored series answers the last {@code days} of history.
+     */
+    public Coverage coverage(String id, int days) {
+        long now = System.currentTimeMillis();
+        Coverage coverage = read(id, Coverage.MISSING, stored -> {
+            // Provider windows start on a day boundary, so allow one day of slack at the head
+            if (stored.size() == 0 || stored.firstTimestamp() > now - (days - 1) * DAY_MILLIS) {
+                return Coverage.MISSING;
+            }
+            return now - stored.getLastIngestedAt() > properties.getMaxStaleness().toMillis()
+                    ? Coverage.STALE
+                    : Coverage.FRESH;
+        });
+        switch (coverage) {
+            case FRESH -> hits.incrementAndGet();
+            case STALE -> staleHits.incrementAndGet();
+            case MISSING -> misses.incrementAndGet();
+        }
+        return coverage;
+    }
+
+    /**
+     * Timestamp of the newest stored point, used as the lower bound of tail refreshes.
+     */
+    public OptionalLong newestTimestamp(String id) {
+        return read(id, OptionalLong.empty(),
+                stored -> stored.size() == 0 ? OptionalLong.empty() : OptionalLong.of(stored.lastTimestamp()));
+    }
+
+    /**
+     * Number of days to request when nothing usable is stored. Fetching the configured history
+     * window once lets every shorter range be answered from the same series.
+     */
+    public int fetchWindowDays(int days) {
+        return properties.isEnabled() ? Math.max(days, properties.getHistoryDays()) : days;
+    }
+
+    /**
+     * Windows, in days back from now, to request for the levels finer than daily when nothing
+     * is stored. The {@link #fetchWindowDays} request brings daily points only, so each of them
+     * needs its own request.
+     */
+    public List<Integer> intradayWindowDays() {
+        if (!properties.isEnabled()) {
+            return List.of();
+        }
+        return Arrays.stream(ChartResolution.values())
+                .filter(resolution -> resolution != ChartResolution.DAILY)
+                .map(ChartResolution::getProviderWindowDays)
+                .toList();
+    }
+
+    /**
+     * Reads the last {@code days} of stored history in daily market_chart shape.
+     */
+    public Map<String, Object> readMarketChart(String id, int days) {
+        return readMarketChart(id, days, ChartResolution.DAILY, 0, Downsampling.NONE);
+    }
+
+    /**
+     * Reads the last {@code days} of stored history in market_chart shape at the given resolution.
+     */
+    public Map<String, Object> readMarketChart(String id, int days, ChartResolution resolution,
+                                               int maxPoints, Downsampling downsampling) {
+        long now = System.currentTimeMillis();
+        return read(id, Map.of("prices", List.of(), "market_caps", List.of(), "total_volumes", List.of()),
+                stored -> stored.toMarketChart(now - days * DAY_MILLIS, now, resolution, maxPoints, downsampling));
+    }
+
+    /**
+     * Reads the last {@code days} of stored history as daily chart data points.
+     */
+    public List<ChartDataPoint> readChartDataPoints(String id, int days) {
+        long now = System.currentTimeMillis();
+        return read(id, List.of(), stored -> stored.toChartDataPoints(now - days * DAY_MILLIS, now, ChartResolution.DAILY));
+    }
+
+    /**
+     * Reads the last {@code days} of stored history as OHLCV candles.
+     */
+    public List<ChartCandle> readCandles(String id, int days, ChartResolution resolution,
+                                         int maxPoints, Downsampling downsampling) {
+        long now = System.currentTimeMillis();
+        return read(id, List.of(), stored -> stored.toCandles(now - days * DAY_MILLIS, now, resolution, maxPoints, downsampling));
+    }
+
+    /**
+     * Rolls a provider market_chart body that could not be stored up into candles.
+     */
+    public List<ChartCandle> toCandles(Map<String, Object> marketChart, int days, ChartResolution resolution,
+                                       int maxPoints, Downsampling downsampling) {
+        ChartSeries transientSeries = new ChartSeries("transient", SERIES_BUCKET_MILLIS);
+        transientSeries.merge(ChartSeries.Points.fromMarketChart(marketChart));
+        long now = System.currentTimeMillis();
+        return transientSeries.toCandles(now - days * DAY_MILLIS, now, resolution, maxPoints, downsampling);
+    }
+
+    public void evict(String id) {
+        String key = normalize(id);
+        ChartSeries removed = series.asMap().remove(key);
+        if (removed != null) {
+            retire(key, removed);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        series.asMap().values().forEach(ChartSeries::close);
+        retiring.values().forEach(ChartSeries::close);
+    }
+
+    /**
+     * Applies {@code reader} to the pinned series of the coin, or returns {@code missing} when
+     * nothing is stored for it.
+     */
+    private <T> T read(String id, T missing, Function<ChartSeries, T> reader) {
+        if (!properties.isEnabled()) {
+            return missing;
+        }
+        String key = normalize(id);
+        ChartSeries stored = acquire(key, false);
+        if (stored == null) {
+            return missing;
+        }
+        try {
+            return reader.apply(stored);
+        } finally {
+            release(key, stored);
+        }
+    }
+
+    /**
+     * The series of the coin, pinned until {@link #release}. Without {@code create} only a
+     * series in memory or on disk is returned, and null otherwise.
+     */
+    private ChartSeries acquire(String key, boolean create) {
+        while (true) {
+            ChartSeries stored = series.getIfPresent(key);
+            if (stored == null && (create || persistedIds.contains(key))) {
+                stored = series.get(key, this::openSeries);
+            }
+            if (stored == null || stored.pin()) {
+                return stored;
+            }
+            // Evicted between the lookup and the pin, so the next lookup reloads or revives it
+        }
+    }
+
+    private void release(String key, ChartSeries stored) {
+        if (stored.unpin()) {
+            retiring.remove(key, stored);
+        }
+    }
+
+    private void retire(String key, ChartSeries evicted) {
+        retiring.put(key, evicted);
+        if (evicted.evict()) {
+            retiring.remove(key, evicted);
+        }
+    }
+
+    private ChartSeries openSeries(String key) {
+        ChartSeries retired = retiring.remove(key);
+        if (retired != null && retired.revive()) {
+            return retired;
+        }
+        if (directory == null) {
+            return new ChartSeries(key, SERIES_BUCKET_MILLIS, retention());
+        }
+        Path path = directory.resolve(fileNameFor(key));
+        ChartSegmentFile segment = null;
+        try {
+            segment = ChartSegmentFile.open(path);
+            ChartSeries restored = ChartSeries.restore(key, SERIES_BUCKET_MILLIS, retention(), segment);
+            persistedIds.add(key);
+            segmentsMapped.incrementAndGet();
+            log.debug("Mapped chart segment {} ({} points)", path, restored.size());
+            return restored;
+        } catch (IOException e) {
+            log.warn("Could not map chart segment {}, keeping {} in memory only: {}", path, key, e.getMessage());
+            closeQuietly(segment);
+            return new ChartSeries(key, SERIES_BUCKET_MILLIS, retention());
+        }
+    }
+
+    private Map<ChartResolution, Duration> retention() {
+        return Map.of(ChartResolution.FIVE_MINUTES, properties.getFiveMinuteRetention(),
+                ChartResolution.HOURLY, properties.getHourlyRetention(),
+                ChartResolution.DAILY, properties.getDailyRetention());
+    }
+
+    private void closeQuietly(ChartSegmentFile segment) {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.close();
+        } catch (IOException e) {
+            log.debug("Failed to close chart segment {}: {}", segment.getPath(), e.getMessage());
+        }
+    }
+
+    private Path openDirectory(String location) {
+        Path path = Paths.get(location);
+        try {
+            Files.createDirectories(path);
+            try (Stream<Path> files = Files.list(path)) {
+                files.map(file -> file.getFileName().toString())
+                        .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                        .map(name -> keyFor(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                        .filter(Objects::nonNull)
+                        .forEach(persistedIds::add);
+            }
+            log.info("Chart store found {} persisted segments in {}", persistedIds.size(), path.toAbsolutePath());
+            return path;
+        } catch (IOException e) {
+            log.warn("Chart store directory {} is not usable, persistence disabled: {}", location, e.getMessage());
+            return null;
+        }
+    }
+
+    /** Percent-encodes the key, which keeps plain coin ids as they are and never maps two keys to one file */
+    static String fileNameFor(String key) {
+        return URLEncoder.encode(key, StandardCharsets.UTF_8) + SEGMENT_SUFFIX;
+    }
+
+    private static String keyFor(String encoded) {
+        try {
+            return URLDecoder.decode(encoded, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            log.debug("Ignoring chart segment with an undecodable name: {}", encoded);
+            return null;
+        }
+    }
+
+    private String normalize(String id) {
+        return id.trim().toLowerCase();
+    }
+
+    /**
+     * Get store statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        long totalPoints = series.asMap().values().stream().mapToLong(ChartSeries::size).sum();
+        stats.put("series", series.estimatedSize());
+        stats.put("points", totalPoints);
+        stats.put("approxBytes", totalPoints * (Long.BYTES + 3 * Double.BYTES));
+        stats.put("hits", hits.get());
+        stats.put("staleHits", staleHits.get());
+        stats.put("misses", misses.get());
+        stats.put("ingestedPoints", ingestedPoints.get());
+        stats.put("persistenceEnabled", directory != null);
+        stats.put("persistedSegments", persistedIds.size());
+        stats.put("segmentsMapped", segmentsMapped.get());
+        return stats;
+    }
+}
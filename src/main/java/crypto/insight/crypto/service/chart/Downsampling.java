@@ -0,0 +1,123 @@
+package crypto.insight.crypto.service.chart;
+
+import java.util.Arrays;
+
+/**
+ * Decimation applied when a chart window holds more buckets than the caller asked for.
+ */
+public enum Downsampling {
+    /** Return every bucket */
+    NONE {
+        @Override
+        int[] select(long[] timestamps, double[] values, double[] lows, double[] highs, int from, int to, int maxPoints) {
+            return range(from, to);
+        }
+    },
+    /** Largest-Triangle-Three-Buckets on the close price, keeps the visual shape of the line */
+    LTTB {
+        @Override
+        int[] select(long[] timestamps, double[] values, double[] lows, double[] highs, int from, int to, int maxPoints) {
+            int count = to - from;
+            if (maxPoints <= 0 || count <= maxPoints) {
+                return range(from, to);
+            }
+            if (maxPoints < 3) {
+                return edges(from, to, maxPoints);
+            }
+            int[] selected = new int[maxPoints];
+            int selectedCount = 0;
+            selected[selectedCount++] = from;
+
+            double bucketSize = (double) (count - 2) / (maxPoints - 2);
+            int anchor = from;
+            for (int bucket = 0; bucket < maxPoints - 2; bucket++) {
+                int bucketStart = from + 1 + (int) Math.floor(bucket * bucketSize);
+                int bucketEnd = from + 1 + (int) Math.floor((bucket + 1) * bucketSize);
+                int nextStart = bucketEnd;
+                int nextEnd = Math.min(to, from + 1 + (int) Math.floor((bucket + 2) * bucketSize));
+                if (bucket == maxPoints - 3) {
+                    nextStart = to - 1;
+                    nextEnd = to;
+                }
+
+                double avgX = 0;
+                double avgY = 0;
+                for (int i = nextStart; i < nextEnd; i++) {
+                    avgX += timestamps[i];
+                    avgY += values[i];
+                }
+                int nextCount = Math.max(1, nextEnd - nextStart);
+                avgX /= nextCount;
+                avgY /= nextCount;
+
+                double maxArea = -1;
+                int chosen = bucketStart;
+                for (int i = bucketStart; i < bucketEnd; i++) {
+                    double area = Math.abs((timestamps[anchor] - avgX) * (values[i] - values[anchor])
+                            - (timestamps[anchor] - timestamps[i]) * (avgY - values[anchor]));
+                    if (area > maxArea) {
+                        maxArea = area;
+                        chosen = i;
+                    }
+                }
+                selected[selectedCount++] = chosen;
+                anchor = chosen;
+            }
+            selected[selectedCount] = to - 1;
+            return selected;
+        }
+    },
+    /** Keeps the lowest low and highest high of each group, so spikes survive decimation */
+    MIN_MAX {
+        @Override
+        int[] select(long[] timestamps, double[] values, double[] lows, double[] highs, int from, int to, int maxPoints) {
+            int count = to - from;
+            if (maxPoints <= 0 || count <= maxPoints) {
+                return range(from, to);
+            }
+            if (maxPoints < 2) {
+                return edges(from, to, maxPoints);
+            }
+            int groups = maxPoints / 2;
+            int[] selected = new int[groups * 2];
+            int selectedCount = 0;
+            for (int group = 0; group < groups; group++) {
+                int groupStart = from + (int) ((long) group * count / groups);
+                int groupEnd = from + (int) ((long) (group + 1) * count / groups);
+                int min = groupStart;
+                int max = groupStart;
+                for (int i = groupStart + 1; i < groupEnd; i++) {
+                    if (lows[i] < lows[min]) {
+                        min = i;
+                    }
+                    if (highs[i] > highs[max]) {
+                        max = i;
+                    }
+                }
+                selected[selectedCount++] = Math.min(min, max);
+                if (min != max) {
+                    selected[selectedCount++] = Math.max(min, max);
+                }
+            }
+            return selectedCount == selected.length ? selected : Arrays.copyOf(selected, selectedCount);
+        }
+    };
+
+    /**
+     * Returns the ascending indices in {@code [from, to)} to keep, at most {@code maxPoints}
+     * of them when {@code maxPoints > 0}.
+     */
+    abstract int[] select(long[] timestamps, double[] values, double[] lows, double[] highs, int from, int to, int maxPoints);
+
+    private static int[] range(int from, int to) {
+        int[] indices = new int[Math.max(0, to - from)];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = from + i;
+        }
+        return indices;
+    }
+
+    private static int[] edges(int from, int to, int maxPoints) {
+        return maxPoints == 1 ? new int[]{to - 1} : new int[]{from, to - 1};
+    }
+}
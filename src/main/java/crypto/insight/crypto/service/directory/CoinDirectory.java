@@ -0,0 +1,232 @@
+package crypto.insight.crypto.service.directory;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import crypto.insight.crypto.config.ApiProperties;
+import crypto.insight.crypto.config.properties.CoinDirectoryProperties;
+import crypto.insight.crypto.model.coingecko.CoinGeckoCoin;
+import crypto.insight.crypto.service.provider.RequestPriority;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local directory of every listed coin, joined from the CoinGecko and CoinPaprika coin lists
+ * and refreshed in the background. Search and exact identity lookups are answered from an
+ * in-memory {@link CoinSearchIndex} without calling any provider.
+ */
+@Slf4j
+@Service
+public class CoinDirectory {
+
+    private static final Duration DOWNLOAD_TIMEOUT = Duration.ofMinutes(1);
+
+    private final WebClient webClient;
+    private final ApiProperties apiProperties;
+    private final CoinDirectoryProperties properties;
+
+    private volatile CoinSearchIndex index = CoinSearchIndex.EMPTY;
+    private volatile Instant lastRefresh;
+    private volatile Disposable refreshTask;
+
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong failedRefreshes = new AtomicLong();
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong lookupHits = new AtomicLong();
+
+    public CoinDirectory(WebClient.Builder webClientBuilder, ApiProperties apiProperties,
+                         CoinDirectoryProperties properties) {
+        this.webClient = webClientBuilder.build();
+        this.apiProperties = apiProperties;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            log.info("Coin directory disabled; search and identity resolution use the providers");
+            return;
+        }
+        refreshTask = Flux.interval(properties.getInitialDelay(), properties.getRefreshInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> refresh())
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Disposable task = refreshTask;
+        if (task != null) {
+            task.dispose();
+        }
+    }
+
+    /**
+     * Downloads both coin lists and swaps in a new index. The previous index stays in place when
+     * neither list could be downloaded.
+     *
+     * @return the number of coins in the directory afterwards
+     */
+    public Mono<Integer> refresh() {
+        return Mono.zip(coinGeckoCoins(), coinPaprikaCoins())
+                .publishOn(Schedulers.boundedElastic())
+                .map(lists -> join(lists.getT1(), lists.getT2()))
+                .filter(coins -> !coins.isEmpty())
+                .map(coins -> {
+                    long start = System.nanoTime();
+                    CoinSearchIndex built = new CoinSearchIndex(coins);
+                    index = built;
+                    lastRefresh = Instant.now();
+                    refreshes.incrementAndGet();
+                    log.info("Coin directory refreshed with {} coins (index built in {} ms)",
+                            built.size(), (System.nanoTime() - start) / 1_000_000);
+                    return built.size();
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    failedRefreshes.incrementAndGet();
+                    log.warn("Coin directory refresh got no coins; keeping the previous {} entries", index.size());
+                    return index.size();
+                }))
+                .contextWrite(RequestPriority.BULK.asContext());
+    }
+
+    public boolean isLoaded() {
+        return properties.isEnabled() && index.size() > 0;
+    }
+
+    /**
+     * Ranked autocomplete and fuzzy matches for {@code query}; empty until the first refresh.
+     */
+    public List<CoinDirectoryEntry> search(String query, int limit) {
+        if (!properties.isEnabled()) {
+            return List.of();
+        }
+        searches.incrementAndGet();
+        return index.search(query, limit, properties.getMinSimilarity());
+    }
+
+    /**
+     * The coin {@code query} names exactly by id, symbol or name, best market cap rank first.
+     */
+    public Optional<CoinDirectoryEntry> lookup(String query) {
+        if (!properties.isEnabled()) {
+            return Optional.empty();
+        }
+        lookups.incrementAndGet();
+        Optional<CoinDirectoryEntry> entry = index.lookup(query);
+        if (entry.isPresent()) {
+            lookupHits.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Get coin directory statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("coins", index.size());
+        stats.put("lastRefresh", lastRefresh != null ? lastRefresh.toString() : null);
+        stats.put("refreshes", refreshes.get());
+        stats.put("failedRefreshes", failedRefreshes.get());
+        stats.put("searches", searches.get());
+        stats.put("lookups", lookups.get());
+        stats.put("lookupHits", lookupHits.get());
+        return stats;
+    }
+
+    /**
+     * Pairs coins listed by both providers under the same symbol and name; coins only one of
+     * them lists are kept with the other id missing. Only CoinPaprika publishes a rank.
+     */
+    private static List<CoinDirectoryEntry> join(List<CoinGeckoCoin> geckoCoins, List<PaprikaCoin> paprikaCoins) {
+        Map<String, PaprikaCoin> unmatched = new LinkedHashMap<>();
+        for (PaprikaCoin coin : paprikaCoins) {
+            if (!Boolean.FALSE.equals(coin.getActive()) && coin.getId() != null) {
+                unmatched.merge(joinKey(coin.getSymbol(), coin.getName()), coin,
+                        (current, other) -> rankOf(other) != null
+                                && (rankOf(current) == null || rankOf(other) < rankOf(current)) ? other : current);
+            }
+        }
+        List<CoinDirectoryEntry> entries = new ArrayList<>(geckoCoins.size() + unmatched.size());
+        for (CoinGeckoCoin coin : geckoCoins) {
+            if (coin.getId() == null) {
+                continue;
+            }
+            PaprikaCoin paprika = unmatched.remove(joinKey(coin.getSymbol(), coin.getName()));
+            entries.add(new CoinDirectoryEntry(coin.getId(), paprika != null ? paprika.getId() : null,
+                    upper(coin.getSymbol()), coin.getName(), paprika != null ? rankOf(paprika) : null));
+        }
+        for (PaprikaCoin paprika : unmatched.values()) {
+            entries.add(new CoinDirectoryEntry(null, paprika.getId(), upper(paprika.getSymbol()),
+                    paprika.getName(), rankOf(paprika)));
+        }
+        return entries;
+    }
+
+    private Mono<List<CoinGeckoCoin>> coinGeckoCoins() {
+        // Top-level arrays are decoded element by element, so the full list never sits in one buffer
+        return download(apiProperties.getCoinGeckoBaseUrl() + "/coins/list", CoinGeckoCoin.class);
+    }
+
+    private Mono<List<PaprikaCoin>> coinPaprikaCoins() {
+        return download(apiProperties.getCoinpaprika().getBaseUrl() + "/coins", PaprikaCoin.class);
+    }
+
+    private <T> Mono<List<T>> download(String url, Class<T> type) {
+        return webClient.get()
+                .uri(url)
+                .retrieve()
+                .bodyToFlux(type)
+                .collectList()
+                .timeout(DOWNLOAD_TIMEOUT)
+                .onErrorResume(e -> {
+                    log.warn("Coin directory download from {} failed: {}", url, e.getMessage());
+                    return Mono.just(List.of());
+                });
+    }
+
+    private static String joinKey(String symbol, String name) {
+        return CoinSearchIndex.normalize(symbol) + "|" + CoinSearchIndex.normalize(name);
+    }
+
+    private static String upper(String symbol) {
+        return symbol != null ? symbol.toUpperCase(Locale.ROOT) : null;
+    }
+
+    /** CoinPaprika reports 0 for unranked coins */
+    private static Integer rankOf(PaprikaCoin coin) {
+        return coin.getRank() > 0 ? coin.getRank() : null;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class PaprikaCoin {
+        private String id;
+        private String name;
+        private String symbol;
+        private int rank;
+        @JsonProperty("is_active")
+        private Boolean active;
+    }
+}
@@ -0,0 +1,29 @@
+package crypto.insight.crypto.service.directory;
+
+import crypto.insight.crypto.model.CryptoIdentity;
+import crypto.insight.crypto.model.Cryptocurrency;
+
+/**
+ * One coin of the local directory: its ids at the providers that publish a full coin list,
+ * and its market cap rank when known.
+ */
+public record CoinDirectoryEntry(String coingeckoId, String coinpaprikaId, String symbol, String name, Integer rank) {
+
+    public CryptoIdentity toIdentity(String query) {
+        CryptoIdentity identity = new CryptoIdentity(query);
+        identity.setSymbol(symbol);
+        identity.setName(name);
+        identity.setCoingeckoId(coingeckoId);
+        identity.setCoinpaprikaId(coinpaprikaId);
+        return identity;
+    }
+
+    public Cryptocurrency toCryptocurrency() {
+        return Cryptocurrency.builder()
+                .id(coingeckoId != null ? coingeckoId : coinpaprikaId)
+                .symbol(symbol)
+                .name(name)
+                .rank(rank)
+                .build();
+    }
+}
@@ -0,0 +1,221 @@
+package crypto.insight.crypto.service.directory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Immutable search index over the coin directory, rebuilt as a whole on every refresh.
+ * <p>
+ * Exact lookups go through hash maps. Autocomplete uses a sorted array of keys (symbols, names,
+ * the words of names and ids) searched by binary search, which gives a trie's prefix ranges in
+ * far less memory. Fuzzy search scores names by shared trigrams. Entries are stored best rank
+ * first, so an entry's position doubles as its popularity tie-breaker.
+ */
+final class CoinSearchIndex {
+
+    static final CoinSearchIndex EMPTY = new CoinSearchIndex(List.of());
+
+    private static final int EXACT_SYMBOL = 0;
+    private static final int EXACT_NAME_OR_ID = 1;
+    private static final int SYMBOL_PREFIX = 2;
+    private static final int NAME_PREFIX = 3;
+    private static final int FUZZY = 4;
+
+    private static final int[] NONE = new int[0];
+
+    private final CoinDirectoryEntry[] entries;
+    private final Map<String, int[]> bySymbol;
+    private final Map<String, int[]> byName;
+    private final Map<String, Integer> byId;
+    private final String[] prefixKeys;
+    private final int[] prefixEntries;
+    private final byte[] prefixTiers;
+    private final Map<String, int[]> trigrams;
+    private final int[] trigramCounts;
+
+    CoinSearchIndex(List<CoinDirectoryEntry> coins) {
+        this.entries = coins.stream()
+                .sorted(Comparator.comparing(CoinDirectoryEntry::rank, Comparator.nullsLast(Comparator.naturalOrder())))
+                .toArray(CoinDirectoryEntry[]::new);
+
+        Map<String, List<Integer>> symbols = new HashMap<>();
+        Map<String, List<Integer>> names = new HashMap<>();
+        Map<String, List<Integer>> grams = new HashMap<>();
+        this.byId = new HashMap<>();
+        this.trigramCounts = new int[entries.length];
+        List<PrefixKey> keys = new ArrayList<>();
+
+        for (int i = 0; i < entries.length; i++) {
+            CoinDirectoryEntry entry = entries[i];
+            String symbol = normalize(entry.symbol());
+            String name = normalize(entry.name());
+            if (!symbol.isEmpty()) {
+                symbols.computeIfAbsent(symbol, key -> new ArrayList<>()).add(i);
+                keys.add(new PrefixKey(symbol, i, SYMBOL_PREFIX));
+            }
+            if (!name.isEmpty()) {
+                names.computeIfAbsent(name, key -> new ArrayList<>()).add(i);
+                keys.add(new PrefixKey(name, i, NAME_PREFIX));
+                for (String word : name.split("[^a-z0-9]+")) {
+                    if (word.length() > 1 && !word.equals(name)) {
+                        keys.add(new PrefixKey(word, i, NAME_PREFIX));
+                    }
+                }
+                Set<String> nameGrams = trigramsOf(name);
+                trigramCounts[i] = nameGrams.size();
+                for (String gram : nameGrams) {
+                    grams.computeIfAbsent(gram, key -> new ArrayList<>()).add(i);
+                }
+            }
+            for (String id : new String[] {entry.coingeckoId(), entry.coinpaprikaId()}) {
+                String normalizedId = normalize(id);
+                if (!normalizedId.isEmpty()) {
+                    byId.putIfAbsent(normalizedId, i);
+                    keys.add(new PrefixKey(normalizedId, i, NAME_PREFIX));
+                }
+            }
+        }
+
+        this.bySymbol = toArrays(symbols);
+        this.byName = toArrays(names);
+        this.trigrams = toArrays(grams);
+
+        keys.sort(Comparator.comparing(PrefixKey::key).thenComparingInt(PrefixKey::entry));
+        this.prefixKeys = new String[keys.size()];
+        this.prefixEntries = new int[keys.size()];
+        this.prefixTiers = new byte[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            prefixKeys[i] = keys.get(i).key();
+            prefixEntries[i] = keys.get(i).entry();
+            prefixTiers[i] = (byte) keys.get(i).tier();
+        }
+    }
+
+    int size() {
+        return entries.length;
+    }
+
+    /**
+     * The coin a query names exactly: by provider id, else the best-ranked coin with that symbol,
+     * else the best-ranked coin with that name.
+     */
+    Optional<CoinDirectoryEntry> lookup(String query) {
+        String normalized = normalize(query);
+        Integer byIdMatch = byId.get(normalized);
+        if (byIdMatch != null) {
+            return Optional.of(entries[byIdMatch]);
+        }
+        int[] matches = bySymbol.getOrDefault(normalized, NONE);
+        if (matches.length == 0) {
+            matches = byName.getOrDefault(normalized, NONE);
+        }
+        return matches.length > 0 ? Optional.of(entries[matches[0]]) : Optional.empty();
+    }
+
+    /**
+     * Ranked matches for {@code query}: exact symbol, exact name or id, symbol prefix, name or id
+     * prefix, then names sharing at least {@code minSimilarity} of their trigrams. Ties go to the
+     * better market cap rank.
+     */
+    List<CoinDirectoryEntry> search(String query, int limit, double minSimilarity) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Map<Integer, Match> matches = new HashMap<>();
+        for (int entry : bySymbol.getOrDefault(normalized, NONE)) {
+            offer(matches, entry, EXACT_SYMBOL, 1.0);
+        }
+        Integer byIdMatch = byId.get(normalized);
+        if (byIdMatch != null) {
+            offer(matches, byIdMatch, EXACT_NAME_OR_ID, 1.0);
+        }
+        for (int entry : byName.getOrDefault(normalized, NONE)) {
+            offer(matches, entry, EXACT_NAME_OR_ID, 1.0);
+        }
+        for (int i = lowerBound(normalized); i < prefixKeys.length && prefixKeys[i].startsWith(normalized); i++) {
+            offer(matches, prefixEntries[i], prefixTiers[i], 1.0);
+        }
+        if (matches.size() < limit && normalized.length() >= 3) {
+            addFuzzyMatches(matches, normalized, minSimilarity);
+        }
+        return matches.values().stream()
+                .sorted(Comparator.comparingInt(Match::tier)
+                        .thenComparing(Comparator.comparingDouble(Match::similarity).reversed())
+                        .thenComparingInt(Match::entry))
+                .limit(limit)
+                .map(match -> entries[match.entry()])
+                .toList();
+    }
+
+    private void addFuzzyMatches(Map<Integer, Match> matches, String query, double minSimilarity) {
+        Set<String> queryGrams = trigramsOf(query);
+        int[] shared = new int[entries.length];
+        List<Integer> touched = new ArrayList<>();
+        for (String gram : queryGrams) {
+            for (int entry : trigrams.getOrDefault(gram, NONE)) {
+                if (shared[entry]++ == 0) {
+                    touched.add(entry);
+                }
+            }
+        }
+        for (int entry : touched) {
+            // Dice coefficient over distinct trigrams
+            double similarity = 2.0 * shared[entry] / (queryGrams.size() + trigramCounts[entry]);
+            if (similarity >= minSimilarity) {
+                offer(matches, entry, FUZZY, similarity);
+            }
+        }
+    }
+
+    private static void offer(Map<Integer, Match> matches, int entry, int tier, double similarity) {
+        matches.merge(entry, new Match(entry, tier, similarity),
+                (current, candidate) -> candidate.tier() < current.tier() ? candidate : current);
+    }
+
+    /** First index whose key is not less than {@code prefix} */
+    private int lowerBound(String prefix) {
+        int index = Arrays.binarySearch(prefixKeys, prefix);
+        if (index < 0) {
+            return -index - 1;
+        }
+        // Equal keys: step back to the first of them
+        while (index > 0 && prefixKeys[index - 1].equals(prefix)) {
+            index--;
+        }
+        return index;
+    }
+
+    private static Set<String> trigramsOf(String text) {
+        String padded = " " + text + " ";
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    private static Map<String, int[]> toArrays(Map<String, List<Integer>> lists) {
+        Map<String, int[]> arrays = new HashMap<>(lists.size() * 4 / 3 + 1);
+        lists.forEach((key, list) -> arrays.put(key, list.stream().mapToInt(Integer::intValue).toArray()));
+        return arrays;
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record PrefixKey(String key, int entry, int tier) {
+    }
+
+    private record Match(int entry, int tier, double similarity) {
+    }
+}
@@ -1,10 +1,11 @@
 package crypto.insight.crypto.service.provider;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.databind.JsonNode;
+import crypto.insight.crypto.config.ApiProperties;
 import crypto.insight.crypto.model.CryptoData;
 import crypto.insight.crypto.model.CryptoIdentity;
-import lombok.Data;
+import crypto.insight.crypto.model.coingecko.CoinGeckoCoinDetails;
+import crypto.insight.crypto.model.coingecko.CoinGeckoMarket;
+import crypto.insight.crypto.model.coingecko.CoinGeckoSearchResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
@@ -12,20 +13,24 @@ import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 
-import java.math.BigDecimal;
 import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @Order(1) // Higher priority due to comprehensive data
 @Slf4j
 public class CoinGeckoProvider implements DataProvider {
 
+    /** {@code /coins/markets} returns at most 250 rows per page; ids lists stay well below URL limits at 100 */
+    private static final int MAX_BATCH_SIZE = 100;
+
     private final WebClient webClient;
 
-    public CoinGeckoProvider(WebClient.Builder webClientBuilder) {
+    public CoinGeckoProvider(WebClient.Builder webClientBuilder, ApiProperties apiProperties) {
         this.webClient = webClientBuilder
-            .baseUrl("https://api.coingecko.com/api/v3")
+            .baseUrl(apiProperties.getCoinGeckoBaseUrl())
             .build();
     }
 
@@ -52,7 +57,7 @@ public class CoinGeckoProvider implements DataProvider {
                     if (response.getCoins() == null || response.getCoins().isEmpty()) {
                         throw new RuntimeException("No coins found on CoinGecko for: " + query);
                     }
-                    CoinGeckoCoin bestMatch = response.getCoins().get(0);
+                    CoinGeckoSearchResponse.Coin bestMatch = response.getCoins().get(0);
                     CryptoIdentity identity = new CryptoIdentity(query);
                     identity.setCoingeckoId(bestMatch.getId());
                     identity.setName(bestMatch.getName());
@@ -71,7 +76,7 @@ public class CoinGeckoProvider implements DataProvider {
                 .uri("/coins/{id}?localization=false&tickers=false&market_data=true&community_data=false&developer_data=false&sparkline=false", 
                      identity.getCoingeckoId())
                 .retrieve()
-                .bodyToMono(JsonNode.class)
+                .bodyToMono(CoinGeckoCoinDetails.class)
                 .timeout(Duration.ofSeconds(15))
                 .onErrorMap(WebClientResponseException.class, ex -> {
                     if (ex.getStatusCode().value() == 429) {
@@ -81,60 +86,33 @@ public class CoinGeckoProvider implements DataProvider {
                     return ex;
                 })
                 .map(response -> {
-                    JsonNode marketData = response.path("market_data");
+                    CoinGeckoCoinDetails.MarketData marketData = response.getMarketData() != null
+                            ? response.getMarketData()
+                            : new CoinGeckoCoinDetails.MarketData();
                     CryptoData data = new CryptoData(identity);
                     data.setSource(getProviderName());
                     
-                    // Price data
-                    JsonNode currentPrice = marketData.path("current_price").path("usd");
-                    if (!currentPrice.isMissingNode()) {
-                        data.setCurrentPrice(new BigDecimal(currentPrice.asText()));
-                    }
-                    
-                    // Market cap
-                    JsonNode marketCap = marketData.path("market_cap").path("usd");
-                    if (!marketCap.isMissingNode()) {
-                        data.setMarketCap(new BigDecimal(marketCap.asText()));
-                    }
-                    
-                    // Volume
-                    JsonNode volume = marketData.path("total_volume").path("usd");
-                    if (!volume.isMissingNode()) {
-                        data.setVolume24h(new BigDecimal(volume.asText()));
-                    }
+                    // Price, market cap and volume
+                    data.setCurrentPrice(response.usdPrice());
+                    data.setMarketCap(response.usdMarketCap());
+                    data.setVolume24h(response.usdVolume());
                     
                     // Price change percentage
-                    JsonNode priceChange = marketData.path("price_change_percentage_24h");
-                    if (!priceChange.isMissingNode()) {
-                        data.setPriceChange24h(new BigDecimal(priceChange.asText()));
-                    }
+                    data.setPriceChange24h(marketData.getPriceChangePercentage24h());
                     
                     // Market cap rank
-                    JsonNode marketCapRank = response.path("market_cap_rank");
-                    if (!marketCapRank.isMissingNode()) {
-                        data.setMarketCapRank(marketCapRank.asInt());
+                    if (response.getMarketCapRank() != null) {
+                        data.setMarketCapRank(response.getMarketCapRank());
                     }
                     
                     // Supply data
-                    JsonNode circulatingSupply = marketData.path("circulating_supply");
-                    if (!circulatingSupply.isMissingNode()) {
-                        data.setCirculatingSupply(new BigDecimal(circulatingSupply.asText()));
-                    }
-                    
-                    JsonNode totalSupply = marketData.path("total_supply");
-                    if (!totalSupply.isMissingNode()) {
-                        data.setTotalSupply(new BigDecimal(totalSupply.asText()));
-                    }
-                    
-                    JsonNode maxSupply = marketData.path("max_supply");
-                    if (!maxSupply.isMissingNode()) {
-                        data.setMaxSupply(new BigDecimal(maxSupply.asText()));
-                    }
+                    data.setCirculatingSupply(marketData.getCirculatingSupply());
+                    data.setTotalSupply(marketData.getTotalSupply());
+                    data.setMaxSupply(marketData.getMaxSupply());
                     
                     // Image URL
-                    JsonNode image = response.path("image").path("large");
-                    if (!image.isMissingNode()) {
-                        data.setImageUrl(image.asText());
+                    if (response.getImage() != null) {
+                        data.setImageUrl(response.getImage().getLarge());
                     }
                     
                     log.debug("Fetched comprehensive data from CoinGecko for {}", identity.getSymbol());
@@ -142,18 +120,60 @@ public class CoinGeckoProvider implements DataProvider {
                 });
     }
 
-    // DTOs for CoinGecko responses
-    @Data
-    private static class CoinGeckoSearchResponse {
-        private List<CoinGeckoCoin> coins;
+    @Override
+    public int maxBatchSize() {
+        return MAX_BATCH_SIZE;
+    }
+
+    @Override
+    public String batchKey(CryptoIdentity identity) {
+        return identity.getCoingeckoId();
+    }
+
+    /**
+     * Fetches several coins with one {@code /coins/markets?ids=} call, which carries the same
+     * price, supply, rank and image fields as the per-coin details endpoint.
+     */
+    @Override
+    public Mono<Map<String, CryptoData>> fetchDataBatch(List<CryptoIdentity> identities) {
+        Map<String, CryptoIdentity> byId = identities.stream()
+                .filter(identity -> identity.getCoingeckoId() != null)
+                .collect(Collectors.toMap(CryptoIdentity::getCoingeckoId, identity -> identity, (a, b) -> a));
+        if (byId.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+
+        return webClient.get()
+                .uri("/coins/markets?vs_currency=usd&ids={ids}&per_page=250&sparkline=false",
+                     String.join(",", byId.keySet()))
+                .retrieve()
+                .bodyToFlux(CoinGeckoMarket.class)
+                .timeout(Duration.ofSeconds(15))
+                .onErrorMap(WebClientResponseException.class, ex -> {
+                    if (ex.getStatusCode().value() == 429) {
+                        log.warn("CoinGecko rate limit hit for batch of {} coins", byId.size());
+                        return new RuntimeException("Rate limit exceeded for CoinGecko: " + ex.getMessage());
+                    }
+                    return ex;
+                })
+                .filter(market -> byId.containsKey(market.getId()))
+                .collectMap(CoinGeckoMarket::getId, market -> toCryptoData(byId.get(market.getId()), market))
+                .doOnNext(results -> log.debug("Fetched {} of {} coins from CoinGecko in one call",
+                        results.size(), byId.size()));
     }
 
-    @Data
-    private static class CoinGeckoCoin {
-        private String id;
-        private String name;
-        private String symbol;
-        @JsonProperty("market_cap_rank")
-        private int marketCapRank;
+    private CryptoData toCryptoData(CryptoIdentity identity, CoinGeckoMarket market) {
+        CryptoData data = new CryptoData(identity);
+        data.setSource(getProviderName());
+        data.setCurrentPrice(market.getCurrentPrice());
+        data.setMarketCap(market.getMarketCap());
+        data.setVolume24h(market.getTotalVolume());
+        data.setPriceChange24h(market.getPriceChangePercentage24h());
+        data.setMarketCapRank(market.getMarketCapRank());
+        data.setCirculatingSupply(market.getCirculatingSupply());
+        data.setTotalSupply(market.getTotalSupply());
+        data.setMaxSupply(market.getMaxSupply());
+        data.setImageUrl(market.getImage());
+        return data;
     }
-}
+}
\ No newline at end of file
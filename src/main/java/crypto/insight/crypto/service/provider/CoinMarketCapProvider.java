@@ -1,25 +1,36 @@
 package crypto.insight.crypto.service.provider;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import crypto.insight.crypto.config.ApiProperties;
 import crypto.insight.crypto.model.CryptoData;
 import crypto.insight.crypto.model.CryptoIdentity;
+import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 @Service
 @Order(2) // Second priority
 @Slf4j
 public class CoinMarketCapProvider implements DataProvider {
 
+    /** One quotes/latest call costs one credit per 100 coins */
+    private static final int MAX_BATCH_SIZE = 100;
+
     private final WebClient webClient;
     private final ApiProperties apiProperties;
 
     public CoinMarketCapProvider(WebClient.Builder webClientBuilder, ApiProperties apiProperties) {
-        this.webClient = webClientBuilder.baseUrl("https://pro-api.coinmarketcap.com").build();
+        this.webClient = webClientBuilder.baseUrl(apiProperties.getCoinmarketcap().getBaseUrl()).build();
         this.apiProperties = apiProperties;
     }
 
@@ -37,15 +48,14 @@ public class CoinMarketCapProvider implements DataProvider {
                         .build())
                 .header("X-CMC_PRO_API_KEY", apiProperties.getCoinmarketcap().getKey())
                 .retrieve()
-                .bodyToMono(JsonNode.class)
+                .bodyToMono(MapResponse.class)
                 .map(response -> {
-                    JsonNode data = response.path("data");
-                    if (data.isArray() && !data.isEmpty()) {
-                        JsonNode coinInfo = data.get(0);
+                    if (response.getData() != null && !response.getData().isEmpty()) {
+                        MapEntry coinInfo = response.getData().get(0);
                         CryptoIdentity identity = new CryptoIdentity(query);
-                        identity.setCoinmarketcapId(String.valueOf(coinInfo.path("id").asInt()));
-                        identity.setSymbol(coinInfo.path("symbol").asText());
-                        identity.setName(coinInfo.path("name").asText());
+                        identity.setCoinmarketcapId(String.valueOf(coinInfo.getId()));
+                        identity.setSymbol(coinInfo.getSymbol());
+                        identity.setName(coinInfo.getName());
                         return identity;
                     }
                     throw new RuntimeException("Symbol not found in CoinMarketCap map: " + query);
@@ -66,20 +76,116 @@ public class CoinMarketCapProvider implements DataProvider {
                         .build())
                 .header("X-CMC_PRO_API_KEY", apiProperties.getCoinmarketcap().getKey())
                 .retrieve()
-                .bodyToMono(JsonNode.class)
+                .bodyToMono(QuotesResponse.class)
                 .map(response -> {
-                    JsonNode data = response.path("data").path(symbol).get(0);
-                    JsonNode quote = data.path("quote").path("USD");
-                    CryptoData cryptoData = new CryptoData(identity);
-                    cryptoData.setSource(getProviderName());
-                    cryptoData.setCurrentPrice(quote.path("price").decimalValue());
-                    cryptoData.setMarketCap(quote.path("market_cap").decimalValue());
-                    cryptoData.setVolume24h(quote.path("volume_24h").decimalValue());
-                    cryptoData.setPriceChange24h(quote.path("percent_change_24h").decimalValue());
-                    return cryptoData;
+                    Quote quote = response.usdQuote(symbol);
+                    if (quote == null) {
+                        throw new RuntimeException("Quote not available in CoinMarketCap for: " + symbol);
+                    }
+                    return toCryptoData(identity, quote);
                 }).onErrorResume(e -> {
                     log.warn("Failed to fetch from {}: {}", getProviderName(), e.getMessage());
                     return Mono.empty();
                 });
     }
+
+    @Override
+    public int maxBatchSize() {
+        return MAX_BATCH_SIZE;
+    }
+
+    @Override
+    public String batchKey(CryptoIdentity identity) {
+        return identity.getSymbol() != null ? identity.getSymbol().toUpperCase() : null;
+    }
+
+    /**
+     * Fetches several coins with one quotes/latest call; {@code symbol} takes a comma separated list.
+     */
+    @Override
+    public Mono<Map<String, CryptoData>> fetchDataBatch(List<CryptoIdentity> identities) {
+        Map<String, CryptoIdentity> bySymbol = identities.stream()
+                .filter(identity -> batchKey(identity) != null)
+                .collect(Collectors.toMap(this::batchKey, identity -> identity, (a, b) -> a));
+        if (bySymbol.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/v2/cryptocurrency/quotes/latest")
+                        .queryParam("symbol", String.join(",", bySymbol.keySet()))
+                        .build())
+                .header("X-CMC_PRO_API_KEY", apiProperties.getCoinmarketcap().getKey())
+                .retrieve()
+                .bodyToMono(QuotesResponse.class)
+                .map(response -> {
+                    Map<String, CryptoData> results = new HashMap<>();
+                    bySymbol.forEach((symbol, identity) -> {
+                        Quote quote = response.usdQuote(symbol);
+                        if (quote != null) {
+                            results.put(symbol, toCryptoData(identity, quote));
+                        }
+                    });
+                    log.debug("Fetched {} of {} coins from CoinMarketCap in one call", results.size(), bySymbol.size());
+                    return results;
+                });
+    }
+
+    private CryptoData toCryptoData(CryptoIdentity identity, Quote quote) {
+        CryptoData cryptoData = new CryptoData(identity);
+        cryptoData.setSource(getProviderName());
+        cryptoData.setCurrentPrice(quote.getPrice());
+        cryptoData.setMarketCap(quote.getMarketCap());
+        cryptoData.setVolume24h(quote.getVolume24h());
+        cryptoData.setPriceChange24h(quote.getPercentChange24h());
+        return cryptoData;
+    }
+
+    // DTOs for CoinMarketCap responses
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class MapResponse {
+        private List<MapEntry> data;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class MapEntry {
+        private int id;
+        private String name;
+        private String symbol;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class QuotesResponse {
+        private Map<String, List<QuotedCoin>> data;
+
+        Quote usdQuote(String symbol) {
+            List<QuotedCoin> coins = data != null ? data.get(symbol) : null;
+            if (coins == null || coins.isEmpty() || coins.get(0).getQuote() == null) {
+                return null;
+            }
+            return coins.get(0).getQuote().get("USD");
+        }
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class QuotedCoin {
+        private Map<String, Quote> quote;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class Quote {
+        private BigDecimal price;
+        @JsonProperty("market_cap")
+        private BigDecimal marketCap;
+        @JsonProperty("volume_24h")
+        private BigDecimal volume24h;
+        @JsonProperty("percent_change_24h")
+        private BigDecimal percentChange24h;
+    }
 }
@@ -1,16 +1,19 @@
 package crypto.insight.crypto.service.provider;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import crypto.insight.crypto.config.ApiProperties;
 import crypto.insight.crypto.model.CryptoData;
 import crypto.insight.crypto.model.CryptoIdentity;
+import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 /**
  * Data provider implementation for CoinPaprika API.
@@ -23,8 +26,8 @@ public class CoinPaprikaProvider implements DataProvider {
 
     private final WebClient webClient;
 
-    public CoinPaprikaProvider(WebClient.Builder webClientBuilder) {
-        this.webClient = webClientBuilder.baseUrl("https://api.coinpaprika.com/v1").build();
+    public CoinPaprikaProvider(WebClient.Builder webClientBuilder, ApiProperties apiProperties) {
+        this.webClient = webClientBuilder.baseUrl(apiProperties.getCoinpaprika().getBaseUrl()).build();
     }
 
     @Override
@@ -38,21 +41,19 @@ public class CoinPaprikaProvider implements DataProvider {
         return webClient.get()
                 .uri("/search?q={query}&limit=10", query)
                 .retrieve()
-                .bodyToMono(JsonNode.class)
+                .bodyToMono(SearchResponse.class)
                 .flatMap(response -> {
-                    JsonNode currencies = response.path("currencies");
-                    if (currencies.isArray() && !currencies.isEmpty()) {
+                    List<PaprikaCoin> currencies = response.getCurrencies();
+                    if (currencies != null && !currencies.isEmpty()) {
                         // Find exact symbol match first
-                        for (JsonNode currency : currencies) {
-                            String symbol = currency.path("symbol").asText();
-                            if (symbol.equalsIgnoreCase(query)) {
-                                return Mono.just(createIdentityFromNode(query, currency));
+                        for (PaprikaCoin currency : currencies) {
+                            if (query.equalsIgnoreCase(currency.getSymbol())) {
+                                return Mono.just(createIdentity(query, currency));
                             }
                         }
                         
                         // If no exact match, use the first result
-                        JsonNode firstResult = currencies.get(0);
-                        return Mono.just(createIdentityFromNode(query, firstResult));
+                        return Mono.just(createIdentity(query, currencies.get(0)));
                     }
                     
                     // Fallback: try to find in all coins list
@@ -65,37 +66,22 @@ public class CoinPaprikaProvider implements DataProvider {
     }
 
     private Mono<CryptoIdentity> searchInCoinsList(String query) {
+        // The coin list is a large top-level array; decode it element by element and stop at the match
         return webClient.get()
                 .uri("/coins")
                 .retrieve()
-                .bodyToMono(JsonNode.class)
-                .flatMap(response -> {
-                    if (response.isArray()) {
-                        String upperQuery = query.toUpperCase();
-                        for (JsonNode coin : response) {
-                            String symbol = coin.path("symbol").asText();
-                            if (symbol.equalsIgnoreCase(upperQuery)) {
-                                return Mono.just(createIdentityFromCoinNode(query, coin));
-                            }
-                        }
-                    }
-                    return Mono.error(new RuntimeException("Symbol not found in CoinPaprika: " + query));
-                });
-    }
-
-    private CryptoIdentity createIdentityFromNode(String query, JsonNode currency) {
-        CryptoIdentity identity = new CryptoIdentity(query);
-        identity.setCoinpaprikaId(currency.path("id").asText());
-        identity.setSymbol(currency.path("symbol").asText());
-        identity.setName(currency.path("name").asText());
-        return identity;
+                .bodyToFlux(PaprikaCoin.class)
+                .filter(coin -> query.equalsIgnoreCase(coin.getSymbol()))
+                .next()
+                .map(coin -> createIdentity(query, coin))
+                .switchIfEmpty(Mono.error(new RuntimeException("Symbol not found in CoinPaprika: " + query)));
     }
 
-    private CryptoIdentity createIdentityFromCoinNode(String query, JsonNode coin) {
+    private CryptoIdentity createIdentity(String query, PaprikaCoin coin) {
         CryptoIdentity identity = new CryptoIdentity(query);
-        identity.setCoinpaprikaId(coin.path("id").asText());
-        identity.setSymbol(coin.path("symbol").asText());
-        identity.setName(coin.path("name").asText());
+        identity.setCoinpaprikaId(coin.getId());
+        identity.setSymbol(coin.getSymbol());
+        identity.setName(coin.getName());
         return identity;
     }
 
@@ -111,53 +97,31 @@ public class CoinPaprikaProvider implements DataProvider {
         return webClient.get()
                 .uri("/tickers/{id}", coinId)
                 .retrieve()
-                .bodyToMono(JsonNode.class)
+                .bodyToMono(Ticker.class)
                 .map(response -> {
-                    JsonNode quotes = response.path("quotes").path("USD");
+                    TickerQuote quotes = response.getQuotes() != null && response.getQuotes().getUsd() != null
+                            ? response.getQuotes().getUsd()
+                            : new TickerQuote();
                     
                     CryptoData data = new CryptoData(identity);
                     data.setSource(getProviderName());
                     data.setLastUpdated(java.time.LocalDateTime.now());
                     
-                    // Set current price
-                    if (!quotes.path("price").isMissingNode()) {
-                        data.setCurrentPrice(new BigDecimal(quotes.path("price").asDouble()));
-                    }
-                    
-                    // Set market cap
-                    if (!quotes.path("market_cap").isMissingNode()) {
-                        data.setMarketCap(new BigDecimal(quotes.path("market_cap").asLong()));
-                    }
-                    
-                    // Set 24h volume
-                    if (!quotes.path("volume_24h").isMissingNode()) {
-                        data.setVolume24h(new BigDecimal(quotes.path("volume_24h").asLong()));
-                    }
-                    
-                    // Set 24h price change percentage
-                    if (!quotes.path("percent_change_24h").isMissingNode()) {
-                        data.setPriceChange24h(new BigDecimal(quotes.path("percent_change_24h").asDouble()));
-                    }
+                    // Price, market cap, 24h volume and 24h change
+                    data.setCurrentPrice(quotes.getPrice());
+                    data.setMarketCap(quotes.getMarketCap());
+                    data.setVolume24h(quotes.getVolume24h());
+                    data.setPriceChange24h(quotes.getPercentChange24h());
                     
                     // Set market cap rank
-                    if (!response.path("rank").isMissingNode()) {
-                        data.setMarketCapRank(response.path("rank").asInt());
+                    if (response.getRank() != null) {
+                        data.setMarketCapRank(response.getRank());
                     }
                     
-                    // Set circulating supply
-                    if (!response.path("circulating_supply").isMissingNode()) {
-                        data.setCirculatingSupply(new BigDecimal(response.path("circulating_supply").asLong()));
-                    }
-                    
-                    // Set total supply
-                    if (!response.path("total_supply").isMissingNode()) {
-                        data.setTotalSupply(new BigDecimal(response.path("total_supply").asLong()));
-                    }
-                    
-                    // Set max supply
-                    if (!response.path("max_supply").isMissingNode() && !response.path("max_supply").isNull()) {
-                        data.setMaxSupply(new BigDecimal(response.path("max_supply").asLong()));
-                    }
+                    // Supply data
+                    data.setCirculatingSupply(response.getCirculatingSupply());
+                    data.setTotalSupply(response.getTotalSupply());
+                    data.setMaxSupply(response.getMaxSupply());
                     
                     log.debug("Successfully fetched data from CoinPaprika for {}: ${}", 
                              identity.getSymbol(), data.getCurrentPrice());
@@ -169,4 +133,51 @@ public class CoinPaprikaProvider implements DataProvider {
                     return Mono.empty();
                 });
     }
+
+    // DTOs for CoinPaprika responses
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class SearchResponse {
+        private List<PaprikaCoin> currencies;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class PaprikaCoin {
+        private String id;
+        private String name;
+        private String symbol;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class Ticker {
+        private Integer rank;
+        @JsonProperty("circulating_supply")
+        private BigDecimal circulatingSupply;
+        @JsonProperty("total_supply")
+        private BigDecimal totalSupply;
+        @JsonProperty("max_supply")
+        private BigDecimal maxSupply;
+        private TickerQuotes quotes;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class TickerQuotes {
+        @JsonProperty("USD")
+        private TickerQuote usd;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class TickerQuote {
+        private BigDecimal price;
+        @JsonProperty("market_cap")
+        private BigDecimal marketCap;
+        @JsonProperty("volume_24h")
+        private BigDecimal volume24h;
+        @JsonProperty("percent_change_24h")
+        private BigDecimal percentChange24h;
+    }
 }
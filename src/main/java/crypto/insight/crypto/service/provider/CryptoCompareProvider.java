@@ -1,17 +1,27 @@
 package crypto.insight.crypto.service.provider;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import crypto.insight.crypto.config.ApiProperties;
 import crypto.insight.crypto.model.CryptoData;
 import crypto.insight.crypto.model.CryptoIdentity;
+import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Data provider implementation for CryptoCompare API.
@@ -22,12 +32,18 @@ import java.math.BigDecimal;
 @Slf4j
 public class CryptoCompareProvider implements DataProvider {
 
+    private static final int MAX_BATCH_SIZE = 50;
+    /** pricemultifull accepts up to 300 characters of fsyms, commas included */
+    static final int MAX_FSYMS_LENGTH = 300;
+
     private final WebClient webClient;
     private final ApiProperties apiProperties;
+    private final ObjectMapper objectMapper;
 
-    public CryptoCompareProvider(WebClient.Builder webClientBuilder, ApiProperties apiProperties) {
-        this.webClient = webClientBuilder.baseUrl("https://min-api.cryptocompare.com").build();
+    public CryptoCompareProvider(WebClient.Builder webClientBuilder, ApiProperties apiProperties, ObjectMapper objectMapper) {
+        this.webClient = webClientBuilder.baseUrl(apiProperties.getCryptocompare().getCryptoCompareBaseUrl()).build();
         this.apiProperties = apiProperties;
+        this.objectMapper = objectMapper;
     }
 
     @Override
@@ -37,37 +53,36 @@ public class CryptoCompareProvider implements DataProvider {
 
     @Override
     public Mono<CryptoIdentity> resolveIdentity(String query) {
-        return webClient.get()
-                .uri("/data/all/coinlist")
+        final String upperCaseQuery = query.toUpperCase();
+
+        // The coin list is several megabytes, so it is streamed entry by entry instead of being
+        // buffered into a tree; the download stops at the exact symbol match.
+        Flux<DataBuffer> body = webClient.get()
+                .uri("/all/coinlist")
                 .retrieve()
-                .bodyToMono(JsonNode.class)
-                .flatMap(response -> {
-                    JsonNode data = response.path("Data");
-                    final String upperCaseQuery = query.toUpperCase();
-                    
-                    // First try exact symbol match
-                    if (data.has(upperCaseQuery)) {
-                        return Mono.just(createIdentityFromNode(query, data.get(upperCaseQuery)));
+                .bodyToFlux(DataBuffer.class);
+
+        return StreamingJsonDecoder.objectEntries(body, objectMapper, "Data", CoinListEntry.class)
+                .filter(entry -> entry.getKey().equals(upperCaseQuery)
+                        || query.equalsIgnoreCase(entry.getValue().getCoinName()))
+                .takeUntil(entry -> entry.getKey().equals(upperCaseQuery))
+                .collectList()
+                .flatMap(matches -> {
+                    // Prefer the exact symbol match, otherwise the first coin with that name
+                    if (matches.isEmpty()) {
+                        return Mono.error(new RuntimeException("Coin not found in CryptoCompare: " + query));
                     }
-                    
-                    // If no exact match, search by name
-                    return Flux.fromIterable(data::fields)
-                            .filter(entry -> {
-                                JsonNode coinInfo = entry.getValue();
-                                String coinName = coinInfo.path("CoinName").asText("");
-                                return coinName.equalsIgnoreCase(query);
-                            })
-                            .next()
-                            .map(entry -> createIdentityFromNode(query, entry.getValue()))
-                            .switchIfEmpty(Mono.error(new RuntimeException("Coin not found in CryptoCompare: " + query)));
+                    Map.Entry<String, CoinListEntry> last = matches.get(matches.size() - 1);
+                    Map.Entry<String, CoinListEntry> best = last.getKey().equals(upperCaseQuery) ? last : matches.get(0);
+                    return Mono.just(createIdentity(query, best.getValue()));
                 });
     }
 
-    private CryptoIdentity createIdentityFromNode(String query, JsonNode coinInfo) {
+    private CryptoIdentity createIdentity(String query, CoinListEntry coinInfo) {
         CryptoIdentity identity = new CryptoIdentity(query);
-        identity.setCryptocompareId(coinInfo.path("Id").asText());
-        identity.setSymbol(coinInfo.path("Symbol").asText());
-        identity.setName(coinInfo.path("CoinName").asText());
+        identity.setCryptocompareId(coinInfo.getId());
+        identity.setSymbol(coinInfo.getSymbol());
+        identity.setName(coinInfo.getCoinName());
         return identity;
     }
 
@@ -80,35 +95,19 @@ public class CryptoCompareProvider implements DataProvider {
 
         return webClient.get()
                 .uri(uriBuilder -> uriBuilder
-                        .path("/data/pricemultifull")
+                        .path("/pricemultifull")
                         .queryParam("fsyms", symbol)
                         .queryParam("tsyms", "USD")
                         .queryParam("api_key", apiProperties.getCryptocompare().getKey())
                         .build())
                 .retrieve()
-                .bodyToMono(JsonNode.class)
+                .bodyToMono(PriceMultiFullResponse.class)
                 .map(response -> {
-                    JsonNode raw = response.path("RAW").path(symbol).path("USD");
-                    if (raw.isMissingNode()) {
+                    RawQuote raw = response.quote(symbol, "USD");
+                    if (raw == null) {
                         throw new RuntimeException("Data not available for symbol in CryptoCompare: " + symbol);
                     }
-                    
-                    CryptoData data = new CryptoData(identity);
-                    data.setSource(getProviderName());
-                    
-                    // Set price data
-                    data.setCurrentPrice(safeBigDecimal(raw.path("PRICE")));
-                    data.setPrice(safeBigDecimal(raw.path("PRICE"))); // For backward compatibility
-                    
-                    // Set market data
-                    data.setMarketCap(safeBigDecimal(raw.path("MKTCAP")));
-                    data.setVolume24h(safeBigDecimal(raw.path("TOTALVOLUME24H")));
-                    
-                    // Set price change data
-                    data.setPriceChange24h(safeBigDecimal(raw.path("CHANGEPCT24HOUR")));
-                    data.setPercentChange24h(safeBigDecimal(raw.path("CHANGEPCT24HOUR")));
-                    
-                    return data;
+                    return toCryptoData(identity, raw);
                 })
                 .onErrorResume(e -> {
                     log.warn("Failed to fetch from {}: {}", getProviderName(), e.getMessage());
@@ -116,8 +115,137 @@ public class CryptoCompareProvider implements DataProvider {
                 });
     }
     
-    private BigDecimal safeBigDecimal(JsonNode node) {
-        return node != null && !node.isMissingNode() && !node.isNull() ? 
-               node.decimalValue() : null;
+    @Override
+    public int maxBatchSize() {
+        return MAX_BATCH_SIZE;
+    }
+
+    @Override
+    public String batchKey(CryptoIdentity identity) {
+        return identity.getSymbol() != null ? identity.getSymbol().toUpperCase() : null;
+    }
+
+    /**
+     * Fetches several coins with one pricemultifull call; {@code fsyms} takes a comma separated list.
+     * A batch of long symbols that does not fit into {@link #MAX_FSYMS_LENGTH} is split into
+     * several calls made together.
+     */
+    @Override
+    public Mono<Map<String, CryptoData>> fetchDataBatch(List<CryptoIdentity> identities) {
+        Map<String, CryptoIdentity> bySymbol = identities.stream()
+                .filter(identity -> batchKey(identity) != null)
+                .collect(Collectors.toMap(this::batchKey, identity -> identity, (a, b) -> a));
+        if (bySymbol.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+
+        return Flux.fromIterable(fsymsLists(bySymbol.keySet()))
+                .flatMap(fsyms -> fetchPriceMultiFull(fsyms, bySymbol))
+                .<Map<String, CryptoData>>reduceWith(HashMap::new, (results, fetched) -> {
+                    results.putAll(fetched);
+                    return results;
+                })
+                .doOnNext(results -> log.debug("Fetched {} of {} coins from CryptoCompare",
+                        results.size(), bySymbol.size()));
+    }
+
+    /**
+     * Joins the symbols into as few {@code fsyms} values as fit into {@link #MAX_FSYMS_LENGTH}.
+     */
+    static List<String> fsymsLists(Collection<String> symbols) {
+        List<String> lists = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String symbol : symbols) {
+            if (current.length() > 0 && current.length() + 1 + symbol.length() > MAX_FSYMS_LENGTH) {
+                lists.add(current.toString());
+                current.setLength(0);
+            }
+            if (current.length() > 0) {
+                current.append(',');
+            }
+            current.append(symbol);
+        }
+        if (current.length() > 0) {
+            lists.add(current.toString());
+        }
+        return lists;
+    }
+
+    private Mono<Map<String, CryptoData>> fetchPriceMultiFull(String fsyms, Map<String, CryptoIdentity> bySymbol) {
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/pricemultifull")
+                        .queryParam("fsyms", fsyms)
+                        .queryParam("tsyms", "USD")
+                        .queryParam("api_key", apiProperties.getCryptocompare().getKey())
+                        .build())
+                .retrieve()
+                .bodyToMono(PriceMultiFullResponse.class)
+                .map(response -> {
+                    Map<String, CryptoData> results = new HashMap<>();
+                    bySymbol.forEach((symbol, identity) -> {
+                        RawQuote raw = response.quote(symbol, "USD");
+                        if (raw != null) {
+                            results.put(symbol, toCryptoData(identity, raw));
+                        }
+                    });
+                    return results;
+                });
+    }
+
+    private CryptoData toCryptoData(CryptoIdentity identity, RawQuote raw) {
+        CryptoData data = new CryptoData(identity);
+        data.setSource(getProviderName());
+
+        // Set price data
+        data.setCurrentPrice(raw.getPrice());
+        data.setPrice(raw.getPrice()); // For backward compatibility
+
+        // Set market data
+        data.setMarketCap(raw.getMarketCap());
+        data.setVolume24h(raw.getTotalVolume24h());
+
+        // Set price change data
+        data.setPriceChange24h(raw.getChangePct24Hour());
+        data.setPercentChange24h(raw.getChangePct24Hour());
+
+        return data;
+    }
+
+    // DTOs for CryptoCompare responses
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class CoinListEntry {
+        @JsonProperty("Id")
+        private String id;
+        @JsonProperty("Symbol")
+        private String symbol;
+        @JsonProperty("CoinName")
+        private String coinName;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class PriceMultiFullResponse {
+        @JsonProperty("RAW")
+        private Map<String, Map<String, RawQuote>> raw;
+
+        RawQuote quote(String symbol, String currency) {
+            Map<String, RawQuote> quotes = raw != null ? raw.get(symbol) : null;
+            return quotes != null ? quotes.get(currency) : null;
+        }
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class RawQuote {
+        @JsonProperty("PRICE")
+        private BigDecimal price;
+        @JsonProperty("MKTCAP")
+        private BigDecimal marketCap;
+        @JsonProperty("TOTALVOLUME24H")
+        private BigDecimal totalVolume24h;
+        @JsonProperty("CHANGEPCT24HOUR")
+        private BigDecimal changePct24Hour;
     }
 }
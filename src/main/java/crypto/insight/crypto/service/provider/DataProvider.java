@@ -2,8 +2,12 @@ package crypto.insight.crypto.service.provider;
 
 import crypto.insight.crypto.model.CryptoData;
 import crypto.insight.crypto.model.CryptoIdentity;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.Map;
+
 public interface DataProvider {
 
     Mono<CryptoIdentity> resolveIdentity(String query);
@@ -11,4 +15,30 @@ public interface DataProvider {
     Mono<CryptoData> fetchData(CryptoIdentity identity);
 
     String getProviderName();
+
+    /**
+     * Largest number of identities {@link #fetchDataBatch} serves in one upstream call.
+     * Providers without a multi-symbol endpoint keep the default of 1.
+     */
+    default int maxBatchSize() {
+        return 1;
+    }
+
+    /**
+     * Key under which {@link #fetchDataBatch} returns the data for an identity, or null when
+     * the identity lacks the id this provider's multi-symbol endpoint needs.
+     */
+    default String batchKey(CryptoIdentity identity) {
+        return null;
+    }
+
+    /**
+     * Fetches several identities at once, keyed by {@link #batchKey}. Identities the provider
+     * has no data for are left out of the map.
+     */
+    default Mono<Map<String, CryptoData>> fetchDataBatch(List<CryptoIdentity> identities) {
+        return Flux.fromIterable(identities)
+                .flatMap(identity -> fetchData(identity).map(data -> Map.entry(batchKey(identity), data)))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
 }
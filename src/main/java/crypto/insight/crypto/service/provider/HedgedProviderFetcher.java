@@ -0,0 +1,276 @@
+package crypto.insight.crypto.service.provider;
+
+import crypto.insight.crypto.config.properties.ProviderHedgingProperties;
+import crypto.insight.crypto.model.CryptoData;
+import crypto.insight.crypto.model.CryptoIdentity;
+import crypto.insight.crypto.model.DataRequirement;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Fetches a coin from the providers in {@link ProviderRanking} order with hedging.
+ * <p>
+ * The best-ranked provider is called first. The next one is only called when the outstanding
+ * provider fails, comes back without the required fields, or has not answered within its hedge
+ * delay ({@link ProviderRanking#hedgeDelay}, its observed p90 by default). The result is
+ * returned as soon as the caller's {@link DataRequirement} is met. Providers still in flight
+ * are then cancelled, unless the caller passed a late-results callback: in that case they keep
+ * running, and once they have all finished the data they added is handed to the callback.
+ * Every provider call runs with the caller's Reactor context, so it keeps the caller's lane and
+ * permit. A caller cancelling before the result stops the hedge timers and every provider call
+ * still running.
+ */
+@Slf4j
+@Component
+public class HedgedProviderFetcher {
+
+    private final ProviderRequestBatcher providerRequestBatcher;
+    private final ProviderRanking providerRanking;
+    private final ProviderHedgingProperties properties;
+
+    private final AtomicLong fetches = new AtomicLong();
+    private final AtomicLong providerCalls = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong incomplete = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong lateMerges = new AtomicLong();
+
+    public HedgedProviderFetcher(ProviderRequestBatcher providerRequestBatcher,
+                                 ProviderRanking providerRanking,
+                                 ProviderHedgingProperties properties) {
+        this.providerRequestBatcher = providerRequestBatcher;
+        this.providerRanking = providerRanking;
+        this.properties = properties;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Fetches data for {@code identity}, completing once {@code requirement} is met or every
+     * provider has been tried.
+     *
+     * @param lateResults receives the fully merged data when providers still in flight at
+     *                    completion added to it; null cancels those providers instead
+     */
+    public Mono<CryptoData> fetch(List<DataProvider> providers, CryptoIdentity identity,
+                                  DataRequirement requirement, Consumer<CryptoData> lateResults) {
+        return Mono.deferContextual(context -> {
+            fetches.incrementAndGet();
+            return new HedgedFetch(providerRanking.rank(providers), identity, requirement, lateResults, context).start();
+        });
+    }
+
+    private static CryptoData copyOf(CryptoData data) {
+        CryptoData copy = new CryptoData(data.getIdentity());
+        copy.mergeWith(data);
+        return copy;
+    }
+
+    /**
+     * Get hedged fetch statistics
+     */
+    public Map<String, Object> getStatistics() {
+        long totalFetches = fetches.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("hedgePercentile", properties.getHedgePercentile());
+        stats.put("fetches", totalFetches);
+        stats.put("providerCalls", providerCalls.get());
+        stats.put("averageProvidersPerFetch", totalFetches > 0 ? (double) providerCalls.get() / totalFetches : 0.0);
+        stats.put("hedges", hedges.get());
+        stats.put("incompleteResults", incomplete.get());
+        stats.put("lateMerges", lateMerges.get());
+        stats.put("cancelledProviderCalls", cancelled.get());
+        return stats;
+    }
+
+    private final class HedgedFetch {
+        private final List<DataProvider> ranked;
+        private final DataRequirement requirement;
+        private final Consumer<CryptoData> lateResults;
+        private final ContextView context;
+        private final CryptoData aggregate;
+        private final boolean[] finished;
+        private final Disposable[] calls;
+        private final Disposable[] hedgeTimers;
+        private final Sinks.One<CryptoData> result = Sinks.one();
+
+        // Guarded by this
+        private int launched;
+        private int finishedCount;
+        private boolean completed;
+        private boolean abandoned;
+        private boolean lateData;
+
+        HedgedFetch(List<DataProvider> ranked, CryptoIdentity identity, DataRequirement requirement,
+                    Consumer<CryptoData> lateResults, ContextView context) {
+            this.ranked = ranked;
+            this.requirement = requirement;
+            this.lateResults = lateResults;
+            this.context = context;
+            this.aggregate = new CryptoData(identity);
+            this.finished = new boolean[ranked.size()];
+            this.calls = new Disposable[ranked.size()];
+            this.hedgeTimers = new Disposable[ranked.size()];
+        }
+
+        Mono<CryptoData> start() {
+            if (ranked.isEmpty()) {
+                return Mono.just(aggregate);
+            }
+            launchNext();
+            return result.asMono().doOnCancel(this::abandon);
+        }
+
+        private void launchNext() {
+            int index;
+            synchronized (this) {
+                if (completed || launched >= ranked.size()) {
+                    return;
+                }
+                index = launched++;
+            }
+            DataProvider provider = ranked.get(index);
+            providerCalls.incrementAndGet();
+            if (index > 0) {
+                hedges.incrementAndGet();
+                log.debug("Hedging {} fetch to {}", aggregate.getSymbol(), provider.getProviderName());
+            }
+            if (index + 1 < ranked.size()) {
+                Duration delay = providerRanking.hedgeDelay(provider.getProviderName());
+                Disposable timer = Schedulers.parallel().schedule(() -> onHedgeDelay(index), delay.toNanos(), TimeUnit.NANOSECONDS);
+                synchronized (this) {
+                    hedgeTimers[index] = timer;
+                }
+            }
+
+            Disposable call = providerRanking.observeFetch(provider, providerRequestBatcher.fetch(provider, aggregate.getIdentity()))
+                    .contextWrite(context)
+                    .subscribe(
+                            this::onData,
+                            error -> {
+                                log.debug("Provider {} failed to fetch data for {}: {}", provider.getProviderName(),
+                                        aggregate.getSymbol(), error.getMessage());
+                                onFinished(index);
+                            },
+                            () -> onFinished(index));
+            boolean cancel;
+            synchronized (this) {
+                calls[index] = call;
+                cancel = completed && (lateResults == null || abandoned) && !finished[index];
+            }
+            if (cancel) {
+                // Completed by another provider or abandoned while this call was being subscribed
+                cancelled.incrementAndGet();
+                call.dispose();
+            }
+        }
+
+        private void onHedgeDelay(int index) {
+            boolean hedge;
+            synchronized (this) {
+                hedge = !completed && !finished[index] && launched == index + 1;
+            }
+            if (hedge) {
+                launchNext();
+            }
+        }
+
+        private void onData(CryptoData data) {
+            CryptoData snapshot = null;
+            synchronized (this) {
+                aggregate.mergeWith(data);
+                if (completed) {
+                    lateData = lateResults != null && !abandoned;
+                } else if (requirement.isSatisfiedBy(aggregate)) {
+                    completed = true;
+                    snapshot = copyOf(aggregate);
+                }
+            }
+            if (snapshot != null) {
+                result.tryEmitValue(snapshot);
+                if (lateResults == null) {
+                    cancelOutstanding();
+                }
+            }
+        }
+
+        /** The caller cancelled: nobody is left to take the result or the late data */
+        private void abandon() {
+            synchronized (this) {
+                if (completed && lateResults != null) {
+                    // Cancelled after the result was delivered; the late results are still wanted
+                    return;
+                }
+                completed = true;
+                abandoned = true;
+            }
+            cancelOutstanding();
+        }
+
+        private void cancelOutstanding() {
+            for (int i = 0; i < calls.length; i++) {
+                Disposable call;
+                Disposable timer;
+                synchronized (this) {
+                    call = finished[i] ? null : calls[i];
+                    timer = hedgeTimers[i];
+                }
+                if (timer != null) {
+                    timer.dispose();
+                }
+                if (call != null && !call.isDisposed()) {
+                    cancelled.incrementAndGet();
+                    call.dispose();
+                }
+            }
+        }
+
+        private void onFinished(int index) {
+            boolean next = false;
+            CryptoData partial = null;
+            CryptoData late = null;
+            synchronized (this) {
+                finished[index] = true;
+                finishedCount++;
+                if (!completed) {
+                    if (finishedCount == ranked.size()) {
+                        completed = true;
+                        partial = copyOf(aggregate);
+                    } else {
+                        // The newest call came back without the required fields; don't wait out its delay
+                        next = index == launched - 1;
+                    }
+                } else if (lateData && finishedCount == launched) {
+                    lateData = false;
+                    late = copyOf(aggregate);
+                }
+            }
+            if (partial != null) {
+                incomplete.incrementAndGet();
+                result.tryEmitValue(partial);
+            } else if (next) {
+                launchNext();
+            }
+            if (late != null) {
+                lateMerges.incrementAndGet();
+                lateResults.accept(late);
+            }
+        }
+    }
+}
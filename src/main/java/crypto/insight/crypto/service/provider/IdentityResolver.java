@@ -0,0 +1,251 @@
+package crypto.insight.crypto.service.provider;
+
+import crypto.insight.crypto.model.CryptoIdentity;
+import crypto.insight.crypto.service.directory.CoinDirectory;
+import crypto.insight.crypto.service.directory.CoinDirectoryEntry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.context.ContextView;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Resolves a query to a {@link CryptoIdentity}: from the persisted {@link IdentitySnapshot}
+ * when the query was resolved before, from the local {@link CoinDirectory} when it knows the
+ * query exactly, and otherwise by asking every provider at once. Every resolved identity is
+ * written to the snapshot.
+ * <p>
+ * The first answer that matches the query exactly (symbol, name or a provider id) completes the
+ * resolution; the providers still running keep going in the background and add their ids to
+ * the stored identity when they finish. Without an exact match the resolution waits for all
+ * providers and takes the best-ranked fuzzy answer. Answers naming a different symbol than the
+ * chosen one are never merged in. Every provider call runs with the caller's Reactor context,
+ * so it keeps the caller's lane and permit.
+ */
+@Slf4j
+@Component
+public class IdentityResolver {
+
+    private final ProviderRanking providerRanking;
+    private final CoinDirectory coinDirectory;
+    private final IdentitySnapshot identitySnapshot;
+
+    private final AtomicLong resolutions = new AtomicLong();
+    private final AtomicLong snapshotHits = new AtomicLong();
+    private final AtomicLong directoryHits = new AtomicLong();
+    private final AtomicLong exactMatches = new AtomicLong();
+    private final AtomicLong fuzzyMatches = new AtomicLong();
+    private final AtomicLong notFound = new AtomicLong();
+    private final AtomicLong backgroundMerges = new AtomicLong();
+
+    public IdentityResolver(ProviderRanking providerRanking, CoinDirectory coinDirectory,
+                            IdentitySnapshot identitySnapshot) {
+        this.providerRanking = providerRanking;
+        this.coinDirectory = coinDirectory;
+        this.identitySnapshot = identitySnapshot;
+    }
+
+    /**
+     * Resolves {@code query}, completing empty when no provider knows it.
+     *
+     * @param store receives the resolved identity, and again with the added provider ids once the
+     *              providers still running after an exact match have finished
+     */
+    public Mono<CryptoIdentity> resolve(List<DataProvider> providers, String query, Consumer<CryptoIdentity> store) {
+        return resolve(providers, query, store, (provider, call) -> call);
+    }
+
+    /**
+     * Resolves {@code query} with each provider call wrapped by {@code decorator}, e.g. to apply
+     * the provider's rate limit.
+     */
+    public Mono<CryptoIdentity> resolve(List<DataProvider> providers, String query, Consumer<CryptoIdentity> store,
+                                        BiFunction<DataProvider, Mono<CryptoIdentity>, Mono<CryptoIdentity>> decorator) {
+        return Mono.deferContextual(context -> {
+            resolutions.incrementAndGet();
+            Optional<CryptoIdentity> known = identitySnapshot.get(query);
+            if (known.isPresent()) {
+                snapshotHits.incrementAndGet();
+                log.debug("Resolved '{}' -> {} from the identity snapshot", query, known.get().getSymbol());
+                store.accept(known.get());
+                return Mono.just(known.get());
+            }
+            Consumer<CryptoIdentity> persisting = store.andThen(identity -> identitySnapshot.put(query, identity));
+            Optional<CoinDirectoryEntry> entry = coinDirectory.lookup(query);
+            if (entry.isPresent()) {
+                directoryHits.incrementAndGet();
+                CryptoIdentity identity = entry.get().toIdentity(query);
+                log.debug("Resolved '{}' -> {} from the coin directory", query, identity.getSymbol());
+                persisting.accept(identity);
+                return Mono.just(identity);
+            }
+            return new Resolution(providerRanking.rank(providers), query, persisting, decorator, context).start();
+        });
+    }
+
+    /**
+     * Drops the persisted identity for {@code query}, so the next resolution asks the directory
+     * and the providers again.
+     */
+    public void forget(String query) {
+        identitySnapshot.remove(query);
+    }
+
+    /** Whether the identity names the query itself rather than something merely similar */
+    private static boolean isExactMatch(CryptoIdentity identity, String query) {
+        String normalized = query.trim();
+        return Stream.of(identity.getSymbol(), identity.getName(), identity.getCoingeckoId(),
+                        identity.getCoinmarketcapId(), identity.getCryptocompareId(), identity.getCoinpaprikaId())
+                .filter(Objects::nonNull)
+                .anyMatch(normalized::equalsIgnoreCase);
+    }
+
+    private static boolean sameCoin(CryptoIdentity chosen, CryptoIdentity other) {
+        return chosen.getSymbol() == null || other.getSymbol() == null
+                || chosen.getSymbol().equalsIgnoreCase(other.getSymbol());
+    }
+
+    /**
+     * Get identity resolution statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("resolutions", resolutions.get());
+        stats.put("snapshotHits", snapshotHits.get());
+        stats.put("directoryHits", directoryHits.get());
+        stats.put("exactMatches", exactMatches.get());
+        stats.put("fuzzyMatches", fuzzyMatches.get());
+        stats.put("notFound", notFound.get());
+        stats.put("backgroundMerges", backgroundMerges.get());
+        stats.put("snapshot", identitySnapshot.getStatistics());
+        return stats;
+    }
+
+    private final class Resolution {
+        private final List<DataProvider> ranked;
+        private final String query;
+        private final Consumer<CryptoIdentity> store;
+        private final BiFunction<DataProvider, Mono<CryptoIdentity>, Mono<CryptoIdentity>> decorator;
+        private final ContextView context;
+        private final CryptoIdentity[] answers;
+        private final Sinks.One<CryptoIdentity> result = Sinks.one();
+
+        // Guarded by this
+        private int finished;
+        private CryptoIdentity chosen;
+
+        Resolution(List<DataProvider> ranked, String query, Consumer<CryptoIdentity> store,
+                   BiFunction<DataProvider, Mono<CryptoIdentity>, Mono<CryptoIdentity>> decorator,
+                   ContextView context) {
+            this.ranked = ranked;
+            this.query = query;
+            this.store = store;
+            this.decorator = decorator;
+            this.context = context;
+            this.answers = new CryptoIdentity[ranked.size()];
+        }
+
+        Mono<CryptoIdentity> start() {
+            if (ranked.isEmpty()) {
+                notFound.incrementAndGet();
+                return Mono.empty();
+            }
+            for (int i = 0; i < ranked.size(); i++) {
+                int index = i;
+                DataProvider provider = ranked.get(i);
+                decorator.apply(provider, providerRanking.observeResolve(provider, provider.resolveIdentity(query)))
+                        .contextWrite(context)
+                        .subscribe(
+                                identity -> onAnswer(index, identity),
+                                error -> {
+                                    log.debug("Provider '{}' failed to resolve identity for '{}': {}",
+                                            provider.getProviderName(), query, error.getMessage());
+                                    onFinished();
+                                },
+                                this::onFinished);
+            }
+            return result.asMono();
+        }
+
+        private void onAnswer(int index, CryptoIdentity identity) {
+            log.debug("Provider '{}' resolved '{}' -> {}", ranked.get(index).getProviderName(), query, identity.getSymbol());
+            CryptoIdentity exact = null;
+            synchronized (this) {
+                answers[index] = identity;
+                if (chosen == null && isExactMatch(identity, query)) {
+                    chosen = merged(identity);
+                    exact = chosen;
+                }
+            }
+            if (exact != null) {
+                exactMatches.incrementAndGet();
+                log.info("Resolved '{}' -> {} from an exact {} match", query, exact.getSymbol(),
+                        ranked.get(index).getProviderName());
+                store.accept(exact);
+                result.tryEmitValue(exact);
+            }
+        }
+
+        private void onFinished() {
+            CryptoIdentity fuzzy = null;
+            CryptoIdentity complete = null;
+            boolean missing = false;
+            synchronized (this) {
+                if (++finished < ranked.size()) {
+                    return;
+                }
+                if (chosen == null) {
+                    // No exact match: the best-ranked answer wins
+                    for (CryptoIdentity answer : answers) {
+                        if (answer != null) {
+                            chosen = merged(answer);
+                            fuzzy = chosen;
+                            break;
+                        }
+                    }
+                    missing = fuzzy == null;
+                } else {
+                    CryptoIdentity all = merged(chosen);
+                    if (!all.equals(chosen)) {
+                        complete = all;
+                    }
+                }
+            }
+            if (fuzzy != null) {
+                fuzzyMatches.incrementAndGet();
+                log.info("Resolved '{}' -> {} from a fuzzy match", query, fuzzy.getSymbol());
+                store.accept(fuzzy);
+                result.tryEmitValue(fuzzy);
+            } else if (missing) {
+                notFound.incrementAndGet();
+                result.tryEmitEmpty();
+            } else if (complete != null) {
+                backgroundMerges.incrementAndGet();
+                log.debug("Merged late provider ids into identity for '{}': {}", query, complete);
+                store.accept(complete);
+            }
+        }
+
+        /** A new identity: {@code base} plus the ids of every answer so far for the same coin */
+        private CryptoIdentity merged(CryptoIdentity base) {
+            CryptoIdentity identity = new CryptoIdentity(query);
+            identity.mergeMissing(base);
+            for (CryptoIdentity answer : answers) {
+                if (answer != null && sameCoin(identity, answer)) {
+                    identity.mergeMissing(answer);
+                }
+            }
+            return identity;
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package crypto.insight.crypto.service.provider;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import crypto.insight.crypto.config.properties.IdentitySnapshotProperties;
+import crypto.insight.crypto.model.CryptoIdentity;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resolved identities per query, persisted so a restart does not have to resolve known coins
+ * again.
+ * <p>
+ * The file is append-only JSON lines: every new or changed identity adds one line and a
+ * removal adds a line without ids. Startup replays the file, last line per query winning.
+ * Whenever the lines outnumber the live identities by the compaction ratio, on startup or as
+ * lines are appended, the file is rewritten with only the live ones.
+ * <p>
+ * Callers run on WebClient and Reactor threads, so they only update the map and queue the line,
+ * both under one lock so the queue holds the changes in map order. A single writer thread owns
+ * the file: it appends whatever has queued up, flushes once per batch and compacts, so the file
+ * always ends with the state the map has once the queue is drained.
+ */
+@Slf4j
+@Component
+public class IdentitySnapshot {
+
+    private final IdentitySnapshotProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Line> identities = new ConcurrentHashMap<>();
+    private final Path file;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+
+    private final ExecutorService writerThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "identity-snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ConcurrentLinkedQueue<Line> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    // Guarded by this
+    private boolean closed;
+
+    // Confined to the writer thread once the constructor is done
+    private BufferedWriter writer;
+    private int lines;
+
+    public IdentitySnapshot(IdentitySnapshotProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.file = properties.isEnabled() ? open(properties.getFile()) : null;
+    }
+
+    /**
+     * The identity last stored for {@code query}, if any.
+     */
+    public Optional<CryptoIdentity> get(String query) {
+        if (file == null) {
+            return Optional.empty();
+        }
+        Line line = identities.get(normalize(query));
+        if (line == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(line.toIdentity(query));
+    }
+
+    /**
+     * Stores {@code identity} for {@code query}, queueing a line for the file only when it changed.
+     */
+    public synchronized void put(String query, CryptoIdentity identity) {
+        if (file == null || closed || identity == null || !identity.isResolved()) {
+            return;
+        }
+        String key = normalize(query);
+        Line line = Line.of(key, identity);
+        if (!line.equals(identities.put(key, line))) {
+            enqueue(line);
+        }
+    }
+
+    /**
+     * Forgets {@code query}, so its next resolution goes to the providers again.
+     */
+    public synchronized void remove(String query) {
+        if (file == null || closed) {
+            return;
+        }
+        String key = normalize(query);
+        if (identities.remove(key) != null) {
+            enqueue(Line.removal(key));
+        }
+    }
+
+    /**
+     * Waits until every change made so far is in the file.
+     */
+    void flush() throws InterruptedException {
+        try {
+            writerThread.submit(this::drain).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Writes out the queued lines and closes the file; later changes only reach the map.
+     */
+    @PreDestroy
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        writerThread.execute(this::drain);
+        writerThread.shutdown();
+        try {
+            if (!writerThread.awaitTermination(5, TimeUnit.SECONDS)) {
+                log.warn("Identity snapshot {} did not finish writing in time", file);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.debug("Failed to close identity snapshot {}: {}", file, e.getMessage());
+        }
+        writer = null;
+    }
+
+    /**
+     * Get identity snapshot statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", file != null);
+        stats.put("identities", identities.size());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("writes", writes.get());
+        stats.put("compactions", compactions.get());
+        return stats;
+    }
+
+    // Called holding this
+    private void enqueue(Line line) {
+        pending.add(line);
+        if (drainScheduled.compareAndSet(false, true)) {
+            writerThread.execute(this::drain);
+        }
+    }
+
+    /** Appends every queued line with one flush, then compacts if needed; runs on the writer thread */
+    private void drain() {
+        drainScheduled.set(false);
+        if (writer == null || pending.isEmpty()) {
+            return;
+        }
+        try {
+            Line line;
+            while ((line = pending.poll()) != null) {
+                writer.write(objectMapper.writeValueAsString(line));
+                writer.newLine();
+                writes.incrementAndGet();
+                lines++;
+            }
+            writer.flush();
+            if (needsCompaction()) {
+                writer.close();
+                writer = null;
+                try {
+                    compact(file);
+                } finally {
+                    writer = openWriter(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to append to identity snapshot {}: {}", file, e.getMessage());
+        }
+    }
+
+    private boolean needsCompaction() {
+        return lines > properties.getCompactionRatio() * Math.max(1, identities.size());
+    }
+
+    private Path open(String location) {
+        Path path = Paths.get(location);
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            lines = Files.exists(path) ? replay(path) : 0;
+            if (needsCompaction()) {
+                compact(path);
+            }
+            writer = openWriter(path);
+            log.info("Identity snapshot loaded {} identities from {}", identities.size(), path.toAbsolutePath());
+            return path;
+        } catch (IOException e) {
+            log.warn("Identity snapshot {} is not usable, persistence disabled: {}", location, e.getMessage());
+            identities.clear();
+            return null;
+        }
+    }
+
+    /** Applies every line of the file in order and returns how many there were */
+    private int replay(Path path) throws IOException {
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        int skipped = 0;
+        for (String text : lines) {
+            if (text.isBlank()) {
+                continue;
+            }
+            try {
+                Line line = objectMapper.readValue(text, Line.class);
+                if (line.isRemoval()) {
+                    identities.remove(line.query());
+                } else {
+                    identities.put(line.query(), line);
+                }
+            } catch (IOException e) {
+                // A torn last line after a crash; everything before it is intact
+                skipped++;
+            }
+        }
+        if (skipped > 0) {
+            log.warn("Skipped {} unreadable lines in identity snapshot {}", skipped, path);
+        }
+        return lines.size();
+    }
+
+    private static BufferedWriter openWriter(Path path) throws IOException {
+        return Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Rewrites the file with only the live identities; called on the writer thread, or from the
+     * constructor. Changes still queued are appended after it, so they win as usual.
+     */
+    private void compact(Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Line line : identities.values()) {
+                out.write(objectMapper.writeValueAsString(line));
+                out.newLine();
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Compacted identity snapshot from {} lines to {}", lines, identities.size());
+        lines = identities.size();
+        compactions.incrementAndGet();
+    }
+
+    private static String normalize(String query) {
+        return query.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /** One line of the file, with short keys to keep it compact */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private record Line(@JsonProperty("q") String query,
+                        @JsonProperty("n") String name,
+                        @JsonProperty("s") String symbol,
+                        @JsonProperty("cg") String coingeckoId,
+                        @JsonProperty("cmc") String coinmarketcapId,
+                        @JsonProperty("cc") String cryptocompareId,
+                        @JsonProperty("cp") String coinpaprikaId) {
+
+        static Line of(String query, CryptoIdentity identity) {
+            return new Line(query, identity.getName(), identity.getSymbol(), identity.getCoingeckoId(),
+                    identity.getCoinmarketcapId(), identity.getCryptocompareId(), identity.getCoinpaprikaId());
+        }
+
+        static Line removal(String query) {
+            return new Line(query, null, null, null, null, null, null);
+        }
+
+        @JsonIgnore
+        boolean isRemoval() {
+            return coingeckoId == null && coinmarketcapId == null && cryptocompareId == null && coinpaprikaId == null;
+        }
+
+        CryptoIdentity toIdentity(String query) {
+            CryptoIdentity identity = new CryptoIdentity(query);
+            identity.setName(name);
+            identity.setSymbol(symbol);
+            identity.setCoingeckoId(coingeckoId);
+            identity.setCoinmarketcapId(coinmarketcapId);
+            identity.setCryptocompareId(cryptocompareId);
+            identity.setCoinpaprikaId(coinpaprikaId);
+            return identity;
+        }
+    }
+}
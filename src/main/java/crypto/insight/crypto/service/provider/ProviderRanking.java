@@ -0,0 +1,346 @@
+package crypto.insight.crypto.service.provider;
+
+import crypto.insight.crypto.config.properties.ProviderHedgingProperties;
+import crypto.insight.crypto.config.properties.ProviderRankingProperties;
+import crypto.insight.crypto.model.CryptoData;
+import crypto.insight.crypto.model.CryptoIdentity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Orders providers by a live score built from moving averages of their latency, error rate and
+ * field completeness, and from their remaining request quota.
+ * <p>
+ * The score is the provider's expected latency, inflated by its error rate, divided by the
+ * fraction of fields it fills and scaled up once its quota falls below the reserve. Providers
+ * with an open circuit breaker go last. Statistics decay back towards the defaults while a
+ * provider is idle, so one that was ranked down is eventually tried again.
+ * <p>
+ * The latency of each provider's most recent fetches is also kept as raw samples, from which
+ * {@link #hedgeDelay} derives how long {@link HedgedProviderFetcher} waits before calling the
+ * next provider. A call cancelled because another provider answered first still counts, as a
+ * lower bound of its latency.
+ */
+@Slf4j
+@Component
+public class ProviderRanking {
+
+    private final ProviderRankingProperties properties;
+    private final ProviderHedgingProperties hedgingProperties;
+    private final RateLimitingService rateLimitingService;
+    private final Map<String, ProviderScore> scores = new ConcurrentHashMap<>();
+
+    public ProviderRanking(ProviderRankingProperties properties, ProviderHedgingProperties hedgingProperties,
+                           RateLimitingService rateLimitingService) {
+        this.properties = properties;
+        this.hedgingProperties = hedgingProperties;
+        this.rateLimitingService = rateLimitingService;
+    }
+
+    /**
+     * Records the outcome of a {@link DataProvider#fetchData} call, including how many fields it filled.
+     */
+    public Mono<CryptoData> observeFetch(DataProvider provider, Mono<CryptoData> fetch) {
+        return observe(provider.getProviderName(), fetch, ProviderRanking::completeness);
+    }
+
+    /**
+     * Records the outcome of a {@link DataProvider#resolveIdentity} call.
+     */
+    public Mono<CryptoIdentity> observeResolve(DataProvider provider, Mono<CryptoIdentity> resolve) {
+        return observe(provider.getProviderName(), resolve, null);
+    }
+
+    private <T> Mono<T> observe(String provider, Mono<T> call, Function<T, Double> completeness) {
+        // Only fetches feed the hedge delay
+        boolean fetch = completeness != null;
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            // Set once the call has an outcome, so a cancel arriving after it is not counted
+            AtomicBoolean answered = new AtomicBoolean();
+            return call
+                    .doOnNext(value -> recordAnswer(provider, start, answered, fetch ? completeness.apply(value) : null, fetch))
+                    .switchIfEmpty(Mono.fromRunnable(() -> recordAnswer(provider, start, answered, fetch ? 0.0 : null, fetch)))
+                    .doOnError(error -> {
+                        answered.set(true);
+                        recordError(provider, System.nanoTime() - start, error, fetch);
+                        if (fetch) {
+                            score(provider).recordFetchLatency(System.nanoTime() - start, true);
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (!answered.get()) {
+                            score(provider).recordCancelled(System.nanoTime() - start, fetch);
+                        }
+                    });
+        });
+    }
+
+    private void recordAnswer(String provider, long start, AtomicBoolean answered, Double filled, boolean fetch) {
+        answered.set(true);
+        long elapsed = System.nanoTime() - start;
+        score(provider).recordSuccess(elapsed, filled);
+        if (fetch) {
+            score(provider).recordFetchLatency(elapsed, false);
+        }
+    }
+
+    /**
+     * How long to wait for a fetch from {@code provider} before calling the next one: its
+     * observed fetch latency at the configured percentile, or the default delay while it has too
+     * few samples.
+     */
+    public Duration hedgeDelay(String provider) {
+        ProviderScore score = scores.get(provider);
+        long nanos = score != null ? score.fetchLatencyPercentile(hedgingProperties.getHedgePercentile(),
+                hedgingProperties.getMinSamples()) : -1;
+        if (nanos < 0) {
+            return hedgingProperties.getDefaultHedgeDelay();
+        }
+        long min = hedgingProperties.getMinHedgeDelay().toNanos();
+        long max = hedgingProperties.getMaxHedgeDelay().toNanos();
+        return Duration.ofNanos(Math.max(min, Math.min(max, nanos)));
+    }
+
+    private void recordError(String provider, long elapsedNanos, Throwable error, boolean tracksCompleteness) {
+        ProviderScore score = score(provider);
+        if (isRateLimited(error)) {
+            score.recordRateLimited(properties.getRateLimitCooldown().toMillis());
+            score.recordFailure(elapsedNanos);
+        } else if (isProviderFault(error)) {
+            score.recordFailure(elapsedNanos);
+        } else {
+            // The provider answered but has nothing for this coin: a coverage gap, not a health problem
+            score.recordSuccess(elapsedNanos, tracksCompleteness ? 0.0 : null);
+        }
+    }
+
+    /**
+     * Returns the providers best score first. Keeps the given order when ranking is disabled.
+     */
+    public List<DataProvider> rank(List<DataProvider> providers) {
+        if (!properties.isEnabled()) {
+            return providers;
+        }
+        Map<String, Double> current = new HashMap<>();
+        providers.forEach(provider -> current.put(provider.getProviderName(), score(provider.getProviderName()).value()));
+        List<DataProvider> ranked = new ArrayList<>(providers);
+        ranked.sort(Comparator.comparingDouble(provider -> current.get(provider.getProviderName())));
+        return ranked;
+    }
+
+    /**
+     * Get per-provider ranking statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        Map<String, Object> providers = new HashMap<>();
+        scores.forEach((provider, score) -> providers.put(provider, score.snapshot()));
+        stats.put("providers", providers);
+        return stats;
+    }
+
+    private ProviderScore score(String provider) {
+        return scores.computeIfAbsent(provider, ProviderScore::new);
+    }
+
+    private static boolean isRateLimited(Throwable error) {
+        if (error instanceof WebClientResponseException response) {
+            return response.getStatusCode().value() == 429;
+        }
+        String message = error.getMessage();
+        return message != null && (message.contains("429") || message.contains("Too Many Requests"));
+    }
+
+    private static boolean isProviderFault(Throwable error) {
+        if (error instanceof WebClientResponseException response) {
+            return response.getStatusCode().is5xxServerError();
+        }
+        return error instanceof TimeoutException || error instanceof WebClientRequestException;
+    }
+
+    /** Fraction of the market fields a provider filled */
+    private static double completeness(CryptoData data) {
+        long filled = Stream.of(data.getCurrentPrice(), data.getMarketCap(), data.getVolume24h(),
+                        data.getPriceChange24h(), data.getMarketCapRank(), data.getCirculatingSupply(),
+                        data.getTotalSupply(), data.getMaxSupply(), data.getImageUrl())
+                .filter(value -> value != null)
+                .count();
+        return filled / 9.0;
+    }
+
+    private final class ProviderScore {
+        private final String provider;
+        private final SampleWindow fetchLatencies = new SampleWindow(Math.max(1, hedgingProperties.getSampleWindow()));
+
+        // Guarded by this
+        private double latencyMs = properties.getDefaultLatency().toMillis();
+        private double errorRate;
+        private double completeness = 1.0;
+        private long calls;
+        private long lastDecayMillis = System.currentTimeMillis();
+        private long rateLimitedUntilMillis;
+
+        ProviderScore(String provider) {
+            this.provider = provider;
+        }
+
+        synchronized void recordSuccess(long elapsedNanos, Double filled) {
+            update(elapsedNanos, 0.0);
+            if (filled != null) {
+                completeness += properties.getSmoothing() * (filled - completeness);
+            }
+        }
+
+        synchronized void recordFailure(long elapsedNanos) {
+            update(elapsedNanos, 1.0);
+        }
+
+        /**
+         * A call cancelled after {@code elapsedNanos}, usually because another provider answered
+         * first. Its latency is only known to be at least that long, so it counts as a latency
+         * sample when it already exceeds what is expected of the provider; a shorter one says
+         * nothing new. Without it a slow provider that always loses the race is never ranked down.
+         */
+        synchronized void recordCancelled(long elapsedNanos, boolean fetch) {
+            decay();
+            if (elapsedNanos / 1_000_000.0 > latencyMs) {
+                update(elapsedNanos, 0.0);
+            }
+            if (fetch && elapsedNanos > fetchLatencies.percentile(hedgingProperties.getHedgePercentile(), 1)) {
+                fetchLatencies.add(elapsedNanos, false);
+            }
+        }
+
+        synchronized void recordFetchLatency(long elapsedNanos, boolean failed) {
+            fetchLatencies.add(elapsedNanos, failed);
+        }
+
+        synchronized long fetchLatencyPercentile(double percentile, int minSamples) {
+            return fetchLatencies.percentile(percentile, minSamples);
+        }
+
+        synchronized void recordRateLimited(long cooldownMillis) {
+            rateLimitedUntilMillis = System.currentTimeMillis() + cooldownMillis;
+            log.info("Ranking {} down for {} ms after a rate-limited response", provider, cooldownMillis);
+        }
+
+        private void update(long elapsedNanos, double error) {
+            decay();
+            double alpha = properties.getSmoothing();
+            latencyMs += alpha * (elapsedNanos / 1_000_000.0 - latencyMs);
+            errorRate += alpha * (error - errorRate);
+            calls++;
+        }
+
+        /** Moves latency and error rate back towards the defaults in proportion to the idle time */
+        private void decay() {
+            long now = System.currentTimeMillis();
+            double halfLife = Math.max(1, properties.getRecoveryHalfLife().toMillis());
+            double keep = Math.pow(0.5, (now - lastDecayMillis) / halfLife);
+            double defaultLatency = properties.getDefaultLatency().toMillis();
+            latencyMs = defaultLatency + (latencyMs - defaultLatency) * keep;
+            errorRate *= keep;
+            lastDecayMillis = now;
+        }
+
+        synchronized double remainingQuota() {
+            if (System.currentTimeMillis() < rateLimitedUntilMillis) {
+                return 0.0;
+            }
+            return rateLimitingService.getRemainingQuota(provider);
+        }
+
+        /** Expected cost of calling the provider; lower ranks first */
+        synchronized double value() {
+            if (rateLimitingService.isCircuitOpen(provider)) {
+                return Double.MAX_VALUE;
+            }
+            decay();
+            double cost = latencyMs * (1 + properties.getErrorPenalty() * errorRate) / Math.max(0.1, completeness);
+            double reserve = properties.getQuotaReserve();
+            if (reserve > 0) {
+                cost /= Math.max(0.01, Math.min(1.0, remainingQuota() / reserve));
+            }
+            return cost;
+        }
+
+        synchronized Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("score", value());
+            snapshot.put("latencyMs", latencyMs);
+            snapshot.put("errorRate", errorRate);
+            snapshot.put("completeness", completeness);
+            snapshot.put("remainingQuota", remainingQuota());
+            snapshot.put("circuitOpen", rateLimitingService.isCircuitOpen(provider));
+            snapshot.put("calls", calls);
+            snapshot.put("fetchSamples", fetchLatencies.size);
+            snapshot.put("fetchSuccessRate", fetchLatencies.successRate());
+            snapshot.put("fetchP50Ms", fetchLatencies.percentile(0.5, 1) / 1_000_000.0);
+            snapshot.put("fetchP90Ms", fetchLatencies.percentile(0.9, 1) / 1_000_000.0);
+            snapshot.put("hedgeDelayMs", hedgeDelay(provider).toMillis());
+            return snapshot;
+        }
+    }
+
+    /** Ring buffer of the last fetches, guarded by the score; small enough to sort a copy per query */
+    private static final class SampleWindow {
+        private final long[] latencies;
+        private final boolean[] failed;
+        private int next;
+        private int size;
+
+        SampleWindow(int capacity) {
+            this.latencies = new long[capacity];
+            this.failed = new boolean[capacity];
+        }
+
+        void add(long latency, boolean failure) {
+            latencies[next] = latency;
+            failed[next] = failure;
+            next = (next + 1) % latencies.length;
+            size = Math.min(size + 1, latencies.length);
+        }
+
+        double successRate() {
+            if (size == 0) {
+                return 1.0;
+            }
+            int failures = 0;
+            for (int i = 0; i < size; i++) {
+                if (failed[i]) {
+                    failures++;
+                }
+            }
+            return 1.0 - (double) failures / size;
+        }
+
+        /** Latency percentile over all fetches, or -1 with fewer than {@code minSamples} */
+        long percentile(double percentile, int minSamples) {
+            if (size < Math.max(1, minSamples)) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * size) - 1;
+            return sorted[Math.max(0, Math.min(size - 1, index))];
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package crypto.insight.crypto.service.provider;
+
+import crypto.insight.crypto.config.properties.ProviderBatchingProperties;
+import crypto.insight.crypto.model.CryptoData;
+import crypto.insight.crypto.model.CryptoIdentity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.ContextView;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces single-coin {@link DataProvider#fetchData} calls into multi-symbol upstream calls.
+ * <p>
+ * The first lookup for a provider opens a batch; lookups arriving within the configured window
+ * join it (callers asking for the same coin share one slot), and the batch is sent when the
+ * window closes or the provider's {@link DataProvider#maxBatchSize()} is reached. Results are
+ * split back to each caller by {@link DataProvider#batchKey}.
+ * <p>
+ * Lookups only share a batch when they are in the same {@link RequestPriority} lane and agree on
+ * whether they already hold a rate limit permit. The batch is sent with the Reactor context of
+ * the lookup that opened it, so the upstream call is scheduled in that lane and takes a token
+ * only when its callers have not.
+ */
+@Slf4j
+@Component
+public class ProviderRequestBatcher {
+
+    private final ProviderBatchingProperties properties;
+    private final Map<BatchKey, PendingBatch> pending = new HashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public ProviderRequestBatcher(ProviderBatchingProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Fetches data for one identity, joining a pending multi-symbol call when the provider supports it.
+     */
+    public Mono<CryptoData> fetch(DataProvider provider, CryptoIdentity identity) {
+        String key = properties.isEnabled() && provider.maxBatchSize() > 1 ? provider.batchKey(identity) : null;
+        if (key == null) {
+            return provider.fetchData(identity);
+        }
+        return Mono.deferContextual(context -> enqueue(provider, key, identity, context));
+    }
+
+    private Mono<CryptoData> enqueue(DataProvider provider, String key, CryptoIdentity identity, ContextView context) {
+        requests.incrementAndGet();
+        BatchKey batchKey = new BatchKey(provider.getProviderName(), RequestPriority.from(context),
+                RateLimitingService.holdsPermit(context, provider.getProviderName()));
+        PendingBatch full = null;
+        Sinks.One<CryptoData> sink;
+        synchronized (pending) {
+            PendingBatch batch = pending.get(batchKey);
+            if (batch == null) {
+                batch = new PendingBatch(batchKey, provider, context);
+                pending.put(batchKey, batch);
+                PendingBatch scheduled = batch;
+                Schedulers.parallel().schedule(() -> flushIfPending(scheduled),
+                        properties.getWindow().toMillis(), TimeUnit.MILLISECONDS);
+            }
+            PendingRequest request = batch.requests.get(key);
+            if (request == null) {
+                request = new PendingRequest(identity);
+                batch.requests.put(key, request);
+            } else {
+                coalesced.incrementAndGet();
+            }
+            sink = request.sink;
+            if (batch.requests.size() >= provider.maxBatchSize()) {
+                pending.remove(batchKey);
+                full = batch;
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return sink.asMono();
+    }
+
+    private void flushIfPending(PendingBatch batch) {
+        synchronized (pending) {
+            if (pending.get(batch.key) != batch) {
+                return;
+            }
+            pending.remove(batch.key);
+        }
+        send(batch);
+    }
+
+    private void send(PendingBatch batch) {
+        batches.incrementAndGet();
+        List<CryptoIdentity> identities = new ArrayList<>(batch.requests.size());
+        batch.requests.values().forEach(request -> identities.add(request.identity));
+        log.debug("Sending {} {} batch of {} coins", batch.provider.getProviderName(),
+                batch.key.lane().name().toLowerCase(), identities.size());
+
+        batch.provider.fetchDataBatch(identities)
+                .defaultIfEmpty(Map.of())
+                .contextWrite(batch.context)
+                .subscribe(
+                        results -> batch.requests.forEach((key, request) -> {
+                            CryptoData data = results.get(key);
+                            if (data != null) {
+                                request.sink.tryEmitValue(data);
+                            } else {
+                                request.sink.tryEmitEmpty();
+                            }
+                        }),
+                        error -> {
+                            log.debug("{} batch of {} coins failed: {}", batch.provider.getProviderName(),
+                                    identities.size(), error.getMessage());
+                            batch.requests.values().forEach(request -> request.sink.tryEmitError(error));
+                        });
+    }
+
+    /**
+     * Get batching statistics
+     */
+    public Map<String, Object> getStatistics() {
+        long sentBatches = batches.get();
+        long totalRequests = requests.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("windowMs", properties.getWindow().toMillis());
+        stats.put("requests", totalRequests);
+        stats.put("batches", sentBatches);
+        stats.put("coalescedDuplicates", coalesced.get());
+        stats.put("averageBatchSize", sentBatches > 0 ? (double) (totalRequests - coalesced.get()) / sentBatches : 0.0);
+        return stats;
+    }
+
+    /** Lookups that may share one upstream call */
+    private record BatchKey(String provider, RequestPriority lane, boolean permitHeld) {
+    }
+
+    private static final class PendingBatch {
+        final BatchKey key;
+        final DataProvider provider;
+        final ContextView context;
+        final Map<String, PendingRequest> requests = new LinkedHashMap<>();
+
+        PendingBatch(BatchKey key, DataProvider provider, ContextView context) {
+            this.key = key;
+            this.provider = provider;
+            this.context = context;
+        }
+    }
+
+    private static final class PendingRequest {
+        final CryptoIdentity identity;
+        final Sinks.One<CryptoData> sink = Sinks.one();
+
+        PendingRequest(CryptoIdentity identity) {
+            this.identity = identity;
+        }
+    }
+}
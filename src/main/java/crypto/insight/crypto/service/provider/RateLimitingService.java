@@ -1,92 +1,66 @@
 package crypto.insight.crypto.service.provider;
 
+import crypto.insight.crypto.config.properties.RateLimitingProperties;
+import crypto.insight.crypto.exception.CryptoApiException;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.Refill;
+import io.github.bucket4j.TimeMeter;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Advanced rate limiting service with exponential backoff and circuit breaker pattern
- * to handle API rate limits from multiple crypto data providers
+ * Per-provider token buckets with non-blocking permit waiting, plus a circuit breaker per
+ * provider.
+ * <p>
+ * Each bucket refills continuously at the provider's per-minute allowance and holds a small
+ * burst, so requests are spread out instead of spending a whole window at once. Interactive
+ * requests reserve their permit in order and wait for it without blocking a thread, up to a
+ * bounded time. Every other lane may only take tokens above the interactive reserve and never
+ * reserves ahead, so warmers cannot starve users of a provider's quota.
  */
 @Service
 @Slf4j
 public class RateLimitingService {
-    
-    // Rate limit tracking per provider
-    private final ConcurrentHashMap<String, ProviderRateLimit> providerLimits = new ConcurrentHashMap<>();
-    
-    // Circuit breaker state per provider
-    private final ConcurrentHashMap<String, CircuitBreakerState> circuitBreakers = new ConcurrentHashMap<>();
-    
-    // Default rate limits (requests per minute)
-    private static final int COINGECKO_FREE_LIMIT = 30;
-    private static final int COINMARKETCAP_FREE_LIMIT = 10;
-    private static final int COINPAPRIKA_FREE_LIMIT = 25;
-    private static final int CRYPTOCOMPARE_FREE_LIMIT = 100;
-    
+
     // Circuit breaker thresholds
     private static final int FAILURE_THRESHOLD = 5;
     private static final Duration CIRCUIT_BREAKER_TIMEOUT = Duration.ofMinutes(2);
-    
-    public static class ProviderRateLimit {
-        private final AtomicInteger requestCount = new AtomicInteger(0);
-        private final AtomicInteger failureCount = new AtomicInteger(0);
-        private volatile Instant windowStart = Instant.now();
-        private volatile Instant lastRequest = Instant.now();
-        private final int maxRequests;
-        private final Duration windowDuration = Duration.ofMinutes(1);
-        
-        public ProviderRateLimit(int maxRequests) {
-            this.maxRequests = maxRequests;
-        }
-        
-        public boolean canMakeRequest() {
-            Instant now = Instant.now();
-            
-            // Reset window if needed
-            if (Duration.between(windowStart, now).compareTo(windowDuration) >= 0) {
-                requestCount.set(0);
-                windowStart = now;
-            }
-            
-            return requestCount.get() < maxRequests;
-        }
-        
-        public void recordRequest() {
-            requestCount.incrementAndGet();
-            lastRequest = Instant.now();
-        }
-        
-        public void recordFailure() {
-            failureCount.incrementAndGet();
-        }
-        
-        public void recordSuccess() {
-            failureCount.set(0); // Reset failure count on success
-        }
-        
-        public int getFailureCount() {
-            return failureCount.get();
-        }
-        
-        public Duration getTimeUntilNextRequest() {
-            // Calculate delay based on failure count (exponential backoff)
-            int failures = failureCount.get();
-            long delaySeconds = Math.min(300, (long) Math.pow(2, failures)); // Max 5 minutes
-            return Duration.ofSeconds(delaySeconds);
-        }
-    }
-    
+
+    /** Context key marking an operation that already holds a permit, valued with the provider */
+    private static final String PERMIT_KEY = RateLimitingService.class.getName() + ".permit";
+
+    /** Lower bound between background permit checks, so an exhausted bucket is not polled hot */
+    private static final long MIN_POLL_NANOS = Duration.ofMillis(50).toNanos();
+
+    private final RateLimitingProperties properties;
+    private final TimeMeter timeMeter;
+    private final Map<String, ProviderLimiter> limiters = new ConcurrentHashMap<>();
+    private final Map<String, CircuitBreakerState> circuitBreakers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService permitScheduler;
+
     public static class CircuitBreakerState {
         private volatile boolean isOpen = false;
         private volatile Instant lastFailureTime = Instant.now();
         private final AtomicInteger consecutiveFailures = new AtomicInteger(0);
-        
+
         public boolean isOpen() {
             if (isOpen && Duration.between(lastFailureTime, Instant.now()).compareTo(CIRCUIT_BREAKER_TIMEOUT) >= 0) {
                 // Try to close circuit after timeout
@@ -96,17 +70,17 @@ public class RateLimitingService {
             }
             return isOpen;
         }
-        
+
         public void recordFailure() {
             consecutiveFailures.incrementAndGet();
             lastFailureTime = Instant.now();
-            
+
             if (consecutiveFailures.get() >= FAILURE_THRESHOLD) {
                 isOpen = true;
                 log.warn("Circuit breaker opened after {} consecutive failures", consecutiveFailures.get());
             }
         }
-        
+
         public void recordSuccess() {
             consecutiveFailures.set(0);
             if (isOpen) {
@@ -114,151 +88,351 @@ public class RateLimitingService {
                 log.info("Circuit breaker closed after successful request");
             }
         }
+
+        public int getConsecutiveFailures() {
+            return consecutiveFailures.get();
+        }
     }
-    
-    public RateLimitingService() {
-        // Initialize rate limits for each provider
-        providerLimits.put("CoinGecko", new ProviderRateLimit(COINGECKO_FREE_LIMIT));
-        providerLimits.put("CoinMarketCap", new ProviderRateLimit(COINMARKETCAP_FREE_LIMIT));
-        providerLimits.put("CoinPaprika", new ProviderRateLimit(COINPAPRIKA_FREE_LIMIT));
-        providerLimits.put("CryptoCompare", new ProviderRateLimit(CRYPTOCOMPARE_FREE_LIMIT));
-        
-        // Initialize circuit breakers
-        circuitBreakers.put("CoinGecko", new CircuitBreakerState());
-        circuitBreakers.put("CoinMarketCap", new CircuitBreakerState());
-        circuitBreakers.put("CoinPaprika", new CircuitBreakerState());
-        circuitBreakers.put("CryptoCompare", new CircuitBreakerState());
+
+    @Autowired
+    public RateLimitingService(RateLimitingProperties properties) {
+        this(properties, TimeMeter.SYSTEM_NANOTIME);
     }
-    
+
     /**
-     * Check if a request can be made to the specified provider
+     * With {@code timeMeter} as the clock the buckets refill by and background waits are
+     * bounded by, so tests can move time by hand.
      */
-    public boolean canMakeRequest(String providerName) {
-        CircuitBreakerState circuitBreaker = circuitBreakers.get(providerName);
-        if (circuitBreaker != null && circuitBreaker.isOpen()) {
-            log.debug("Circuit breaker is open for provider: {}", providerName);
-            return false;
-        }
-        
-        ProviderRateLimit rateLimit = providerLimits.get(providerName);
-        if (rateLimit != null) {
-            return rateLimit.canMakeRequest();
+    RateLimitingService(RateLimitingProperties properties, TimeMeter timeMeter) {
+        this.properties = properties;
+        this.timeMeter = timeMeter;
+        this.permitScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-permits");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        RateLimitingProperties.Providers providers = properties.getProviders();
+        register("CoinGecko", providers.getCoinGecko());
+        register("CoinMarketCap", providers.getCoinMarketCap());
+        register("CoinPaprika", providers.getCoinPaprika());
+        register("CryptoCompare", providers.getCryptoCompare());
+    }
+
+    private void register(String provider, RateLimitingProperties.Provider limits) {
+        circuitBreakers.put(provider, new CircuitBreakerState());
+        if (properties.getGlobal().isEnabled() && limits.isEnabled() && limits.getMaxRequestsPerMinute() > 0) {
+            limiters.put(provider, new ProviderLimiter(provider, limits));
         }
-        
-        return true; // Default to allow if provider not configured
     }
-    
+
+    @PreDestroy
+    public void shutdown() {
+        permitScheduler.shutdownNow();
+    }
+
     /**
-     * Get the delay before the next request can be made
+     * Check if a request can be made to the specified provider right now
      */
-    public Duration getDelayBeforeNextRequest(String providerName) {
-        ProviderRateLimit rateLimit = providerLimits.get(providerName);
-        if (rateLimit != null) {
-            return rateLimit.getTimeUntilNextRequest();
+    public boolean canMakeRequest(String providerName) {
+        if (isCircuitOpen(providerName)) {
+            log.debug("Circuit breaker is open for provider: {}", providerName);
+            return false;
         }
-        return Duration.ZERO;
+        ProviderLimiter limiter = limiters.get(providerName);
+        return limiter == null || limiter.bucket.getAvailableTokens() > 0;
     }
-    
+
     /**
      * Record a successful request
      */
     public void recordSuccess(String providerName) {
-        ProviderRateLimit rateLimit = providerLimits.get(providerName);
-        if (rateLimit != null) {
-            rateLimit.recordRequest();
-            rateLimit.recordSuccess();
-        }
-        
         CircuitBreakerState circuitBreaker = circuitBreakers.get(providerName);
         if (circuitBreaker != null) {
             circuitBreaker.recordSuccess();
         }
     }
-    
+
     /**
-     * Record a failed request (rate limited or other error)
+     * Record a failed request. A rate-limited answer also empties the provider's bucket, so no
+     * further request goes out before it has refilled.
      */
     public void recordFailure(String providerName, boolean isRateLimited) {
-        ProviderRateLimit rateLimit = providerLimits.get(providerName);
-        if (rateLimit != null) {
-            if (isRateLimited) {
-                rateLimit.recordRequest(); // Count as a request even if rate limited
-            }
-            rateLimit.recordFailure();
+        if (isRateLimited) {
+            recordThrottled(providerName);
         }
-        
+
         CircuitBreakerState circuitBreaker = circuitBreakers.get(providerName);
         if (circuitBreaker != null) {
             circuitBreaker.recordFailure();
         }
     }
-    
+
     /**
-     * Get provider priority based on current state (less failures = higher priority)
+     * Empties the provider's bucket after it answered 429, without counting towards its circuit
+     * breaker
      */
-    public int getProviderPriority(String providerName) {
-        CircuitBreakerState circuitBreaker = circuitBreakers.get(providerName);
-        if (circuitBreaker != null && circuitBreaker.isOpen()) {
-            return Integer.MAX_VALUE; // Lowest priority
+    public void recordThrottled(String providerName) {
+        ProviderLimiter limiter = limiters.get(providerName);
+        if (limiter != null) {
+            long drained = limiter.bucket.tryConsumeAsMuchAsPossible();
+            log.info("{} answered 429; drained {} tokens from its bucket", providerName, drained);
         }
-        
-        ProviderRateLimit rateLimit = providerLimits.get(providerName);
-        if (rateLimit != null) {
-            return rateLimit.getFailureCount();
+    }
+
+    /**
+     * Takes a token if one is available, never waiting. Lets calls that are not rate limited
+     * themselves still show up in the quota the other lanes see.
+     */
+    public void consumeIfAvailable(String providerName) {
+        ProviderLimiter limiter = limiters.get(providerName);
+        if (limiter != null) {
+            limiter.bucket.tryConsume(1);
         }
-        
-        return 0; // Default priority
     }
-    
+
+    /**
+     * Whether the provider's circuit breaker is currently open
+     */
+    public boolean isCircuitOpen(String providerName) {
+        CircuitBreakerState circuitBreaker = circuitBreakers.get(providerName);
+        return circuitBreaker != null && circuitBreaker.isOpen();
+    }
+
+    /**
+     * Fraction of the provider's bucket currently available
+     */
+    public double getRemainingQuota(String providerName) {
+        ProviderLimiter limiter = limiters.get(providerName);
+        if (limiter != null) {
+            return Math.max(0, limiter.bucket.getAvailableTokens()) / (double) limiter.capacity;
+        }
+        return 1.0; // Unlimited if provider not configured
+    }
+
     /**
-     * Create a rate-limited Mono that respects the provider's limits
+     * Runs {@code operation} once the provider grants a permit, at the priority found in the
+     * Reactor context (interactive unless a caller set another lane).
      */
     public <T> Mono<T> executeWithRateLimit(String providerName, Mono<T> operation) {
+        return Mono.deferContextual(context ->
+                executeWithRateLimit(providerName, RequestPriority.from(context), operation));
+    }
+
+    /**
+     * Runs {@code operation} once the provider grants a permit at {@code priority}. Fails with a
+     * {@link CryptoApiException} when the circuit is open, too many requests are already
+     * waiting, or no permit is available within the priority's maximum wait.
+     */
+    public <T> Mono<T> executeWithRateLimit(String providerName, RequestPriority priority, Mono<T> operation) {
+        // Only the provider's own answer feeds the circuit breaker, not a local rejection
+        return acquirePermit(providerName, priority).then(operation
+                .doOnSuccess(result -> recordSuccess(providerName))
+                .doOnError(error -> recordFailure(providerName, isRateLimited(error)))
+                .contextWrite(context -> context.put(PERMIT_KEY, providerName)));
+    }
+
+    /**
+     * Completes once the provider grants a permit at {@code priority}, failing like
+     * {@link #executeWithRateLimit(String, RequestPriority, Mono)} does.
+     */
+    public Mono<Void> acquirePermit(String providerName, RequestPriority priority) {
         return Mono.defer(() -> {
-            if (!canMakeRequest(providerName)) {
-                Duration delay = getDelayBeforeNextRequest(providerName);
-                log.debug("Rate limiting {} - delaying request by {} seconds", providerName, delay.getSeconds());
-                
-                return Mono.delay(delay)
-                    .then(operation)
-                    .doOnSuccess(result -> recordSuccess(providerName))
-                    .doOnError(error -> {
-                        boolean isRateLimited = error.getMessage().contains("429") || 
-                                               error.getMessage().contains("Too Many Requests");
-                        recordFailure(providerName, isRateLimited);
-                    });
-            } else {
-                return operation
-                    .doOnSuccess(result -> recordSuccess(providerName))
-                    .doOnError(error -> {
-                        boolean isRateLimited = error.getMessage().contains("429") || 
-                                               error.getMessage().contains("Too Many Requests");
-                        recordFailure(providerName, isRateLimited);
-                    });
+            if (isCircuitOpen(providerName)) {
+                return Mono.error(rejection(providerName, "circuit breaker open"));
             }
+            ProviderLimiter limiter = limiters.get(providerName);
+            return limiter != null ? limiter.acquire(priority) : Mono.empty();
         });
     }
-    
+
+    /**
+     * Whether the pipeline reading {@code context} runs inside {@link #executeWithRateLimit} for
+     * {@code providerName}, so its HTTP calls must not take a second token.
+     */
+    public static boolean holdsPermit(ContextView context, String providerName) {
+        return providerName.equals(context.getOrDefault(PERMIT_KEY, null));
+    }
+
+    private static boolean isRateLimited(Throwable error) {
+        if (error instanceof WebClientResponseException response) {
+            return response.getStatusCode().value() == 429;
+        }
+        String message = error.getMessage();
+        return message != null && (message.contains("429") || message.contains("Too Many Requests"));
+    }
+
+    private static CryptoApiException rejection(String providerName, String reason) {
+        return new CryptoApiException("Rate limit exceeded for " + providerName + ": " + reason,
+                providerName, 429, null);
+    }
+
     /**
      * Get rate limit status for all providers
      */
     public String getRateLimitStatus() {
         StringBuilder status = new StringBuilder();
         status.append("Rate Limit Status:\n");
-        
-        for (String provider : providerLimits.keySet()) {
-            ProviderRateLimit limit = providerLimits.get(provider);
-            CircuitBreakerState circuit = circuitBreakers.get(provider);
-            
-            status.append(String.format("  %s: Requests=%d/%d, Failures=%d, Circuit=%s\n",
-                provider, 
-                limit.requestCount.get(), 
-                limit.maxRequests,
-                limit.getFailureCount(),
-                circuit.isOpen() ? "OPEN" : "CLOSED"
+
+        for (Map.Entry<String, CircuitBreakerState> entry : circuitBreakers.entrySet()) {
+            ProviderLimiter limiter = limiters.get(entry.getKey());
+            status.append(String.format("  %s: Tokens=%s, Waiting=%d, Failures=%d, Circuit=%s\n",
+                entry.getKey(),
+                limiter != null ? limiter.bucket.getAvailableTokens() + "/" + limiter.capacity : "unlimited",
+                limiter != null ? limiter.waiting.get() : 0,
+                entry.getValue().getConsecutiveFailures(),
+                entry.getValue().isOpen() ? "OPEN" : "CLOSED"
             ));
         }
-        
+
         return status.toString();
     }
+
+    /**
+     * Get per-provider token bucket and queueing statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        circuitBreakers.forEach((provider, circuitBreaker) -> {
+            Map<String, Object> providerStats = new HashMap<>();
+            ProviderLimiter limiter = limiters.get(provider);
+            if (limiter != null) {
+                providerStats.putAll(limiter.snapshot());
+            }
+            providerStats.put("circuitOpen", circuitBreaker.isOpen());
+            providerStats.put("consecutiveFailures", circuitBreaker.getConsecutiveFailures());
+            stats.put(provider, providerStats);
+        });
+        return stats;
+    }
+
+    private final class ProviderLimiter {
+        private final String provider;
+        private final Bucket bucket;
+        private final long capacity;
+        /** Tokens background requests must leave in the bucket */
+        private final long reserve;
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final Map<RequestPriority, PriorityCounters> counters = new EnumMap<>(RequestPriority.class);
+
+        ProviderLimiter(String provider, RateLimitingProperties.Provider limits) {
+            this.provider = provider;
+            this.capacity = limits.getBurstCapacity() > 0
+                    ? limits.getBurstCapacity()
+                    : Math.max(1, limits.getMaxRequestsPerMinute() / 6);
+            this.bucket = Bucket.builder()
+                    .addLimit(Bandwidth.classic(capacity,
+                            Refill.greedy(limits.getMaxRequestsPerMinute(), limits.getRateLimitWindow())))
+                    .withCustomTimePrecision(timeMeter)
+                    .build();
+            long reserved = Math.round(capacity * properties.getQueue().getInteractiveReserve());
+            this.reserve = Math.max(0, Math.min(capacity - 1, reserved));
+            for (RequestPriority priority : RequestPriority.values()) {
+                counters.put(priority, new PriorityCounters());
+            }
+        }
+
+        Mono<Void> acquire(RequestPriority priority) {
+            return priority.isInteractive() ? acquireInteractive() : acquireBackground(priority);
+        }
+
+        /** Takes a token, or reserves the next one and waits for it without blocking */
+        private Mono<Void> acquireInteractive() {
+            PriorityCounters counter = counters.get(RequestPriority.INTERACTIVE);
+            if (bucket.tryConsume(1)) {
+                counter.immediate.incrementAndGet();
+                return Mono.empty();
+            }
+            if (!enqueue(counter)) {
+                return Mono.error(rejection(provider, "too many requests waiting"));
+            }
+            Duration maxWait = properties.getQueue().getInteractiveMaxWait();
+            return Mono.fromFuture(bucket.asScheduler().tryConsume(1, maxWait, permitScheduler))
+                    .doFinally(signal -> waiting.decrementAndGet())
+                    .flatMap(granted -> {
+                        if (granted) {
+                            counter.waited.incrementAndGet();
+                            return Mono.<Void>empty();
+                        }
+                        counter.rejected.incrementAndGet();
+                        return Mono.error(rejection(provider, "no permit within " + maxWait.toMillis() + " ms"));
+                    });
+        }
+
+        /** Takes a token above the interactive reserve, checking again as the bucket refills */
+        private Mono<Void> acquireBackground(RequestPriority priority) {
+            PriorityCounters counter = counters.get(priority);
+            if (tryConsumeAboveReserve()) {
+                counter.immediate.incrementAndGet();
+                return Mono.empty();
+            }
+            if (!enqueue(counter)) {
+                return Mono.error(rejection(provider, "too many requests waiting"));
+            }
+            long deadline = timeMeter.currentTimeNanos() + properties.getQueue().getBackgroundMaxWait().toNanos();
+            return pollAboveReserve(deadline)
+                    .doOnSuccess(ignored -> counter.waited.incrementAndGet())
+                    .doOnError(error -> counter.rejected.incrementAndGet())
+                    .doFinally(signal -> waiting.decrementAndGet());
+        }
+
+        private Mono<Void> pollAboveReserve(long deadline) {
+            return Mono.defer(() -> {
+                if (tryConsumeAboveReserve()) {
+                    return Mono.empty();
+                }
+                long wait = Math.max(MIN_POLL_NANOS, bucket.estimateAbilityToConsume(reserve + 1).getNanosToWaitForRefill());
+                if (timeMeter.currentTimeNanos() + wait > deadline) {
+                    return Mono.error(rejection(provider, "background quota exhausted"));
+                }
+                return Mono.delay(Duration.ofNanos(wait)).then(pollAboveReserve(deadline));
+            });
+        }
+
+        private boolean tryConsumeAboveReserve() {
+            ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(1);
+            if (!probe.isConsumed()) {
+                return false;
+            }
+            if (probe.getRemainingTokens() >= reserve) {
+                return true;
+            }
+            // Dipped into the interactive reserve: hand the token back
+            bucket.addTokens(1);
+            return false;
+        }
+
+        private boolean enqueue(PriorityCounters counter) {
+            if (waiting.incrementAndGet() > properties.getQueue().getMaxQueued()) {
+                waiting.decrementAndGet();
+                counter.rejected.incrementAndGet();
+                return false;
+            }
+            return true;
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("availableTokens", bucket.getAvailableTokens());
+            snapshot.put("capacity", capacity);
+            snapshot.put("interactiveReserve", reserve);
+            snapshot.put("waiting", waiting.get());
+            counters.forEach((priority, counter) -> snapshot.put(priority.name().toLowerCase(), counter.snapshot()));
+            return snapshot;
+        }
+    }
+
+    private static final class PriorityCounters {
+        private final AtomicLong immediate = new AtomicLong();
+        private final AtomicLong waited = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("immediate", immediate.get());
+            snapshot.put("waited", waited.get());
+            snapshot.put("rejected", rejected.get());
+            return snapshot;
+        }
+    }
 }
@@ -0,0 +1,43 @@
+package crypto.insight.crypto.service.provider;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * Who a provider call is for, and so which upstream lane it queues in. Carried in the Reactor
+ * context, so a background job marks its whole pipeline once instead of threading a parameter
+ * through every service.
+ */
+public enum RequestPriority {
+    /** A user is waiting for the answer */
+    INTERACTIVE,
+    /** Streaming updates and stale-while-revalidate refreshes of data users are watching */
+    REALTIME,
+    /** Speculative loads of data a user may ask for next; shed first when quota runs low */
+    PREFETCH,
+    /** Startup and periodic bulk warmups and refreshes */
+    BULK;
+
+    private static final String CONTEXT_KEY = RequestPriority.class.getName();
+
+    /**
+     * Context entry for {@code Mono.contextWrite}
+     */
+    public Context asContext() {
+        return Context.of(CONTEXT_KEY, this);
+    }
+
+    /**
+     * Whether a user is waiting on this request
+     */
+    public boolean isInteractive() {
+        return this == INTERACTIVE;
+    }
+
+    /**
+     * The priority set upstream, interactive when none was
+     */
+    public static RequestPriority from(ContextView context) {
+        return context.getOrDefault(CONTEXT_KEY, INTERACTIVE);
+    }
+}
@@ -0,0 +1,140 @@
+package crypto.insight.crypto.service.provider;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes the entries of one top-level object field of a large JSON body as they arrive,
+ * e.g. the {@code Data} map of CryptoCompare's multi-megabyte coin list.
+ * <p>
+ * Bytes are fed to Jackson's non-blocking parser buffer by buffer, each entry is collected into
+ * a small {@link TokenBuffer} and bound to {@code type}, and nothing else is retained. Callers
+ * can stop early ({@code .filter(...).next()}), which cancels the rest of the download and
+ * releases the buffers that arrived ahead of the parser.
+ */
+final class StreamingJsonDecoder<T> {
+
+    private final ObjectMapper objectMapper;
+    private final String fieldName;
+    private final Class<T> type;
+
+    private JsonParser parser;
+    private ByteArrayFeeder feeder;
+    private int depth;
+    private boolean inField;
+    private String entryKey;
+    private TokenBuffer entryTokens;
+
+    private StreamingJsonDecoder(ObjectMapper objectMapper, String fieldName, Class<T> type) {
+        this.objectMapper = objectMapper;
+        this.fieldName = fieldName;
+        this.type = type;
+    }
+
+    /**
+     * Streams {@code body.fieldName} as key/value entries bound to {@code type}.
+     */
+    static <T> Flux<Map.Entry<String, T>> objectEntries(Flux<DataBuffer> body, ObjectMapper objectMapper,
+                                                        String fieldName, Class<T> type) {
+        return Flux.defer(() -> {
+            StreamingJsonDecoder<T> decoder = new StreamingJsonDecoder<>(objectMapper, fieldName, type);
+            return body.concatMapIterable(decoder::feed)
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(decoder.finish())))
+                    // Buffers already requested when the caller stops early or parsing fails
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .doFinally(signal -> decoder.close());
+        });
+    }
+
+    private List<Map.Entry<String, T>> feed(DataBuffer buffer) {
+        try {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            if (parser == null) {
+                parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+                feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+            }
+            feeder.feedInput(bytes, 0, bytes.length);
+            return drain();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    private List<Map.Entry<String, T>> finish() {
+        if (parser == null) {
+            return List.of();
+        }
+        try {
+            feeder.endOfInput();
+            return drain();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<Map.Entry<String, T>> drain() throws IOException {
+        List<Map.Entry<String, T>> entries = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (entryTokens != null) {
+                entryTokens.copyCurrentEvent(parser);
+            } else if (inField && depth == 2 && token == JsonToken.FIELD_NAME) {
+                entryKey = parser.currentName();
+                entryTokens = new TokenBuffer(objectMapper, false);
+                entryTokens.forceUseOfBigDecimal(true);
+                continue;
+            } else if (depth == 1 && token == JsonToken.FIELD_NAME && fieldName.equals(parser.currentName())) {
+                inField = true;
+                continue;
+            }
+
+            if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd()) {
+                depth--;
+            }
+
+            if (entryTokens != null && depth == 2) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(entryKey, bind(entryTokens)));
+                entryTokens = null;
+                entryKey = null;
+            } else if (inField && depth == 1 && !token.isStructStart()) {
+                // Either the field was not an object, or its object just closed
+                inField = false;
+            }
+        }
+        return entries;
+    }
+
+    private T bind(TokenBuffer tokens) throws IOException {
+        try (JsonParser entryParser = tokens.asParser(objectMapper)) {
+            return objectMapper.readValue(entryParser, type);
+        }
+    }
+
+    private void close() {
+        if (parser != null) {
+            try {
+                parser.close();
+            } catch (IOException ignored) {
+                // nothing left to release
+            }
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package crypto.insight.crypto.service.provider;
+
+import crypto.insight.crypto.config.ApiProperties;
+import crypto.insight.crypto.config.properties.UpstreamSchedulerProperties;
+import crypto.insight.crypto.exception.CryptoApiException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Schedules every HTTP call to a market data provider by the lane of the {@link RequestPriority}
+ * in its Reactor context, so warmers and preloads cannot crowd out users.
+ * <p>
+ * Each provider gets a fixed number of in-flight slots. When they are taken, requests queue per
+ * lane and freed slots go to the lanes by stride scheduling: every lane advances its pass by the
+ * inverse of its weight when served and the lowest pass goes next, so backlogged lanes share
+ * slots in proportion to their weights and an idle lane cannot bank credit. Non-interactive
+ * lanes also take a token from the provider's bucket above the interactive reserve, and prefetch
+ * requests are dropped outright while the bucket runs low or the provider recently answered 429.
+ */
+@Slf4j
+@Component
+public class UpstreamRequestScheduler implements ExchangeFilterFunction {
+
+    private static final int WAITING = 0;
+    private static final int GRANTED = 1;
+    private static final int CANCELLED = 2;
+
+    private final UpstreamSchedulerProperties properties;
+    private final RateLimitingService rateLimitingService;
+    private final List<Upstream> upstreams = new ArrayList<>();
+
+    public UpstreamRequestScheduler(UpstreamSchedulerProperties properties, ApiProperties apiProperties,
+                                    RateLimitingService rateLimitingService) {
+        this.properties = properties;
+        this.rateLimitingService = rateLimitingService;
+        upstreams.add(new Upstream("CoinGecko", apiProperties.getCoinGeckoBaseUrl()));
+        upstreams.add(new Upstream("CoinMarketCap", apiProperties.getCoinmarketcap().getBaseUrl()));
+        upstreams.add(new Upstream("CoinPaprika", apiProperties.getCoinpaprika().getBaseUrl()));
+        upstreams.add(new Upstream("CryptoCompare", apiProperties.getCryptocompare().getCryptoCompareBaseUrl()));
+        // Most specific first, in case one base URL is a prefix of another
+        upstreams.sort(Comparator.comparingInt((Upstream upstream) -> upstream.baseUrl.length()).reversed());
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        Upstream upstream = properties.isEnabled() ? match(request.url().toString()) : null;
+        if (upstream == null) {
+            return next.exchange(request);
+        }
+        return Mono.deferContextual(context -> upstream.schedule(RequestPriority.from(context),
+                RateLimitingService.holdsPermit(context, upstream.name), next.exchange(request)));
+    }
+
+    private Upstream match(String url) {
+        for (Upstream upstream : upstreams) {
+            if (url.startsWith(upstream.baseUrl)) {
+                return upstream;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get per-provider slot and lane statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("maxConcurrentPerUpstream", properties.getMaxConcurrentPerUpstream());
+        upstreams.forEach(upstream -> stats.put(upstream.name, upstream.snapshot()));
+        return stats;
+    }
+
+    private int weight(RequestPriority lane) {
+        UpstreamSchedulerProperties.Weights weights = properties.getWeights();
+        int weight = switch (lane) {
+            case INTERACTIVE -> weights.getInteractive();
+            case REALTIME -> weights.getRealtime();
+            case PREFETCH -> weights.getPrefetch();
+            case BULK -> weights.getBulk();
+        };
+        return Math.max(1, weight);
+    }
+
+    private final class Upstream {
+        private final String name;
+        private final String baseUrl;
+        private final Map<RequestPriority, ArrayDeque<Waiter>> queues = new EnumMap<>(RequestPriority.class);
+        private final Map<RequestPriority, LaneCounters> counters = new EnumMap<>(RequestPriority.class);
+        private final double[] pass = new double[RequestPriority.values().length];
+        private final AtomicLong throttled = new AtomicLong();
+        private volatile long lastThrottledNanos;
+
+        // Guarded by this
+        private int inFlight;
+        private double virtualTime;
+
+        Upstream(String name, String baseUrl) {
+            this.name = name;
+            this.baseUrl = baseUrl;
+            for (RequestPriority lane : RequestPriority.values()) {
+                queues.put(lane, new ArrayDeque<>());
+                counters.put(lane, new LaneCounters());
+            }
+        }
+
+        Mono<ClientResponse> schedule(RequestPriority lane, boolean permitHeld, Mono<ClientResponse> exchange) {
+            LaneCounters counter = counters.get(lane);
+            if (lane == RequestPriority.PREFETCH && shouldShed()) {
+                counter.shed.incrementAndGet();
+                return Mono.error(rejection("prefetch shed to save quota"));
+            }
+            Mono<ClientResponse> slotted = Mono.usingWhen(acquire(lane),
+                    slot -> exchange.doOnNext(this::observe),
+                    slot -> Mono.fromRunnable(slot::release),
+                    (slot, error) -> Mono.fromRunnable(slot::release),
+                    slot -> Mono.fromRunnable(slot::release));
+            if (permitHeld) {
+                return slotted;
+            }
+            if (lane.isInteractive()) {
+                // Users never wait for a token here, but their calls still count against the quota
+                return Mono.fromRunnable(() -> rateLimitingService.consumeIfAvailable(name)).then(slotted);
+            }
+            return rateLimitingService.acquirePermit(name, lane).then(slotted);
+        }
+
+        private boolean shouldShed() {
+            long sinceThrottled = System.nanoTime() - lastThrottledNanos;
+            return (throttled.get() > 0 && sinceThrottled < properties.getThrottledCooldown().toNanos())
+                    || rateLimitingService.isCircuitOpen(name)
+                    || rateLimitingService.getRemainingQuota(name) < properties.getShedPrefetchBelowQuota();
+        }
+
+        private void observe(ClientResponse response) {
+            if (response.statusCode().value() == 429) {
+                throttled.incrementAndGet();
+                lastThrottledNanos = System.nanoTime();
+                rateLimitingService.recordThrottled(name);
+            }
+        }
+
+        /** A slot right away when one is free, else a place in the lane's queue */
+        private Mono<Slot> acquire(RequestPriority lane) {
+            return Mono.defer(() -> {
+                LaneCounters counter = counters.get(lane);
+                Waiter waiter;
+                synchronized (this) {
+                    if (inFlight < properties.getMaxConcurrentPerUpstream()) {
+                        inFlight++;
+                        counter.immediate.incrementAndGet();
+                        return Mono.just(new Slot());
+                    }
+                    ArrayDeque<Waiter> queue = queues.get(lane);
+                    if (!lane.isInteractive() && queue.size() >= properties.getMaxQueuedPerLane()) {
+                        counter.rejected.incrementAndGet();
+                        return Mono.error(rejection(lane.name().toLowerCase() + " lane is full"));
+                    }
+                    if (queue.isEmpty()) {
+                        // A lane that was idle joins at the current virtual time instead of catching up
+                        pass[lane.ordinal()] = Math.max(pass[lane.ordinal()], virtualTime);
+                    }
+                    waiter = new Waiter(lane);
+                    queue.add(waiter);
+                }
+                counter.queued.incrementAndGet();
+                Mono<Slot> granted = waiter.sink.asMono().doOnCancel(() -> cancel(waiter));
+                if (lane.isInteractive()) {
+                    return granted;
+                }
+                return granted
+                        .timeout(properties.getMaxQueueWait())
+                        .onErrorMap(TimeoutException.class, error -> {
+                            counter.rejected.incrementAndGet();
+                            return rejection("no slot within " + properties.getMaxQueueWait().toMillis() + " ms");
+                        });
+            });
+        }
+
+        private void cancel(Waiter waiter) {
+            if (waiter.state.compareAndSet(WAITING, CANCELLED)) {
+                synchronized (this) {
+                    queues.get(waiter.lane).remove(waiter);
+                }
+            } else if (waiter.state.get() == GRANTED) {
+                // Granted while being cancelled: nobody will use the slot
+                waiter.slot.release();
+            }
+        }
+
+        /** Hands the slot to the next waiter, or frees it when nobody waits */
+        private void release() {
+            Waiter next;
+            synchronized (this) {
+                next = pollNext();
+                if (next == null) {
+                    inFlight--;
+                }
+            }
+            if (next != null) {
+                next.sink.tryEmitValue(next.slot);
+            }
+        }
+
+        // Called holding this
+        private Waiter pollNext() {
+            while (true) {
+                RequestPriority lane = null;
+                for (RequestPriority candidate : RequestPriority.values()) {
+                    if (!queues.get(candidate).isEmpty()
+                            && (lane == null || pass[candidate.ordinal()] < pass[lane.ordinal()])) {
+                        lane = candidate;
+                    }
+                }
+                if (lane == null) {
+                    return null;
+                }
+                Waiter waiter = queues.get(lane).poll();
+                virtualTime = pass[lane.ordinal()];
+                pass[lane.ordinal()] += 1.0 / weight(lane);
+                if (waiter.state.compareAndSet(WAITING, GRANTED)) {
+                    return waiter;
+                }
+            }
+        }
+
+        private CryptoApiException rejection(String reason) {
+            return new CryptoApiException("Upstream request to " + name + " rejected: " + reason, name, 429, null);
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new HashMap<>();
+            synchronized (this) {
+                snapshot.put("inFlight", inFlight);
+                queues.forEach((lane, queue) -> snapshot.put(lane.name().toLowerCase() + "Queued", queue.size()));
+            }
+            snapshot.put("throttled", throttled.get());
+            snapshot.put("remainingQuota", rateLimitingService.getRemainingQuota(name));
+            counters.forEach((lane, counter) -> snapshot.put(lane.name().toLowerCase(), counter.snapshot()));
+            return snapshot;
+        }
+
+        /** One in-flight slot, released exactly once however the request ends */
+        private final class Slot {
+            private final AtomicBoolean released = new AtomicBoolean();
+
+            void release() {
+                if (released.compareAndSet(false, true)) {
+                    Upstream.this.release();
+                }
+            }
+        }
+
+        private final class Waiter {
+            private final RequestPriority lane;
+            private final Sinks.One<Slot> sink = Sinks.one();
+            private final AtomicInteger state = new AtomicInteger(WAITING);
+            private final Slot slot = new Slot();
+
+            Waiter(RequestPriority lane) {
+                this.lane = lane;
+            }
+        }
+    }
+
+    private static final class LaneCounters {
+        private final AtomicLong immediate = new AtomicLong();
+        private final AtomicLong queued = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong shed = new AtomicLong();
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("immediate", immediate.get());
+            snapshot.put("queued", queued.get());
+            snapshot.put("rejected", rejected.get());
+            snapshot.put("shed", shed.get());
+            return snapshot;
+        }
+    }
+}
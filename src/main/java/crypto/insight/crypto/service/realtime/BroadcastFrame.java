@@ -0,0 +1,42 @@
+package crypto.insight.crypto.service.realtime;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.socket.TextMessage;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A message serialized once and shared by every session it is sent to. Immutable, so one
+ * instance can be written to any number of sessions concurrently.
+ */
+public final class BroadcastFrame {
+
+    private final TextMessage textMessage;
+    private final int size;
+
+    private BroadcastFrame(TextMessage textMessage, int size) {
+        this.textMessage = textMessage;
+        this.size = size;
+    }
+
+    /**
+     * Serializes {@code message} to JSON once; Jackson encodes into its recycled buffers.
+     */
+    public static BroadcastFrame encode(ObjectMapper objectMapper, Object message) throws JsonProcessingException {
+        byte[] payload = objectMapper.writeValueAsBytes(message);
+        return new BroadcastFrame(new TextMessage(new String(payload, StandardCharsets.UTF_8)), payload.length);
+    }
+
+    /**
+     * The frame as a servlet WebSocket message; the same instance for every session
+     */
+    public TextMessage asTextMessage() {
+        return textMessage;
+    }
+
+    /** Size of the UTF-8 payload in bytes */
+    public int size() {
+        return size;
+    }
+}
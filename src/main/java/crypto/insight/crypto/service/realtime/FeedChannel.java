@@ -0,0 +1,29 @@
+package crypto.insight.crypto.service.realtime;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * What a per-symbol feed carries.
+ */
+public enum FeedChannel {
+    /** The coin's quote; after the snapshot only the fields that changed */
+    TICKER,
+    /** The last day of the price chart; after the snapshot only the appended points */
+    CHART,
+    /** A notice that a new analysis of the coin is ready to fetch */
+    ANALYSIS;
+
+    public String id() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static Optional<FeedChannel> of(String id) {
+        for (FeedChannel channel : values()) {
+            if (channel.id().equalsIgnoreCase(id.trim())) {
+                return Optional.of(channel);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,12 @@
+package crypto.insight.crypto.service.realtime;
+
+/**
+ * A tick as sent to one client: as a delta when the client has the tick before it, else as a
+ * snapshot.
+ */
+public record FeedEvent(FeedTick tick, boolean delta, BroadcastFrame frame) {
+
+    public String type() {
+        return delta ? "delta" : "snapshot";
+    }
+}
@@ -0,0 +1,186 @@
+package crypto.insight.crypto.service.realtime;
+
+import crypto.insight.crypto.config.properties.EventStreamProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Serves per-symbol feeds as Server-Sent Events, from the same shared feeds as the WebSocket.
+ * <p>
+ * Every event's id records the position in each feed of the stream, e.g.
+ * {@code ticker:btc=1792287840072.12;chart:btc=1792287840080.5} (feed epoch and seq). A client
+ * reconnecting with that id as {@code Last-Event-ID} is sent the deltas it missed while they
+ * are still in the feed's replay buffer, and a snapshot otherwise. Events are written one at a
+ * time off the feed's thread; a client that falls behind skips to the newest ticks.
+ * <p>
+ * Writing blocks on the client's socket, so each write runs as its own task on whichever
+ * bounded-elastic worker is free, instead of pinning the stream to one worker that other streams
+ * would queue behind. A write still stuck after the send time limit ends the stream.
+ */
+@Slf4j
+@Service
+public class FeedEventStream {
+
+    private final PriceFeed priceFeed;
+    private final EventStreamProperties properties;
+
+    private final AtomicInteger openStreams = new AtomicInteger();
+    private final AtomicLong streamsOpened = new AtomicLong();
+    private final AtomicLong streamsResumed = new AtomicLong();
+    private final AtomicLong eventsSent = new AtomicLong();
+    private final AtomicLong stuckStreams = new AtomicLong();
+
+    public FeedEventStream(PriceFeed priceFeed, EventStreamProperties properties) {
+        this.priceFeed = priceFeed;
+        this.properties = properties;
+    }
+
+    /**
+     * Opens a stream of {@code channels} for {@code symbols}, resuming after
+     * {@code lastEventId} when it is given.
+     */
+    public SseEmitter open(List<String> symbols, List<FeedChannel> channels, String lastEventId) {
+        if (symbols.isEmpty() || channels.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one symbol and channel is required");
+        }
+        if (symbols.size() * channels.size() > properties.getMaxFeedsPerStream()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + properties.getMaxFeedsPerStream() + " symbol and channel pairs per stream");
+        }
+        symbols = symbols.stream().map(symbol -> symbol.trim().toLowerCase(Locale.ROOT)).distinct().toList();
+        Map<String, long[]> resumed = parse(lastEventId);
+        // The stream's position per feed, in a stable order for the event ids
+        Map<String, long[]> cursor = new LinkedHashMap<>();
+        List<Flux<FeedEvent>> feeds = new ArrayList<>();
+        for (String symbol : symbols) {
+            for (FeedChannel channel : channels) {
+                String key = FeedTick.key(channel, symbol);
+                long[] position = resumed.getOrDefault(key, new long[] {-1, -1});
+                cursor.put(key, position);
+                feeds.add(priceFeed.resume(channel, symbol, position[0], position[1]));
+            }
+        }
+        if (cursor.keySet().stream().anyMatch(resumed::containsKey)) {
+            streamsResumed.incrementAndGet();
+        }
+
+        SseEmitter emitter = new SseEmitter(properties.getTimeout().toMillis());
+        Flux<SseEmitter.SseEventBuilder> events = Flux.merge(Flux.fromIterable(feeds), feeds.size(), 1)
+                .map(event -> toSse(event, cursor));
+        Flux<SseEmitter.SseEventBuilder> heartbeats = Flux.interval(properties.getHeartbeatInterval())
+                .onBackpressureDrop()
+                .map(tick -> SseEmitter.event().comment("heartbeat"));
+
+        openStreams.incrementAndGet();
+        streamsOpened.incrementAndGet();
+        Disposable stream = Flux.merge(1,
+                        Flux.just(SseEmitter.event().reconnectTime(properties.getReconnectTime().toMillis()).comment("connected")),
+                        events,
+                        heartbeats)
+                .concatMap(event -> write(emitter, event), 1)
+                .doFinally(signal -> openStreams.decrementAndGet())
+                .subscribe(null, error -> {
+                    log.debug("Event stream for {} ended: {}", cursor.keySet(), error.getMessage());
+                    if (error instanceof TimeoutException) {
+                        stuckStreams.incrementAndGet();
+                        // Completing waits for the stuck write, so never on the timer's thread
+                        Schedulers.boundedElastic().schedule(() -> emitter.completeWithError(error));
+                    }
+                });
+        emitter.onCompletion(stream::dispose);
+        emitter.onTimeout(stream::dispose);
+        emitter.onError(error -> stream.dispose());
+        return emitter;
+    }
+
+    /**
+     * Get Server-Sent Events stream statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("openStreams", openStreams.get());
+        stats.put("streamsOpened", streamsOpened.get());
+        stats.put("streamsResumed", streamsResumed.get());
+        stats.put("eventsSent", eventsSent.get());
+        stats.put("stuckStreams", stuckStreams.get());
+        stats.put("timeoutMs", properties.getTimeout().toMillis());
+        return stats;
+    }
+
+    // Called one event at a time, after the merge
+    private SseEmitter.SseEventBuilder toSse(FeedEvent event, Map<String, long[]> cursor) {
+        FeedTick tick = event.tick();
+        cursor.put(tick.key(), new long[] {tick.epoch(), tick.seq()});
+        return SseEmitter.event()
+                .id(format(cursor))
+                .name(event.type())
+                .data(event.frame().asTextMessage().getPayload());
+    }
+
+    /** Sends {@code event} off the feed's thread, failing with a TimeoutException when it is stuck */
+    private Mono<Void> write(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        return Mono.<Void>fromRunnable(() -> send(emitter, event))
+                .subscribeOn(Schedulers.boundedElastic())
+                .timeout(properties.getSendTimeLimit());
+    }
+
+    private void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+            eventsSent.incrementAndGet();
+        } catch (IOException e) {
+            // The client is gone; the container completes the emitter
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    private static String format(Map<String, long[]> cursor) {
+        return cursor.entrySet().stream()
+                .filter(entry -> entry.getValue()[1] >= 0)
+                .map(entry -> entry.getKey() + "=" + entry.getValue()[0] + "." + entry.getValue()[1])
+                .collect(Collectors.joining(";"));
+    }
+
+    /** Positions by feed key from an event id; whatever cannot be read starts from a snapshot */
+    private static Map<String, long[]> parse(String lastEventId) {
+        Map<String, long[]> positions = new HashMap<>();
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return positions;
+        }
+        for (String part : lastEventId.split(";")) {
+            int equals = part.lastIndexOf('=');
+            int dot = part.lastIndexOf('.');
+            if (equals <= 0 || dot <= equals) {
+                continue;
+            }
+            try {
+                positions.put(part.substring(0, equals).trim(), new long[] {
+                        Long.parseLong(part.substring(equals + 1, dot)),
+                        Long.parseLong(part.substring(dot + 1).trim())});
+            } catch (NumberFormatException e) {
+                // Skip it
+            }
+        }
+        return positions;
+    }
+}
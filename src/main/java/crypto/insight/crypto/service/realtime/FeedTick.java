@@ -0,0 +1,120 @@
+package crypto.insight.crypto.service.realtime;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * One update of a per-symbol feed, numbered within the feed instance identified by its epoch.
+ * <p>
+ * A tick can be sent as a snapshot carrying the whole current state or, to a client that
+ * already has the previous tick, as a delta carrying only what changed. Both messages are
+ * serialized at most once, on first use, and shared by every recipient.
+ */
+public final class FeedTick {
+
+    private final FeedChannel channel;
+    private final String symbol;
+    private final long epoch;
+    private final long seq;
+    private final long timestamp;
+    private final Object state;
+    private final Object changes;
+    private final Function<Map<String, Object>, BroadcastFrame> encoder;
+
+    private volatile BroadcastFrame snapshot;
+    private volatile BroadcastFrame delta;
+
+    /**
+     * @param state   everything a client needs to start from this tick
+     * @param changes what changed since tick {@code seq - 1}, or null when only a snapshot makes sense
+     */
+    FeedTick(FeedChannel channel, String symbol, long epoch, long seq, Object state, Object changes,
+             Function<Map<String, Object>, BroadcastFrame> encoder) {
+        this.channel = channel;
+        this.symbol = symbol;
+        this.epoch = epoch;
+        this.seq = seq;
+        this.timestamp = System.currentTimeMillis();
+        this.state = state;
+        this.changes = changes;
+        this.encoder = encoder;
+    }
+
+    public FeedChannel channel() {
+        return channel;
+    }
+
+    public String symbol() {
+        return symbol;
+    }
+
+    /** Tells feed instances apart, as {@code seq} starts over whenever a feed restarts */
+    public long epoch() {
+        return epoch;
+    }
+
+    public long seq() {
+        return seq;
+    }
+
+    public long timestamp() {
+        return timestamp;
+    }
+
+    /** Identifies the feed the tick belongs to, e.g. {@code ticker:btc} */
+    public String key() {
+        return key(channel, symbol);
+    }
+
+    public static String key(FeedChannel channel, String symbol) {
+        return channel.id() + ":" + symbol;
+    }
+
+    /**
+     * The message for a client whose last tick from this feed was {@code deliveredSeq}: the
+     * delta when it directly follows, else the snapshot. A negative value means none yet.
+     */
+    public FeedEvent eventAfter(long deliveredSeq) {
+        return changes != null && deliveredSeq == seq - 1
+                ? new FeedEvent(this, true, delta())
+                : new FeedEvent(this, false, snapshot());
+    }
+
+    private BroadcastFrame snapshot() {
+        BroadcastFrame frame = snapshot;
+        if (frame == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    snapshot = encoder.apply(message("snapshot", state));
+                }
+                frame = snapshot;
+            }
+        }
+        return frame;
+    }
+
+    private BroadcastFrame delta() {
+        BroadcastFrame frame = delta;
+        if (frame == null) {
+            synchronized (this) {
+                if (delta == null) {
+                    delta = encoder.apply(message("delta", changes));
+                }
+                frame = delta;
+            }
+        }
+        return frame;
+    }
+
+    private Map<String, Object> message(String type, Object data) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("type", type);
+        message.put("channel", channel.id());
+        message.put("symbol", symbol);
+        message.put("seq", seq);
+        message.put("timestamp", timestamp);
+        message.put("data", data);
+        return message;
+    }
+}
@@ -0,0 +1,424 @@
+package crypto.insight.crypto.service.realtime;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.cfg.JsonNodeFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import crypto.insight.crypto.config.properties.PriceFeedProperties;
+import crypto.insight.crypto.model.AnalysisResponse;
+import crypto.insight.crypto.model.ChartDataPoint;
+import crypto.insight.crypto.model.Cryptocurrency;
+import crypto.insight.crypto.model.DataRequirement;
+import crypto.insight.crypto.service.ApiService;
+import crypto.insight.crypto.service.RealTimeDataService;
+import crypto.insight.crypto.service.provider.RequestPriority;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.publisher.SynchronousSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * One hot feed per channel and symbol, shared by every subscriber of that pair.
+ * <p>
+ * The first subscriber starts the feed, which emits the current state right away and then
+ * polls; later subscribers join the same feed and get its newest tick replayed, so a symbol is
+ * fetched once per interval however many clients watch it. Ticks are numbered and carry both
+ * the full state and the change since the previous tick, each serialized at most once for all
+ * subscribers. Polls that change nothing emit nothing. The last few ticks stay buffered, so
+ * a client that reconnects can be sent just the deltas it missed. When the last subscriber
+ * cancels, polling stops and the feed is dropped.
+ */
+@Slf4j
+@Service
+public class PriceFeed {
+
+    private static final int CHART_DAYS = 1;
+    private static final long CHART_WINDOW_MS = Duration.ofDays(CHART_DAYS).toMillis();
+
+    private final RealTimeDataService realTimeDataService;
+    private final ApiService apiService;
+    private final PriceFeedProperties properties;
+    private final ObjectMapper objectMapper;
+    // Turns quotes into trees for diffing, keeping prices as written instead of as 1E+2
+    private final ObjectMapper treeMapper;
+
+    // Keyed by FeedTick.key, guarded by itself
+    private final Map<String, ChannelFeed> feeds = new HashMap<>();
+
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong pollFailures = new AtomicLong();
+    private final AtomicLong unchangedPolls = new AtomicLong();
+    private final AtomicLong ticksEmitted = new AtomicLong();
+    private final AtomicLong framesEncoded = new AtomicLong();
+    private final AtomicLong feedsStarted = new AtomicLong();
+    private final AtomicLong replayedTicks = new AtomicLong();
+    private final AtomicLong lastEpoch = new AtomicLong();
+
+    public PriceFeed(RealTimeDataService realTimeDataService, ApiService apiService,
+                     PriceFeedProperties properties, ObjectMapper objectMapper) {
+        this.realTimeDataService = realTimeDataService;
+        this.apiService = apiService;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.treeMapper = objectMapper.copy().configure(JsonNodeFeature.STRIP_TRAILING_BIGDECIMAL_ZEROES, false);
+    }
+
+    /**
+     * Ticks of {@code channel} for {@code symbol}: the feed's newest tick, if it has one, then
+     * every later one. Failed polls are skipped rather than ending the stream.
+     */
+    public Flux<FeedTick> ticks(FeedChannel channel, String symbol) {
+        String normalized = normalize(symbol);
+        String key = FeedTick.key(channel, normalized);
+        return Flux.defer(() -> {
+            ChannelFeed feed;
+            synchronized (feeds) {
+                feed = feeds.computeIfAbsent(key, ignored -> start(channel, normalized));
+                feed.subscribers++;
+            }
+            return feed.ticks.doFinally(signal -> leave(key, feed));
+        });
+    }
+
+    /**
+     * Ticks of the feed as events for a client that last saw tick {@code seq} of feed instance
+     * {@code epoch}: the ticks it missed while they are still buffered, else a snapshot, then
+     * each later tick. A negative {@code seq} starts with a snapshot. A subscriber that cannot
+     * keep up skips to the newest tick and catches up the same way.
+     */
+    public Flux<FeedEvent> resume(FeedChannel channel, String symbol, long epoch, long seq) {
+        String key = FeedTick.key(channel, normalize(symbol));
+        return Flux.defer(() -> {
+            long[] cursor = {epoch, seq};
+            return ticks(channel, symbol)
+                    .onBackpressureLatest()
+                    .flatMapIterable(tick -> catchUp(key, tick, cursor), 1);
+        });
+    }
+
+    /**
+     * The newest tick of the feed, while it has subscribers
+     */
+    public Optional<FeedTick> latest(FeedChannel channel, String symbol) {
+        ChannelFeed feed;
+        synchronized (feeds) {
+            feed = feeds.get(FeedTick.key(channel, normalize(symbol)));
+        }
+        return feed != null ? Optional.ofNullable(feed.latest) : Optional.empty();
+    }
+
+    /**
+     * Feeds a quote fetched elsewhere into the symbol's ticker, if anybody watches it
+     */
+    public void publish(String symbol, Cryptocurrency crypto) {
+        push(FeedChannel.TICKER, symbol, crypto);
+    }
+
+    /**
+     * Announces a finished analysis of {@code symbol}, if anybody watches for one
+     */
+    public void publishAnalysis(String symbol, AnalysisResponse analysis) {
+        push(FeedChannel.ANALYSIS, symbol, analysis);
+    }
+
+    /**
+     * Number of subscribers of the feed
+     */
+    public int subscriberCount(FeedChannel channel, String symbol) {
+        synchronized (feeds) {
+            ChannelFeed feed = feeds.get(FeedTick.key(channel, normalize(symbol)));
+            return feed != null ? feed.subscribers : 0;
+        }
+    }
+
+    /**
+     * Get per-feed statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        Map<String, Integer> subscribers = new HashMap<>();
+        synchronized (feeds) {
+            feeds.forEach((key, feed) -> subscribers.put(key, feed.subscribers));
+        }
+        stats.put("activeFeeds", subscribers.size());
+        stats.put("subscribers", subscribers);
+        stats.put("feedsStarted", feedsStarted.get());
+        stats.put("polls", polls.get());
+        stats.put("pollFailures", pollFailures.get());
+        stats.put("unchangedPolls", unchangedPolls.get());
+        stats.put("ticks", ticksEmitted.get());
+        stats.put("framesEncoded", framesEncoded.get());
+        stats.put("replayedTicks", replayedTicks.get());
+        stats.put("replayBufferSize", properties.getReplayBufferSize());
+        stats.put("pollIntervalMs", properties.getPollInterval().toMillis());
+        stats.put("chartPollIntervalMs", properties.getChartPollInterval().toMillis());
+        return stats;
+    }
+
+    private ChannelFeed start(FeedChannel channel, String symbol) {
+        feedsStarted.incrementAndGet();
+        log.debug("Starting {} feed for {}", channel.id(), symbol);
+        // Epochs only grow, also across restarts of the application
+        long epoch = lastEpoch.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
+        ChannelFeed feed = new ChannelFeed(channel, symbol, epoch);
+        Flux<FeedTick> source = switch (channel) {
+            case TICKER -> Flux.merge(
+                            Flux.concat(fetchQuote(symbol, false),
+                                    poll(properties.getPollInterval(), () -> fetchQuote(symbol, true))),
+                            feed.pushes.asFlux().cast(Cryptocurrency.class))
+                    .<FeedTick>handle((crypto, sink) -> feed.emit(sink, () -> feed.quoteTick(crypto)));
+            case CHART -> Flux.concat(fetchChart(symbol, false),
+                            poll(properties.getChartPollInterval(), () -> fetchChart(symbol, true)))
+                    .<FeedTick>handle((points, sink) -> feed.emit(sink, () -> feed.chartTick(points)));
+            case ANALYSIS -> feed.pushes.asFlux().cast(AnalysisResponse.class)
+                    .<FeedTick>handle((analysis, sink) -> feed.emit(sink, () -> feed.analysisTick(analysis)));
+        };
+        feed.ticks = source
+                .doOnCancel(() -> log.debug("Stopped {} feed for {}", channel.id(), symbol))
+                .replay(1)
+                .refCount(1);
+        return feed;
+    }
+
+    private static <T> Flux<T> poll(Duration interval, Supplier<Mono<T>> fetch) {
+        return Flux.interval(interval)
+                .onBackpressureDrop()
+                .concatMap(tick -> fetch.get());
+    }
+
+    private Mono<Cryptocurrency> fetchQuote(String symbol, boolean fresh) {
+        // The first fetch takes whatever the cache has; the polls bring fresh ticks
+        return counted(symbol, fresh
+                ? realTimeDataService.getFreshCryptocurrencyData(symbol, 1)
+                : apiService.getCryptocurrencyData(symbol, DataRequirement.QUOTE, false));
+    }
+
+    private Mono<List<ChartDataPoint>> fetchChart(String symbol, boolean fresh) {
+        // A fresh read only tops up the stored series' tail. A chart that cannot be fetched
+        // skips the tick: subscribers never get made-up points
+        return counted(symbol, apiService.getLiveChartDataPoints(symbol, CHART_DAYS, fresh));
+    }
+
+    private <T> Mono<T> counted(String symbol, Mono<T> fetch) {
+        return Mono.defer(() -> {
+            polls.incrementAndGet();
+            return fetch;
+        })
+                .contextWrite(RequestPriority.REALTIME.asContext())
+                .onErrorResume(error -> {
+                    pollFailures.incrementAndGet();
+                    log.debug("Feed poll for {} failed: {}", symbol, error.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /** Events taking a client at {@code cursor} to {@code tick}; moves the cursor along */
+    private List<FeedEvent> catchUp(String key, FeedTick tick, long[] cursor) {
+        boolean sameFeed = cursor[0] == tick.epoch();
+        long seen = sameFeed ? cursor[1] : -1;
+        if (sameFeed && seen >= tick.seq()) {
+            // The replayed newest tick, which the client already has
+            return List.of();
+        }
+        cursor[0] = tick.epoch();
+        cursor[1] = tick.seq();
+        if (seen >= 0 && tick.seq() - seen > 1) {
+            List<FeedTick> missed = buffered(key, seen, tick.seq());
+            if (missed != null) {
+                replayedTicks.addAndGet(missed.size() - 1);
+                List<FeedEvent> events = new ArrayList<>(missed.size());
+                for (FeedTick buffered : missed) {
+                    events.add(buffered.eventAfter(seen));
+                    seen = buffered.seq();
+                }
+                return events;
+            }
+        }
+        return List.of(tick.eventAfter(seen));
+    }
+
+    /** The buffered ticks after {@code after} up to {@code upTo}, or null when some are gone */
+    private List<FeedTick> buffered(String key, long after, long upTo) {
+        ChannelFeed feed;
+        synchronized (feeds) {
+            feed = feeds.get(key);
+        }
+        if (feed == null) {
+            return null;
+        }
+        List<FeedTick> missed = new ArrayList<>();
+        synchronized (feed.recent) {
+            for (FeedTick tick : feed.recent) {
+                if (tick.seq() > after && tick.seq() <= upTo) {
+                    missed.add(tick);
+                }
+            }
+        }
+        return missed.size() == upTo - after ? missed : null;
+    }
+
+    private void push(FeedChannel channel, String symbol, Object value) {
+        ChannelFeed feed;
+        synchronized (feeds) {
+            feed = feeds.get(FeedTick.key(channel, normalize(symbol)));
+        }
+        if (feed != null && value != null) {
+            feed.push(value);
+        }
+    }
+
+    private BroadcastFrame encode(Map<String, Object> message) {
+        try {
+            BroadcastFrame frame = BroadcastFrame.encode(objectMapper, message);
+            framesEncoded.incrementAndGet();
+            return frame;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode " + message.get("channel") + " update for "
+                    + message.get("symbol"), e);
+        }
+    }
+
+    private void leave(String key, ChannelFeed feed) {
+        synchronized (feeds) {
+            if (--feed.subscribers == 0) {
+                feeds.remove(key, feed);
+            }
+        }
+    }
+
+    private static String normalize(String symbol) {
+        return symbol.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static List<Number> pair(ChartDataPoint point) {
+        return List.of(point.getTimestamp(), point.getPrice());
+    }
+
+    private final class ChannelFeed {
+        private final FeedChannel channel;
+        private final String symbol;
+        private final long epoch;
+        // The newest ticks, oldest first; guarded by itself
+        private final ArrayDeque<FeedTick> recent = new ArrayDeque<>();
+        private final Sinks.Many<Object> pushes = Sinks.many().multicast().directBestEffort();
+        private Flux<FeedTick> ticks;
+        private volatile FeedTick latest;
+        // Guarded by PriceFeed.feeds
+        private int subscribers;
+
+        // Only touched by the feed's own, serialized pipeline
+        private long seq;
+        private ObjectNode quote;
+        private final List<ChartDataPoint> chart = new ArrayList<>();
+
+        ChannelFeed(FeedChannel channel, String symbol, long epoch) {
+            this.channel = channel;
+            this.symbol = symbol;
+            this.epoch = epoch;
+        }
+
+        synchronized void push(Object value) {
+            // Serialized, as pushes may come from several threads
+            pushes.tryEmitNext(value);
+        }
+
+        void emit(SynchronousSink<FeedTick> sink, Supplier<FeedTick> next) {
+            FeedTick tick;
+            try {
+                tick = next.get();
+            } catch (RuntimeException e) {
+                pollFailures.incrementAndGet();
+                log.debug("Dropped {} update for {}: {}", channel.id(), symbol, e.getMessage());
+                return;
+            }
+            if (tick == null) {
+                unchangedPolls.incrementAndGet();
+                return;
+            }
+            synchronized (recent) {
+                recent.addLast(tick);
+                while (recent.size() > Math.max(1, properties.getReplayBufferSize())) {
+                    recent.removeFirst();
+                }
+            }
+            latest = tick;
+            ticksEmitted.incrementAndGet();
+            sink.next(tick);
+        }
+
+        /** The quote's fields, with the ones that differ from the previous quote as the change */
+        FeedTick quoteTick(Cryptocurrency crypto) {
+            ObjectNode current = treeMapper.valueToTree(crypto);
+            ObjectNode changes = null;
+            if (quote != null) {
+                changes = treeMapper.createObjectNode();
+                for (Iterator<Map.Entry<String, JsonNode>> fields = current.fields(); fields.hasNext(); ) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    if (!Objects.equals(quote.get(field.getKey()), field.getValue())) {
+                        changes.set(field.getKey(), field.getValue());
+                    }
+                }
+                for (Iterator<String> names = quote.fieldNames(); names.hasNext(); ) {
+                    String name = names.next();
+                    if (!current.has(name)) {
+                        changes.putNull(name);
+                    }
+                }
+                if (changes.isEmpty()) {
+                    return null;
+                }
+            }
+            quote = current;
+            return next(current, changes);
+        }
+
+        /** The last day of points, with the ones after the previous newest point as the change */
+        FeedTick chartTick(List<ChartDataPoint> points) {
+            long newest = chart.isEmpty() ? Long.MIN_VALUE : chart.get(chart.size() - 1).getTimestamp();
+            List<ChartDataPoint> appended = points.stream()
+                    .filter(point -> point.getTimestamp() > newest)
+                    .toList();
+            if (appended.isEmpty()) {
+                return null;
+            }
+            boolean first = chart.isEmpty();
+            chart.addAll(appended);
+            long cutoff = chart.get(chart.size() - 1).getTimestamp() - CHART_WINDOW_MS;
+            chart.removeIf(point -> point.getTimestamp() < cutoff);
+            return next(chart.stream().map(PriceFeed::pair).toList(),
+                    first ? null : appended.stream().map(PriceFeed::pair).toList());
+        }
+
+        /** Which analyses are ready and when they were made; there is nothing to diff */
+        FeedTick analysisTick(AnalysisResponse analysis) {
+            Map<String, Object> ready = new LinkedHashMap<>();
+            ready.put("types", analysis.getAnalysis() != null
+                    ? new ArrayList<>(new TreeSet<>(analysis.getAnalysis().keySet()))
+                    : List.of());
+            ready.put("analysisTimestamp", analysis.getAnalysisTimestamp());
+            return next(ready, null);
+        }
+
+        private FeedTick next(Object state, Object changes) {
+            return new FeedTick(channel, symbol, epoch, ++seq, state, changes, PriceFeed.this::encode);
+        }
+    }
+}
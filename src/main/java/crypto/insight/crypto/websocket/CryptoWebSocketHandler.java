@@ -1,9 +1,12 @@
 package crypto.insight.crypto.websocket;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import crypto.insight.crypto.config.properties.WebSocketProperties;
 import crypto.insight.crypto.model.Cryptocurrency;
-import crypto.insight.crypto.service.ApiService;
-import crypto.insight.crypto.service.RealTimeDataService;
+import crypto.insight.crypto.service.realtime.FeedChannel;
+import crypto.insight.crypto.service.realtime.FeedTick;
+import crypto.insight.crypto.service.realtime.PriceFeed;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -11,37 +14,58 @@ import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
-import reactor.core.publisher.Flux;
-import reactor.core.scheduler.Schedulers;
+import reactor.core.Disposable;
 
-import java.io.IOException;
-import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
+/**
+ * Streams per-symbol feeds to WebSocket clients.
+ * <p>
+ * A session subscribes to any number of symbols on any of the {@link FeedChannel}s, e.g.
+ * {@code {"action":"subscribe","symbols":["btc","eth"],"channels":["ticker","chart"]}};
+ * subscriptions add up until unsubscribed. Each feed first sends a {@code snapshot} and then
+ * {@code delta}s holding only what changed, both numbered by {@code seq}. A client that sees
+ * a gap in the numbers sends {@code resync} and gets a fresh snapshot.
+ */
 @Slf4j
 @Component
 public class CryptoWebSocketHandler extends TextWebSocketHandler {
 
+    private static final List<FeedChannel> DEFAULT_CHANNELS = List.of(FeedChannel.TICKER);
+
+    @Autowired
+    private PriceFeed priceFeed;
+
+    // The application's mapper, which also knows the java.time fields of Cryptocurrency
     @Autowired
-    private ApiService apiService;
+    private ObjectMapper objectMapper;
 
     @Autowired
-    private RealTimeDataService realTimeDataService;
+    private WebSocketProperties webSocketProperties;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
     private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
-    private final Map<String, String> sessionSubscriptions = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    // Every write to a session goes through its outbox, so a slow client only delays itself
+    private final Map<String, SessionOutbox> outboxes = new ConcurrentHashMap<>();
+    private final SessionOutbox.Counters outboxCounters = new SessionOutbox.Counters();
+    // Each session's memberships in shared feeds, by FeedTick.key
+    private final Map<String, Map<String, Subscription>> sessionSubscriptions = new ConcurrentHashMap<>();
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        outboxes.put(session.getId(), new SessionOutbox(session, webSocketProperties, outboxCounters));
+        sessionSubscriptions.put(session.getId(), new ConcurrentHashMap<>());
         sessions.put(session.getId(), session);
         log.info("WebSocket connection established: {}", session.getId());
-        
+
         // Send welcome message
         sendMessage(session, Map.of(
             "type", "connected",
@@ -54,10 +78,10 @@ public class CryptoWebSocketHandler extends TextWebSocketHandler {
         try {
             String payload = message.getPayload();
             log.info("Received message from {}: {}", session.getId(), payload);
-            
+
             Map<String, Object> request = objectMapper.readValue(payload, Map.class);
             String action = (String) request.get("action");
-            
+
             switch (action) {
                 case "subscribe":
                     handleSubscribe(session, request);
@@ -65,6 +89,9 @@ public class CryptoWebSocketHandler extends TextWebSocketHandler {
                 case "unsubscribe":
                     handleUnsubscribe(session, request);
                     break;
+                case "resync":
+                    handleResync(session, request);
+                    break;
                 case "ping":
                     handlePing(session);
                     break;
@@ -80,45 +107,94 @@ public class CryptoWebSocketHandler extends TextWebSocketHandler {
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
         sessions.remove(session.getId());
-        sessionSubscriptions.remove(session.getId());
+        Map<String, Subscription> subscriptions = sessionSubscriptions.remove(session.getId());
+        if (subscriptions != null) {
+            subscriptions.values().forEach(subscription -> subscription.membership().dispose());
+        }
+        outboxes.remove(session.getId());
         log.info("WebSocket connection closed: {} - {}", session.getId(), status);
     }
 
     private void handleSubscribe(WebSocketSession session, Map<String, Object> request) {
-        String symbol = (String) request.get("symbol");
-        if (symbol == null || symbol.trim().isEmpty()) {
+        List<String> symbols = symbols(request);
+        if (symbols.isEmpty()) {
             sendError(session, "Symbol is required for subscription");
             return;
         }
-        
-        symbol = symbol.toLowerCase().trim();
-        sessionSubscriptions.put(session.getId(), symbol);
-        
-        log.info("Session {} subscribed to {}", session.getId(), symbol);
-        
-        // Send immediate data
-        sendInitialData(session, symbol);
-        
-        // Start real-time updates
-        startRealTimeUpdates(session, symbol);
-        
+        List<FeedChannel> channels = channels(request);
+        if (channels.isEmpty()) {
+            channels = DEFAULT_CHANNELS;
+        }
+        Map<String, Subscription> subscriptions = sessionSubscriptions.get(session.getId());
+        if (subscriptions == null) {
+            return;
+        }
+
+        Set<String> added = new LinkedHashSet<>();
+        for (String symbol : symbols) {
+            for (FeedChannel channel : channels) {
+                String key = FeedTick.key(channel, symbol);
+                if (!subscriptions.containsKey(key)) {
+                    added.add(key);
+                }
+            }
+        }
+        int limit = webSocketProperties.getMaxSubscriptionsPerSession();
+        if (subscriptions.size() + added.size() > limit) {
+            sendError(session, "At most " + limit + " subscriptions per session");
+            return;
+        }
+
+        log.info("Session {} subscribed to {}", session.getId(), added);
+
+        // Acknowledge before joining, so the snapshots follow the reply
         sendMessage(session, Map.of(
             "type", "subscribed",
-            "symbol", symbol,
-            "message", "Subscribed to real-time updates for " + symbol.toUpperCase()
+            "symbols", symbols,
+            "channels", channels.stream().map(FeedChannel::id).toList(),
+            "message", "Subscribed to real-time updates for " + symbols.stream()
+                .map(symbol -> symbol.toUpperCase(Locale.ROOT))
+                .collect(Collectors.joining(", "))
         ));
+
+        for (String symbol : symbols) {
+            for (FeedChannel channel : channels) {
+                joinFeed(session, subscriptions, channel, symbol);
+            }
+        }
     }
 
     private void handleUnsubscribe(WebSocketSession session, Map<String, Object> request) {
-        sessionSubscriptions.remove(session.getId());
-        log.info("Session {} unsubscribed", session.getId());
-        
+        Map<String, Subscription> subscriptions = sessionSubscriptions.get(session.getId());
+        if (subscriptions == null) {
+            return;
+        }
+        // Without symbols or channels, everything matches
+        for (Subscription subscription : matching(subscriptions.values(), request)) {
+            leaveFeed(session, subscriptions, subscription);
+        }
+        log.info("Session {} unsubscribed, {} subscriptions left", session.getId(), subscriptions.size());
+
         sendMessage(session, Map.of(
             "type", "unsubscribed",
+            "subscriptions", new ArrayList<>(subscriptions.keySet()),
             "message", "Unsubscribed from real-time updates"
         ));
     }
 
+    private void handleResync(WebSocketSession session, Map<String, Object> request) {
+        Map<String, Subscription> subscriptions = sessionSubscriptions.get(session.getId());
+        SessionOutbox outbox = outboxes.get(session.getId());
+        if (subscriptions == null || outbox == null) {
+            return;
+        }
+        for (Subscription subscription : matching(subscriptions.values(), request)) {
+            // The feed's newest tick goes out again, as a snapshot
+            outbox.resync(subscription.key());
+            priceFeed.latest(subscription.channel(), subscription.symbol()).ifPresent(outbox::sendLatest);
+        }
+    }
+
     private void handlePing(WebSocketSession session) {
         sendMessage(session, Map.of(
             "type", "pong",
@@ -126,70 +202,95 @@ public class CryptoWebSocketHandler extends TextWebSocketHandler {
         ));
     }
 
-    private void sendInitialData(WebSocketSession session, String symbol) {
-        try {
-            // Get current data
-            apiService.getCryptocurrencyData(symbol, 1, true)
-                .subscribe(
-                    crypto -> {
-                        sendMessage(session, Map.of(
-                            "type", "initial_data",
-                            "symbol", symbol,
-                            "data", crypto
-                        ));
-                    },
-                    error -> {
-                        log.error("Error fetching initial data for {}: {}", symbol, error.getMessage());
-                        sendError(session, "Error fetching initial data: " + error.getMessage());
-                    }
-                );
-        } catch (Exception e) {
-            log.error("Error sending initial data: {}", e.getMessage());
-            sendError(session, "Error sending initial data: " + e.getMessage());
-        }
-    }
-
-    private void startRealTimeUpdates(WebSocketSession session, String symbol) {
-        // Schedule periodic updates every 10 seconds
-        scheduler.scheduleAtFixedRate(() -> {
-            if (sessions.containsKey(session.getId()) && 
-                symbol.equals(sessionSubscriptions.get(session.getId()))) {
-                
-                try {
-                    // Force fresh data
-                    realTimeDataService.getFreshCryptocurrencyData(symbol, 1)
-                        .subscribe(
-                            crypto -> {
-                                sendMessage(session, Map.of(
-                                    "type", "price_update",
-                                    "symbol", symbol,
-                                    "data", crypto,
-                                    "timestamp", System.currentTimeMillis()
-                                ));
-                            },
-                            error -> {
-                                log.error("Error fetching real-time data for {}: {}", symbol, error.getMessage());
-                                sendError(session, "Error fetching real-time data: " + error.getMessage());
-                            }
-                        );
-                } catch (Exception e) {
-                    log.error("Error in real-time update for {}: {}", symbol, e.getMessage());
-                }
-            }
-        }, 5, 10, TimeUnit.SECONDS); // Initial delay 5s, then every 10s
+    private void joinFeed(WebSocketSession session, Map<String, Subscription> subscriptions,
+                          FeedChannel channel, String symbol) {
+        String key = FeedTick.key(channel, symbol);
+        if (subscriptions.containsKey(key)) {
+            return;
+        }
+        // A feed with a newest tick replays it, which goes out as the snapshot
+        Disposable membership = priceFeed.ticks(channel, symbol)
+            .subscribe(tick -> sendTick(session, tick));
+        subscriptions.put(key, new Subscription(key, channel, symbol, membership));
+        if (!sessions.containsKey(session.getId())) {
+            // Closed while subscribing
+            membership.dispose();
+        }
+    }
+
+    private void leaveFeed(WebSocketSession session, Map<String, Subscription> subscriptions,
+                           Subscription subscription) {
+        if (subscriptions.remove(subscription.key()) != null) {
+            subscription.membership().dispose();
+        }
+        SessionOutbox outbox = outboxes.get(session.getId());
+        if (outbox != null) {
+            outbox.forget(subscription.key());
+        }
+    }
+
+    /** Subscriptions named by the request's symbols and channels; all of them when it names none */
+    private List<Subscription> matching(Collection<Subscription> subscriptions, Map<String, Object> request) {
+        List<String> symbols = symbols(request);
+        List<FeedChannel> channels = channels(request);
+        return subscriptions.stream()
+            .filter(subscription -> symbols.isEmpty() || symbols.contains(subscription.symbol()))
+            .filter(subscription -> channels.isEmpty() || channels.contains(subscription.channel()))
+            .toList();
+    }
+
+    /** {@code symbols} as a list, or a single {@code symbol} */
+    private static List<String> symbols(Map<String, Object> request) {
+        return values(request, "symbols", "symbol").stream()
+            .map(symbol -> symbol.trim().toLowerCase(Locale.ROOT))
+            .filter(symbol -> !symbol.isEmpty())
+            .distinct()
+            .toList();
+    }
+
+    /** {@code channels} as a list, or a single {@code channel} */
+    private static List<FeedChannel> channels(Map<String, Object> request) {
+        return values(request, "channels", "channel").stream()
+            .map(id -> FeedChannel.of(id)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown channel: " + id)))
+            .distinct()
+            .toList();
+    }
+
+    private static List<String> values(Map<String, Object> request, String listField, String field) {
+        List<String> values = new ArrayList<>();
+        if (request.get(listField) instanceof List<?> list) {
+            list.forEach(value -> values.add(String.valueOf(value)));
+        }
+        if (request.get(field) instanceof String value) {
+            values.add(value);
+        }
+        return values;
     }
 
     private void sendMessage(WebSocketSession session, Map<String, Object> message) {
+        SessionOutbox outbox = outboxes.get(session.getId());
+        if (outbox == null || !session.isOpen()) {
+            return;
+        }
         try {
-            if (session.isOpen()) {
-                String json = objectMapper.writeValueAsString(message);
-                session.sendMessage(new TextMessage(json));
-            }
-        } catch (IOException e) {
+            outbox.send(new TextMessage(objectMapper.writeValueAsString(message)));
+        } catch (JsonProcessingException e) {
             log.error("Error sending message to {}: {}", session.getId(), e.getMessage());
         }
     }
 
+    /**
+     * Sends a tick whose messages are serialized once for all their recipients. A client that
+     * is behind only gets the latest tick per feed.
+     */
+    private void sendTick(WebSocketSession session, FeedTick tick) {
+        SessionOutbox outbox = outboxes.get(session.getId());
+        if (outbox != null && session.isOpen()) {
+            outbox.sendLatest(tick);
+        }
+    }
+
     private void sendError(WebSocketSession session, String error) {
         sendMessage(session, Map.of(
             "type", "error",
@@ -198,17 +299,31 @@ public class CryptoWebSocketHandler extends TextWebSocketHandler {
         ));
     }
 
+    /**
+     * Hands a quote fetched elsewhere to the symbol's ticker feed, which sends the change to
+     * its subscribers
+     */
     public void broadcastPriceUpdate(String symbol, Cryptocurrency crypto) {
-        sessions.values().forEach(session -> {
-            String subscribedSymbol = sessionSubscriptions.get(session.getId());
-            if (symbol.equals(subscribedSymbol)) {
-                sendMessage(session, Map.of(
-                    "type", "price_update",
-                    "symbol", symbol,
-                    "data", crypto,
-                    "timestamp", System.currentTimeMillis()
-                ));
-            }
-        });
+        priceFeed.publish(symbol, crypto);
+    }
+
+    /**
+     * Get WebSocket session and outbound queue statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sessions", sessions.size());
+        stats.put("subscriptions", sessionSubscriptions.values().stream().mapToInt(Map::size).sum());
+        stats.put("queuedMessages", outboxes.values().stream().mapToInt(SessionOutbox::queued).sum());
+        stats.put("messagesSent", outboxCounters.sent.get());
+        stats.put("snapshotsSent", outboxCounters.snapshots.get());
+        stats.put("deltasSent", outboxCounters.deltas.get());
+        stats.put("tickBytesSent", outboxCounters.tickBytes.get());
+        stats.put("updatesConflated", outboxCounters.conflated.get());
+        stats.put("sessionsDisconnected", outboxCounters.disconnected.get());
+        return stats;
+    }
+
+    private record Subscription(String key, FeedChannel channel, String symbol, Disposable membership) {
     }
 }
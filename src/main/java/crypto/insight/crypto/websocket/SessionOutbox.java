@@ -0,0 +1,217 @@
+package crypto.insight.crypto.websocket;
+
+import crypto.insight.crypto.config.properties.WebSocketProperties;
+import crypto.insight.crypto.service.realtime.FeedEvent;
+import crypto.insight.crypto.service.realtime.FeedTick;
+import jakarta.websocket.Session;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outbound queue of one WebSocket session.
+ * <p>
+ * Messages go out one at a time through the container's asynchronous send, so publishing an
+ * update never waits on a client's socket. While a send is in flight, feed ticks conflate to
+ * the latest one per feed and other messages queue up to a bound. A client whose send is stuck
+ * past the time limit, or whose queue overflows, is disconnected.
+ * <p>
+ * The outbox remembers the last tick it delivered per feed. A tick that directly follows it
+ * goes out as a delta; after a conflated tick, a resync or at the start it goes out as a
+ * snapshot, so the client never has to apply a delta to state it does not have.
+ */
+@Slf4j
+final class SessionOutbox {
+
+    private final WebSocketSession session;
+    private final Session nativeSession;
+    private final WebSocketProperties properties;
+    private final Counters counters;
+
+    // Guarded by this
+    private final ArrayDeque<TextMessage> messages = new ArrayDeque<>();
+    private final Map<String, FeedTick> latest = new LinkedHashMap<>();
+    private final Map<String, Long> delivered = new HashMap<>();
+    private boolean sending;
+    private long sendStartedNanos;
+    private boolean closed;
+
+    SessionOutbox(WebSocketSession session, WebSocketProperties properties, Counters counters) {
+        this.session = session;
+        this.nativeSession = session instanceof NativeWebSocketSession nativeWebSocketSession
+                ? nativeWebSocketSession.getNativeSession(Session.class)
+                : null;
+        this.properties = properties;
+        this.counters = counters;
+    }
+
+    /**
+     * Queues a message that must arrive in order and must not be dropped
+     */
+    void send(TextMessage message) {
+        synchronized (this) {
+            if (closed || isStuck()) {
+                disconnect("send stuck");
+                return;
+            }
+            if (messages.size() >= properties.getMaxQueuedMessages()) {
+                disconnect("outbound queue full");
+                return;
+            }
+            messages.add(message);
+        }
+        drain();
+    }
+
+    /**
+     * Queues {@code tick} as the latest of its feed, replacing one still waiting
+     */
+    void sendLatest(FeedTick tick) {
+        synchronized (this) {
+            if (closed || isStuck()) {
+                disconnect("send stuck");
+                return;
+            }
+            Long seq = delivered.get(tick.key());
+            if (seq != null && seq >= tick.seq()) {
+                // Already has it, e.g. replayed to a resubscribing session
+                return;
+            }
+            if (latest.put(tick.key(), tick) != null) {
+                counters.conflated.incrementAndGet();
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Makes the next tick of the feed go out as a snapshot
+     */
+    synchronized void resync(String key) {
+        delivered.remove(key);
+    }
+
+    /**
+     * Drops what is waiting for the feed and what was delivered from it
+     */
+    synchronized void forget(String key) {
+        latest.remove(key);
+        delivered.remove(key);
+    }
+
+    synchronized int queued() {
+        return messages.size() + latest.size();
+    }
+
+    /** Starts the next send unless one is in flight */
+    private void drain() {
+        TextMessage next;
+        synchronized (this) {
+            if (sending || closed) {
+                return;
+            }
+            next = poll();
+            if (next == null) {
+                return;
+            }
+            sending = true;
+            sendStartedNanos = System.nanoTime();
+        }
+        transmit(next);
+    }
+
+    // Called holding this
+    private TextMessage poll() {
+        TextMessage message = messages.poll();
+        if (message != null) {
+            return message;
+        }
+        Iterator<FeedTick> ticks = latest.values().iterator();
+        if (!ticks.hasNext()) {
+            return null;
+        }
+        FeedTick tick = ticks.next();
+        ticks.remove();
+        FeedEvent event = tick.eventAfter(delivered.getOrDefault(tick.key(), -1L));
+        (event.delta() ? counters.deltas : counters.snapshots).incrementAndGet();
+        delivered.put(tick.key(), tick.seq());
+        counters.tickBytes.addAndGet(event.frame().size());
+        return event.frame().asTextMessage();
+    }
+
+    private void transmit(TextMessage message) {
+        if (nativeSession != null) {
+            nativeSession.getAsyncRemote().sendText(message.getPayload(), result -> sent(result.isOK() ? null : result.getException()));
+            return;
+        }
+        // Not a JSR-356 session: fall back to the blocking send
+        try {
+            session.sendMessage(message);
+            sent(null);
+        } catch (IOException e) {
+            sent(e);
+        }
+    }
+
+    private void sent(Throwable error) {
+        synchronized (this) {
+            sending = false;
+        }
+        if (error != null) {
+            log.debug("Send to WebSocket session {} failed: {}", session.getId(), error.getMessage());
+            synchronized (this) {
+                disconnect("send failed");
+            }
+            return;
+        }
+        counters.sent.incrementAndGet();
+        drain();
+    }
+
+    // Called holding this
+    private boolean isStuck() {
+        return sending && System.nanoTime() - sendStartedNanos > properties.getSendTimeLimit().toNanos();
+    }
+
+    // Called holding this
+    private void disconnect(String reason) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        messages.clear();
+        latest.clear();
+        delivered.clear();
+        counters.disconnected.incrementAndGet();
+        log.info("Disconnecting WebSocket session {}: {}", session.getId(), reason);
+        // Closing may itself wait on the stuck socket, so never on the caller's thread
+        Schedulers.boundedElastic().schedule(() -> {
+            try {
+                session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException e) {
+                log.debug("Failed to close WebSocket session {}: {}", session.getId(), e.getMessage());
+            }
+        });
+    }
+
+    /** Totals across all sessions */
+    static final class Counters {
+        final AtomicLong sent = new AtomicLong();
+        final AtomicLong conflated = new AtomicLong();
+        final AtomicLong snapshots = new AtomicLong();
+        final AtomicLong deltas = new AtomicLong();
+        final AtomicLong tickBytes = new AtomicLong();
+        final AtomicLong disconnected = new AtomicLong();
+    }
+}
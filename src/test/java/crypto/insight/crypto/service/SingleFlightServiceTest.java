@@ -0,0 +1,89 @@
+package crypto.insight.crypto.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SingleFlightServiceTest {
+
+    private final SingleFlightService singleFlight = new SingleFlightService();
+    private final AtomicInteger subscriptions = new AtomicInteger();
+
+    @Test
+    void concurrentCallersShareOneUpstreamSubscription() {
+        Sinks.One<String> upstream = Sinks.one();
+        List<String> received = new CopyOnWriteArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            singleFlight.execute("price", "btc", () -> counted(upstream.asMono())).subscribe(received::add);
+        }
+        assertThat(subscriptions).hasValue(1);
+        assertThat(singleFlight.inFlightCount()).isEqualTo(1);
+
+        upstream.tryEmitValue("42");
+
+        assertThat(received).containsExactly("42", "42", "42");
+        assertThat(singleFlight.inFlightCount()).isZero();
+        assertThat(singleFlight.getStatistics()).containsEntry("executions", 1L).containsEntry("joined", 2L);
+    }
+
+    @Test
+    void differentKeysDoNotShare() {
+        Sinks.One<String> upstream = Sinks.one();
+
+        singleFlight.execute("price", "btc", () -> counted(upstream.asMono())).subscribe();
+        singleFlight.execute("price", "eth", () -> counted(upstream.asMono())).subscribe();
+        singleFlight.execute("chart", "btc", () -> counted(upstream.asMono())).subscribe();
+
+        assertThat(subscriptions).hasValue(3);
+        upstream.tryEmitEmpty();
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    @Test
+    void anErrorReachesEveryCallerAndTheNextCallStartsAFreshFlight() {
+        Sinks.One<String> upstream = Sinks.one();
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+
+        for (int i = 0; i < 2; i++) {
+            singleFlight.execute("price", "btc", () -> counted(upstream.asMono())).subscribe(value -> { }, errors::add);
+        }
+        upstream.tryEmitError(new IllegalStateException("upstream down"));
+
+        assertThat(errors).hasSize(2).allSatisfy(error -> assertThat(error).hasMessage("upstream down"));
+        assertThat(singleFlight.inFlightCount()).isZero();
+
+        assertThat(singleFlight.execute("price", "btc", () -> counted(Mono.just("43"))).block()).isEqualTo("43");
+        assertThat(subscriptions).hasValue(2);
+    }
+
+    @Test
+    void upstreamIsCancelledOnlyOnceEveryCallerCancelled() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Mono<String> upstream = Mono.<String>never().doOnCancel(() -> cancelled.set(true));
+
+        Disposable first = singleFlight.execute("price", "btc", () -> counted(upstream)).subscribe();
+        Disposable second = singleFlight.execute("price", "btc", () -> counted(upstream)).subscribe();
+
+        first.dispose();
+        assertThat(cancelled).isFalse();
+        assertThat(singleFlight.inFlightCount()).isEqualTo(1);
+
+        second.dispose();
+        assertThat(cancelled).isTrue();
+        assertThat(singleFlight.inFlightCount()).isZero();
+        assertThat(subscriptions).hasValue(1);
+    }
+
+    private <T> Mono<T> counted(Mono<T> upstream) {
+        return upstream.doOnSubscribe(subscription -> subscriptions.incrementAndGet());
+    }
+}
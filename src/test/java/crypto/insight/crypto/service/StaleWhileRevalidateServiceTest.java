@@ -0,0 +1,106 @@
+package crypto.insight.crypto.service;
+
+import crypto.insight.crypto.config.properties.StaleWhileRevalidateProperties;
+import crypto.insight.crypto.model.CachedValue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StaleWhileRevalidateServiceTest {
+
+    private static final String CACHE = "prices";
+    private static final Duration LONG = Duration.ofHours(1);
+
+    private final StaleWhileRevalidateProperties properties = new StaleWhileRevalidateProperties();
+    private final AtomicInteger loads = new AtomicInteger();
+    private StaleWhileRevalidateService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new StaleWhileRevalidateService(new ConcurrentMapCacheManager(CACHE), new SingleFlightService(),
+                properties);
+        assertThat(get(() -> counted(Mono.just("v1"))).getValue()).isEqualTo("v1");
+        loads.set(0);
+    }
+
+    @Test
+    void freshEntryIsServedWithoutLoading() {
+        ttl(LONG, LONG);
+
+        CachedValue<String> cached = get(() -> counted(Mono.just("v2")));
+
+        assertThat(cached.getValue()).isEqualTo("v1");
+        assertThat(cached.isStale()).isFalse();
+        assertThat(loads).hasValue(0);
+    }
+
+    @Test
+    void softExpiredEntryIsServedWhileExactlyOneBackgroundRevalidationRuns() {
+        // Every entry is past its soft TTL but well within its hard TTL
+        ttl(Duration.ZERO, LONG);
+        Sinks.One<String> upstream = Sinks.one();
+
+        for (int i = 0; i < 3; i++) {
+            CachedValue<String> cached = get(() -> counted(upstream.asMono()));
+            assertThat(cached.getValue()).isEqualTo("v1");
+            assertThat(cached.isStale()).isTrue();
+        }
+        assertThat(loads).hasValue(1);
+
+        upstream.tryEmitValue("v2");
+        ttl(LONG, LONG);
+
+        assertThat(get(() -> counted(Mono.just("v3"))).getValue()).isEqualTo("v2");
+        assertThat(loads).hasValue(1);
+        assertThat(service.getStatistics()).containsEntry("staleHits", 3L).containsEntry("backgroundRefreshes", 1L);
+    }
+
+    @Test
+    void failedRevalidationKeepsServingTheStaleEntry() {
+        ttl(Duration.ZERO, LONG);
+
+        CachedValue<String> cached = get(() -> counted(Mono.error(new IllegalStateException("upstream down"))));
+
+        assertThat(cached.getValue()).isEqualTo("v1");
+        assertThat(get(() -> counted(Mono.never())).getValue()).isEqualTo("v1");
+        assertThat(service.getStatistics()).containsEntry("backgroundRefreshFailures", 1L);
+    }
+
+    @Test
+    void hardExpiredEntryBlocksForAFreshLoad() {
+        ttl(Duration.ZERO, Duration.ZERO);
+        Sinks.One<String> upstream = Sinks.one();
+        AtomicReference<CachedValue<String>> received = new AtomicReference<>();
+
+        service.get(CACHE, "btc", () -> counted(upstream.asMono())).subscribe(received::set);
+        assertThat(received).hasValue(null);
+        assertThat(loads).hasValue(1);
+
+        upstream.tryEmitValue("v2");
+
+        assertThat(received.get().getValue()).isEqualTo("v2");
+        assertThat(received.get().isStale()).isFalse();
+    }
+
+    private CachedValue<String> get(Supplier<Mono<String>> loader) {
+        return service.get(CACHE, "btc", loader).block(Duration.ofSeconds(5));
+    }
+
+    private Mono<String> counted(Mono<String> upstream) {
+        return upstream.doOnSubscribe(subscription -> loads.incrementAndGet());
+    }
+
+    private void ttl(Duration soft, Duration hard) {
+        properties.getDefaults().setSoftTtl(soft);
+        properties.getDefaults().setHardTtl(hard);
+    }
+}
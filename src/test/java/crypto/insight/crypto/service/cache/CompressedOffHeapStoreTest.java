@@ -0,0 +1,93 @@
+package crypto.insight.crypto.service.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompressedOffHeapStoreTest {
+
+    private static final String CACHE = "prices";
+
+    private final Random random = new Random(42);
+
+    @Test
+    void restoresSpilledValuesSpanningSeveralBlocksOnce() {
+        CompressedOffHeapStore store = new CompressedOffHeapStore(64 * 1024, 1);
+        byte[] value = incompressible(3 * SlabArena.BLOCK_BYTES + 100);
+
+        store.put(CACHE, "btc", value, 10, 0);
+        CompressedOffHeapStore.Entry entry = store.take(CACHE, "btc");
+
+        assertThat(entry.value()).isEqualTo(value);
+        assertThat(entry.writtenAt()).isEqualTo(10);
+        assertThat(store.take(CACHE, "btc")).isNull();
+        assertThat(store.getStatistics()).containsEntry("entries", 0).containsEntry("usedBytes", 0L);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntriesToStayWithinTheBudget() {
+        long budget = 8L * SlabArena.BLOCK_BYTES;
+        CompressedOffHeapStore store = new CompressedOffHeapStore(budget, 1);
+
+        for (int i = 0; i < 4; i++) {
+            store.put(CACHE, i, incompressible(SlabArena.BLOCK_BYTES), 0, 0);
+        }
+        // Each entry takes two blocks, so the budget is full and the fifth evicts the first
+        store.put(CACHE, 4, incompressible(SlabArena.BLOCK_BYTES), 0, 0);
+
+        assertThat(store.take(CACHE, 0)).isNull();
+        for (int i = 1; i <= 4; i++) {
+            assertThat(store.take(CACHE, i)).isNotNull();
+        }
+        assertThat(store.getStatistics()).containsEntry("evictions", 1L);
+    }
+
+    @Test
+    void reusesFreedBlocksInsteadOfAllocatingMoreDirectMemory() {
+        CompressedOffHeapStore store = new CompressedOffHeapStore(4L << 20, 1);
+
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 20; i++) {
+                store.put(CACHE, i, incompressible(2000), 0, 0);
+            }
+            for (int i = 0; i < 20; i++) {
+                assertThat(store.take(CACHE, i)).isNotNull();
+            }
+        }
+
+        assertThat(store.getStatistics()).containsEntry("reservedBytes", 1L << 20);
+    }
+
+    @Test
+    void replacingAnEntryReleasesTheOldBlocks() {
+        CompressedOffHeapStore store = new CompressedOffHeapStore(64 * 1024, 1);
+
+        store.put(CACHE, "btc", incompressible(4 * SlabArena.BLOCK_BYTES), 0, 0);
+        store.put(CACHE, "btc", "small", 0, 0);
+
+        assertThat(store.getStatistics())
+                .containsEntry("entries", 1)
+                .containsEntry("usedBytes", (long) SlabArena.BLOCK_BYTES);
+        assertThat(store.take(CACHE, "btc").value()).isEqualTo("small");
+    }
+
+    @Test
+    void dropsExpiredAndUnserializableValues() {
+        CompressedOffHeapStore store = new CompressedOffHeapStore(64 * 1024, 1);
+
+        store.put(CACHE, "btc", "stale", 0, 1);
+        store.put(CACHE, "eth", new Object(), 0, 0);
+
+        assertThat(store.take(CACHE, "btc")).isNull();
+        assertThat(store.take(CACHE, "eth")).isNull();
+        assertThat(store.getStatistics()).containsEntry("expirations", 1L).containsEntry("rejected", 1L);
+    }
+
+    private byte[] incompressible(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,93 @@
+package crypto.insight.crypto.service.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TieredCacheTest {
+
+    private final CompressedOffHeapStore l2 = new CompressedOffHeapStore(1 << 20, 1);
+
+    @Test
+    void spillsSizeEvictionsAndPromotesThemBack() {
+        TieredCache cache = cache(Caffeine.newBuilder().maximumSize(1).executor(Runnable::run));
+
+        cache.put("btc", "bitcoin");
+        cache.put("eth", "ethereum");
+
+        assertThat(l2.getStatistics()).containsEntry("entries", 1);
+        assertThat(cache.get("btc", String.class)).isEqualTo("bitcoin");
+        assertThat(cache.get("eth", String.class)).isEqualTo("ethereum");
+        // Each entry lives in one tier only
+        assertThat(l2.getStatistics()).containsEntry("entries", 1);
+    }
+
+    @Test
+    void putAndEvictDropTheSpilledValue() {
+        TieredCache cache = cache(Caffeine.newBuilder().maximumSize(1).executor(Runnable::run));
+
+        cache.put("btc", "old");
+        cache.put("eth", "ethereum");
+        cache.put("btc", "new");
+        cache.put("sol", "solana");
+        assertThat(cache.get("btc", String.class)).isEqualTo("new");
+
+        cache.put("xrp", "ripple");
+        cache.evict("xrp");
+        cache.evict("btc");
+        assertThat(cache.get("btc")).isNull();
+        assertThat(cache.get("xrp")).isNull();
+    }
+
+    @Test
+    void evictionsNeverBringBackAValueALaterPutOrEvictReplaced() throws Exception {
+        // Caffeine's own maintenance executor, so spills run concurrently with the writers
+        TieredCache cache = cache(Caffeine.newBuilder().maximumSize(4));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Map<String, Object>>> writers = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            int writer = thread;
+            writers.add(executor.submit(() -> {
+                Map<String, Object> expected = new HashMap<>();
+                for (int i = 0; i < 2000; i++) {
+                    String key = writer + "-" + (i % 8);
+                    cache.put(key, i);
+                    expected.put(key, i);
+                    if (i % 3 == 0) {
+                        cache.evict(key);
+                        expected.put(key, null);
+                    }
+                }
+                return expected;
+            }));
+        }
+        Map<String, Object> expected = new HashMap<>();
+        for (Future<Map<String, Object>> future : writers) {
+            expected.putAll(future.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        ForkJoinPool.commonPool().awaitQuiescence(5, TimeUnit.SECONDS);
+
+        expected.forEach((key, value) -> {
+            Cache.ValueWrapper cached = cache.get(key);
+            assertThat(cached != null ? cached.get() : null).as(key).isEqualTo(value);
+        });
+    }
+
+    private TieredCache cache(Caffeine<Object, Object> l1) {
+        return new TieredCache("prices", l1, Duration.ofMinutes(5), l2, true);
+    }
+}
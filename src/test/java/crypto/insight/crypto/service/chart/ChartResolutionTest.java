@@ -0,0 +1,36 @@
+package crypto.insight.crypto.service.chart;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChartResolutionTest {
+
+    @Test
+    void picksFiveMinutesUpToOneDay() {
+        assertThat(ChartResolution.forDays(0)).isEqualTo(ChartResolution.FIVE_MINUTES);
+        assertThat(ChartResolution.forDays(1)).isEqualTo(ChartResolution.FIVE_MINUTES);
+    }
+
+    @Test
+    void picksHourlyFromTwoToNinetyDays() {
+        assertThat(ChartResolution.forDays(2)).isEqualTo(ChartResolution.HOURLY);
+        assertThat(ChartResolution.forDays(90)).isEqualTo(ChartResolution.HOURLY);
+    }
+
+    @Test
+    void picksDailyBeyondNinetyDays() {
+        assertThat(ChartResolution.forDays(91)).isEqualTo(ChartResolution.DAILY);
+        assertThat(ChartResolution.forDays(365)).isEqualTo(ChartResolution.DAILY);
+        assertThat(ChartResolution.forDays(Integer.MAX_VALUE)).isEqualTo(ChartResolution.DAILY);
+    }
+
+    @Test
+    void levelsGetCoarserAndEachDividesTheNext() {
+        ChartResolution[] levels = ChartResolution.values();
+        for (int i = 1; i < levels.length; i++) {
+            assertThat(levels[i].getBucketMillis() % levels[i - 1].getBucketMillis()).isZero();
+            assertThat(levels[i].getProviderWindowDays()).isGreaterThan(levels[i - 1].getProviderWindowDays());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package crypto.insight.crypto.service.chart;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChartRollupTest {
+
+    private static final long FIVE_MINUTES = ChartResolution.FIVE_MINUTES.getBucketMillis();
+    private static final long HOUR = ChartResolution.HOURLY.getBucketMillis();
+
+    @Test
+    void rollsPointsUpIntoOhlcBuckets() {
+        long[] timestamps = {0, 60_000, 120_000, FIVE_MINUTES, FIVE_MINUTES + 1};
+        double[] prices = {3, 5, 1, 7, 6};
+        double[] volumes = {10, Double.NaN, 30, 40, Double.NaN};
+        double[] marketCaps = {1, 2, 3, 4, 5};
+
+        ChartRollup rollup = ChartRollup.fromPoints(timestamps, prices, volumes, marketCaps, 5, FIVE_MINUTES);
+
+        assertThat(rollup.size).isEqualTo(2);
+        assertThat(Arrays.copyOf(rollup.timestamps, 2)).containsExactly(0, FIVE_MINUTES);
+        assertThat(rollup.open[0]).isEqualTo(3);
+        assertThat(rollup.high[0]).isEqualTo(5);
+        assertThat(rollup.low[0]).isEqualTo(1);
+        assertThat(rollup.close[0]).isEqualTo(1);
+        assertThat(rollup.closeTimestamps[0]).isEqualTo(120_000);
+        assertThat(rollup.volume[0]).isEqualTo(30);
+        assertThat(rollup.volume[1]).isEqualTo(40);
+        assertThat(rollup.marketCap[1]).isEqualTo(5);
+    }
+
+    @Test
+    void rollsUpIntoCoarserLevels() {
+        int count = 24;
+        long[] timestamps = new long[count];
+        double[] prices = new double[count];
+        for (int i = 0; i < count; i++) {
+            timestamps[i] = i * FIVE_MINUTES;
+            prices[i] = i == 5 ? 100 : i;
+        }
+        ChartRollup fine = ChartRollup.fromPoints(timestamps, prices, nan(count), nan(count), count, FIVE_MINUTES);
+
+        ChartRollup hourly = fine.rollUp(HOUR);
+
+        assertThat(hourly.size).isEqualTo(2);
+        assertThat(Arrays.copyOf(hourly.timestamps, 2)).containsExactly(0, HOUR);
+        assertThat(hourly.open[0]).isEqualTo(0);
+        assertThat(hourly.high[0]).isEqualTo(100);
+        assertThat(hourly.close[0]).isEqualTo(11);
+        assertThat(hourly.closeTimestamps[1]).isEqualTo(23 * FIVE_MINUTES);
+    }
+
+    @Test
+    void refreshingFromTheFirstChangedPointMatchesARebuild() {
+        int count = 40;
+        long[] timestamps = new long[count];
+        double[] prices = new double[count];
+        for (int i = 0; i < count; i++) {
+            timestamps[i] = i * FIVE_MINUTES;
+            prices[i] = i % 7;
+        }
+        ChartRollup fine = ChartRollup.fromPoints(timestamps, prices, nan(count), nan(count), 30, FIVE_MINUTES);
+        ChartRollup hourly = fine.rollUp(HOUR);
+
+        // Point 29 changes and points 30 to 39 arrive
+        prices[29] = 50;
+        fine.refreshFromPoints(timestamps, prices, nan(count), nan(count), count, timestamps[29]);
+        hourly.refreshFrom(fine, timestamps[29]);
+
+        ChartRollup rebuiltFine = ChartRollup.fromPoints(timestamps, prices, nan(count), nan(count), count, FIVE_MINUTES);
+        ChartRollup rebuiltHourly = rebuiltFine.rollUp(HOUR);
+        assertSame(fine, rebuiltFine);
+        assertSame(hourly, rebuiltHourly);
+    }
+
+    @Test
+    void boundsSelectTheBucketsOverlappingAWindow() {
+        long[] timestamps = {0, FIVE_MINUTES, 2 * FIVE_MINUTES, 3 * FIVE_MINUTES};
+        ChartRollup rollup = ChartRollup.fromPoints(timestamps, new double[] {1, 2, 3, 4}, nan(4), nan(4), 4, FIVE_MINUTES);
+
+        assertThat(rollup.lowerBound(FIVE_MINUTES + 1)).isEqualTo(1);
+        assertThat(rollup.upperBound(2 * FIVE_MINUTES)).isEqualTo(3);
+        assertThat(rollup.upperBound(2 * FIVE_MINUTES - 1)).isEqualTo(2);
+    }
+
+    private static void assertSame(ChartRollup actual, ChartRollup expected) {
+        assertThat(actual.size).isEqualTo(expected.size);
+        int size = expected.size;
+        assertThat(Arrays.copyOf(actual.timestamps, size)).containsExactly(Arrays.copyOf(expected.timestamps, size));
+        assertThat(Arrays.copyOf(actual.closeTimestamps, size)).containsExactly(Arrays.copyOf(expected.closeTimestamps, size));
+        assertThat(Arrays.copyOf(actual.open, size)).containsExactly(Arrays.copyOf(expected.open, size));
+        assertThat(Arrays.copyOf(actual.high, size)).containsExactly(Arrays.copyOf(expected.high, size));
+        assertThat(Arrays.copyOf(actual.low, size)).containsExactly(Arrays.copyOf(expected.low, size));
+        assertThat(Arrays.copyOf(actual.close, size)).containsExactly(Arrays.copyOf(expected.close, size));
+    }
+
+    private static double[] nan(int count) {
+        double[] values = new double[count];
+        Arrays.fill(values, Double.NaN);
+        return values;
+    }
+}
@@ -0,0 +1,177 @@
+package crypto.insight.crypto.service.chart;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChartSegmentFileTest {
+
+    private static final long BUCKET = ChartResolution.FIVE_MINUTES.getBucketMillis();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsRecordsAndIngestTime() throws IOException {
+        Path path = directory.resolve("bitcoin.seg");
+        try (ChartSegmentFile segment = ChartSegmentFile.open(path)) {
+            segment.append(points(new long[] {0, BUCKET, 2 * BUCKET}, 1.0));
+            segment.markIngested(1234L);
+        }
+
+        try (ChartSegmentFile segment = ChartSegmentFile.open(path)) {
+            ChartSeries.Points read = segment.read();
+            assertThat(segment.count()).isEqualTo(3);
+            assertThat(segment.lastIngestedAt()).isEqualTo(1234L);
+            assertThat(read.timestamps).containsExactly(0, BUCKET, 2 * BUCKET);
+            assertThat(read.prices).containsExactly(1.0, 2.0, 3.0);
+            assertThat(read.volumes).containsExactly(10.0, 20.0, 30.0);
+            assertThat(read.marketCaps[0]).isNaN();
+        }
+    }
+
+    @Test
+    void laterRecordsSupersedeEarlierOnesOfTheSameBucket() throws IOException {
+        try (ChartSegmentFile segment = ChartSegmentFile.open(directory.resolve("eth.seg"))) {
+            segment.append(points(new long[] {0, BUCKET}, 1.0));
+            segment.append(points(new long[] {BUCKET + 1000}, 9.0));
+            segment.append(points(new long[] {10}, 7.0));
+
+            ChartSeries.Points folded = segment.read().latestPerBucket(BUCKET);
+            assertThat(segment.count()).isEqualTo(4);
+            assertThat(folded.timestamps).containsExactly(10, BUCKET + 1000);
+            assertThat(folded.prices).containsExactly(7.0, 9.0);
+        }
+    }
+
+    @Test
+    void ignoresATornAppend() throws IOException {
+        Path path = directory.resolve("torn.seg");
+        try (ChartSegmentFile segment = ChartSegmentFile.open(path)) {
+            segment.append(points(new long[] {0, BUCKET}, 1.0));
+        }
+        // A record written past the count, as if the process died before updating the header
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            ByteBuffer record = ByteBuffer.allocate(ChartSegmentFile.RECORD_BYTES).putLong(0, 5 * BUCKET);
+            channel.write(record, ChartSegmentFile.HEADER_BYTES + 2L * ChartSegmentFile.RECORD_BYTES);
+        }
+
+        try (ChartSegmentFile segment = ChartSegmentFile.open(path)) {
+            assertThat(segment.count()).isEqualTo(2);
+            assertThat(segment.read().timestamps).containsExactly(0, BUCKET);
+        }
+    }
+
+    @Test
+    void resetsASegmentWithAnUnknownHeader() throws IOException {
+        Path wrongMagic = directory.resolve("magic.seg");
+        Files.write(wrongMagic, segmentBytes(0x12345678, 2, 1, 99L));
+        Path unknownVersion = directory.resolve("version.seg");
+        Files.write(unknownVersion, segmentBytes(0x43485331, 3, 1, 99L));
+        Path countBeyondFile = directory.resolve("count.seg");
+        Files.write(countBeyondFile, segmentBytes(0x43485331, 2, 5, 99L));
+
+        for (Path path : new Path[] {wrongMagic, unknownVersion, countBeyondFile}) {
+            try (ChartSegmentFile segment = ChartSegmentFile.open(path)) {
+                assertThat(segment.count()).as(path.getFileName().toString()).isZero();
+                assertThat(segment.lastIngestedAt()).isZero();
+            }
+        }
+    }
+
+    @Test
+    void readsVersionOneSegments() throws IOException {
+        Path path = directory.resolve("v1.seg");
+        Files.write(path, segmentBytes(0x43485331, 1, 1, 99L));
+
+        try (ChartSegmentFile segment = ChartSegmentFile.open(path)) {
+            assertThat(segment.count()).isEqualTo(1);
+            assertThat(segment.lastIngestedAt()).isEqualTo(99L);
+            assertThat(segment.read().prices).containsExactly(42.0);
+        }
+    }
+
+    @Test
+    void rewriteReplacesTheLog() throws IOException {
+        Path path = directory.resolve("rewrite.seg");
+        try (ChartSegmentFile segment = ChartSegmentFile.open(path)) {
+            segment.append(points(new long[] {0, BUCKET, 2 * BUCKET}, 1.0));
+            segment.markIngested(77L);
+            segment.rewrite(points(new long[] {BUCKET}, 5.0));
+            segment.append(points(new long[] {3 * BUCKET}, 6.0));
+            assertThat(segment.count()).isEqualTo(2);
+        }
+
+        try (ChartSegmentFile segment = ChartSegmentFile.open(path)) {
+            assertThat(segment.read().timestamps).containsExactly(BUCKET, 3 * BUCKET);
+            assertThat(segment.read().prices).containsExactly(5.0, 6.0);
+            assertThat(segment.lastIngestedAt()).isEqualTo(77L);
+        }
+        assertThat(directory.resolve("rewrite.seg.tmp")).doesNotExist();
+    }
+
+    @Test
+    void rewriteAfterAppendsThatGrewTheLiveSegmentCompactsItInPlace() throws IOException {
+        Path path = directory.resolve("live.seg");
+        long[] first = new long[1500];
+        long[] second = new long[1500];
+        for (int i = 0; i < first.length; i++) {
+            first[i] = i * BUCKET;
+            second[i] = i * BUCKET + 1;
+        }
+        try (ChartSegmentFile segment = ChartSegmentFile.open(path)) {
+            Object fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+            segment.append(points(first, 1.0));
+            segment.append(points(second, 2.0));
+            ChartSeries.Points live = segment.read().latestPerBucket(BUCKET);
+
+            segment.rewrite(live);
+            segment.append(points(new long[] {first.length * BUCKET}, 9.0));
+
+            assertThat(segment.count()).isEqualTo(first.length + 1);
+            assertThat(Files.readAttributes(path, BasicFileAttributes.class).fileKey()).isEqualTo(fileKey);
+            assertThat(segment.read().prices).startsWith(2.0, 3.0).endsWith(1501.0, 9.0);
+        }
+
+        try (ChartSegmentFile segment = ChartSegmentFile.open(path)) {
+            ChartSeries.Points read = segment.read();
+            assertThat(read.size()).isEqualTo(first.length + 1);
+            assertThat(read.timestamps[first.length - 1]).isEqualTo((first.length - 1) * BUCKET + 1);
+            assertThat(read.timestamps[first.length]).isEqualTo(first.length * BUCKET);
+        }
+    }
+
+    /** Points at the given timestamps, priced from {@code firstPrice} upwards, without market caps */
+    private static ChartSeries.Points points(long[] timestamps, double firstPrice) {
+        double[] prices = new double[timestamps.length];
+        double[] volumes = new double[timestamps.length];
+        double[] marketCaps = new double[timestamps.length];
+        for (int i = 0; i < timestamps.length; i++) {
+            prices[i] = firstPrice + i;
+            volumes[i] = 10.0 * (i + 1);
+            marketCaps[i] = Double.NaN;
+        }
+        return new ChartSeries.Points(timestamps, prices, volumes, marketCaps, timestamps.length);
+    }
+
+    /** A segment with the given header and one record priced 42 */
+    private static byte[] segmentBytes(int magic, int version, long count, long ingestedAt) {
+        ByteBuffer bytes = ByteBuffer.allocate(ChartSegmentFile.HEADER_BYTES + ChartSegmentFile.RECORD_BYTES);
+        bytes.putInt(0, magic);
+        bytes.putInt(4, version);
+        bytes.putLong(8, count);
+        bytes.putLong(16, ingestedAt);
+        bytes.putLong(ChartSegmentFile.HEADER_BYTES, 1000L);
+        bytes.putDouble(ChartSegmentFile.HEADER_BYTES + 8, 42.0);
+        return bytes.array();
+    }
+}
@@ -0,0 +1,53 @@
+package crypto.insight.crypto.service.chart;
+
+import crypto.insight.crypto.config.properties.ChartStoreProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChartSeriesStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void keepsPlainIdsAsFileNamesAndNeverMapsTwoKeysToOneFile() {
+        assertThat(ChartSeriesStore.fileNameFor("bitcoin")).isEqualTo("bitcoin.seg");
+        assertThat(ChartSeriesStore.fileNameFor("usd-coin")).isEqualTo("usd-coin.seg");
+        assertThat(ChartSeriesStore.fileNameFor("a/b")).isNotEqualTo(ChartSeriesStore.fileNameFor("a?b"));
+        assertThat(ChartSeriesStore.fileNameFor("a/b")).doesNotContain("/");
+    }
+
+    @Test
+    void findsPersistedSeriesByTheirRawKeysAfterARestart() {
+        long now = System.currentTimeMillis();
+        ChartSeriesStore store = new ChartSeriesStore(properties());
+        store.ingest("a/b", chart(now - 600_000, 1.0));
+        store.ingest("a?b", chart(now - 1_200_000, 2.0));
+        store.close();
+
+        ChartSeriesStore restarted = new ChartSeriesStore(properties());
+        assertThat(restarted.getStatistics()).containsEntry("persistedSegments", 2);
+        assertThat(restarted.newestTimestamp("a/b")).isEqualTo(OptionalLong.of(now - 600_000));
+        assertThat(restarted.newestTimestamp("A?B")).isEqualTo(OptionalLong.of(now - 1_200_000));
+        restarted.close();
+    }
+
+    private ChartStoreProperties properties() {
+        ChartStoreProperties properties = new ChartStoreProperties();
+        properties.setDirectory(directory.toString());
+        return properties;
+    }
+
+    private static Map<String, Object> chart(long timestamp, double price) {
+        return Map.of("prices", List.of(List.of(timestamp, price)),
+                "market_caps", List.of(),
+                "total_volumes", List.of());
+    }
+}
@@ -0,0 +1,259 @@
+package crypto.insight.crypto.service.chart;
+
+import crypto.insight.crypto.model.ChartDataPoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChartSeriesTest {
+
+    private static final long BUCKET = ChartResolution.FIVE_MINUTES.getBucketMillis();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void tailMergeAppendsNewBuckets() {
+        ChartSeries series = new ChartSeries("btc", BUCKET);
+
+        assertThat(series.merge(points(new long[] {0, BUCKET}, new double[] {1, 2}))).isEqualTo(2);
+        assertThat(series.merge(points(new long[] {2 * BUCKET, 3 * BUCKET}, new double[] {3, 4}))).isEqualTo(2);
+
+        assertThat(closes(series)).containsExactly(1.0, 2.0, 3.0, 4.0);
+    }
+
+    @Test
+    void tailMergeReplacesTheLastBucketAndKeepsItsKnownValues() {
+        ChartSeries series = new ChartSeries("btc", BUCKET);
+        series.merge(points(new long[] {0, BUCKET}, new double[] {1, 2}));
+
+        ChartSeries.Points update = points(new long[] {BUCKET + 60_000, 2 * BUCKET}, new double[] {5, 6});
+        update.volumes[0] = Double.NaN;
+        assertThat(series.merge(update)).isEqualTo(1);
+
+        assertThat(series.size()).isEqualTo(3);
+        assertThat(series.lastTimestamp()).isEqualTo(2 * BUCKET);
+        List<ChartDataPoint> points = series.toChartDataPoints(0, 3 * BUCKET, ChartResolution.FIVE_MINUTES);
+        assertThat(points).extracting(ChartDataPoint::getTimestamp).containsExactly(0L, BUCKET + 60_000, 2 * BUCKET);
+        assertThat(closes(series)).containsExactly(1.0, 5.0, 6.0);
+        assertThat(series.toCandles(0, 3 * BUCKET, ChartResolution.FIVE_MINUTES, 0, Downsampling.NONE).get(1).getVolume())
+                .isEqualTo(200.0);
+    }
+
+    @Test
+    void overlappingMergeReplacesStoredBuckets() {
+        ChartSeries series = new ChartSeries("btc", BUCKET);
+        series.merge(points(new long[] {0, BUCKET, 2 * BUCKET, 3 * BUCKET}, new double[] {1, 2, 3, 4}));
+
+        assertThat(series.merge(points(new long[] {BUCKET + 1, 2 * BUCKET + 1}, new double[] {20, 30}))).isZero();
+
+        assertThat(series.size()).isEqualTo(4);
+        assertThat(closes(series)).containsExactly(1.0, 20.0, 30.0, 4.0);
+    }
+
+    @Test
+    void outOfOrderMergeInsertsOlderBuckets() {
+        ChartSeries series = new ChartSeries("btc", BUCKET);
+        series.merge(points(new long[] {2 * BUCKET, 4 * BUCKET}, new double[] {3, 5}));
+
+        assertThat(series.merge(points(new long[] {0, 3 * BUCKET}, new double[] {1, 4}))).isEqualTo(2);
+
+        assertThat(series.firstTimestamp()).isZero();
+        assertThat(closes(series)).containsExactly(1.0, 3.0, 4.0, 5.0);
+    }
+
+    @Test
+    void persistsOnlyChangedBucketsAndRestoresTheMergedSeries() throws IOException {
+        Path path = directory.resolve("btc.seg");
+        ChartSeries series = ChartSeries.restore("btc", BUCKET, Map.of(), ChartSegmentFile.open(path));
+        series.merge(points(new long[] {BUCKET, 2 * BUCKET, 3 * BUCKET}, new double[] {2, 3, 4}));
+        series.merge(points(new long[] {3 * BUCKET + 1, 4 * BUCKET}, new double[] {40, 5}));
+        series.merge(points(new long[] {0, 2 * BUCKET + 1}, new double[] {1, 30}));
+        series.close();
+
+        try (ChartSegmentFile segment = ChartSegmentFile.open(path)) {
+            // 3 appended, then the replaced tail and a new bucket, then a backfill and an overlap
+            assertThat(segment.count()).isEqualTo(7);
+            ChartSeries restored = ChartSeries.restore("btc", BUCKET, Map.of(), segment);
+            assertThat(closes(restored)).containsExactly(1.0, 2.0, 30.0, 40.0, 5.0);
+        }
+    }
+
+    @Test
+    void compactsTheSegmentOnceSupersededRecordsPileUp() throws IOException {
+        Path path = directory.resolve("btc.seg");
+        ChartSeries series = ChartSeries.restore("btc", BUCKET, Map.of(), ChartSegmentFile.open(path));
+        for (int i = 0; i < 1000; i++) {
+            series.merge(points(new long[] {i}, new double[] {i}));
+        }
+        series.close();
+
+        try (ChartSegmentFile segment = ChartSegmentFile.open(path)) {
+            assertThat(segment.count()).isLessThanOrEqualTo(2 + 256);
+            assertThat(closes(ChartSeries.restore("btc", BUCKET, Map.of(), segment))).containsExactly(999.0);
+        }
+    }
+
+    @Test
+    void evictedSeriesKeepsPersistingUntilTheLastPinIsReleased() throws IOException {
+        Path path = directory.resolve("btc.seg");
+        ChartSeries series = ChartSeries.restore("btc", BUCKET, Map.of(), ChartSegmentFile.open(path));
+        assertThat(series.pin()).isTrue();
+
+        assertThat(series.evict()).isFalse();
+        assertThat(series.pin()).isFalse();
+        series.merge(points(new long[] {0}, new double[] {1}));
+        assertThat(series.unpin()).isTrue();
+        assertThat(series.revive()).isFalse();
+
+        try (ChartSegmentFile segment = ChartSegmentFile.open(path)) {
+            assertThat(closes(ChartSeries.restore("btc", BUCKET, Map.of(), segment))).containsExactly(1.0);
+        }
+    }
+
+    @Test
+    void revivedSeriesStaysOpen() {
+        ChartSeries series = new ChartSeries("btc", BUCKET);
+        series.pin();
+        series.evict();
+
+        assertThat(series.revive()).isTrue();
+        assertThat(series.unpin()).isFalse();
+        assertThat(series.pin()).isTrue();
+    }
+
+    @Test
+    void thinsPointsPastTheirRetentionToTheNextCoarserLevel() {
+        long day = ChartResolution.DAILY.getBucketMillis();
+        long hour = ChartResolution.HOURLY.getBucketMillis();
+        long now = System.currentTimeMillis();
+        ChartSeries series = new ChartSeries("btc", BUCKET, Map.of(
+                ChartResolution.FIVE_MINUTES, Duration.ofDays(1),
+                ChartResolution.HOURLY, Duration.ofDays(10),
+                ChartResolution.DAILY, Duration.ofDays(100)));
+
+        long tooOld = now - 200 * day;
+        long dailyRegion = Math.floorDiv(now - 50 * day, day) * day;
+        long hourlyRegion = Math.floorDiv(now - 5 * day, hour) * hour;
+        long recent = now - hour;
+        long[] timestamps = new long[1 + 3 * 12];
+        double[] prices = new double[timestamps.length];
+        timestamps[0] = tooOld;
+        for (int i = 0; i < 12; i++) {
+            timestamps[1 + i] = dailyRegion + i * hour;
+            timestamps[13 + i] = hourlyRegion + i * BUCKET;
+            timestamps[25 + i] = recent + i * BUCKET;
+            prices[1 + i] = 1;
+            prices[13 + i] = 2;
+            prices[25 + i] = 3;
+        }
+        prices[12] = 10;
+        prices[24] = 20;
+        series.merge(points(timestamps, prices));
+
+        // One point a day, one an hour, and every 5 minute point of the last day
+        assertThat(series.size()).isEqualTo(1 + 1 + 12);
+        assertThat(series.firstTimestamp()).isEqualTo(dailyRegion + 11 * hour);
+        assertThat(closes(series).subList(0, 3)).containsExactly(10.0, 20.0, 3.0);
+    }
+
+    @Test
+    void thinsInMemoryAndLeavesTheSegmentToCompaction() throws IOException {
+        long day = ChartResolution.DAILY.getBucketMillis();
+        long hour = ChartResolution.HOURLY.getBucketMillis();
+        long now = System.currentTimeMillis();
+        Map<ChartResolution, Duration> retention = Map.of(ChartResolution.FIVE_MINUTES, Duration.ofDays(1));
+        Path path = directory.resolve("btc.seg");
+        ChartSeries series = ChartSeries.restore("btc", BUCKET, retention, ChartSegmentFile.open(path));
+        ChartSeries rebuilt = new ChartSeries("btc", BUCKET, retention);
+
+        long hourlyRegion = Math.floorDiv(now - 5 * day, hour) * hour;
+        long recent = Math.floorDiv(now - hour, BUCKET) * BUCKET;
+        long[] older = new long[12];
+        long[] newer = new long[12];
+        double[] olderPrices = new double[12];
+        double[] newerPrices = new double[12];
+        for (int i = 0; i < 12; i++) {
+            older[i] = hourlyRegion + i * BUCKET;
+            newer[i] = recent + i * BUCKET;
+            olderPrices[i] = i + 1;
+            newerPrices[i] = 20;
+        }
+        series.merge(points(newer, newerPrices));
+        // Builds and caches every level before the backfill is thinned
+        series.toCandles(now - 10 * day, now, ChartResolution.DAILY, 0, Downsampling.NONE);
+        series.merge(points(older, olderPrices));
+        rebuilt.merge(points(newer, newerPrices));
+        rebuilt.merge(points(older, olderPrices));
+
+        assertThat(series.size()).isEqualTo(1 + 12);
+        for (ChartResolution resolution : ChartResolution.values()) {
+            assertThat(series.toCandles(now - 10 * day, now + day, resolution, 0, Downsampling.NONE))
+                    .as(resolution.name())
+                    .isEqualTo(rebuilt.toCandles(now - 10 * day, now + day, resolution, 0, Downsampling.NONE));
+        }
+        List<Double> thinned = closes(series);
+        series.close();
+
+        try (ChartSegmentFile segment = ChartSegmentFile.open(path)) {
+            // Both merges were appended and nothing was rewritten
+            assertThat(segment.count()).isEqualTo(24);
+            ChartSeries restored = ChartSeries.restore("btc", BUCKET, retention, segment);
+            assertThat(restored.size()).isEqualTo(1 + 12);
+            assertThat(closes(restored)).isEqualTo(thinned).startsWith(12.0, 20.0);
+        }
+    }
+
+    @Test
+    void mergesKeepBuiltRollupsUpToDate() {
+        long hour = ChartResolution.HOURLY.getBucketMillis();
+        ChartSeries incremental = new ChartSeries("btc", BUCKET);
+        ChartSeries rebuilt = new ChartSeries("btc", BUCKET);
+        long[] first = new long[30];
+        double[] firstPrices = new double[30];
+        for (int i = 0; i < first.length; i++) {
+            first[i] = i * BUCKET;
+            firstPrices[i] = i % 5;
+        }
+        ChartSeries.Points tail = points(new long[] {29 * BUCKET + 1, 30 * BUCKET, 31 * BUCKET}, new double[] {9, 8, 7});
+        ChartSeries.Points backfill = points(new long[] {-BUCKET, 2 * BUCKET + 1}, new double[] {4, 6});
+
+        incremental.merge(points(first, firstPrices));
+        // Builds and caches every level before the later merges
+        incremental.toCandles(0, hour * 24, ChartResolution.DAILY, 0, Downsampling.NONE);
+        incremental.merge(tail);
+        incremental.merge(backfill);
+        rebuilt.merge(points(first, firstPrices));
+        rebuilt.merge(tail);
+        rebuilt.merge(backfill);
+
+        for (ChartResolution resolution : ChartResolution.values()) {
+            assertThat(incremental.toCandles(-hour * 24, hour * 24, resolution, 0, Downsampling.NONE))
+                    .as(resolution.name())
+                    .isEqualTo(rebuilt.toCandles(-hour * 24, hour * 24, resolution, 0, Downsampling.NONE));
+        }
+    }
+
+    private static List<Double> closes(ChartSeries series) {
+        return series.toChartDataPoints(Long.MIN_VALUE / 2, Long.MAX_VALUE / 2, ChartResolution.FIVE_MINUTES).stream()
+                .map(ChartDataPoint::getPrice)
+                .toList();
+    }
+
+    private static ChartSeries.Points points(long[] timestamps, double[] prices) {
+        double[] volumes = new double[timestamps.length];
+        double[] marketCaps = new double[timestamps.length];
+        for (int i = 0; i < timestamps.length; i++) {
+            volumes[i] = prices[i] * 100;
+            marketCaps[i] = Double.NaN;
+        }
+        return new ChartSeries.Points(timestamps, prices, volumes, marketCaps, timestamps.length);
+    }
+}
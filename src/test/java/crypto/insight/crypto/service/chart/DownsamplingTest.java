@@ -0,0 +1,65 @@
+package crypto.insight.crypto.service.chart;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DownsamplingTest {
+
+    private static final int COUNT = 1000;
+
+    private final long[] timestamps = new long[COUNT];
+    private final double[] values = new double[COUNT];
+
+    DownsamplingTest() {
+        for (int i = 0; i < COUNT; i++) {
+            timestamps[i] = 1_700_000_000_000L + i * 300_000L;
+            values[i] = Math.sin(i / 20.0) * 100 + (i == 421 ? 500 : 0);
+        }
+    }
+
+    @Test
+    void lttbReturnsExactlyMaxPoints() {
+        assertThat(Downsampling.LTTB.select(timestamps, values, values, values, 0, COUNT, 100)).hasSize(100);
+        assertThat(Downsampling.LTTB.select(timestamps, values, values, values, 100, 400, 3)).hasSize(3);
+    }
+
+    @Test
+    void lttbKeepsTheFirstAndLastPoints() {
+        int[] selected = Downsampling.LTTB.select(timestamps, values, values, values, 100, 900, 50);
+
+        assertThat(selected[0]).isEqualTo(100);
+        assertThat(selected[selected.length - 1]).isEqualTo(899);
+    }
+
+    @Test
+    void lttbKeepsTimestampsIncreasing() {
+        int[] selected = Downsampling.LTTB.select(timestamps, values, values, values, 0, COUNT, 77);
+
+        for (int i = 1; i < selected.length; i++) {
+            assertThat(timestamps[selected[i]]).isGreaterThan(timestamps[selected[i - 1]]);
+        }
+    }
+
+    @Test
+    void lttbKeepsASpike() {
+        assertThat(Downsampling.LTTB.select(timestamps, values, values, values, 0, COUNT, 60)).contains(421);
+    }
+
+    @Test
+    void returnsEveryPointWhenTheyAlreadyFit() {
+        assertThat(Downsampling.LTTB.select(timestamps, values, values, values, 10, 20, 50))
+                .containsExactly(10, 11, 12, 13, 14, 15, 16, 17, 18, 19);
+        assertThat(Downsampling.NONE.select(timestamps, values, values, values, 10, 13, 2)).containsExactly(10, 11, 12);
+    }
+
+    @Test
+    void minMaxKeepsTheExtremesOfEachGroupInOrder() {
+        int[] selected = Downsampling.MIN_MAX.select(timestamps, values, values, values, 0, COUNT, 20);
+
+        assertThat(selected).hasSizeLessThanOrEqualTo(20).contains(421);
+        for (int i = 1; i < selected.length; i++) {
+            assertThat(selected[i]).isGreaterThan(selected[i - 1]);
+        }
+    }
+}
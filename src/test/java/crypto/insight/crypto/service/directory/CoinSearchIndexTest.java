@@ -0,0 +1,66 @@
+package crypto.insight.crypto.service.directory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoinSearchIndexTest {
+
+    private static final double MIN_SIMILARITY = 0.4;
+
+    private static final CoinDirectoryEntry BITCOIN = coin("bitcoin", "BTC", "Bitcoin", 1);
+    private static final CoinDirectoryEntry WRAPPED_BITCOIN = coin("wrapped-bitcoin", "WBTC", "Wrapped Bitcoin", 12);
+    private static final CoinDirectoryEntry BITCOIN_CASH = coin("bitcoin-cash", "BCH", "Bitcoin Cash", 15);
+    private static final CoinDirectoryEntry BITCOIN_GOLD = coin("bitcoin-gold", "BTG", "Bitcoin Gold", 100);
+    private static final CoinDirectoryEntry BITCONE = coin("bitcone", "BITCONE", "Bitcone", 2000);
+    private static final CoinDirectoryEntry ORBITCOIN = coin("orbitcoin", "ORB", "Orbitcoin", 3);
+    private static final CoinDirectoryEntry STACKS = coin("blockstack", "STX", "Stacks", 40);
+    private static final CoinDirectoryEntry ST_TOKEN = coin("st-token", "ST", "ST Token", 500);
+
+    private final CoinSearchIndex index = new CoinSearchIndex(List.of(ORBITCOIN, BITCOIN_GOLD, BITCONE, BITCOIN,
+            BITCOIN_CASH, WRAPPED_BITCOIN, STACKS, ST_TOKEN));
+
+    @Test
+    void exactSymbolComesFirstEvenAheadOfBetterRankedPrefixMatches() {
+        assertThat(index.search("st", 10, MIN_SIMILARITY)).containsExactly(ST_TOKEN, STACKS);
+        assertThat(index.search("BTC", 10, MIN_SIMILARITY).get(0)).isEqualTo(BITCOIN);
+    }
+
+    @Test
+    void exactNameOrIdComesBeforePrefixMatches() {
+        assertThat(index.search("bitcoin", 10, MIN_SIMILARITY))
+                .startsWith(BITCOIN, WRAPPED_BITCOIN, BITCOIN_CASH, BITCOIN_GOLD);
+        assertThat(index.search("blockstack", 10, MIN_SIMILARITY)).startsWith(STACKS);
+    }
+
+    @Test
+    void symbolPrefixesComeBeforeNamePrefixesAndTiesGoToTheBetterRank() {
+        assertThat(index.search("bitc", 10, MIN_SIMILARITY))
+                .startsWith(BITCONE, BITCOIN, WRAPPED_BITCOIN, BITCOIN_CASH, BITCOIN_GOLD);
+    }
+
+    @Test
+    void fuzzyMatchesComeAfterEveryPrefixMatchWhateverTheirRank() {
+        assertThat(index.search("bitco", 10, MIN_SIMILARITY))
+                .containsExactly(BITCONE, BITCOIN, WRAPPED_BITCOIN, BITCOIN_CASH, BITCOIN_GOLD, ORBITCOIN);
+    }
+
+    @Test
+    void fuzzyMatchesAreOrderedBySimilarity() {
+        assertThat(index.search("bitcoin cahs", 10, MIN_SIMILARITY)).startsWith(BITCOIN_CASH, BITCOIN);
+        // "bitcone" shares five of its trigrams with the typo, "bitcoin" only four
+        assertThat(index.search("bitcon", 10, MIN_SIMILARITY)).startsWith(BITCONE, BITCOIN);
+    }
+
+    @Test
+    void limitKeepsTheBestMatches() {
+        assertThat(index.search("bitcoin", 2, MIN_SIMILARITY)).containsExactly(BITCOIN, WRAPPED_BITCOIN);
+        assertThat(index.search("  ", 10, MIN_SIMILARITY)).isEmpty();
+    }
+
+    private static CoinDirectoryEntry coin(String coingeckoId, String symbol, String name, int rank) {
+        return new CoinDirectoryEntry(coingeckoId, null, symbol, name, rank);
+    }
+}
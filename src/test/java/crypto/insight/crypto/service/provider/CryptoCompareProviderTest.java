@@ -0,0 +1,93 @@
+package crypto.insight.crypto.service.provider;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import crypto.insight.crypto.config.ApiProperties;
+import crypto.insight.crypto.model.CryptoData;
+import crypto.insight.crypto.model.CryptoIdentity;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static crypto.insight.crypto.service.provider.FakeDataProvider.identity;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CryptoCompareProviderTest {
+
+    private final List<String> requestedFsyms = new CopyOnWriteArrayList<>();
+
+    @Test
+    void splitsABatchWhoseSymbolsDoNotFitIntoOneFsymsValue() {
+        List<CryptoIdentity> identities = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            // 50 symbols of 9 characters join to 499
+            identities.add(identity(String.format("COIN%05d", i)));
+        }
+
+        Map<String, CryptoData> results = provider().fetchDataBatch(identities).block(Duration.ofSeconds(5));
+
+        assertThat(requestedFsyms).hasSize(2)
+                .allSatisfy(fsyms -> assertThat(fsyms.length()).isLessThanOrEqualTo(CryptoCompareProvider.MAX_FSYMS_LENGTH));
+        assertThat(results).hasSize(50);
+        assertThat(results.get("COIN00049").getCurrentPrice()).isNotNull();
+    }
+
+    @Test
+    void aBatchThatFitsIsFetchedWithOneCall() {
+        Map<String, CryptoData> results = provider()
+                .fetchDataBatch(List.of(identity("BTC"), identity("ETH"), identity("btc")))
+                .block(Duration.ofSeconds(5));
+
+        assertThat(requestedFsyms).hasSize(1);
+        assertThat(requestedFsyms.get(0).split(",")).containsExactlyInAnyOrder("BTC", "ETH");
+        assertThat(results).containsOnlyKeys("BTC", "ETH");
+    }
+
+    @Test
+    void fsymsListsNeverExceedTheLimit() {
+        List<String> symbols = new ArrayList<>();
+        for (int i = 1; i <= 120; i++) {
+            symbols.add("S".repeat(1 + i % 11));
+        }
+
+        List<String> lists = CryptoCompareProvider.fsymsLists(symbols);
+
+        assertThat(lists).allSatisfy(fsyms -> assertThat(fsyms.length())
+                .isLessThanOrEqualTo(CryptoCompareProvider.MAX_FSYMS_LENGTH));
+        assertThat(lists.stream().flatMap(fsyms -> Arrays.stream(fsyms.split(","))).toList())
+                .isEqualTo(symbols);
+        assertThat(CryptoCompareProvider.fsymsLists(List.of())).isEmpty();
+    }
+
+    private CryptoCompareProvider provider() {
+        WebClient.Builder webClient = WebClient.builder()
+                .exchangeFunction(request -> Mono.fromSupplier(() -> {
+                    String fsyms = UriComponentsBuilder.fromUri(request.url()).build()
+                            .getQueryParams().getFirst("fsyms");
+                    requestedFsyms.add(fsyms);
+                    return ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(priceMultiFull(fsyms.split(",")))
+                            .build();
+                }));
+        return new CryptoCompareProvider(webClient, new ApiProperties(), new ObjectMapper());
+    }
+
+    private static String priceMultiFull(String[] symbols) {
+        return Arrays.stream(symbols)
+                .map(symbol -> "\"" + symbol + "\":{\"USD\":{\"PRICE\":1.5,\"MKTCAP\":100}}")
+                .collect(Collectors.joining(",", "{\"RAW\":{", "}}"));
+    }
+}
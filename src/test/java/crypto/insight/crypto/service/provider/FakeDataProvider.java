@@ -0,0 +1,109 @@
+package crypto.insight.crypto.service.provider;
+
+import crypto.insight.crypto.model.CryptoData;
+import crypto.insight.crypto.model.CryptoIdentity;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Provider answering from a function, recording each call with the lane it was made in.
+ */
+class FakeDataProvider implements DataProvider {
+
+    /** One upstream call: the identities it asked for and the Reactor context it ran with */
+    record Call(List<String> symbols, RequestPriority lane, boolean permitHeld) {
+    }
+
+    private final String name;
+    private final int maxBatchSize;
+    private final Function<CryptoIdentity, Mono<CryptoData>> answers;
+    final List<Call> calls = new CopyOnWriteArrayList<>();
+    private Function<String, Mono<CryptoIdentity>> identities = query -> Mono.just(identity(query));
+
+    FakeDataProvider(String name, int maxBatchSize, Function<CryptoIdentity, Mono<CryptoData>> answers) {
+        this.name = name;
+        this.maxBatchSize = maxBatchSize;
+        this.answers = answers;
+    }
+
+    /** Resolves queries with {@code identities} instead of echoing each query as a symbol */
+    FakeDataProvider resolving(Function<String, Mono<CryptoIdentity>> identities) {
+        this.identities = identities;
+        return this;
+    }
+
+    /** Answers every coin but {@code missing} with a quote priced at {@code price} */
+    static Function<CryptoIdentity, Mono<CryptoData>> quotes(double price, String... missing) {
+        List<String> unknown = List.of(missing);
+        return identity -> unknown.contains(identity.getSymbol()) ? Mono.empty() : Mono.just(quote(identity, price));
+    }
+
+    static CryptoData quote(CryptoIdentity identity, double price) {
+        CryptoData data = new CryptoData(identity);
+        data.setCurrentPrice(BigDecimal.valueOf(price));
+        data.setPercentChange24h(BigDecimal.ONE);
+        data.setVolume24h(BigDecimal.TEN);
+        data.setMarketCap(BigDecimal.TEN);
+        return data;
+    }
+
+    static CryptoIdentity identity(String symbol) {
+        CryptoIdentity identity = new CryptoIdentity(symbol);
+        identity.setSymbol(symbol);
+        return identity;
+    }
+
+    @Override
+    public Mono<CryptoIdentity> resolveIdentity(String query) {
+        return Mono.deferContextual(context -> {
+            calls.add(new Call(List.of(query), RequestPriority.from(context), RateLimitingService.holdsPermit(context, name)));
+            return identities.apply(query);
+        });
+    }
+
+    @Override
+    public Mono<CryptoData> fetchData(CryptoIdentity identity) {
+        return Mono.deferContextual(context -> {
+            calls.add(new Call(List.of(identity.getSymbol()), RequestPriority.from(context),
+                    RateLimitingService.holdsPermit(context, name)));
+            return answers.apply(identity);
+        });
+    }
+
+    @Override
+    public Mono<Map<String, CryptoData>> fetchDataBatch(List<CryptoIdentity> identities) {
+        return Mono.deferContextual(context -> {
+            calls.add(new Call(identities.stream().map(CryptoIdentity::getSymbol).toList(),
+                    RequestPriority.from(context), RateLimitingService.holdsPermit(context, name)));
+            Map<String, CryptoData> results = new LinkedHashMap<>();
+            for (CryptoIdentity identity : identities) {
+                CryptoData data = answers.apply(identity).block();
+                if (data != null) {
+                    results.put(batchKey(identity), data);
+                }
+            }
+            return Mono.just(results);
+        });
+    }
+
+    @Override
+    public String getProviderName() {
+        return name;
+    }
+
+    @Override
+    public int maxBatchSize() {
+        return maxBatchSize;
+    }
+
+    @Override
+    public String batchKey(CryptoIdentity identity) {
+        return identity.getSymbol();
+    }
+}
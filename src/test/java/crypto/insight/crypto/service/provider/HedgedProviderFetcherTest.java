@@ -0,0 +1,113 @@
+package crypto.insight.crypto.service.provider;
+
+import crypto.insight.crypto.config.properties.ProviderBatchingProperties;
+import crypto.insight.crypto.config.properties.ProviderHedgingProperties;
+import crypto.insight.crypto.config.properties.ProviderRankingProperties;
+import crypto.insight.crypto.config.properties.RateLimitingProperties;
+import crypto.insight.crypto.model.CryptoData;
+import crypto.insight.crypto.model.DataRequirement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static crypto.insight.crypto.service.provider.FakeDataProvider.identity;
+import static crypto.insight.crypto.service.provider.FakeDataProvider.quote;
+import static crypto.insight.crypto.service.provider.FakeDataProvider.quotes;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HedgedProviderFetcherTest {
+
+    private static final Duration HEDGE_DELAY = Duration.ofMillis(50);
+
+    private RateLimitingService rateLimitingService;
+    private HedgedProviderFetcher fetcher;
+
+    @BeforeEach
+    void setUp() {
+        rateLimitingService = new RateLimitingService(new RateLimitingProperties());
+        ProviderHedgingProperties hedging = new ProviderHedgingProperties();
+        hedging.setDefaultHedgeDelay(HEDGE_DELAY);
+        ProviderRankingProperties ranking = new ProviderRankingProperties();
+        // Keep the providers in the order given
+        ranking.setEnabled(false);
+        fetcher = new HedgedProviderFetcher(new ProviderRequestBatcher(new ProviderBatchingProperties()),
+                new ProviderRanking(ranking, hedging, rateLimitingService), hedging);
+    }
+
+    @AfterEach
+    void tearDown() {
+        rateLimitingService.shutdown();
+    }
+
+    @Test
+    void returnsTheFirstCompleteAnswerWithoutCallingTheOthers() {
+        FakeDataProvider first = new FakeDataProvider("First", 1, quotes(1.0));
+        FakeDataProvider second = new FakeDataProvider("Second", 1, quotes(2.0));
+
+        CryptoData data = fetch(first, second).block(Duration.ofSeconds(5));
+
+        assertThat(data.getCurrentPrice()).isEqualByComparingTo(BigDecimal.valueOf(1.0));
+        assertThat(second.calls).isEmpty();
+        assertThat(fetcher.getStatistics()).containsEntry("hedges", 0L);
+    }
+
+    @Test
+    void hedgesToTheNextProviderAfterTheDelayAndCancelsTheSlowOne() throws InterruptedException {
+        CountDownLatch slowCancelled = new CountDownLatch(1);
+        FakeDataProvider slow = new FakeDataProvider("Slow", 1, identity -> Mono.delay(Duration.ofSeconds(5))
+                .map(tick -> quote(identity, 1.0))
+                .doOnCancel(slowCancelled::countDown));
+        FakeDataProvider fast = new FakeDataProvider("Fast", 1, quotes(2.0));
+
+        long start = System.nanoTime();
+        CryptoData data = fetch(slow, fast).block(Duration.ofSeconds(5));
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(data.getCurrentPrice()).isEqualByComparingTo(BigDecimal.valueOf(2.0));
+        assertThat(elapsed).isGreaterThanOrEqualTo(HEDGE_DELAY).isLessThan(Duration.ofSeconds(2));
+        // Cancelled right after the result is handed over
+        assertThat(slowCancelled.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(fetcher.getStatistics()).containsEntry("hedges", 1L);
+    }
+
+    @Test
+    void movesOnToTheNextProviderWhenOneFails() {
+        FakeDataProvider failing = new FakeDataProvider("Failing", 1,
+                identity -> Mono.error(new IllegalStateException("down")));
+        FakeDataProvider healthy = new FakeDataProvider("Healthy", 1, quotes(2.0));
+
+        CryptoData data = fetch(failing, healthy).block(Duration.ofSeconds(5));
+
+        assertThat(data.getCurrentPrice()).isEqualByComparingTo(BigDecimal.valueOf(2.0));
+        assertThat(healthy.calls).hasSize(1);
+    }
+
+    @Test
+    void cancellingTheFetchCancelsProviderCallsAndTheHedgeTimer() throws InterruptedException {
+        AtomicBoolean firstCancelled = new AtomicBoolean();
+        FakeDataProvider first = new FakeDataProvider("First", 1,
+                identity -> Mono.<CryptoData>never().doOnCancel(() -> firstCancelled.set(true)));
+        FakeDataProvider second = new FakeDataProvider("Second", 1, quotes(2.0));
+
+        Disposable subscription = fetch(first, second).subscribe();
+        subscription.dispose();
+        Thread.sleep(HEDGE_DELAY.multipliedBy(3).toMillis());
+
+        assertThat(firstCancelled).isTrue();
+        assertThat(second.calls).isEmpty();
+        assertThat(fetcher.getStatistics()).containsEntry("hedges", 0L);
+    }
+
+    private Mono<CryptoData> fetch(DataProvider... providers) {
+        return fetcher.fetch(List.of(providers), identity("BTC"), DataRequirement.QUOTE, null);
+    }
+}
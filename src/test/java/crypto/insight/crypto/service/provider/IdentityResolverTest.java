@@ -0,0 +1,154 @@
+package crypto.insight.crypto.service.provider;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import crypto.insight.crypto.config.ApiProperties;
+import crypto.insight.crypto.config.properties.CoinDirectoryProperties;
+import crypto.insight.crypto.config.properties.IdentitySnapshotProperties;
+import crypto.insight.crypto.config.properties.ProviderHedgingProperties;
+import crypto.insight.crypto.config.properties.ProviderRankingProperties;
+import crypto.insight.crypto.config.properties.RateLimitingProperties;
+import crypto.insight.crypto.model.CryptoIdentity;
+import crypto.insight.crypto.service.directory.CoinDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static crypto.insight.crypto.service.provider.FakeDataProvider.quotes;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdentityResolverTest {
+
+    @TempDir
+    Path directory;
+
+    private RateLimitingService rateLimitingService;
+    private IdentitySnapshot snapshot;
+    private IdentityResolver resolver;
+    private final List<CryptoIdentity> stored = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        rateLimitingService = new RateLimitingService(new RateLimitingProperties());
+        ProviderRankingProperties ranking = new ProviderRankingProperties();
+        // Keep the providers in the order given
+        ranking.setEnabled(false);
+        CoinDirectoryProperties coinDirectory = new CoinDirectoryProperties();
+        coinDirectory.setEnabled(false);
+        IdentitySnapshotProperties identitySnapshot = new IdentitySnapshotProperties();
+        identitySnapshot.setFile(directory.resolve("identities.jsonl").toString());
+        snapshot = new IdentitySnapshot(identitySnapshot, new ObjectMapper());
+        resolver = new IdentityResolver(
+                new ProviderRanking(ranking, new ProviderHedgingProperties(), rateLimitingService),
+                new CoinDirectory(WebClient.builder(), new ApiProperties(), coinDirectory),
+                snapshot);
+    }
+
+    @AfterEach
+    void tearDown() {
+        snapshot.close();
+        rateLimitingService.shutdown();
+    }
+
+    @Test
+    void firstExactMatchWinsWithoutWaitingForTheOthers() {
+        Sinks.One<CryptoIdentity> slow = Sinks.one();
+        List<DataProvider> providers = List.of(
+                provider("Fuzzy", Mono.just(coin("WBTC", "Wrapped Bitcoin", "wrapped-bitcoin", null))),
+                provider("Exact", Mono.just(coin("BTC", "Bitcoin", "bitcoin", null))),
+                provider("Slow", slow.asMono()));
+
+        CryptoIdentity resolved = resolve(providers, "btc");
+
+        assertThat(resolved.getSymbol()).isEqualTo("BTC");
+        assertThat(resolved.getCoingeckoId()).isEqualTo("bitcoin");
+        assertThat(stored).containsExactly(resolved);
+        assertThat(resolver.getStatistics()).containsEntry("exactMatches", 1L).containsEntry("fuzzyMatches", 0L);
+        slow.tryEmitEmpty();
+    }
+
+    @Test
+    void withoutAnExactMatchTheBestRankedAnswerWins() {
+        List<DataProvider> providers = List.of(
+                provider("Failing", Mono.error(new IllegalStateException("down"))),
+                provider("Best", Mono.just(coin("BTC", "Bitcoin", "bitcoin", null))),
+                provider("Other", Mono.just(coin("BTCB", "Bitcoin BEP2", "bitcoin-bep2", null))),
+                provider("Unknown", Mono.empty()));
+
+        CryptoIdentity resolved = resolve(providers, "bitcoinn");
+
+        assertThat(resolved.getCoingeckoId()).isEqualTo("bitcoin");
+        assertThat(resolver.getStatistics()).containsEntry("fuzzyMatches", 1L);
+    }
+
+    @Test
+    void noAnswerCompletesEmpty() {
+        List<DataProvider> providers = List.of(provider("Unknown", Mono.empty()),
+                provider("Failing", Mono.error(new IllegalStateException("down"))));
+
+        assertThat(resolve(providers, "nothing")).isNull();
+        assertThat(stored).isEmpty();
+        assertThat(resolver.getStatistics()).containsEntry("notFound", 1L);
+    }
+
+    @Test
+    void lateProviderIdsAreMergedIntoTheStoredIdentity() throws InterruptedException {
+        Sinks.One<CryptoIdentity> late = Sinks.one();
+        Sinks.One<CryptoIdentity> otherCoin = Sinks.one();
+        List<DataProvider> providers = List.of(
+                provider("Exact", Mono.just(coin("BTC", "Bitcoin", "bitcoin", null))),
+                provider("Late", late.asMono()),
+                provider("OtherCoin", otherCoin.asMono()));
+
+        CryptoIdentity resolved = resolve(providers, "btc");
+        assertThat(resolved.getCoinmarketcapId()).isNull();
+
+        late.tryEmitValue(coin("BTC", "Bitcoin", null, "1"));
+        // A different symbol, so its ids belong to another coin
+        otherCoin.tryEmitValue(coin("BTT", "BitTorrent", "bittorrent", "999"));
+
+        assertThat(stored).hasSize(2);
+        assertThat(stored.get(1).getCoingeckoId()).isEqualTo("bitcoin");
+        assertThat(stored.get(1).getCoinmarketcapId()).isEqualTo("1");
+        assertThat(resolver.getStatistics()).containsEntry("backgroundMerges", 1L);
+        snapshot.flush();
+        assertThat(snapshot.get("BTC")).get().extracting(CryptoIdentity::getCoinmarketcapId).isEqualTo("1");
+    }
+
+    @Test
+    void aSnapshotHitSkipsTheProviders() {
+        FakeDataProvider provider = provider("Exact", Mono.just(coin("BTC", "Bitcoin", "bitcoin", null)));
+        resolve(List.of(provider), "btc");
+
+        CryptoIdentity again = resolve(List.of(provider), "BTC");
+
+        assertThat(again.getCoingeckoId()).isEqualTo("bitcoin");
+        assertThat(provider.calls).hasSize(1);
+        assertThat(resolver.getStatistics()).containsEntry("snapshotHits", 1L);
+    }
+
+    private CryptoIdentity resolve(List<DataProvider> providers, String query) {
+        return resolver.resolve(providers, query, stored::add).block(Duration.ofSeconds(5));
+    }
+
+    private static FakeDataProvider provider(String name, Mono<CryptoIdentity> answer) {
+        return new FakeDataProvider(name, 1, quotes(1.0)).resolving(query -> answer);
+    }
+
+    private static CryptoIdentity coin(String symbol, String name, String coingeckoId, String coinmarketcapId) {
+        CryptoIdentity identity = new CryptoIdentity(symbol);
+        identity.setSymbol(symbol);
+        identity.setName(name);
+        identity.setCoingeckoId(coingeckoId);
+        identity.setCoinmarketcapId(coinmarketcapId);
+        return identity;
+    }
+}
@@ -0,0 +1,121 @@
+package crypto.insight.crypto.service.provider;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import crypto.insight.crypto.config.properties.IdentitySnapshotProperties;
+import crypto.insight.crypto.model.CryptoIdentity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdentitySnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void compactsWhileRunningOnceSupersededLinesPileUp() throws Exception {
+        IdentitySnapshot snapshot = open();
+        for (int i = 0; i < 100; i++) {
+            snapshot.put("btc", identity("bitcoin-" + i));
+            // One line at a time, as if every change came in its own batch
+            snapshot.flush();
+        }
+        snapshot.put("eth", identity("ethereum"));
+        snapshot.flush();
+
+        // Never more than the compaction ratio of lines per live identity, plus the one just appended
+        assertThat(lineCount()).isLessThanOrEqualTo(5);
+        assertThat((Long) snapshot.getStatistics().get("compactions")).isPositive();
+        snapshot.close();
+
+        IdentitySnapshot reopened = open();
+        assertThat(reopened.get("BTC")).get().extracting(CryptoIdentity::getCoingeckoId).isEqualTo("bitcoin-99");
+        assertThat(reopened.get("eth")).get().extracting(CryptoIdentity::getCoingeckoId).isEqualTo("ethereum");
+        reopened.close();
+    }
+
+    @Test
+    void fileEndsInTheSameStateAsTheMapUnderConcurrentWriters() throws Exception {
+        IdentitySnapshot snapshot = open();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            int writer = thread;
+            writers.add(executor.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    String query = "coin-" + (i % 10);
+                    if (i % 7 == 0) {
+                        snapshot.remove(query);
+                    } else {
+                        snapshot.put(query, identity(query + "-" + writer + "-" + i));
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : writers) {
+            future.get();
+        }
+        executor.shutdown();
+
+        List<String> live = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            snapshot.get("coin-" + i).ifPresent(identity -> live.add(identity.getCoingeckoId()));
+        }
+        snapshot.close();
+
+        IdentitySnapshot reopened = open();
+        List<String> replayed = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            reopened.get("coin-" + i).ifPresent(identity -> replayed.add(identity.getCoingeckoId()));
+        }
+        reopened.close();
+        assertThat(replayed).isEqualTo(live);
+    }
+
+    @Test
+    void queuedChangesSurviveAnImmediateClose() {
+        IdentitySnapshot snapshot = open();
+        for (int i = 0; i < 50; i++) {
+            snapshot.put("coin-" + i, identity("coin-" + i));
+        }
+        snapshot.remove("coin-0");
+        snapshot.close();
+        snapshot.put("late", identity("late"));
+
+        IdentitySnapshot reopened = open();
+        assertThat(reopened.get("coin-0")).isEmpty();
+        assertThat(reopened.get("coin-49")).get().extracting(CryptoIdentity::getCoingeckoId).isEqualTo("coin-49");
+        assertThat(reopened.get("late")).isEmpty();
+        assertThat(reopened.getStatistics()).containsEntry("identities", 49);
+        reopened.close();
+    }
+
+    private IdentitySnapshot open() {
+        IdentitySnapshotProperties properties = new IdentitySnapshotProperties();
+        properties.setFile(directory.resolve("identities.jsonl").toString());
+        return new IdentitySnapshot(properties, new ObjectMapper());
+    }
+
+    private long lineCount() throws IOException {
+        try (var lines = Files.lines(directory.resolve("identities.jsonl"))) {
+            return lines.count();
+        }
+    }
+
+    private static CryptoIdentity identity(String coingeckoId) {
+        CryptoIdentity identity = new CryptoIdentity(coingeckoId);
+        identity.setSymbol(coingeckoId.toUpperCase());
+        identity.setCoingeckoId(coingeckoId);
+        return identity;
+    }
+}
@@ -0,0 +1,219 @@
+package crypto.insight.crypto.service.provider;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import crypto.insight.crypto.config.ApiProperties;
+import crypto.insight.crypto.config.properties.CoinDirectoryProperties;
+import crypto.insight.crypto.config.properties.IdentitySnapshotProperties;
+import crypto.insight.crypto.config.properties.ProviderBatchingProperties;
+import crypto.insight.crypto.config.properties.ProviderHedgingProperties;
+import crypto.insight.crypto.config.properties.ProviderRankingProperties;
+import crypto.insight.crypto.config.properties.RateLimitingProperties;
+import crypto.insight.crypto.config.properties.UpstreamSchedulerProperties;
+import crypto.insight.crypto.model.CryptoData;
+import crypto.insight.crypto.model.CryptoIdentity;
+import crypto.insight.crypto.model.DataRequirement;
+import crypto.insight.crypto.service.directory.CoinDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static crypto.insight.crypto.service.provider.FakeDataProvider.identity;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The lane and permit set by a caller must reach the upstream scheduler through the batcher,
+ * the hedged fetcher and the identity resolver, which all subscribe to provider calls detached.
+ */
+class ProviderContextPropagationTest {
+
+    private static final String PROVIDER = "CoinGecko";
+    private static final long CAPACITY = 10;
+
+    private final AtomicInteger exchanges = new AtomicInteger();
+    private RateLimitingService rateLimitingService;
+    private UpstreamRequestScheduler scheduler;
+    private HttpProvider provider;
+    private ProviderRequestBatcher batcher;
+    private HedgedProviderFetcher hedgedFetcher;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitingProperties limits = new RateLimitingProperties();
+        // Practically no refill while the test runs, so token counts are exact
+        RateLimitingProperties.Provider coinGecko = new RateLimitingProperties.Provider(1, Duration.ofHours(1));
+        coinGecko.setBurstCapacity((int) CAPACITY);
+        limits.getProviders().setCoinGecko(coinGecko);
+        limits.getQueue().setBackgroundMaxWait(Duration.ofMillis(10));
+        rateLimitingService = new RateLimitingService(limits);
+
+        ApiProperties apiProperties = new ApiProperties();
+        scheduler = new UpstreamRequestScheduler(new UpstreamSchedulerProperties(), apiProperties, rateLimitingService);
+        WebClient webClient = WebClient.builder()
+                .filter(scheduler)
+                .exchangeFunction(request -> Mono.fromSupplier(() -> {
+                    exchanges.incrementAndGet();
+                    return ClientResponse.create(HttpStatus.OK).body("1.5").build();
+                }))
+                .build();
+        provider = new HttpProvider(webClient, apiProperties.getCoinGeckoBaseUrl());
+
+        ProviderBatchingProperties batching = new ProviderBatchingProperties();
+        batching.setWindow(Duration.ofMillis(5));
+        batcher = new ProviderRequestBatcher(batching);
+        ProviderHedgingProperties hedging = new ProviderHedgingProperties();
+        hedgedFetcher = new HedgedProviderFetcher(batcher,
+                new ProviderRanking(new ProviderRankingProperties(), hedging, rateLimitingService), hedging);
+    }
+
+    @AfterEach
+    void tearDown() {
+        rateLimitingService.shutdown();
+    }
+
+    @Test
+    void bulkAggregateFetchIsScheduledInTheBulkLaneAndShedOverBudget() {
+        CryptoData fetched = fetch(identity("BTC")).contextWrite(RequestPriority.BULK.asContext()).block(Duration.ofSeconds(5));
+
+        assertThat(fetched.getCurrentPrice()).isNotNull();
+        assertThat(laneStats(scheduler.getStatistics(), "bulk")).containsEntry("immediate", 1L);
+        assertThat(laneStats(scheduler.getStatistics(), "interactive")).containsEntry("immediate", 0L);
+
+        // Leave only the interactive reserve, which background lanes may not touch
+        while (availableTokens() > CAPACITY / 2) {
+            rateLimitingService.consumeIfAvailable(PROVIDER);
+        }
+        CryptoData shed = fetch(identity("ETH")).contextWrite(RequestPriority.BULK.asContext()).block(Duration.ofSeconds(5));
+
+        assertThat(shed.getCurrentPrice()).isNull();
+        assertThat(exchanges).hasValue(1);
+        assertThat(laneStats(rateLimitingService.getStatistics(), "bulk")).containsEntry("rejected", 1L);
+    }
+
+    @Test
+    void hedgedFetchTakesOneTokenPerCall() {
+        fetch(identity("BTC")).block(Duration.ofSeconds(5));
+
+        assertThat(exchanges).hasValue(1);
+        assertThat(availableTokens()).isEqualTo(CAPACITY - 1);
+    }
+
+    @Test
+    void fetchUnderAPermitDoesNotTakeASecondToken() {
+        rateLimitingService.executeWithRateLimit(PROVIDER, batcher.fetch(provider, identity("BTC")))
+                .block(Duration.ofSeconds(5));
+
+        assertThat(exchanges).hasValue(1);
+        assertThat(availableTokens()).isEqualTo(CAPACITY - 1);
+        assertThat(provider.calls).extracting(FakeDataProvider.Call::permitHeld).containsExactly(true);
+    }
+
+    @Test
+    void identityResolutionUnderAPermitDoesNotTakeASecondToken() {
+        CoinDirectoryProperties directory = new CoinDirectoryProperties();
+        directory.setEnabled(false);
+        IdentitySnapshotProperties snapshot = new IdentitySnapshotProperties();
+        snapshot.setEnabled(false);
+        IdentityResolver resolver = new IdentityResolver(
+                new ProviderRanking(new ProviderRankingProperties(), new ProviderHedgingProperties(), rateLimitingService),
+                new CoinDirectory(WebClient.builder(), new ApiProperties(), directory),
+                new IdentitySnapshot(snapshot, new ObjectMapper()));
+
+        CryptoIdentity resolved = resolver.resolve(List.of(provider), "BTC", identity -> { },
+                        (provider, call) -> rateLimitingService.executeWithRateLimit(provider.getProviderName(), call))
+                .contextWrite(RequestPriority.PREFETCH.asContext())
+                .block(Duration.ofSeconds(5));
+
+        assertThat(resolved.getSymbol()).isEqualTo("BTC");
+        assertThat(availableTokens()).isEqualTo(CAPACITY - 1);
+        assertThat(provider.calls).containsExactly(
+                new FakeDataProvider.Call(List.of("BTC"), RequestPriority.PREFETCH, true));
+    }
+
+    private Mono<CryptoData> fetch(CryptoIdentity identity) {
+        return hedgedFetcher.fetch(List.of(provider), identity, DataRequirement.QUOTE, null);
+    }
+
+    private long availableTokens() {
+        return (Long) providerStats(rateLimitingService.getStatistics()).get("availableTokens");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> providerStats(Map<String, Object> stats) {
+        return (Map<String, Object>) stats.get(PROVIDER);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> laneStats(Map<String, Object> stats, String lane) {
+        return (Map<String, Object>) providerStats(stats).get(lane);
+    }
+
+    /** Batching provider whose calls go through a WebClient carrying the upstream scheduler */
+    private static final class HttpProvider implements DataProvider {
+        private final WebClient webClient;
+        private final String baseUrl;
+        final List<FakeDataProvider.Call> calls = new CopyOnWriteArrayList<>();
+
+        HttpProvider(WebClient webClient, String baseUrl) {
+            this.webClient = webClient;
+            this.baseUrl = baseUrl;
+        }
+
+        @Override
+        public Mono<CryptoIdentity> resolveIdentity(String query) {
+            return Mono.deferContextual(context -> {
+                calls.add(new FakeDataProvider.Call(List.of(query), RequestPriority.from(context),
+                        RateLimitingService.holdsPermit(context, PROVIDER)));
+                return get("/search?query=" + query).map(ignored -> identity(query));
+            });
+        }
+
+        @Override
+        public Mono<CryptoData> fetchData(CryptoIdentity identity) {
+            return fetchDataBatch(List.of(identity)).mapNotNull(results -> results.get(batchKey(identity)));
+        }
+
+        @Override
+        public Mono<Map<String, CryptoData>> fetchDataBatch(List<CryptoIdentity> identities) {
+            return Mono.deferContextual(context -> {
+                calls.add(new FakeDataProvider.Call(identities.stream().map(CryptoIdentity::getSymbol).toList(),
+                        RequestPriority.from(context), RateLimitingService.holdsPermit(context, PROVIDER)));
+                return get("/simple/price").map(price -> {
+                    Map<String, CryptoData> results = new HashMap<>();
+                    identities.forEach(identity -> results.put(batchKey(identity),
+                            FakeDataProvider.quote(identity, Double.parseDouble(price))));
+                    return results;
+                });
+            });
+        }
+
+        private Mono<String> get(String path) {
+            return webClient.get().uri(baseUrl + path).retrieve().bodyToMono(String.class);
+        }
+
+        @Override
+        public String getProviderName() {
+            return PROVIDER;
+        }
+
+        @Override
+        public int maxBatchSize() {
+            return 10;
+        }
+
+        @Override
+        public String batchKey(CryptoIdentity identity) {
+            return identity.getSymbol();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package crypto.insight.crypto.service.provider;
+
+import crypto.insight.crypto.config.properties.ProviderHedgingProperties;
+import crypto.insight.crypto.config.properties.ProviderRankingProperties;
+import crypto.insight.crypto.config.properties.RateLimitingProperties;
+import crypto.insight.crypto.model.CryptoData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static crypto.insight.crypto.service.provider.FakeDataProvider.identity;
+import static crypto.insight.crypto.service.provider.FakeDataProvider.quote;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProviderRankingTest {
+
+    private final RateLimitingService rateLimitingService = new RateLimitingService(new RateLimitingProperties());
+
+    @AfterEach
+    void tearDown() {
+        rateLimitingService.shutdown();
+    }
+
+    @Test
+    void hedgeDelayFollowsObservedFetchLatencyOnceThereAreEnoughSamples() {
+        ProviderHedgingProperties hedging = new ProviderHedgingProperties();
+        hedging.setMinSamples(2);
+        hedging.setDefaultHedgeDelay(Duration.ofSeconds(1));
+        hedging.setMinHedgeDelay(Duration.ofMillis(1));
+        ProviderRanking ranking = new ProviderRanking(new ProviderRankingProperties(), hedging, rateLimitingService);
+        FakeDataProvider provider = new FakeDataProvider("Fake", 1, identity -> Mono.delay(Duration.ofMillis(100))
+                .map(tick -> quote(identity, 1.0)));
+
+        ranking.observeFetch(provider, provider.fetchData(identity("BTC"))).block();
+        assertThat(ranking.hedgeDelay("Fake")).isEqualTo(Duration.ofSeconds(1));
+
+        ranking.observeFetch(provider, provider.fetchData(identity("BTC"))).block();
+        assertThat(ranking.hedgeDelay("Fake")).isBetween(Duration.ofMillis(100), Duration.ofMillis(900));
+    }
+
+    @Test
+    void resolvesDoNotCountAsFetchSamples() {
+        ProviderHedgingProperties hedging = new ProviderHedgingProperties();
+        hedging.setMinSamples(1);
+        ProviderRanking ranking = new ProviderRanking(new ProviderRankingProperties(), hedging, rateLimitingService);
+        FakeDataProvider provider = new FakeDataProvider("Fake", 1, identity -> Mono.empty());
+
+        ranking.observeResolve(provider, provider.resolveIdentity("BTC")).block();
+
+        assertThat(ranking.hedgeDelay("Fake")).isEqualTo(hedging.getDefaultHedgeDelay());
+    }
+
+    @Test
+    void aSlowProviderCancelledBecauseAnotherAnsweredFirstDropsInRank() {
+        ProviderRankingProperties properties = new ProviderRankingProperties();
+        properties.setDefaultLatency(Duration.ofMillis(30));
+        ProviderHedgingProperties hedging = new ProviderHedgingProperties();
+        hedging.setMinSamples(3);
+        hedging.setMinHedgeDelay(Duration.ofMillis(1));
+        ProviderRanking ranking = new ProviderRanking(properties, hedging, rateLimitingService);
+        FakeDataProvider slow = new FakeDataProvider("Slow", 1, identity -> Mono.never());
+        // Slower than the default latency, so only losing races can rank the slow provider below it
+        FakeDataProvider fast = new FakeDataProvider("Fast", 1, identity -> Mono.delay(Duration.ofMillis(45))
+                .map(tick -> complete(quote(identity, 1.0))));
+        assertThat(ranking.rank(List.of(slow, fast))).containsExactly(slow, fast);
+
+        for (int i = 0; i < 5; i++) {
+            // The hedged fetch: the slow provider first, the fast one after the hedge delay
+            Disposable slowCall = ranking.observeFetch(slow, slow.fetchData(identity("BTC"))).subscribe();
+            Mono.delay(Duration.ofMillis(30))
+                    .then(ranking.observeFetch(fast, fast.fetchData(identity("BTC"))))
+                    .block();
+            slowCall.dispose();
+        }
+
+        assertThat(ranking.rank(List.of(slow, fast))).containsExactly(fast, slow);
+        assertThat(ranking.hedgeDelay("Slow")).isGreaterThanOrEqualTo(Duration.ofMillis(75));
+    }
+
+    /** Fills the remaining market fields, so completeness does not weigh into the rank */
+    private static CryptoData complete(CryptoData data) {
+        data.setMarketCapRank(1);
+        data.setCirculatingSupply(BigDecimal.ONE);
+        data.setTotalSupply(BigDecimal.ONE);
+        data.setMaxSupply(BigDecimal.ONE);
+        data.setImageUrl("https://example.com/btc.png");
+        return data;
+    }
+}
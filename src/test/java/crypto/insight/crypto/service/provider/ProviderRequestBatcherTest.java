@@ -0,0 +1,85 @@
+package crypto.insight.crypto.service.provider;
+
+import crypto.insight.crypto.config.properties.ProviderBatchingProperties;
+import crypto.insight.crypto.model.CryptoData;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static crypto.insight.crypto.service.provider.FakeDataProvider.identity;
+import static crypto.insight.crypto.service.provider.FakeDataProvider.quotes;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProviderRequestBatcherTest {
+
+    @Test
+    void sendsABatchAsSoonAsItIsFull() {
+        FakeDataProvider provider = new FakeDataProvider("Fake", 2, quotes(1.0));
+        ProviderRequestBatcher batcher = new ProviderRequestBatcher(properties(Duration.ofMinutes(1)));
+
+        List<CryptoData> results = Mono.zip(batcher.fetch(provider, identity("BTC")), batcher.fetch(provider, identity("ETH")))
+                .map(pair -> List.of(pair.getT1(), pair.getT2()))
+                .block(Duration.ofSeconds(5));
+
+        assertThat(results).extracting(data -> data.getIdentity().getSymbol()).containsExactly("BTC", "ETH");
+        assertThat(provider.calls).containsExactly(new FakeDataProvider.Call(List.of("BTC", "ETH"), RequestPriority.INTERACTIVE, false));
+    }
+
+    @Test
+    void sendsAPartialBatchOnceTheWindowCloses() {
+        FakeDataProvider provider = new FakeDataProvider("Fake", 10, quotes(1.0));
+        ProviderRequestBatcher batcher = new ProviderRequestBatcher(properties(Duration.ofMillis(50)));
+
+        StepVerifier.create(batcher.fetch(provider, identity("BTC")))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(25))
+                .assertNext(data -> assertThat(data.getIdentity().getSymbol()).isEqualTo("BTC"))
+                .verifyComplete();
+        assertThat(provider.calls).hasSize(1);
+    }
+
+    @Test
+    void splitsResultsBackToEachCallerAndSharesDuplicates() {
+        FakeDataProvider provider = new FakeDataProvider("Fake", 10, quotes(1.0, "XYZ"));
+        ProviderRequestBatcher batcher = new ProviderRequestBatcher(properties(Duration.ofMillis(20)));
+
+        Mono<CryptoData> btc = batcher.fetch(provider, identity("BTC"));
+        Mono<CryptoData> sameBtc = batcher.fetch(provider, identity("BTC"));
+        Mono<CryptoData> eth = batcher.fetch(provider, identity("ETH"));
+        Mono<CryptoData> unknown = batcher.fetch(provider, identity("XYZ"));
+
+        List<String> symbols = Mono.zip(btc, sameBtc, eth, unknown.map(data -> "found").defaultIfEmpty("none"))
+                .map(all -> List.of(all.getT1().getIdentity().getSymbol(), all.getT2().getIdentity().getSymbol(),
+                        all.getT3().getIdentity().getSymbol(), all.getT4()))
+                .block(Duration.ofSeconds(5));
+
+        assertThat(symbols).containsExactly("BTC", "BTC", "ETH", "none");
+        assertThat(provider.calls).hasSize(1);
+        assertThat(provider.calls.get(0).symbols()).containsExactly("BTC", "ETH", "XYZ");
+        assertThat(batcher.getStatistics()).containsEntry("coalescedDuplicates", 1L);
+    }
+
+    @Test
+    void keepsLanesInSeparateBatchesSentWithTheirOwnContext() {
+        FakeDataProvider provider = new FakeDataProvider("Fake", 10, quotes(1.0));
+        ProviderRequestBatcher batcher = new ProviderRequestBatcher(properties(Duration.ofMillis(20)));
+
+        Mono.when(batcher.fetch(provider, identity("BTC")),
+                        batcher.fetch(provider, identity("ETH")).contextWrite(RequestPriority.BULK.asContext()),
+                        batcher.fetch(provider, identity("SOL")).contextWrite(RequestPriority.BULK.asContext()))
+                .block(Duration.ofSeconds(5));
+
+        assertThat(provider.calls).containsExactlyInAnyOrder(
+                new FakeDataProvider.Call(List.of("BTC"), RequestPriority.INTERACTIVE, false),
+                new FakeDataProvider.Call(List.of("ETH", "SOL"), RequestPriority.BULK, false));
+    }
+
+    private static ProviderBatchingProperties properties(Duration window) {
+        ProviderBatchingProperties properties = new ProviderBatchingProperties();
+        properties.setWindow(window);
+        return properties;
+    }
+}
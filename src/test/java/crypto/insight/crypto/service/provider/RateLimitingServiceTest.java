@@ -0,0 +1,118 @@
+package crypto.insight.crypto.service.provider;
+
+import crypto.insight.crypto.config.properties.RateLimitingProperties;
+import crypto.insight.crypto.exception.CryptoApiException;
+import io.github.bucket4j.TimeMeter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateLimitingServiceTest {
+
+    private static final String PROVIDER = "CoinGecko";
+
+    private final ManualTimeMeter clock = new ManualTimeMeter();
+    private RateLimitingService service;
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void burstCapacityIsAvailableAtOnceAndNoMore() {
+        service = service(60, 5);
+
+        for (int i = 0; i < 5; i++) {
+            service.acquirePermit(PROVIDER, RequestPriority.INTERACTIVE).block(Duration.ZERO);
+        }
+
+        assertThat(service.getRemainingQuota(PROVIDER)).isZero();
+        assertThat(service.canMakeRequest(PROVIDER)).isFalse();
+    }
+
+    @Test
+    void refillsOneTokenPerIntervalUpToTheBurstCapacity() {
+        service = service(60, 5);
+        drain();
+
+        clock.advance(Duration.ofMillis(999));
+        assertThat(service.canMakeRequest(PROVIDER)).isFalse();
+
+        clock.advance(Duration.ofMillis(1));
+        assertThat(service.getRemainingQuota(PROVIDER)).isEqualTo(0.2);
+
+        clock.advance(Duration.ofHours(1));
+        assertThat(service.getRemainingQuota(PROVIDER)).isEqualTo(1.0);
+    }
+
+    @Test
+    void backgroundLanesLeaveTheInteractiveReserveAlone() {
+        service = service(60, 10);
+
+        for (int i = 0; i < 5; i++) {
+            service.acquirePermit(PROVIDER, RequestPriority.BULK).block(Duration.ZERO);
+        }
+        // Half the bucket is reserved, and no refill lands within the background wait
+        assertThatThrownBy(() -> service.acquirePermit(PROVIDER, RequestPriority.BULK).block(Duration.ofSeconds(1)))
+                .isInstanceOf(CryptoApiException.class)
+                .hasMessageContaining("background quota exhausted");
+        for (int i = 0; i < 5; i++) {
+            service.acquirePermit(PROVIDER, RequestPriority.INTERACTIVE).block(Duration.ZERO);
+        }
+        assertThat(service.getRemainingQuota(PROVIDER)).isZero();
+
+        // Background requests go again once the bucket has refilled past the reserve
+        clock.advance(Duration.ofSeconds(6));
+        service.acquirePermit(PROVIDER, RequestPriority.PREFETCH).block(Duration.ZERO);
+        assertThat(service.getRemainingQuota(PROVIDER)).isEqualTo(0.5);
+    }
+
+    @Test
+    void throttledAnswerEmptiesTheBucket() {
+        service = service(60, 5);
+
+        service.recordThrottled(PROVIDER);
+
+        assertThat(service.getRemainingQuota(PROVIDER)).isZero();
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(service.getRemainingQuota(PROVIDER)).isEqualTo(0.2);
+    }
+
+    private void drain() {
+        while (service.canMakeRequest(PROVIDER)) {
+            service.consumeIfAvailable(PROVIDER);
+        }
+    }
+
+    private RateLimitingService service(int perMinute, int burstCapacity) {
+        RateLimitingProperties properties = new RateLimitingProperties();
+        RateLimitingProperties.Provider limits = new RateLimitingProperties.Provider(perMinute, Duration.ofMinutes(1));
+        limits.setBurstCapacity(burstCapacity);
+        properties.getProviders().setCoinGecko(limits);
+        properties.getQueue().setBackgroundMaxWait(Duration.ofMillis(100));
+        return new RateLimitingService(properties, clock);
+    }
+
+    private static final class ManualTimeMeter implements TimeMeter {
+        private long nanos;
+
+        void advance(Duration duration) {
+            nanos += duration.toNanos();
+        }
+
+        @Override
+        public long currentTimeNanos() {
+            return nanos;
+        }
+
+        @Override
+        public boolean isWallClockBased() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package crypto.insight.crypto.service.provider;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamingJsonDecoderTest {
+
+    private static final String BODY = """
+            {"Response":"Success","Other":{"x":{"Symbol":"NOT-AN-ENTRY"}},
+             "Data":{"BTC":{"Symbol":"BTC","Tags":["pow",{"deep":[1,2]}]},"ETH":2,"LTC":"lite","XRP":null,
+                     "DOGE":[1,{"a":{}}]},
+             "After":{"y":{"Symbol":"NOT-AN-ENTRY-EITHER"}}}
+            """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT);
+    private final List<NettyDataBuffer> allocated = new ArrayList<>();
+
+    @Test
+    void streamsNestedAndScalarEntriesOfTheFieldOnly() {
+        List<Map.Entry<String, JsonNode>> entries = decode(chunks(BODY, BODY.length()));
+
+        assertThat(entries).extracting(Map.Entry::getKey).containsExactly("BTC", "ETH", "LTC", "XRP", "DOGE");
+        assertThat(entries.get(0).getValue().at("/Tags/1/deep/1").asInt()).isEqualTo(2);
+        assertThat(entries.get(1).getValue().asInt()).isEqualTo(2);
+        assertThat(entries.get(2).getValue().asText()).isEqualTo("lite");
+        assertThat(entries.get(3).getValue().isNull()).isTrue();
+        assertThat(entries.get(4).getValue().at("/1/a").isObject()).isTrue();
+        assertReleased();
+    }
+
+    @Test
+    void entriesSplitAcrossBuffersDecodeTheSame() {
+        List<Map.Entry<String, JsonNode>> whole = decode(chunks(BODY, BODY.length()));
+
+        for (int size : new int[] {1, 2, 3, 7, 16}) {
+            assertThat(decode(chunks(BODY, size))).as("chunks of %d bytes", size).isEqualTo(whole);
+        }
+        assertReleased();
+    }
+
+    @Test
+    void aMissingOrNonObjectFieldHasNoEntries() {
+        assertThat(decode(chunks("{\"Response\":\"Error\",\"Other\":{\"a\":1}}", 5))).isEmpty();
+        assertThat(decode(chunks("{\"Data\":[{\"a\":1}],\"After\":{\"b\":2}}", 5))).isEmpty();
+        assertThat(decode(chunks("{\"Data\":{}}", 5))).isEmpty();
+        assertThat(decode(Flux.empty())).isEmpty();
+    }
+
+    @Test
+    void stoppingEarlyReleasesEveryBuffer() {
+        Map.Entry<String, JsonNode> first = StreamingJsonDecoder
+                .objectEntries(chunks(BODY, 4), objectMapper, "Data", JsonNode.class)
+                .next()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(first.getKey()).isEqualTo("BTC");
+        // Buffers that arrived after the first entry are let go of unread
+        assertReleased();
+    }
+
+    @Test
+    void malformedBodyFailsAndReleasesEveryBuffer() {
+        Flux<Map.Entry<String, JsonNode>> entries = StreamingJsonDecoder
+                .objectEntries(chunks("{\"Data\":{\"a\":1,,}} and some more bytes", 3), objectMapper, "Data",
+                        JsonNode.class);
+
+        assertThat(entries.onErrorResume(error -> Flux.empty()).collectList().block(Duration.ofSeconds(5)))
+                .extracting(Map.Entry::getKey)
+                .containsExactly("a");
+        assertReleased();
+    }
+
+    private List<Map.Entry<String, JsonNode>> decode(Flux<DataBuffer> body) {
+        return StreamingJsonDecoder.objectEntries(body, objectMapper, "Data", JsonNode.class)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+    }
+
+    /**
+     * The body in buffers of at most {@code size} bytes, all pushed at once like a fast network
+     * body, so most of them wait in queues ahead of the parser.
+     */
+    private Flux<DataBuffer> chunks(String json, int size) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        return Flux.create(sink -> {
+            for (int from = 0; from < bytes.length; from += size) {
+                NettyDataBuffer buffer = bufferFactory.wrap(Unpooled.wrappedBuffer(
+                        Arrays.copyOfRange(bytes, from, Math.min(bytes.length, from + size))));
+                allocated.add(buffer);
+                sink.next(buffer);
+            }
+            sink.complete();
+        });
+    }
+
+    private void assertReleased() {
+        assertThat(allocated).isNotEmpty()
+                .allSatisfy(buffer -> assertThat(buffer.getNativeBuffer().refCnt()).isZero());
+    }
+}
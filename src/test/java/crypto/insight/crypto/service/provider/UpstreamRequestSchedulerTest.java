@@ -0,0 +1,119 @@
+package crypto.insight.crypto.service.provider;
+
+import crypto.insight.crypto.config.ApiProperties;
+import crypto.insight.crypto.config.properties.RateLimitingProperties;
+import crypto.insight.crypto.config.properties.UpstreamSchedulerProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives one upstream with a single in-flight slot: every request queues, and completing the
+ * request holding the slot hands it to the next one, so the order requests reach the provider
+ * is exactly the scheduler's.
+ */
+class UpstreamRequestSchedulerTest {
+
+    private final ApiProperties apiProperties = new ApiProperties();
+    private final Queue<Sinks.One<ClientResponse>> inFlight = new ArrayDeque<>();
+    private final List<String> served = Collections.synchronizedList(new ArrayList<>());
+    private final ExchangeFunction exchange = request -> Mono.defer(() -> {
+        served.add(request.url().getPath().substring(request.url().getPath().lastIndexOf('/') + 1));
+        Sinks.One<ClientResponse> response = Sinks.one();
+        inFlight.add(response);
+        return response.asMono();
+    });
+
+    private RateLimitingService rateLimitingService;
+    private UpstreamSchedulerProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitingProperties limits = new RateLimitingProperties();
+        limits.getGlobal().setEnabled(false);
+        rateLimitingService = new RateLimitingService(limits);
+        properties = new UpstreamSchedulerProperties();
+        properties.setMaxConcurrentPerUpstream(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        rateLimitingService.shutdown();
+    }
+
+    @Test
+    void backloggedLanesShareSlotsInProportionToTheirWeights() {
+        properties.getWeights().setRealtime(3);
+        properties.getWeights().setBulk(1);
+        UpstreamRequestScheduler scheduler = new UpstreamRequestScheduler(properties, apiProperties, rateLimitingService);
+
+        send(scheduler, RequestPriority.INTERACTIVE, "blocker");
+        for (int i = 0; i < 8; i++) {
+            send(scheduler, RequestPriority.BULK, "bulk");
+            send(scheduler, RequestPriority.REALTIME, "realtime");
+        }
+        drain();
+
+        assertThat(served).hasSize(17);
+        List<String> first = served.subList(1, 9);
+        assertThat(Collections.frequency(first, "realtime")).isEqualTo(6);
+        assertThat(Collections.frequency(first, "bulk")).isEqualTo(2);
+        assertThat(served.subList(9, 17)).containsOnly("realtime", "bulk");
+    }
+
+    @Test
+    void anIdleLaneCannotBankCredit() {
+        properties.getWeights().setRealtime(1);
+        properties.getWeights().setBulk(1);
+        UpstreamRequestScheduler scheduler = new UpstreamRequestScheduler(properties, apiProperties, rateLimitingService);
+
+        send(scheduler, RequestPriority.INTERACTIVE, "blocker");
+        for (int i = 0; i < 6; i++) {
+            send(scheduler, RequestPriority.REALTIME, "realtime");
+        }
+        // Serve four realtime requests while bulk has nothing queued
+        for (int i = 0; i < 4; i++) {
+            completeNext();
+        }
+        for (int i = 0; i < 4; i++) {
+            send(scheduler, RequestPriority.BULK, "bulk");
+        }
+        drain();
+
+        // The late bulk lane joins at the current virtual time and alternates, instead of
+        // taking four turns in a row to catch up
+        assertThat(served.subList(5, 9)).containsExactly("bulk", "realtime", "bulk", "realtime");
+    }
+
+    private void send(UpstreamRequestScheduler scheduler, RequestPriority lane, String name) {
+        ClientRequest request = ClientRequest.create(HttpMethod.GET,
+                URI.create(apiProperties.getCoinGeckoBaseUrl() + "/" + name)).build();
+        scheduler.filter(request, exchange).contextWrite(lane.asContext()).subscribe();
+    }
+
+    private void completeNext() {
+        inFlight.remove().tryEmitValue(ClientResponse.create(HttpStatus.OK).build());
+    }
+
+    private void drain() {
+        while (!inFlight.isEmpty()) {
+            completeNext();
+        }
+    }
+}
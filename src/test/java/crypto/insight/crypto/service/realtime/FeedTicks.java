@@ -0,0 +1,32 @@
+package crypto.insight.crypto.service.realtime;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * Builds feed ticks for tests outside the package, encoded with a plain ObjectMapper.
+ */
+public final class FeedTicks {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private FeedTicks() {
+    }
+
+    /** Tick {@code seq} of the ticker feed of {@code symbol}, whose delta carries the price */
+    public static FeedTick ticker(String symbol, long seq, double price) {
+        return new FeedTick(FeedChannel.TICKER, symbol, 1, seq, Map.of("price", price, "volume", 1.0),
+                Map.of("price", price), FeedTicks::encode);
+    }
+
+    private static BroadcastFrame encode(Map<String, Object> message) {
+        try {
+            return BroadcastFrame.encode(OBJECT_MAPPER, message);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package crypto.insight.crypto.service.realtime;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import crypto.insight.crypto.config.ApiProperties;
+import crypto.insight.crypto.config.properties.ChartStoreProperties;
+import crypto.insight.crypto.config.properties.PriceFeedProperties;
+import crypto.insight.crypto.model.CryptoIdentity;
+import crypto.insight.crypto.service.ApiService;
+import crypto.insight.crypto.service.SingleFlightService;
+import crypto.insight.crypto.service.chart.ChartSeriesStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Chart feeds serve both the WebSocket and the Server-Sent Events streams, so whatever they emit
+ * reaches every chart subscriber.
+ */
+class PriceFeedTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private volatile HttpStatus upstreamStatus = HttpStatus.OK;
+    private volatile String upstreamChart;
+    private ChartSeriesStore chartSeriesStore;
+    private PriceFeed priceFeed;
+
+    @BeforeEach
+    void setUp() {
+        ConcurrentMapCache identityCache = new ConcurrentMapCache("identity");
+        CryptoIdentity bitcoin = new CryptoIdentity("btc");
+        bitcoin.setSymbol("BTC");
+        bitcoin.setCoingeckoId("bitcoin");
+        identityCache.put("btc", bitcoin);
+
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> Mono.fromSupplier(() -> {
+                    requests.add(request.url().getPath());
+                    return ClientResponse.create(upstreamStatus)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(upstreamStatus.is2xxSuccessful() ? upstreamChart : "{}")
+                            .build();
+                }))
+                .build();
+        ChartStoreProperties chartStoreProperties = new ChartStoreProperties();
+        chartStoreProperties.setPersistenceEnabled(false);
+        chartSeriesStore = new ChartSeriesStore(chartStoreProperties);
+        ApiService apiService = new ApiService(List.of(), identityCache, webClient, new ApiProperties(),
+                chartSeriesStore, null, new SingleFlightService(), null, null, null, null, null);
+
+        PriceFeedProperties properties = new PriceFeedProperties();
+        properties.setChartPollInterval(Duration.ofMillis(50));
+        priceFeed = new PriceFeed(null, apiService, properties, OBJECT_MAPPER);
+    }
+
+    @AfterEach
+    void tearDown() {
+        chartSeriesStore.close();
+    }
+
+    @Test
+    void chartFeedNeverCarriesGeneratedPointsWhenTheUpstreamFails() {
+        upstreamStatus = HttpStatus.NOT_FOUND;
+
+        StepVerifier.create(priceFeed.resume(FeedChannel.CHART, "BTC", -1, -1))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(300))
+                .thenCancel()
+                .verify();
+
+        assertThat(priceFeed.getStatistics()).containsEntry("ticks", 0L);
+        assertThat((Long) priceFeed.getStatistics().get("pollFailures")).isPositive();
+    }
+
+    @Test
+    void chartFeedFetchesTheResolvedCoinGeckoIdAndSendsTheUpstreamPoints() {
+        long now = System.currentTimeMillis();
+        upstreamChart = "{\"prices\":[[" + (now - 600_000) + ",100.5],[" + (now - 300_000) + ",101.5]],"
+                + "\"market_caps\":[],\"total_volumes\":[]}";
+
+        StepVerifier.create(priceFeed.resume(FeedChannel.CHART, "BTC", -1, -1).take(1))
+                .assertNext(event -> {
+                    assertThat(event.delta()).isFalse();
+                    assertThat(points(event)).isNotEmpty().isSubsetOf(
+                            List.of(now - 600_000, 100.5), List.of(now - 300_000, 101.5));
+                })
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        assertThat(requests).isNotEmpty().allMatch(path -> path.startsWith("/api/v3/coins/bitcoin/"));
+    }
+
+    private static List<List<Number>> points(FeedEvent event) {
+        try {
+            JsonNode data = OBJECT_MAPPER.readTree(event.frame().asTextMessage().getPayload()).get("data");
+            List<List<Number>> points = new ArrayList<>();
+            data.forEach(point -> points.add(List.of(point.get(0).asLong(), point.get(1).asDouble())));
+            return points;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package crypto.insight.crypto.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import crypto.insight.crypto.config.properties.WebSocketProperties;
+import crypto.insight.crypto.service.realtime.FeedTick;
+import crypto.insight.crypto.service.realtime.FeedTicks;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionOutboxTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final FakeWebSocketSession session = new FakeWebSocketSession();
+    private final SessionOutbox.Counters counters = new SessionOutbox.Counters();
+
+    @Test
+    void disconnectsWhenMoreMessagesQueueThanTheBound() throws Exception {
+        SessionOutbox outbox = outbox(2);
+        session.duringNextSend(() -> {
+            outbox.send(new TextMessage("queued-1"));
+            outbox.send(new TextMessage("queued-2"));
+            assertThat(outbox.queued()).isEqualTo(2);
+            outbox.send(new TextMessage("overflow"));
+        });
+
+        outbox.send(new TextMessage("first"));
+
+        assertThat(session.closed.get(5, TimeUnit.SECONDS)).isEqualTo(CloseStatus.SESSION_NOT_RELIABLE);
+        assertThat(payloads()).containsExactly("first");
+        assertThat(outbox.queued()).isZero();
+        assertThat(counters.disconnected.get()).isEqualTo(1);
+    }
+
+    @Test
+    void sendsMessagesInOrderBeforeWaitingTicks() throws Exception {
+        SessionOutbox outbox = outbox(8);
+        session.duringNextSend(() -> {
+            outbox.sendLatest(FeedTicks.ticker("btc", 1, 100));
+            outbox.send(new TextMessage("reply-1"));
+            outbox.send(new TextMessage("reply-2"));
+        });
+
+        outbox.send(new TextMessage("first"));
+
+        assertThat(session.sent).hasSize(4);
+        assertThat(payloads().subList(0, 3)).containsExactly("first", "reply-1", "reply-2");
+        assertThat(json(3).get("seq").asLong()).isEqualTo(1);
+    }
+
+    @Test
+    void conflatesTicksToTheLatestPerFeed() throws Exception {
+        SessionOutbox outbox = outbox(8);
+        session.duringNextSend(() -> {
+            outbox.sendLatest(FeedTicks.ticker("btc", 2, 101));
+            outbox.sendLatest(FeedTicks.ticker("eth", 1, 10));
+            outbox.sendLatest(FeedTicks.ticker("btc", 3, 102));
+            outbox.sendLatest(FeedTicks.ticker("btc", 4, 103));
+        });
+
+        outbox.sendLatest(FeedTicks.ticker("btc", 1, 100));
+
+        assertThat(session.sent).hasSize(3);
+        // The feed keeps its place in line when a newer tick replaces the waiting one
+        assertThat(json(1).get("symbol").asText()).isEqualTo("btc");
+        assertThat(json(1).get("seq").asLong()).isEqualTo(4);
+        assertThat(json(1).get("data").get("price").asDouble()).isEqualTo(103);
+        assertThat(json(2).get("symbol").asText()).isEqualTo("eth");
+        assertThat(counters.conflated.get()).isEqualTo(2);
+    }
+
+    @Test
+    void sendsDeltasOnlyOnTopOfTheTickDeliveredBefore() throws Exception {
+        SessionOutbox outbox = outbox(8);
+        FeedTick first = FeedTicks.ticker("btc", 1, 100);
+
+        // Nothing delivered yet, then the directly following tick
+        outbox.sendLatest(first);
+        outbox.sendLatest(FeedTicks.ticker("btc", 2, 101));
+        // Tick 4 is conflated away behind tick 3's send, so tick 5 skips it
+        session.duringNextSend(() -> {
+            outbox.sendLatest(FeedTicks.ticker("btc", 4, 103));
+            outbox.sendLatest(FeedTicks.ticker("btc", 5, 104));
+        });
+        outbox.sendLatest(FeedTicks.ticker("btc", 3, 102));
+        // A replayed tick the session already has is not sent again
+        outbox.sendLatest(first);
+        outbox.resync("ticker:btc");
+        outbox.sendLatest(FeedTicks.ticker("btc", 6, 105));
+        outbox.sendLatest(FeedTicks.ticker("btc", 7, 106));
+
+        assertThat(session.sent).hasSize(6);
+        assertThat(types()).containsExactly("snapshot", "delta", "delta", "snapshot", "snapshot", "delta");
+        assertThat(session.sent.stream().map(message -> json(message).get("seq").asLong()))
+                .containsExactly(1L, 2L, 3L, 5L, 6L, 7L);
+        assertThat(json(1).get("data").has("volume")).isFalse();
+        assertThat(counters.snapshots.get()).isEqualTo(3);
+        assertThat(counters.deltas.get()).isEqualTo(3);
+    }
+
+    @Test
+    void sharesOneMessageInstanceAcrossSessions() {
+        FeedTick tick = FeedTicks.ticker("btc", 1, 100);
+        FakeWebSocketSession other = new FakeWebSocketSession();
+
+        outbox(8).sendLatest(tick);
+        new SessionOutbox(other, new WebSocketProperties(), counters).sendLatest(tick);
+
+        assertThat(other.sent.get(0)).isSameAs(session.sent.get(0));
+    }
+
+    private SessionOutbox outbox(int maxQueuedMessages) {
+        WebSocketProperties properties = new WebSocketProperties();
+        properties.setMaxQueuedMessages(maxQueuedMessages);
+        return new SessionOutbox(session, properties, counters);
+    }
+
+    private List<String> payloads() {
+        return session.sent.stream().map(TextMessage::getPayload).toList();
+    }
+
+    private List<String> types() {
+        return session.sent.stream().map(message -> json(message).get("type").asText()).toList();
+    }
+
+    private JsonNode json(int index) {
+        return json(session.sent.get(index));
+    }
+
+    private static JsonNode json(TextMessage message) {
+        try {
+            return OBJECT_MAPPER.readTree(message.getPayload());
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}